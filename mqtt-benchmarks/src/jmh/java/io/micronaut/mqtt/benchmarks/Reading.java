@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.benchmarks;
+
+import io.micronaut.serde.annotation.Serdeable;
+
+import java.util.Arrays;
+
+/**
+ * A sensor reading published as JSON by the benchmarks, its size grows with the number of samples.
+ *
+ * @param device The device that took the reading
+ * @param timestamp The time the reading was taken
+ * @param samples The sampled values
+ */
+@Serdeable
+public record Reading(String device, long timestamp, double[] samples) {
+
+    /**
+     * @param device The device
+     * @param samples The number of samples
+     * @return A reading with the given number of samples
+     */
+    public static Reading of(String device, int samples) {
+        double[] values = new double[samples];
+        Arrays.setAll(values, i -> 20 + i * 0.125);
+        return new Reading(device, 1_700_000_000_000L, values);
+    }
+}
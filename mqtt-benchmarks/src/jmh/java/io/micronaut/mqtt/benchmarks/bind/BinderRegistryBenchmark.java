@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.benchmarks.bind;
+
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.core.type.Argument;
+import io.micronaut.mqtt.benchmarks.Reading;
+import io.micronaut.mqtt.benchmarks.intercept.BenchmarkSubscriber;
+import io.micronaut.mqtt.bind.MqttBinderRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the lookup of the binder of a subscriber method argument, by its binding
+ * annotation or, for the payload, by falling back to the default binder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BinderRegistryBenchmark {
+
+    @Param({"topic-variable", "qos", "payload"})
+    public String argument;
+
+    private ApplicationContext applicationContext;
+    private MqttBinderRegistry binderRegistry;
+    private Argument<?> target;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        applicationContext = ApplicationContext.run();
+        binderRegistry = applicationContext.getBean(MqttBinderRegistry.class);
+        Argument<?>[] arguments = applicationContext.getBeanDefinition(BenchmarkSubscriber.class)
+                .getRequiredMethod("receive", String.class, int.class, Reading.class)
+                .getArguments();
+        switch (argument) {
+            case "topic-variable":
+                target = arguments[0];
+                break;
+            case "qos":
+                target = arguments[1];
+                break;
+            default:
+                target = arguments[2];
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public Object findArgumentBinder() {
+        return binderRegistry.findArgumentBinder(target);
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.benchmarks.intercept;
+
+import io.micronaut.mqtt.annotation.Qos;
+import io.micronaut.mqtt.annotation.Topic;
+import io.micronaut.mqtt.benchmarks.Reading;
+import io.micronaut.mqtt.v3.annotation.MqttPublisher;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The publisher exercised by {@link PublishBenchmark}.
+ */
+@MqttPublisher
+public interface BenchmarkPublisher {
+
+    @Topic("benchmark/bytes")
+    void publish(byte[] data);
+
+    @Topic("benchmark/bytes")
+    CompletableFuture<Void> publishAsync(byte[] data);
+
+    void publish(@Topic String topic, @Qos int qos, Reading reading);
+}
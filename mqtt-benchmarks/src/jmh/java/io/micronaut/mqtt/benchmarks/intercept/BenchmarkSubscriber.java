@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.benchmarks.intercept;
+
+import io.micronaut.mqtt.annotation.MqttSubscriber;
+import io.micronaut.mqtt.annotation.Qos;
+import io.micronaut.mqtt.annotation.Topic;
+import io.micronaut.mqtt.annotation.TopicVariable;
+import io.micronaut.mqtt.benchmarks.Reading;
+
+/**
+ * The subscriber exercised by {@link SubscribeBenchmark}. Keeps the last bound arguments so
+ * the benchmarks can consume them.
+ */
+@MqttSubscriber
+public class BenchmarkSubscriber {
+
+    private Object last;
+
+    @Topic("benchmark/bytes")
+    public void receive(byte[] data) {
+        last = data;
+    }
+
+    @Topic("benchmark/devices/{device}/reading")
+    public void receive(@TopicVariable String device, @Qos int qos, Reading reading) {
+        last = reading;
+    }
+
+    /**
+     * @return The payload bound by the last invocation
+     */
+    public Object getLast() {
+        return last;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.benchmarks.intercept;
+
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.mqtt.benchmarks.Reading;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of a publisher method call, from the introduction advice binding the
+ * arguments to the client being handed the message. The client is a stub that acknowledges
+ * every message immediately.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PublishBenchmark {
+
+    @Param({"16", "1024"})
+    public int payloadSize;
+
+    private ApplicationContext applicationContext;
+    private BenchmarkPublisher publisher;
+    private byte[] payload;
+    private Reading reading;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        applicationContext = ApplicationContext.run();
+        publisher = applicationContext.getBean(BenchmarkPublisher.class);
+        payload = new byte[payloadSize];
+        // about 8 bytes per sample once encoded as JSON
+        reading = Reading.of("device-1", Math.max(1, payloadSize / 8));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public void publish() {
+        publisher.publish(payload);
+    }
+
+    @Benchmark
+    public Object publishAsync() {
+        return publisher.publishAsync(payload).join();
+    }
+
+    @Benchmark
+    public void publishJson() {
+        publisher.publish("benchmark/devices/device-1/reading", 1, reading);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.benchmarks.intercept;
+
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.json.JsonMapper;
+import io.micronaut.mqtt.benchmarks.Reading;
+import io.micronaut.mqtt.benchmarks.stub.StubMqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.IMqttMessageListener;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of delivering a received message to a subscriber method, from the
+ * listener registered with the client to the method being invoked with its bound arguments.
+ * Messages are handed to the listeners directly, no broker is involved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SubscribeBenchmark {
+
+    @Param({"16", "1024"})
+    public int payloadSize;
+
+    private ApplicationContext applicationContext;
+    private BenchmarkSubscriber subscriber;
+    private IMqttMessageListener bytesListener;
+    private IMqttMessageListener readingListener;
+    private MqttMessage bytesMessage;
+    private MqttMessage readingMessage;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        applicationContext = ApplicationContext.run();
+        subscriber = applicationContext.getBean(BenchmarkSubscriber.class);
+        StubMqttAsyncClient client = (StubMqttAsyncClient) applicationContext.getBean(MqttAsyncClient.class);
+        bytesListener = client.getListener("benchmark/bytes");
+        readingListener = client.getListener("benchmark/devices/+/reading");
+        bytesMessage = new MqttMessage(new byte[payloadSize]);
+        readingMessage = new MqttMessage(applicationContext.getBean(JsonMapper.class)
+                .writeValueAsBytes(Reading.of("device-1", Math.max(1, payloadSize / 8))));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public Object deliver() throws Exception {
+        bytesListener.messageArrived("benchmark/bytes", bytesMessage);
+        return subscriber.getLast();
+    }
+
+    @Benchmark
+    public Object deliverJson() throws Exception {
+        readingListener.messageArrived("benchmark/devices/device-1/reading", readingMessage);
+        return subscriber.getLast();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.benchmarks.persistence;
+
+import io.micronaut.mqtt.persistence.MqttPersistenceConfigurationProperties;
+import io.micronaut.mqtt.test.broker.EmbeddedMqttBroker;
+import io.micronaut.mqtt.v3.persistence.OffHeapMqttClientPersistence;
+import io.micronaut.mqtt.v3.persistence.SegmentLogMqttClientPersistence;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.eclipse.paho.client.mqttv3.persist.MqttDefaultFilePersistence;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares the throughput of QoS 1 publishes from concurrent threads through a client
+ * connected to an embedded broker across client persistence implementations. The
+ * implementations are grouped by durability so that equal levels are compared: memory and
+ * off-heap keep messages in memory only, segment-log-none and segment-log-async do not wait
+ * for the storage device, segment-log-group waits for a forced group of writes, and file and
+ * segment-log-always force every write.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    private static final int MAX_INFLIGHT = 1000;
+    private static final String TOPIC = "benchmark/persistence";
+
+    @Param({"memory", "off-heap", "segment-log-none", "segment-log-async", "segment-log-group", "file", "segment-log-always"})
+    public String persistence;
+
+    @Param({"128", "4096"})
+    public int payloadSize;
+
+    private EmbeddedMqttBroker broker;
+    private MqttAsyncClient client;
+    private Path directory;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, MqttException {
+        directory = Files.createTempDirectory("mqtt-persistence-benchmark");
+        payload = new byte[payloadSize];
+        broker = new EmbeddedMqttBroker().start();
+        client = new MqttAsyncClient(broker.getServerUri(), "persistence-benchmark", createPersistence());
+        MqttConnectOptions options = new MqttConnectOptions();
+        options.setMaxInflight(MAX_INFLIGHT);
+        client.connect(options).waitForCompletion();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException, MqttException {
+        client.disconnect().waitForCompletion();
+        client.close();
+        broker.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void publish() throws MqttException {
+        client.publish(TOPIC, payload, 1, false).waitForCompletion();
+    }
+
+    private MqttClientPersistence createPersistence() {
+        switch (persistence) {
+            case "memory":
+                return new MemoryPersistence();
+            case "off-heap":
+                return new OffHeapMqttClientPersistence(new MqttPersistenceConfigurationProperties());
+            case "file":
+                return new MqttDefaultFilePersistence(directory.toString());
+            default:
+                MqttPersistenceConfigurationProperties configuration = new MqttPersistenceConfigurationProperties();
+                configuration.setDirectory(directory);
+                configuration.setCompactionInterval(Duration.ofSeconds(1));
+                configuration.setDurability(MqttPersistenceConfigurationProperties.Durability.valueOf(
+                        persistence.substring("segment-log-".length()).toUpperCase(Locale.ENGLISH)));
+                return new SegmentLogMqttClientPersistence(configuration);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.benchmarks.serdes;
+
+import io.micronaut.core.type.Argument;
+import io.micronaut.mqtt.serdes.JavaLangMqttPayloadSerDes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures every codec of {@link JavaLangMqttPayloadSerDes}, including finding the codec
+ * for the type as the publisher and subscriber advices do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JavaLangSerDesBenchmark {
+
+    @Param({"String", "Boolean", "Short", "Integer", "Long", "Float", "Double", "byte[]", "ByteBuffer", "UUID"})
+    public String type;
+
+    private final JavaLangMqttPayloadSerDes serDes = new JavaLangMqttPayloadSerDes();
+    private Object value;
+    private Argument<Object> argument;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        switch (type) {
+            case "String":
+                value = "benchmark/devices/device-1";
+                break;
+            case "Boolean":
+                value = Boolean.TRUE;
+                break;
+            case "Short":
+                value = (short) 4711;
+                break;
+            case "Integer":
+                value = 123_456;
+                break;
+            case "Long":
+                value = 1_700_000_000_000L;
+                break;
+            case "Float":
+                value = 21.5f;
+                break;
+            case "Double":
+                value = 21.125d;
+                break;
+            case "byte[]":
+                value = new byte[64];
+                break;
+            case "ByteBuffer":
+                value = ByteBuffer.wrap(new byte[64]);
+                break;
+            default:
+                value = UUID.fromString("0b6c9a8e-4c39-4b5e-9a8e-2f1d3c4b5a69");
+        }
+        argument = (Argument<Object>) Argument.of(value instanceof ByteBuffer ? ByteBuffer.class : value.getClass());
+        payload = serDes.serialize(value);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serDes.serialize(value);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serDes.deserialize(payload, argument);
+    }
+}
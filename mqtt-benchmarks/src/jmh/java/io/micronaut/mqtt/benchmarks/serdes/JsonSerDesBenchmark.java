@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.benchmarks.serdes;
+
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.core.type.Argument;
+import io.micronaut.mqtt.benchmarks.Reading;
+import io.micronaut.mqtt.serdes.JsonMqttPayloadSerDes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link JsonMqttPayloadSerDes} across payload sizes, from a reading of a single
+ * sample to one of several kilobytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerDesBenchmark {
+
+    private static final Argument<Object> TYPE = (Argument) Argument.of(Reading.class);
+
+    @Param({"1", "16", "256", "4096"})
+    public int samples;
+
+    private ApplicationContext applicationContext;
+    private JsonMqttPayloadSerDes serDes;
+    private Reading reading;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        applicationContext = ApplicationContext.run();
+        serDes = applicationContext.getBean(JsonMqttPayloadSerDes.class);
+        reading = Reading.of("device-1", samples);
+        payload = serDes.serialize(reading);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serDes.serialize(reading);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serDes.deserialize(payload, TYPE);
+    }
+}
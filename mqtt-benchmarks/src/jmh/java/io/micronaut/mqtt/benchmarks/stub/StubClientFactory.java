@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.benchmarks.stub;
+
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Primary;
+import io.micronaut.context.annotation.Replaces;
+import io.micronaut.mqtt.client.MqttClientPool;
+import io.micronaut.mqtt.client.MqttConnectionLifecycle;
+import io.micronaut.mqtt.v3.client.MqttClientFactory;
+import jakarta.inject.Singleton;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttException;
+
+import java.util.List;
+
+/**
+ * Replaces the default client with a {@link StubMqttAsyncClient}, so the benchmarks run
+ * without a broker.
+ */
+@Factory
+public class StubClientFactory {
+
+    @Singleton
+    @Primary
+    @Replaces(value = MqttAsyncClient.class, factory = MqttClientFactory.class)
+    MqttAsyncClient mqttClient(MqttConnectionLifecycle connectionLifecycle) throws MqttException {
+        StubMqttAsyncClient client = new StubMqttAsyncClient();
+        connectionLifecycle.connected(0, false);
+        return client;
+    }
+
+    @Singleton
+    @Primary
+    @Replaces(value = MqttClientPool.class, factory = MqttClientFactory.class)
+    MqttClientPool<MqttAsyncClient> mqttClientPool(MqttAsyncClient mqttClient) {
+        return new MqttClientPool<>(List.of(mqttClient), client -> { });
+    }
+}
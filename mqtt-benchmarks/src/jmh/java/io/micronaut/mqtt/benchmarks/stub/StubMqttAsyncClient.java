@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.benchmarks.stub;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.IMqttMessageListener;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.MqttToken;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A client that never connects to a broker. Publishes and subscriptions complete immediately
+ * with shared tokens, so the benchmarks measure the work done by the advices rather than by
+ * the network or the Paho client.
+ */
+public final class StubMqttAsyncClient extends MqttAsyncClient {
+
+    private final Map<String, IMqttMessageListener> listeners = new ConcurrentHashMap<>();
+    private final MqttDeliveryToken deliveryToken = new MqttDeliveryToken("benchmark");
+    private final MqttToken token = new MqttToken("benchmark");
+
+    StubMqttAsyncClient() throws MqttException {
+        super("tcp://localhost:1883", "benchmark", new MemoryPersistence());
+    }
+
+    /**
+     * @param filter The topic filter a subscriber method subscribed to
+     * @return The listener the subscriber advice registered for the filter
+     */
+    public IMqttMessageListener getListener(String filter) {
+        IMqttMessageListener listener = listeners.get(filter);
+        if (listener == null) {
+            throw new IllegalStateException("No subscription to " + filter);
+        }
+        return listener;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return true;
+    }
+
+    @Override
+    public IMqttDeliveryToken publish(String topic, MqttMessage message, Object userContext, IMqttActionListener callback) {
+        if (callback != null) {
+            callback.onSuccess(deliveryToken);
+        }
+        return deliveryToken;
+    }
+
+    @Override
+    public IMqttToken subscribe(String[] topicFilters, int[] qos, Object userContext, IMqttActionListener callback, IMqttMessageListener[] messageListeners) {
+        for (int i = 0; i < topicFilters.length; i++) {
+            listeners.put(topicFilters[i], messageListeners[i]);
+        }
+        if (callback != null) {
+            callback.onSuccess(token);
+        }
+        return token;
+    }
+
+    @Override
+    public IMqttToken unsubscribe(String[] topicFilters) {
+        for (String topicFilter : topicFilters) {
+            listeners.remove(topicFilter);
+        }
+        return token;
+    }
+
+    @Override
+    public IMqttToken disconnect() {
+        return token;
+    }
+}
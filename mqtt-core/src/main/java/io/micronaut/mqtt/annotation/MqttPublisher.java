@@ -0,0 +1,56 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.annotation;
+
+import io.micronaut.aop.Introduction;
+import io.micronaut.retry.annotation.Recoverable;
+import jakarta.inject.Scope;
+import jakarta.inject.Singleton;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * An introduction advice that automatically implements interfaces and abstract classes and publishes Mqtt messages
+ * with the transport selected by {@code mqtt.client.transport}, so a client interface does not depend on a
+ * specific client module.
+ *
+ * @since 3.0.0
+ */
+@Documented
+@Retention(RUNTIME)
+@Target({ElementType.TYPE})
+@Scope
+@Introduction
+@Recoverable
+@Singleton
+public @interface MqttPublisher {
+
+    /**
+     * @return The topic to publish messages to.
+     */
+    String value() default "";
+
+    /**
+     * @return The name of the client under {@code mqtt.clients} to publish with, the default client if not set
+     */
+    String client() default "";
+
+}
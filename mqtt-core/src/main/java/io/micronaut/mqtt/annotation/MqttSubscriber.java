@@ -37,4 +37,9 @@ import static java.lang.annotation.RetentionPolicy.RUNTIME;
 @MessageListener
 public @interface MqttSubscriber {
 
+    /**
+     * @return The name of the client under {@code mqtt.clients} to subscribe with, the default client if not set
+     * @since 3.0.0
+     */
+    String client() default "";
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.annotation;
+
+import io.micronaut.context.annotation.Executable;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Marks a publisher method as a request. The message is published with a response topic and
+ * correlation data, and the returned future, reactive type or suspending function completes
+ * with the decoded response. MQTT v5 only.
+ *
+ * <p>Methods are validated when the application starts. A request must be sent with the
+ * default client and return a value other than {@link Void}.</p>
+ *
+ * @since 3.0.0
+ */
+@Documented
+@Retention(RUNTIME)
+@Target({ElementType.METHOD})
+@Executable(processOnStartup = true)
+public @interface Request {
+}
@@ -51,4 +51,35 @@ public @interface Topic {
     String value() default "";
 
     int qos() default 1;
+
+    /**
+     * Subscribers only, MQTT v5 only. Ignored for MQTT v3.
+     *
+     * @return True if the broker must not deliver messages published by the same client
+     * @since 3.0.0
+     */
+    boolean noLocal() default false;
+
+    /**
+     * Subscribers only, MQTT v5 only. Ignored for MQTT v3.
+     *
+     * @return True if messages keep the retain flag they were published with, false if the
+     * broker clears it on messages that are not sent because of the subscription
+     * @since 3.0.0
+     */
+    boolean retainAsPublished() default false;
+
+    /**
+     * Subscribers only, MQTT v5 only. Ignored for MQTT v3.
+     *
+     * <ul>
+     *     <li>0 - Send the retained messages whenever the subscription is made</li>
+     *     <li>1 - Send the retained messages only if the subscription did not exist yet</li>
+     *     <li>2 - Never send the retained messages</li>
+     * </ul>
+     *
+     * @return When the broker sends the retained messages matching the filter
+     * @since 3.0.0
+     */
+    int retainHandling() default 0;
 }
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.annotation;
+
+import io.micronaut.core.bind.annotation.Bindable;
+
+import java.lang.annotation.*;
+
+/**
+ * Used to bind a named variable of the topic template to a parameter. Subscriber
+ * topics may declare variables as whole topic levels, for example
+ * {@code @Topic("sites/{site}/devices/{device}/temp")}, which are subscribed to as
+ * single level wildcards and extracted from the topic of each received message.
+ *
+ * When used on a publisher, the argument value replaces the variable in the topic
+ * the message is published to.
+ *
+ * @since 3.0.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.PARAMETER})
+@Bindable
+@Inherited
+public @interface TopicVariable {
+
+    /**
+     * @return The name of the variable, otherwise it is inferred from the argument name
+     */
+    String value() default "";
+}
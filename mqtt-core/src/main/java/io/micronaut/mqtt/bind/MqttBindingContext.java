@@ -16,6 +16,10 @@
 package io.micronaut.mqtt.bind;
 
 import io.micronaut.core.annotation.Introspected;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.mqtt.topic.TopicVariables;
+
+import java.nio.ByteBuffer;
 
 /**
  * A generic context for binding to MQTT messages.
@@ -39,6 +43,30 @@ public interface MqttBindingContext<T> {
      */
     void setPayload(byte[] payload);
 
+    /**
+     * A view of the payload, which must not be modified. Transports that receive the payload into a pooled buffer
+     * return a view of that buffer, which is only valid while the message is delivered unless
+     * {@link #retainPayload()} is called. The default wraps {@link #getPayload()}.
+     *
+     * @return The message payload, or null if there is none
+     * @since 3.0.0
+     */
+    @Nullable
+    default ByteBuffer getPayloadBuffer() {
+        byte[] payload = getPayload();
+        return payload == null ? null : ByteBuffer.wrap(payload);
+    }
+
+    /**
+     * Keeps the payload readable after the message has been delivered, for example to deliver
+     * it again later. Transports that lend the payload from a pooled buffer copy it here, the
+     * default does nothing.
+     *
+     * @since 3.0.0
+     */
+    default void retainPayload() {
+    }
+
     /**
      * @return True if the message is retained
      */
@@ -74,6 +102,24 @@ public interface MqttBindingContext<T> {
      */
     void setTopic(String topic);
 
+    /**
+     * @return The variables extracted from the topic by the subscribed topic template
+     * @since 3.0.0
+     */
+    @Nullable
+    default TopicVariables getTopicVariables() {
+        return null;
+    }
+
+    /**
+     * Sets the variables extracted from the topic by the subscribed topic template.
+     *
+     * @param topicVariables The topic variables
+     * @since 3.0.0
+     */
+    default void setTopicVariables(@Nullable TopicVariables topicVariables) {
+    }
+
     /**
      * @return The message ID
      */
@@ -84,6 +130,16 @@ public interface MqttBindingContext<T> {
      */
     void acknowlege();
 
+    /**
+     * Registers a callback run once the message has been acknowledged with {@link #acknowlege()}.
+     * Contexts that do not support it never run the callback.
+     *
+     * @param callback The callback
+     * @since 3.0.0
+     */
+    default void onAcknowledged(Runnable callback) {
+    }
+
     /**
      * @return The underlying message instance
      */
@@ -20,10 +20,15 @@ import io.micronaut.core.type.Argument;
 import io.micronaut.messaging.annotation.MessageBody;
 import io.micronaut.mqtt.bind.AnnotatedMqttBinder;
 import io.micronaut.mqtt.bind.MqttBindingContext;
+import io.micronaut.mqtt.observer.MqttObserverConfigurationProperties;
+import io.micronaut.mqtt.observer.MqttObservers;
 import io.micronaut.mqtt.serdes.MqttPayloadSerDes;
 import io.micronaut.mqtt.serdes.MqttPayloadSerDesRegistry;
+import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 
+import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.Optional;
 
 /**
@@ -36,9 +41,26 @@ import java.util.Optional;
 public class PayloadMqttBinder implements AnnotatedMqttBinder<MqttBindingContext<?>, MessageBody> {
 
     private final MqttPayloadSerDesRegistry serDesRegistry;
+    private final MqttObservers observers;
 
+    /**
+     * @param serDesRegistry The serializer/deserializer registry
+     * @deprecated Use {@link #PayloadMqttBinder(MqttPayloadSerDesRegistry, MqttObservers)} instead
+     */
+    @Deprecated
     public PayloadMqttBinder(MqttPayloadSerDesRegistry serDesRegistry) {
+        this(serDesRegistry, new MqttObservers(Collections.emptyList(), new MqttObserverConfigurationProperties()));
+    }
+
+    /**
+     * @param serDesRegistry The serializer/deserializer registry
+     * @param observers The observers notified of every serialization and deserialization
+     * @since 3.0.0
+     */
+    @Inject
+    public PayloadMqttBinder(MqttPayloadSerDesRegistry serDesRegistry, MqttObservers observers) {
         this.serDesRegistry = serDesRegistry;
+        this.observers = observers.isEmpty() ? null : observers;
     }
 
     @Override
@@ -49,13 +71,36 @@ public class PayloadMqttBinder implements AnnotatedMqttBinder<MqttBindingContext
     @Override
     public void bindTo(MqttBindingContext<?> context, Object value, Argument<Object> argument) {
         serDesRegistry.findSerdes(argument)
-                .map(serDes -> ((MqttPayloadSerDes<Object>) serDes).serialize(value))
+                .map(serDes -> serialize((MqttPayloadSerDes<Object>) serDes, value, argument))
                 .ifPresent(context::setPayload);
     }
 
     @Override
     public Optional<Object> bindFrom(MqttBindingContext<?> context, ArgumentConversionContext<Object> conversionContext) {
         return serDesRegistry.findSerdes(conversionContext.getArgument())
-                .map(serDes -> serDes.deserialize(context.getPayload(), conversionContext.getArgument()));
+                .map(serDes -> deserialize(serDes, context.getPayloadBuffer(), conversionContext.getArgument()));
+    }
+
+    private byte[] serialize(MqttPayloadSerDes<Object> serDes, Object value, Argument<Object> argument) {
+        if (observers == null || !observers.isEnabled()) {
+            return serDes.serialize(value);
+        }
+        Object observation = observers.serializeStarted(argument.getType());
+        long start = System.nanoTime();
+        byte[] payload = serDes.serialize(value);
+        observers.serialized(observation, argument.getType(), payload == null ? 0 : payload.length, System.nanoTime() - start);
+        return payload;
+    }
+
+    private Object deserialize(MqttPayloadSerDes<Object> serDes, ByteBuffer payload, Argument<Object> argument) {
+        if (observers == null || !observers.isEnabled()) {
+            return serDes.deserialize(payload, argument);
+        }
+        int size = payload == null ? 0 : payload.remaining();
+        Object observation = observers.deserializeStarted(argument.getType(), size);
+        long start = System.nanoTime();
+        Object value = serDes.deserialize(payload, argument);
+        observers.deserialized(observation, argument.getType(), size, System.nanoTime() - start);
+        return value;
     }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.bind.impl;
+
+import io.micronaut.core.annotation.AnnotationValue;
+import io.micronaut.core.convert.ArgumentConversionContext;
+import io.micronaut.core.convert.ConversionService;
+import io.micronaut.core.type.Argument;
+import io.micronaut.mqtt.annotation.TopicVariable;
+import io.micronaut.mqtt.bind.AnnotatedMqttBinder;
+import io.micronaut.mqtt.bind.MqttBindingContext;
+import io.micronaut.mqtt.exception.MqttClientException;
+import io.micronaut.mqtt.topic.TopicVariables;
+import jakarta.inject.Singleton;
+
+import java.util.Optional;
+
+/**
+ * An annotated argument binder for {@link TopicVariable}.
+ *
+ * @since 3.0.0
+ */
+@Singleton
+public class TopicVariableMqttBinder implements AnnotatedMqttBinder<MqttBindingContext<?>, TopicVariable> {
+
+    private final ConversionService conversionService;
+
+    public TopicVariableMqttBinder(ConversionService conversionService) {
+        this.conversionService = conversionService;
+    }
+
+    @Override
+    public Class<TopicVariable> getAnnotationType() {
+        return TopicVariable.class;
+    }
+
+    @Override
+    public void bindTo(MqttBindingContext<?> context, Object value, Argument<Object> argument) {
+        String topic = context.getTopic();
+        if (topic == null) {
+            throw new MqttClientException("A topic template must be supplied to bind topic variables");
+        }
+        String name = getVariableName(argument);
+        String level = conversionService.convert(value, Argument.STRING)
+                .orElseThrow(() -> new MqttClientException("The topic variable [" + name + "] must not be null"));
+        if (level.indexOf('/') >= 0 || level.indexOf('+') >= 0 || level.indexOf('#') >= 0) {
+            throw new MqttClientException("The topic variable [" + name + "] must be a single topic level without wildcards");
+        }
+        String variable = "{" + name + "}";
+        if (!topic.contains(variable)) {
+            throw new MqttClientException("The topic [" + topic + "] does not declare the variable " + variable);
+        }
+        context.setTopic(topic.replace(variable, level));
+    }
+
+    @Override
+    public Optional<Object> bindFrom(MqttBindingContext<?> context, ArgumentConversionContext<Object> conversionContext) {
+        TopicVariables variables = context.getTopicVariables();
+        if (variables == null) {
+            return Optional.empty();
+        }
+        String value = variables.get(getVariableName(conversionContext.getArgument()));
+        if (value == null) {
+            return Optional.empty();
+        }
+        return conversionService.convert(value, conversionContext);
+    }
+
+    private String getVariableName(Argument<?> argument) {
+        return argument.findAnnotation(TopicVariable.class)
+                .flatMap(AnnotationValue::stringValue)
+                .orElse(argument.getName());
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.buffer;
+
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.core.annotation.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * A message held in the offline buffer.
+ *
+ * @since 3.0.0
+ */
+public final class BufferedMessage {
+
+    // length, flags, topic length and properties length
+    static final int HEADER_SIZE = 4 + 1 + 2 + 4;
+
+    private static final Consumer<Throwable> NO_COMPLETION = error -> { };
+    private static final byte[] NO_PROPERTIES = new byte[0];
+
+    private final String topic;
+    private final byte[] topicBytes;
+    private final byte[] payload;
+    private final byte[] properties;
+    private final int qos;
+    private final boolean retained;
+    private final Consumer<Throwable> completion;
+    private final Runnable checkpoint;
+
+    /**
+     * @param topic The topic
+     * @param payload The payload
+     * @param qos The qos
+     * @param retained True if the message is retained
+     */
+    public BufferedMessage(@NonNull String topic, @NonNull byte[] payload, int qos, boolean retained) {
+        this(topic, payload, qos, retained, null);
+    }
+
+    /**
+     * @param topic The topic
+     * @param payload The payload
+     * @param qos The qos
+     * @param retained True if the message is retained
+     * @param completion Invoked with null once the broker has acknowledged the replayed
+     *                   message, or with the reason it was not published
+     */
+    public BufferedMessage(@NonNull String topic, @NonNull byte[] payload, int qos, boolean retained,
+                           @Nullable Consumer<Throwable> completion) {
+        this(topic, payload, qos, retained, null, completion);
+    }
+
+    /**
+     * @param topic The topic
+     * @param payload The payload
+     * @param qos The qos
+     * @param retained True if the message is retained
+     * @param properties The message properties encoded by the client, buffered as they are
+     * @param completion Invoked with null once the broker has acknowledged the replayed
+     *                   message, or with the reason it was not published
+     */
+    public BufferedMessage(@NonNull String topic, @NonNull byte[] payload, int qos, boolean retained,
+                           @Nullable byte[] properties, @Nullable Consumer<Throwable> completion) {
+        this(topic, topic.getBytes(StandardCharsets.UTF_8), payload, properties, qos, retained, completion, null);
+    }
+
+    BufferedMessage(String topic, byte[] topicBytes, byte[] payload, byte[] properties, int qos, boolean retained,
+                    Consumer<Throwable> completion, Runnable checkpoint) {
+        this.topic = topic;
+        this.topicBytes = topicBytes;
+        this.payload = payload;
+        this.properties = properties == null ? NO_PROPERTIES : properties;
+        this.qos = qos;
+        this.retained = retained;
+        this.completion = completion == null ? NO_COMPLETION : completion;
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * @return The topic
+     */
+    @NonNull
+    public String getTopic() {
+        return topic;
+    }
+
+    /**
+     * @return The payload
+     */
+    @NonNull
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    /**
+     * @return The message properties encoded by the client or an empty array if there are none
+     */
+    @NonNull
+    public byte[] getProperties() {
+        return properties;
+    }
+
+    /**
+     * @return The qos
+     */
+    public int getQos() {
+        return qos;
+    }
+
+    /**
+     * @return True if the message is retained
+     */
+    public boolean isRetained() {
+        return retained;
+    }
+
+    /**
+     * Completes the publish that buffered this message. Messages recovered from disk after a
+     * restart have no publish waiting for them. A message spilled to disk is not replayed again
+     * after a restart once it has been completed.
+     *
+     * @param error The reason the message was not published or null if the broker acknowledged it
+     */
+    public void complete(@Nullable Throwable error) {
+        try {
+            completion.accept(error);
+        } finally {
+            if (checkpoint != null) {
+                checkpoint.run();
+            }
+        }
+    }
+
+    /**
+     * @return The number of bytes the message occupies in a segment
+     */
+    int getSize() {
+        return HEADER_SIZE + topicBytes.length + properties.length + payload.length;
+    }
+
+    byte[] getTopicBytes() {
+        return topicBytes;
+    }
+
+    Consumer<Throwable> getCompletion() {
+        return completion;
+    }
+
+    BufferedMessage withCompletion(Consumer<Throwable> completion) {
+        return new BufferedMessage(topic, topicBytes, payload, properties, qos, retained, completion, checkpoint);
+    }
+
+    BufferedMessage withCheckpoint(Runnable checkpoint) {
+        return new BufferedMessage(topic, topicBytes, payload, properties, qos, retained, completion, checkpoint);
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.buffer;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An append-only, memory-mapped file holding buffered messages. The file starts with the
+ * position of the first message that has not been checkpointed yet, so messages that were
+ * replayed before a restart are not replayed again. Each record is written as its length
+ * followed by the flags, the topic length, the properties length, the topic, the properties
+ * and the payload. The length is written last, so a record interrupted by a crash is not
+ * recovered.
+ */
+final class MappedSegment {
+
+    private static final int RETAINED_FLAG = 0x4;
+    private static final int QOS_MASK = 0x3;
+    // the checkpointed read position
+    private static final int SEGMENT_HEADER_SIZE = 4;
+
+    private final Path path;
+    private final long sequence;
+    private final MappedByteBuffer buffer;
+    private int writePosition;
+    private int readPosition;
+
+    private MappedSegment(Path path, long sequence, MappedByteBuffer buffer) {
+        this.path = path;
+        this.sequence = sequence;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Creates a new, empty segment.
+     *
+     * @param path The file
+     * @param sequence The sequence number of the segment
+     * @param size The size of the segment in bytes
+     * @return The segment
+     * @throws IOException If the file could not be mapped
+     */
+    static MappedSegment create(Path path, long sequence, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedSegment segment = new MappedSegment(path, sequence, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            segment.writePosition = SEGMENT_HEADER_SIZE;
+            segment.readPosition = SEGMENT_HEADER_SIZE;
+            segment.checkpoint(SEGMENT_HEADER_SIZE);
+            return segment;
+        }
+    }
+
+    /**
+     * Opens a segment written by a previous run, finds the end of its last complete record and
+     * resumes reading at the checkpointed position.
+     *
+     * @param path The file
+     * @param sequence The sequence number of the segment
+     * @return The segment
+     * @throws IOException If the file could not be mapped
+     */
+    static MappedSegment recover(Path path, long sequence) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedSegment segment = new MappedSegment(path, sequence, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+            int capacity = segment.buffer.capacity();
+            int position = SEGMENT_HEADER_SIZE;
+            while (position + 4 <= capacity) {
+                int length = segment.buffer.getInt(position);
+                if (length < BufferedMessage.HEADER_SIZE - 4 || position + 4 + length > capacity) {
+                    break;
+                }
+                position += 4 + length;
+            }
+            segment.writePosition = position;
+            int checkpoint = capacity < SEGMENT_HEADER_SIZE ? 0 : segment.buffer.getInt(0);
+            segment.readPosition = Math.min(Math.max(checkpoint, SEGMENT_HEADER_SIZE), position);
+            return segment;
+        }
+    }
+
+    /**
+     * @param message The message
+     * @return True if the message was appended, false if the segment is full
+     */
+    boolean append(BufferedMessage message) {
+        int size = message.getSize();
+        if (writePosition + size > buffer.capacity()) {
+            return false;
+        }
+        byte[] topic = message.getTopicBytes();
+        byte[] properties = message.getProperties();
+        int flags = (message.getQos() & QOS_MASK) | (message.isRetained() ? RETAINED_FLAG : 0);
+        buffer.put(writePosition + 4, (byte) flags);
+        buffer.putShort(writePosition + 5, (short) topic.length);
+        buffer.putInt(writePosition + 7, properties.length);
+        buffer.put(writePosition + BufferedMessage.HEADER_SIZE, topic);
+        buffer.put(writePosition + BufferedMessage.HEADER_SIZE + topic.length, properties);
+        buffer.put(writePosition + BufferedMessage.HEADER_SIZE + topic.length + properties.length, message.getPayload());
+        buffer.putInt(writePosition, size - 4);
+        writePosition += size;
+        return true;
+    }
+
+    /**
+     * @return The next unread message or null if all messages have been read
+     */
+    BufferedMessage read() {
+        if (readPosition >= writePosition) {
+            return null;
+        }
+        int length = buffer.getInt(readPosition);
+        int flags = buffer.get(readPosition + 4);
+        byte[] topic = new byte[buffer.getShort(readPosition + 5) & 0xFFFF];
+        byte[] properties = new byte[buffer.getInt(readPosition + 7)];
+        byte[] payload = new byte[length + 4 - BufferedMessage.HEADER_SIZE - topic.length - properties.length];
+        buffer.get(readPosition + BufferedMessage.HEADER_SIZE, topic);
+        buffer.get(readPosition + BufferedMessage.HEADER_SIZE + topic.length, properties);
+        buffer.get(readPosition + BufferedMessage.HEADER_SIZE + topic.length + properties.length, payload);
+        readPosition += 4 + length;
+        return new BufferedMessage(new String(topic, StandardCharsets.UTF_8), topic, payload, properties,
+                flags & QOS_MASK, (flags & RETAINED_FLAG) != 0, null, null);
+    }
+
+    /**
+     * Persists the position up to which messages have been handled, so they are not read again
+     * after a restart.
+     *
+     * @param position The position following the last handled message
+     */
+    void checkpoint(int position) {
+        buffer.putInt(0, position);
+    }
+
+    /**
+     * @return The position following the last message read
+     */
+    int getReadPosition() {
+        return readPosition;
+    }
+
+    /**
+     * @return The size of the next unread message or 0 if all messages have been read
+     */
+    int peekSize() {
+        return readPosition >= writePosition ? 0 : 4 + buffer.getInt(readPosition);
+    }
+
+    /**
+     * @return The number of bytes written and not read yet
+     */
+    int getUnreadBytes() {
+        return writePosition - readPosition;
+    }
+
+    /**
+     * @return The number of messages written and not read yet
+     */
+    int countUnread() {
+        int count = 0;
+        int position = readPosition;
+        while (position < writePosition) {
+            position += 4 + buffer.getInt(position);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return The sequence number of the segment
+     */
+    long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Deletes the file of the segment.
+     *
+     * @throws IOException If the file could not be deleted
+     */
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+}
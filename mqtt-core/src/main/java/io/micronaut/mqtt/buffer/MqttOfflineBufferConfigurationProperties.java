@@ -0,0 +1,149 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.buffer;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+import io.micronaut.core.convert.format.ReadableBytes;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Configuration for buffering messages published while the client is disconnected.
+ *
+ * @since 3.0.0
+ */
+@ConfigurationProperties(MqttOfflineBufferConfigurationProperties.PREFIX)
+public class MqttOfflineBufferConfigurationProperties {
+
+    public static final String PREFIX = "mqtt.publisher.offline-buffer";
+
+    private static final boolean DEFAULT_ENABLED = false;
+    private static final int DEFAULT_MEMORY_CAPACITY = 10_000;
+    private static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final long DEFAULT_MAX_DISK_SIZE = 1024L * 1024 * 1024;
+    private static final int DEFAULT_REPLAY_RATE = 1000;
+
+    private boolean enabled = DEFAULT_ENABLED;
+    private int memoryCapacity = DEFAULT_MEMORY_CAPACITY;
+    private Path directory = Paths.get(System.getProperty("java.io.tmpdir"), "micronaut-mqtt-offline-buffer");
+    private int segmentSize = DEFAULT_SEGMENT_SIZE;
+    private long maxDiskSize = DEFAULT_MAX_DISK_SIZE;
+    private OfflineBufferDropPolicy dropPolicy = OfflineBufferDropPolicy.OLDEST;
+    private int replayRate = DEFAULT_REPLAY_RATE;
+
+    /**
+     * @return True if messages published while disconnected are buffered
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables the offline buffer. Default value {@value #DEFAULT_ENABLED}
+     *
+     * @param enabled True if it is enabled
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return The number of messages held in memory before messages are spilled to disk
+     */
+    public int getMemoryCapacity() {
+        return memoryCapacity;
+    }
+
+    /**
+     * @param memoryCapacity The number of messages held in memory before messages are spilled to disk. Default value {@value #DEFAULT_MEMORY_CAPACITY}
+     */
+    public void setMemoryCapacity(int memoryCapacity) {
+        this.memoryCapacity = memoryCapacity;
+    }
+
+    /**
+     * @return The directory messages are spilled to
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @param directory The directory messages are spilled to. Default value is a directory in {@code java.io.tmpdir}
+     */
+    public void setDirectory(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return The size of each memory-mapped segment file
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * @param segmentSize The size of each memory-mapped segment file. Default value 64MB
+     */
+    public void setSegmentSize(@ReadableBytes int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * @return The maximum number of bytes spilled to disk
+     */
+    public long getMaxDiskSize() {
+        return maxDiskSize;
+    }
+
+    /**
+     * Messages are not spilled to disk if set to 0. Default value 1GB
+     *
+     * @param maxDiskSize The maximum number of bytes spilled to disk
+     */
+    public void setMaxDiskSize(@ReadableBytes long maxDiskSize) {
+        this.maxDiskSize = maxDiskSize;
+    }
+
+    /**
+     * @return Which message is discarded when the buffer is full
+     */
+    public OfflineBufferDropPolicy getDropPolicy() {
+        return dropPolicy;
+    }
+
+    /**
+     * @param dropPolicy Which message is discarded when the buffer is full. Default value OLDEST
+     */
+    public void setDropPolicy(OfflineBufferDropPolicy dropPolicy) {
+        this.dropPolicy = dropPolicy;
+    }
+
+    /**
+     * @return The maximum number of buffered messages published per second after reconnecting
+     */
+    public int getReplayRate() {
+        return replayRate;
+    }
+
+    /**
+     * @param replayRate The maximum number of buffered messages published per second after reconnecting. Default value {@value #DEFAULT_REPLAY_RATE}
+     */
+    public void setReplayRate(int replayRate) {
+        this.replayRate = replayRate;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.buffer;
+
+/**
+ * Determines which message is discarded when the offline buffer is full.
+ *
+ * @since 3.0.0
+ */
+public enum OfflineBufferDropPolicy {
+
+    /**
+     * Discard the oldest buffered message.
+     */
+    OLDEST,
+
+    /**
+     * Discard the message being published.
+     */
+    NEWEST,
+
+    /**
+     * Discard the oldest message held in memory with a lower QoS than the message being
+     * published, or the message being published if there is none.
+     */
+    LOWEST_QOS
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.buffer;
+
+import io.micronaut.context.annotation.Bean;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.exceptions.ConfigurationException;
+import io.micronaut.core.util.StringUtils;
+import io.micronaut.mqtt.client.MqttConnectionLifecycle;
+import io.micronaut.mqtt.exception.MqttClientException;
+import io.micronaut.scheduling.NamedThreadFactory;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Buffers messages published while the client is disconnected from the broker. Messages are
+ * held in memory up to the configured capacity and then spilled to memory-mapped segment
+ * files. Once the client has reconnected the messages are published again in order, limited
+ * to the configured rate. While messages are being replayed new messages are buffered as well
+ * so that ordering is preserved.
+ *
+ * <p>The {@link BufferedMessage#complete(Throwable) completion} of a buffered message is invoked
+ * once the replayed message has been acknowledged, or with the reason it was discarded.</p>
+ *
+ * <p>Messages spilled to disk survive a restart and are replayed once the client connects,
+ * unless they were completed before the restart. Messages held in memory are lost when the
+ * application stops.</p>
+ *
+ * @since 3.0.0
+ */
+@Singleton
+@Bean(preDestroy = "close")
+@Requires(property = MqttOfflineBufferConfigurationProperties.PREFIX + ".enabled", value = StringUtils.TRUE)
+public class OfflinePublishBuffer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OfflinePublishBuffer.class);
+    private static final int MAX_TICKS_PER_SECOND = 100;
+
+    private final MqttConnectionLifecycle connectionLifecycle;
+    private final ScheduledExecutorService scheduler;
+    private final OfflineBufferDropPolicy dropPolicy;
+    private final int memoryCapacity;
+    private final int replayRate;
+    private final Deque<BufferedMessage> memory = new ArrayDeque<>();
+    // the completions of the messages spilled to disk since the start, in order
+    private final Deque<Consumer<Throwable>> spilledCompletions = new ArrayDeque<>();
+    private final SegmentLog disk;
+    private final LongAdder dropped = new LongAdder();
+    private long memoryBytes;
+    private long recovered;
+    private boolean replaying;
+    private volatile boolean active;
+    private ScheduledFuture<?> replayTask;
+
+    /**
+     * @param configuration The offline buffer configuration
+     * @param connectionLifecycle The connection of the client
+     */
+    public OfflinePublishBuffer(MqttOfflineBufferConfigurationProperties configuration,
+                                MqttConnectionLifecycle connectionLifecycle) {
+        this.connectionLifecycle = connectionLifecycle;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads());
+        this.dropPolicy = configuration.getDropPolicy();
+        this.memoryCapacity = configuration.getMemoryCapacity();
+        this.replayRate = Math.max(1, configuration.getReplayRate());
+        if (configuration.getMaxDiskSize() > 0) {
+            try {
+                this.disk = new SegmentLog(configuration.getDirectory(), configuration.getSegmentSize(), configuration.getMaxDiskSize());
+            } catch (IOException e) {
+                throw new ConfigurationException("Failed to open the offline buffer directory " + configuration.getDirectory(), e);
+            }
+            recovered = disk.getCount();
+            active = !disk.isEmpty();
+            if (active && LOG.isInfoEnabled()) {
+                LOG.info("Recovered {} messages from the offline buffer in {}", disk.getCount(), configuration.getDirectory());
+            }
+        } else {
+            this.disk = null;
+        }
+    }
+
+    /**
+     * A quick check that can be used to avoid creating a {@link BufferedMessage} for every
+     * publish. If it returns true, {@link #offer(BufferedMessage)} decides whether the message
+     * is buffered.
+     *
+     * @return True if messages may currently be buffered
+     */
+    public boolean isBuffering() {
+        return active || !connectionLifecycle.isConnected();
+    }
+
+    /**
+     * Buffers the message if the client is disconnected or buffered messages are waiting to
+     * be replayed. Messages discarded by the drop policy to make room are completed with an
+     * {@link MqttClientException}.
+     *
+     * @param message The message
+     * @return The outcome
+     */
+    public Result offer(BufferedMessage message) {
+        List<BufferedMessage> evicted = new ArrayList<>(0);
+        Result result;
+        synchronized (this) {
+            if (!replaying && isEmpty() && connectionLifecycle.isConnected()) {
+                return Result.PUBLISH;
+            }
+            if (add(message, evicted)) {
+                active = true;
+                result = Result.BUFFERED;
+            } else {
+                dropped.increment();
+                result = Result.DROPPED;
+            }
+        }
+        if (!evicted.isEmpty()) {
+            MqttClientException error = new MqttClientException("The message was discarded from the full offline buffer");
+            evicted.forEach(buffered -> buffered.complete(error));
+        }
+        return result;
+    }
+
+    /**
+     * Starts publishing the buffered messages unless they are already being replayed. Replay
+     * stops when the buffer is empty or the client is disconnected.
+     *
+     * @param sender Publishes a buffered message
+     */
+    public synchronized void replay(Sender sender) {
+        if (replaying || isEmpty()) {
+            return;
+        }
+        replaying = true;
+        long period;
+        int permits;
+        if (replayRate >= MAX_TICKS_PER_SECOND) {
+            period = TimeUnit.SECONDS.toMillis(1) / MAX_TICKS_PER_SECOND;
+            permits = replayRate / MAX_TICKS_PER_SECOND;
+        } else {
+            period = TimeUnit.SECONDS.toMillis(1) / replayRate;
+            permits = 1;
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Replaying {} buffered messages", getBufferedMessages());
+        }
+        replayTask = scheduler.scheduleAtFixedRate(() -> replay(sender, permits), 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return The number of buffered messages
+     */
+    public synchronized long getBufferedMessages() {
+        return memory.size() + (disk == null ? 0 : disk.getCount());
+    }
+
+    /**
+     * @return The number of bytes of buffered messages
+     */
+    public synchronized long getBufferedBytes() {
+        return memoryBytes + (disk == null ? 0 : disk.getBytes());
+    }
+
+    /**
+     * @return The number of messages dropped because the buffer was full
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Stops replaying messages and completes the waiting publishes with an
+     * {@link MqttClientException}. Messages spilled to disk are kept for the next start.
+     */
+    public void close() {
+        List<Consumer<Throwable>> pending = new ArrayList<>();
+        synchronized (this) {
+            stopReplay();
+            memory.forEach(buffered -> pending.add(buffered.getCompletion()));
+            memory.clear();
+            memoryBytes = 0;
+            pending.addAll(spilledCompletions);
+            spilledCompletions.clear();
+        }
+        scheduler.shutdownNow();
+        if (!pending.isEmpty()) {
+            MqttClientException error = new MqttClientException("The offline buffer was closed before the message was published");
+            pending.forEach(completion -> completion.accept(error));
+        }
+    }
+
+    private void replay(Sender sender, int permits) {
+        for (int i = 0; i < permits; i++) {
+            BufferedMessage message;
+            synchronized (this) {
+                if (!replaying) {
+                    return;
+                }
+                message = connectionLifecycle.isConnected() ? poll() : null;
+                if (message == null) {
+                    stopReplay();
+                    return;
+                }
+            }
+            try {
+                sender.send(message);
+            } catch (Exception e) {
+                synchronized (this) {
+                    memory.addFirst(message);
+                    memoryBytes += message.getSize();
+                }
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Failed to replay a buffered message, retrying", e);
+                }
+                return;
+            }
+        }
+    }
+
+    private void stopReplay() {
+        replaying = false;
+        active = !isEmpty();
+        if (replayTask != null) {
+            replayTask.cancel(false);
+            replayTask = null;
+        }
+    }
+
+    private boolean isEmpty() {
+        return memory.isEmpty() && (disk == null || disk.isEmpty());
+    }
+
+    private boolean add(BufferedMessage message, List<BufferedMessage> evicted) {
+        if (append(message)) {
+            return true;
+        }
+        if (disk != null && memory.size() >= memoryCapacity && !disk.fits(message)) {
+            return false;
+        }
+        switch (dropPolicy) {
+            case OLDEST:
+                do {
+                    BufferedMessage oldest = poll();
+                    if (oldest == null) {
+                        return false;
+                    }
+                    dropped.increment();
+                    evicted.add(oldest);
+                } while (!append(message));
+                return true;
+            case LOWEST_QOS:
+                // evicting from memory only makes room on disk for the message moved into memory
+                if (disk != null && !disk.isEmpty() && !disk.fitsAfterPoll(message)) {
+                    return false;
+                }
+                Iterator<BufferedMessage> iterator = memory.iterator();
+                while (iterator.hasNext()) {
+                    BufferedMessage buffered = iterator.next();
+                    if (buffered.getQos() < message.getQos()) {
+                        iterator.remove();
+                        memoryBytes -= buffered.getSize();
+                        dropped.increment();
+                        evicted.add(buffered);
+                        refill();
+                        return append(message);
+                    }
+                }
+                return false;
+            case NEWEST:
+            default:
+                return false;
+        }
+    }
+
+    private boolean append(BufferedMessage message) {
+        if (memory.size() < memoryCapacity && (disk == null || disk.isEmpty())) {
+            memory.addLast(message);
+            memoryBytes += message.getSize();
+            return true;
+        }
+        if (disk != null && disk.append(message)) {
+            spilledCompletions.addLast(message.getCompletion());
+            return true;
+        }
+        return false;
+    }
+
+    private BufferedMessage poll() {
+        BufferedMessage message = memory.pollFirst();
+        if (message == null) {
+            return disk == null ? null : pollDisk();
+        }
+        memoryBytes -= message.getSize();
+        refill();
+        return message;
+    }
+
+    private void refill() {
+        // keeps the spilled messages behind the ones in memory
+        if (disk != null && memory.size() < memoryCapacity) {
+            BufferedMessage spilled = pollDisk();
+            if (spilled != null) {
+                memory.addLast(spilled);
+                memoryBytes += spilled.getSize();
+            }
+        }
+    }
+
+    private BufferedMessage pollDisk() {
+        BufferedMessage message = disk.poll();
+        if (message == null) {
+            return null;
+        }
+        if (recovered > 0) {
+            // recovered after a restart, nobody is waiting for it
+            recovered--;
+            return message;
+        }
+        return message.withCompletion(spilledCompletions.pollFirst());
+    }
+
+    private static ThreadFactory daemonThreads() {
+        ThreadFactory threadFactory = new NamedThreadFactory("mqtt-offline-buffer");
+        return runnable -> {
+            Thread thread = threadFactory.newThread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * The outcome of offering a message to the buffer.
+     */
+    public enum Result {
+
+        /**
+         * The client is connected and the message should be published directly.
+         */
+        PUBLISH,
+
+        /**
+         * The message was buffered. Its completion is invoked once it has been replayed.
+         */
+        BUFFERED,
+
+        /**
+         * The buffer is full and the message was dropped.
+         */
+        DROPPED
+    }
+
+    /**
+     * Publishes a buffered message.
+     */
+    @FunctionalInterface
+    public interface Sender {
+
+        /**
+         * @param message The message to publish
+         * @throws Exception If the message could not be published
+         */
+        void send(BufferedMessage message) throws Exception;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.buffer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A queue of messages spilled to a directory of memory-mapped segments. A polled message is
+ * checkpointed once it has been {@link BufferedMessage#complete(Throwable) completed}, and a
+ * segment is deleted once all of its messages have been checkpointed. Segments left behind by
+ * a previous run are recovered when the log is opened and resume after the last checkpoint.
+ * Not thread safe, except for completing polled messages.
+ */
+final class SegmentLog {
+
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long maxBytes;
+    private final Deque<MappedSegment> segments = new ArrayDeque<>();
+    // the polled messages in order, guarded by itself as messages are completed on any thread
+    private final Deque<Checkpoint> pending = new ArrayDeque<>();
+    private long nextSequence;
+    private long bytes;
+    private long count;
+
+    /**
+     * @param directory The directory holding the segments
+     * @param segmentSize The size of each segment in bytes
+     * @param maxBytes The maximum number of bytes of unread messages
+     * @throws IOException If the directory could not be read
+     */
+    SegmentLog(Path directory, int segmentSize, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(directory)) {
+            stream.filter(path -> isSegment(path.getFileName().toString())).sorted().forEach(files::add);
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long sequence = Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+            MappedSegment segment = MappedSegment.recover(file, sequence);
+            if (segment.getUnreadBytes() == 0) {
+                segment.delete();
+                continue;
+            }
+            segments.add(segment);
+            bytes += segment.getUnreadBytes();
+            count += segment.countUnread();
+            nextSequence = sequence + 1;
+        }
+    }
+
+    /**
+     * @param message The message
+     * @return True if the message was appended, false if it does not fit
+     */
+    boolean append(BufferedMessage message) {
+        int size = message.getSize();
+        if (!fits(message) || bytes + size > maxBytes) {
+            return false;
+        }
+        MappedSegment tail = segments.peekLast();
+        if (tail == null || !tail.append(message)) {
+            tail = newSegment();
+            tail.append(message);
+        }
+        bytes += size;
+        count++;
+        return true;
+    }
+
+    /**
+     * @param message The message
+     * @return True if the message could be appended to an empty log
+     */
+    boolean fits(BufferedMessage message) {
+        return message.getSize() <= segmentSize && message.getSize() <= maxBytes;
+    }
+
+    /**
+     * @param message The message
+     * @return True if the message could be appended once the oldest message has been polled
+     */
+    boolean fitsAfterPoll(BufferedMessage message) {
+        int oldest = 0;
+        for (MappedSegment segment : segments) {
+            oldest = segment.peekSize();
+            if (oldest > 0) {
+                break;
+            }
+        }
+        return fits(message) && bytes - oldest + message.getSize() <= maxBytes;
+    }
+
+    /**
+     * Polls the oldest message. It is read again after a restart unless it has been completed.
+     *
+     * @return The oldest message or null if the log is empty
+     */
+    BufferedMessage poll() {
+        MappedSegment head;
+        while ((head = segments.peekFirst()) != null) {
+            BufferedMessage message = head.read();
+            if (message == null) {
+                release(segments.pollFirst());
+                continue;
+            }
+            bytes -= message.getSize();
+            count--;
+            boolean last = head.getUnreadBytes() == 0;
+            if (last) {
+                // nothing is appended to a fully read segment, the next message starts a new one
+                segments.pollFirst();
+            }
+            Checkpoint checkpoint = new Checkpoint(head, head.getReadPosition(), last);
+            synchronized (pending) {
+                pending.addLast(checkpoint);
+            }
+            return message.withCheckpoint(() -> checkpoint(checkpoint));
+        }
+        return null;
+    }
+
+    /**
+     * @return True if there are no unread messages
+     */
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @return The number of unread messages
+     */
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * @return The number of bytes of unread messages
+     */
+    long getBytes() {
+        return bytes;
+    }
+
+    private void checkpoint(Checkpoint checkpoint) {
+        synchronized (pending) {
+            checkpoint.completed = true;
+            // messages may complete out of order, the position only moves past completed ones
+            Checkpoint oldest;
+            while ((oldest = pending.peekFirst()) != null && oldest.completed) {
+                pending.pollFirst();
+                oldest.segment.checkpoint(oldest.position);
+                if (oldest.last) {
+                    release(oldest.segment);
+                }
+            }
+        }
+    }
+
+    private MappedSegment newSegment() {
+        long sequence = nextSequence++;
+        try {
+            MappedSegment segment = MappedSegment.create(directory.resolve(String.format("%s%020d%s", PREFIX, sequence, SUFFIX)), sequence, segmentSize);
+            segments.addLast(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create a buffer segment in " + directory, e);
+        }
+    }
+
+    private void release(MappedSegment segment) {
+        try {
+            segment.delete();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete buffer segment " + segment.getSequence(), e);
+        }
+    }
+
+    private static boolean isSegment(String name) {
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+    }
+
+    /**
+     * The position following a polled message.
+     */
+    private static final class Checkpoint {
+
+        private final MappedSegment segment;
+        private final int position;
+        private final boolean last;
+        private boolean completed;
+
+        Checkpoint(MappedSegment segment, int position, boolean last) {
+            this.segment = segment;
+            this.position = position;
+            this.last = last;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.cache;
+
+import io.micronaut.context.annotation.Context;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.core.type.Argument;
+import io.micronaut.core.util.StringUtils;
+import io.micronaut.mqtt.bind.MqttBindingContext;
+import io.micronaut.mqtt.intercept.AbstractMqttSubscriberAdvice;
+import io.micronaut.mqtt.serdes.MqttPayloadSerDes;
+import io.micronaut.mqtt.serdes.MqttPayloadSerDesRegistry;
+import io.micronaut.mqtt.topic.TopicTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps the last value received on every topic matching the configured filters, so that
+ * the current state of a topic can be read without subscribing to it.
+ *
+ * <p>Values are kept on the heap, bounded by the number of topics and by their total size.
+ * Once a bound is exceeded the topics updated the longest time ago are evicted. An empty
+ * payload, which clears a retained message, removes the topic.</p>
+ *
+ * @since 3.0.0
+ */
+@Context
+@Requires(property = MqttLastValueCacheConfigurationProperties.PREFIX + ".enabled", value = StringUtils.TRUE)
+public class MqttLastValueCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MqttLastValueCache.class);
+
+    private final MqttPayloadSerDesRegistry serDesRegistry;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final ConcurrentSkipListMap<String, byte[]> values = new ConcurrentSkipListMap<>();
+    // guarded by this, the topics in the order they were last updated
+    private final LinkedHashMap<String, byte[]> updates = new LinkedHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private long bytes;
+    private long evictions;
+
+    public MqttLastValueCache(MqttLastValueCacheConfigurationProperties configuration,
+                              AbstractMqttSubscriberAdvice<?> subscriberAdvice,
+                              MqttPayloadSerDesRegistry serDesRegistry) {
+        this.serDesRegistry = serDesRegistry;
+        this.maxEntries = Math.max(1, configuration.getMaxEntries());
+        this.maxBytes = Math.max(1, configuration.getMaxBytes());
+        for (String filter : configuration.getFilters()) {
+            subscriberAdvice.subscribe(filter, configuration.getQos(), this::received);
+        }
+    }
+
+    /**
+     * @param topic The topic
+     * @return A copy of the last value of the topic, null if none is cached
+     */
+    @Nullable
+    public byte[] get(String topic) {
+        byte[] value = values.get(topic);
+        return value == null ? null : value.clone();
+    }
+
+    /**
+     * @param topic The topic
+     * @param type The type to decode the value to
+     * @param <T> The type
+     * @return The last value of the topic decoded by the matching ser-des, empty if none is cached
+     */
+    public <T> Optional<T> get(String topic, Class<T> type) {
+        return get(topic, Argument.of(type));
+    }
+
+    /**
+     * @param topic The topic
+     * @param type The type to decode the value to
+     * @param <T> The type
+     * @return The last value of the topic decoded by the matching ser-des, empty if none is cached
+     */
+    public <T> Optional<T> get(String topic, Argument<T> type) {
+        byte[] value = values.get(topic);
+        if (value == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(findSerDes(type).deserialize(value.clone(), type));
+    }
+
+    /**
+     * @param prefix The prefix of the topics, for example {@code sensors/kitchen/}
+     * @return Copies of the last values of the topics starting with the prefix, sorted by topic
+     */
+    public Map<String, byte[]> scan(String prefix) {
+        Map<String, byte[]> result = new LinkedHashMap<>();
+        prefixed(prefix).forEach((topic, value) -> result.put(topic, value.clone()));
+        return result;
+    }
+
+    /**
+     * @param prefix The prefix of the topics, for example {@code sensors/kitchen/}
+     * @param type The type to decode the values to
+     * @param <T> The type
+     * @return The decoded last values of the topics starting with the prefix, sorted by topic
+     */
+    public <T> Map<String, T> scan(String prefix, Argument<T> type) {
+        MqttPayloadSerDes<T> serDes = findSerDes(type);
+        Map<String, T> result = new LinkedHashMap<>();
+        prefixed(prefix).forEach((topic, value) -> result.put(topic, serDes.deserialize(value.clone(), type)));
+        return result;
+    }
+
+    /**
+     * Registers a listener notified of the changes to the topics matching the filter.
+     *
+     * @param filter The topic filter, wildcards are supported
+     * @param listener The listener
+     */
+    public void addListener(String filter, MqttLastValueListener listener) {
+        listeners.add(new Listener(TopicTemplate.compile(filter), listener));
+    }
+
+    /**
+     * @param listener The listener to remove
+     */
+    public void removeListener(MqttLastValueListener listener) {
+        listeners.removeIf(registered -> registered.listener() == listener);
+    }
+
+    /**
+     * @return The number of cached topics
+     */
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * @return The approximate size of the cached topics and values in bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return The number of topics evicted because a bound was exceeded
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    private void received(MqttBindingContext<?> context) {
+        String topic = context.getTopic();
+        byte[] payload = context.getPayload();
+        List<String> evicted;
+        synchronized (this) {
+            byte[] previous;
+            if (payload == null || payload.length == 0) {
+                previous = updates.remove(topic);
+                if (previous == null) {
+                    return;
+                }
+                values.remove(topic);
+                bytes -= weight(topic, previous);
+                payload = null;
+            } else {
+                previous = updates.remove(topic);
+                if (previous != null) {
+                    bytes -= weight(topic, previous);
+                }
+                updates.put(topic, payload);
+                values.put(topic, payload);
+                bytes += weight(topic, payload);
+            }
+            evicted = evict();
+        }
+        notify(topic, payload);
+        for (String removed : evicted) {
+            notify(removed, null);
+        }
+    }
+
+    private List<String> evict() {
+        if (updates.size() <= maxEntries && bytes <= maxBytes) {
+            return Collections.emptyList();
+        }
+        List<String> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, byte[]>> iterator = updates.entrySet().iterator();
+        // the last updated topic is kept even if it exceeds the bound on its own
+        while ((updates.size() > maxEntries || bytes > maxBytes) && updates.size() > 1) {
+            Map.Entry<String, byte[]> oldest = iterator.next();
+            iterator.remove();
+            values.remove(oldest.getKey());
+            bytes -= weight(oldest.getKey(), oldest.getValue());
+            evicted.add(oldest.getKey());
+        }
+        if (evictions == 0 && LOG.isWarnEnabled()) {
+            LOG.warn("The last value cache exceeded {} topics or {} bytes, the topics updated the longest time ago are evicted", maxEntries, maxBytes);
+        }
+        evictions += evicted.size();
+        return evicted;
+    }
+
+    private void notify(String topic, @Nullable byte[] value) {
+        for (Listener registered : listeners) {
+            if (registered.filter().matches(topic)) {
+                try {
+                    registered.listener().changed(topic, value == null ? null : value.clone());
+                } catch (RuntimeException e) {
+                    if (LOG.isErrorEnabled()) {
+                        LOG.error("A last value listener failed for the topic {}", topic, e);
+                    }
+                }
+            }
+        }
+    }
+
+    private Map<String, byte[]> prefixed(String prefix) {
+        return values.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private <T> MqttPayloadSerDes<T> findSerDes(Argument<T> type) {
+        return serDesRegistry.findSerdes(type)
+                .orElseThrow(() -> new IllegalArgumentException("No ser-des found to decode the type " + type.getTypeName()));
+    }
+
+    private static long weight(String topic, byte[] value) {
+        return 2L * topic.length() + value.length;
+    }
+
+    private record Listener(TopicTemplate filter, MqttLastValueListener listener) {
+    }
+}
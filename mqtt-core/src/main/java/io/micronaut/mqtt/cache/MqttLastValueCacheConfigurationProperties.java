@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.cache;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration for the cache of the last value received on each topic.
+ *
+ * @since 3.0.0
+ */
+@ConfigurationProperties(MqttLastValueCacheConfigurationProperties.PREFIX)
+public class MqttLastValueCacheConfigurationProperties {
+
+    public static final String PREFIX = "mqtt.last-value-cache";
+
+    private static final boolean DEFAULT_ENABLED = false;
+    private static final int DEFAULT_QOS = 1;
+    private static final int DEFAULT_MAX_ENTRIES = 100_000;
+    private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private boolean enabled = DEFAULT_ENABLED;
+    private List<String> filters = new ArrayList<>();
+    private int qos = DEFAULT_QOS;
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+    private long maxBytes = DEFAULT_MAX_BYTES;
+
+    /**
+     * @return True if the cache is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables the cache. Default value {@value #DEFAULT_ENABLED}
+     *
+     * @param enabled True if it is enabled
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return The topic filters whose values are cached
+     */
+    public List<String> getFilters() {
+        return filters;
+    }
+
+    /**
+     * @param filters The topic filters whose values are cached
+     */
+    public void setFilters(List<String> filters) {
+        this.filters = filters;
+    }
+
+    /**
+     * @return The qos of the subscriptions
+     */
+    public int getQos() {
+        return qos;
+    }
+
+    /**
+     * @param qos The qos of the subscriptions. Default value {@value #DEFAULT_QOS}
+     */
+    public void setQos(int qos) {
+        this.qos = qos;
+    }
+
+    /**
+     * @return The maximum number of cached topics
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Once exceeded, the topics updated the longest time ago are evicted.
+     * Default value {@value #DEFAULT_MAX_ENTRIES}
+     *
+     * @param maxEntries The maximum number of cached topics
+     */
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return The maximum size of the cached topics and payloads in bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Once exceeded, the topics updated the longest time ago are evicted. Default value 64MB
+     *
+     * @param maxBytes The maximum size of the cached topics and payloads in bytes
+     */
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.cache;
+
+import io.micronaut.core.annotation.Nullable;
+
+/**
+ * A listener notified when the cached value of a topic changes.
+ *
+ * @since 3.0.0
+ */
+@FunctionalInterface
+public interface MqttLastValueListener {
+
+    /**
+     * Invoked on the thread that received the message, after the cache was updated.
+     *
+     * @param topic The topic
+     * @param value The new value, null if the value was cleared or evicted
+     */
+    void changed(String topic, @Nullable byte[] value);
+}
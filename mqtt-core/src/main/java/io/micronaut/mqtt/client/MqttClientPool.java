@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.client;
+
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.core.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A fixed set of connections to the broker. Publishes are assigned to a connection by the
+ * hash of their topic, so messages published to the same topic are sent over the same
+ * connection and keep their order.
+ *
+ * <p>For the default client, the first client is also available as a bean of its own and is
+ * not closed with the pool.</p>
+ *
+ * @param <C> The client type
+ * @since 3.0.0
+ */
+public final class MqttClientPool<C> implements AutoCloseable {
+
+    private final List<C> clients;
+    private final Consumer<C> closer;
+    private final boolean ownsPrimary;
+    private final Runnable onClose;
+
+    /**
+     * @param clients The clients, the first one being the primary client
+     * @param closer Closes the additional clients when the pool is closed
+     */
+    public MqttClientPool(@NonNull List<C> clients, @NonNull Consumer<C> closer) {
+        this(clients, closer, false, null);
+    }
+
+    /**
+     * @param clients The clients, the first one being the primary client
+     * @param closer Closes the clients when the pool is closed
+     * @param ownsPrimary True if the primary client is closed with the pool as well
+     * @param onClose Called once the clients have been closed
+     */
+    public MqttClientPool(@NonNull List<C> clients, @NonNull Consumer<C> closer, boolean ownsPrimary, @Nullable Runnable onClose) {
+        if (clients.isEmpty()) {
+            throw new IllegalArgumentException("A client pool requires at least one client");
+        }
+        this.clients = Collections.unmodifiableList(clients);
+        this.closer = closer;
+        this.ownsPrimary = ownsPrimary;
+        this.onClose = onClose;
+    }
+
+    /**
+     * @param topic The topic a message is published to
+     * @return The client the message is published with
+     */
+    @NonNull
+    public C getClient(@NonNull String topic) {
+        return clients.get(shard(topic, clients.size()));
+    }
+
+    /**
+     * @param index The index of the client
+     * @return The client
+     */
+    @NonNull
+    public C getClient(int index) {
+        return clients.get(index);
+    }
+
+    /**
+     * @return The primary client
+     */
+    @NonNull
+    public C getPrimary() {
+        return clients.get(0);
+    }
+
+    /**
+     * @return All clients of the pool
+     */
+    @NonNull
+    public List<C> getClients() {
+        return clients;
+    }
+
+    /**
+     * @return The number of clients
+     */
+    public int size() {
+        return clients.size();
+    }
+
+    @Override
+    public void close() {
+        for (int i = ownsPrimary ? 0 : 1; i < clients.size(); i++) {
+            closer.accept(clients.get(i));
+        }
+        if (onClose != null) {
+            onClose.run();
+        }
+    }
+
+    /**
+     * @param topic The topic
+     * @param count The number of shards
+     * @return The shard the topic is assigned to
+     */
+    public static int shard(@NonNull String topic, int count) {
+        if (count == 1) {
+            return 0;
+        }
+        int hash = topic.hashCode();
+        // spread the bits as topics often only differ in their last characters
+        hash ^= hash >>> 16;
+        hash *= 0x45d9f3b;
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, count);
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.client;
+
+import io.micronaut.mqtt.exception.MqttClientException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Tracks the connection of an MQTT client to the broker. Until the first connection has
+ * been established, publishes are held in a bounded buffer and sent in order once the client
+ * is connected. After that, messages published while the connection is lost are handled by
+ * the client itself.
+ *
+ * <p>When a {@link MqttClientPool} is used, each client of the pool is tracked by its index
+ * and the client counts as connected once all of its connections are.</p>
+ *
+ * <p>Listeners are notified on the thread reporting the change, after the state has been
+ * updated and without holding a lock, so a slow listener does not block other calls.</p>
+ *
+ * @since 3.0.0
+ */
+public final class MqttConnectionLifecycle {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MqttConnectionLifecycle.class);
+
+    private final int bufferSize;
+    private final boolean cleanSession;
+    private final Queue<Runnable> earlyPublishes = new ArrayDeque<>();
+    private final List<MqttConnectionListener> listeners = new CopyOnWriteArrayList<>();
+    private final boolean[] connections;
+    private volatile boolean established;
+    private boolean draining;
+    private volatile int connectedCount;
+
+    /**
+     * @param bufferSize The maximum number of publishes buffered until the first connection is established
+     * @param cleanSession True if the broker discards the session when the connection is lost
+     */
+    public MqttConnectionLifecycle(int bufferSize, boolean cleanSession) {
+        this(bufferSize, cleanSession, 1);
+    }
+
+    /**
+     * @param bufferSize The maximum number of publishes buffered until all connections are established
+     * @param cleanSession True if the broker discards the session when the connection is lost
+     * @param connections The number of connections of the client
+     */
+    public MqttConnectionLifecycle(int bufferSize, boolean cleanSession, int connections) {
+        this.bufferSize = bufferSize;
+        this.cleanSession = cleanSession;
+        this.connections = new boolean[connections];
+    }
+
+    /**
+     * @return True if all connections to the broker have been established at least once
+     */
+    public boolean isEstablished() {
+        return established;
+    }
+
+    /**
+     * @return True if all connections of the client are currently connected
+     */
+    public boolean isConnected() {
+        return connectedCount == connections.length;
+    }
+
+    /**
+     * @param connection The index of the connection
+     * @return True if the connection is currently connected
+     */
+    public synchronized boolean isConnected(int connection) {
+        return connections[connection];
+    }
+
+    /**
+     * @return The number of connections of the client
+     */
+    public int getConnectionCount() {
+        return connections.length;
+    }
+
+    /**
+     * @return True if subscriptions are lost when the connection is lost
+     */
+    public boolean isCleanSession() {
+        return cleanSession;
+    }
+
+    /**
+     * @return The number of publishes waiting for the first connection
+     */
+    public int getBufferedCount() {
+        synchronized (earlyPublishes) {
+            return earlyPublishes.size();
+        }
+    }
+
+    /**
+     * @param listener The listener to notify when a connection is established
+     */
+    public void addConnectionListener(MqttConnectionListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Buffers a publish until the first connection is established. If the buffer is full the
+     * publish fails through the given callback, like any other failed publish.
+     *
+     * @param publish The publish operation
+     * @param onError Notified with a {@link MqttClientException} if the buffer is full
+     * @return True if the publish was buffered or failed, false if the connection is already
+     * established and the caller should publish directly
+     */
+    public boolean defer(Runnable publish, Consumer<? super Throwable> onError) {
+        if (established) {
+            return false;
+        }
+        synchronized (earlyPublishes) {
+            if (established) {
+                return false;
+            }
+            if (earlyPublishes.size() < bufferSize) {
+                earlyPublishes.add(publish);
+                return true;
+            }
+        }
+        onError.accept(new MqttClientException(String.format("The client is not connected yet and %d messages are already waiting to be published", bufferSize)));
+        return true;
+    }
+
+    /**
+     * Called by a client with a single connection when the connection has been established.
+     *
+     * @param reconnect True if the connection was re-established after it had been lost
+     * @see #connected(int, boolean)
+     */
+    public void connected(boolean reconnect) {
+        connected(0, reconnect);
+    }
+
+    /**
+     * Called by the client when a connection has been established. Notifies the listeners and
+     * sends the buffered publishes once all connections are established.
+     *
+     * @param connection The index of the connection
+     * @param reconnect True if the connection was re-established after it had been lost
+     */
+    public void connected(int connection, boolean reconnect) {
+        boolean drain;
+        synchronized (this) {
+            if (connections[connection] && !reconnect) {
+                return;
+            }
+            if (!connections[connection]) {
+                connections[connection] = true;
+                connectedCount++;
+            }
+            drain = !established && !draining && isConnected();
+            draining |= drain;
+        }
+        for (MqttConnectionListener listener : listeners) {
+            try {
+                listener.connected(connection, reconnect);
+            } catch (Exception e) {
+                if (LOG.isErrorEnabled()) {
+                    LOG.error("Connection listener [{}] failed", listener, e);
+                }
+            }
+        }
+        if (drain) {
+            // sent after the listeners so subscriptions are in place before the buffered messages arrive
+            drain();
+        }
+    }
+
+    /**
+     * Called by a client with a single connection when the connection has been lost.
+     */
+    public void disconnected() {
+        disconnected(0);
+    }
+
+    /**
+     * Called by the client when a connection has been lost. Notifies the listeners.
+     *
+     * @param connection The index of the connection
+     */
+    public void disconnected(int connection) {
+        synchronized (this) {
+            if (!connections[connection]) {
+                return;
+            }
+            connections[connection] = false;
+            connectedCount--;
+        }
+        for (MqttConnectionListener listener : listeners) {
+            try {
+                listener.disconnected(connection);
+            } catch (Exception e) {
+                if (LOG.isErrorEnabled()) {
+                    LOG.error("Connection listener [{}] failed", listener, e);
+                }
+            }
+        }
+    }
+
+    private void drain() {
+        int count = 0;
+        while (true) {
+            Runnable publish;
+            synchronized (earlyPublishes) {
+                publish = earlyPublishes.poll();
+                if (publish == null) {
+                    // publishes arriving from now on are sent directly
+                    established = true;
+                    break;
+                }
+            }
+            publish.run();
+            count++;
+        }
+        if (count > 0 && LOG.isDebugEnabled()) {
+            LOG.debug("Published {} messages buffered while the client was connecting", count);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.client;
+
+/**
+ * Notified whenever the MQTT client has established or lost a connection to the broker.
+ *
+ * @since 3.0.0
+ */
+@FunctionalInterface
+public interface MqttConnectionListener {
+
+    /**
+     * Called after a connection to the broker has been established.
+     *
+     * @param connection The index of the connection, always 0 unless a {@link MqttClientPool} is used
+     * @param reconnect True if the connection was re-established after it had been lost
+     */
+    void connected(int connection, boolean reconnect);
+
+    /**
+     * Called after a connection to the broker has been lost.
+     *
+     * @param connection The index of the connection, always 0 unless a {@link MqttClientPool} is used
+     */
+    default void disconnected(int connection) {
+    }
+}
@@ -26,6 +26,24 @@ import io.micronaut.context.annotation.ConfigurationProperties;
 public class MqttConfigurationProperties implements MqttConfiguration {
     public static final String PREFIX = "mqtt";
 
+    /**
+     * The property selecting the transport of the clients.
+     * @since 3.0.0
+     */
+    public static final String TRANSPORT = PREFIX + ".client.transport";
+
+    /**
+     * The value of {@link #TRANSPORT} selecting the Paho clients, the default.
+     * @since 3.0.0
+     */
+    public static final String TRANSPORT_PAHO = "paho";
+
+    /**
+     * The value of {@link #TRANSPORT} selecting the Netty client.
+     * @since 3.0.0
+     */
+    public static final String TRANSPORT_NETTY = "netty";
+
     /**
      * The default enable value.
      */
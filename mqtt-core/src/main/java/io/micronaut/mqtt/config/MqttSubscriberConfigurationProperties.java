@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.config;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration for MQTT subscribers.
+ *
+ * @since 3.0.0
+ */
+@ConfigurationProperties(MqttSubscriberConfigurationProperties.PREFIX)
+public class MqttSubscriberConfigurationProperties {
+
+    public static final String PREFIX = "mqtt.subscriber";
+
+    private static final int DEFAULT_MAX_TOPICS_PER_SUBSCRIBE = 500;
+    private static final int DEFAULT_MAX_SUBSCRIBE_PACKET_SIZE = 65536;
+
+    private int maxTopicsPerSubscribe = DEFAULT_MAX_TOPICS_PER_SUBSCRIBE;
+    private int maxSubscribePacketSize = DEFAULT_MAX_SUBSCRIBE_PACKET_SIZE;
+    private Duration subscribeTimeout = Duration.ofSeconds(30);
+    private int connections = 1;
+
+    /**
+     * @return The maximum number of topic filters sent in a single SUBSCRIBE packet
+     */
+    public int getMaxTopicsPerSubscribe() {
+        return maxTopicsPerSubscribe;
+    }
+
+    /**
+     * @param maxTopicsPerSubscribe The maximum number of topic filters sent in a single SUBSCRIBE packet. Default value {@value #DEFAULT_MAX_TOPICS_PER_SUBSCRIBE}
+     */
+    public void setMaxTopicsPerSubscribe(int maxTopicsPerSubscribe) {
+        this.maxTopicsPerSubscribe = maxTopicsPerSubscribe;
+    }
+
+    /**
+     * @return The maximum size in bytes of the topic filters in a single SUBSCRIBE packet
+     */
+    public int getMaxSubscribePacketSize() {
+        return maxSubscribePacketSize;
+    }
+
+    /**
+     * @param maxSubscribePacketSize The maximum size in bytes of the topic filters in a single SUBSCRIBE packet. Default value {@value #DEFAULT_MAX_SUBSCRIBE_PACKET_SIZE}
+     */
+    public void setMaxSubscribePacketSize(int maxSubscribePacketSize) {
+        this.maxSubscribePacketSize = maxSubscribePacketSize;
+    }
+
+    /**
+     * @return How long to wait at startup for the broker to acknowledge the subscriptions
+     */
+    public Duration getSubscribeTimeout() {
+        return subscribeTimeout;
+    }
+
+    /**
+     * @param subscribeTimeout How long to wait at startup for the broker to acknowledge the subscriptions. Default value 30 seconds
+     */
+    public void setSubscribeTimeout(Duration subscribeTimeout) {
+        this.subscribeTimeout = subscribeTimeout;
+    }
+
+    /**
+     * @return The number of connections of the client pool subscriptions are spread across
+     */
+    public int getConnections() {
+        return connections;
+    }
+
+    /**
+     * Topic filters are assigned to a connection by their hash. Shared subscriptions are made
+     * on every connection, so each connection joins the group. Limited to the pool size of
+     * the client.
+     *
+     * @param connections The number of connections of the client pool subscriptions are spread across. Default value 1
+     */
+    public void setConnections(int connections) {
+        this.connections = connections;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.coroutines;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+/**
+ * Configuration for suspending publisher and subscriber methods.
+ *
+ * @since 3.0.0
+ */
+@ConfigurationProperties(MqttCoroutineConfigurationProperties.PREFIX)
+public class MqttCoroutineConfigurationProperties {
+
+    public static final String PREFIX = "mqtt.coroutines";
+
+    private static final int DEFAULT_FLOW_MAX_INFLIGHT = 128;
+
+    private MqttCoroutineDispatcher dispatcher = MqttCoroutineDispatcher.CONSUMER;
+    private int flowMaxInflight = DEFAULT_FLOW_MAX_INFLIGHT;
+
+    /**
+     * @return The dispatcher suspending subscriber methods and flows are run on
+     */
+    public MqttCoroutineDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    /**
+     * @param dispatcher The dispatcher suspending subscriber methods and flows are run on. Default value CONSUMER
+     */
+    public void setDispatcher(MqttCoroutineDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * @return The maximum number of messages of a flow awaiting their acknowledgement
+     */
+    public int getFlowMaxInflight() {
+        return flowMaxInflight;
+    }
+
+    /**
+     * Collecting a flow suspends once the limit is reached, until a message is acknowledged.
+     * Default value {@value #DEFAULT_FLOW_MAX_INFLIGHT}
+     *
+     * @param flowMaxInflight The maximum number of messages of a flow awaiting their acknowledgement
+     */
+    public void setFlowMaxInflight(int flowMaxInflight) {
+        this.flowMaxInflight = flowMaxInflight;
+    }
+}
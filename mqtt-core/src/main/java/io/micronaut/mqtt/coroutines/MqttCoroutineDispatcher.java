@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.coroutines;
+
+/**
+ * The dispatcher suspending subscriber methods and flows are run on.
+ *
+ * @since 3.0.0
+ */
+public enum MqttCoroutineDispatcher {
+
+    /**
+     * The {@code consumer} executor that runs the subscriber methods.
+     */
+    CONSUMER,
+
+    /**
+     * {@code Dispatchers.Default}.
+     */
+    DEFAULT,
+
+    /**
+     * {@code Dispatchers.IO}.
+     */
+    IO,
+
+    /**
+     * {@code Dispatchers.Unconfined}, the coroutines start on the thread that received the message.
+     */
+    UNCONFINED
+}
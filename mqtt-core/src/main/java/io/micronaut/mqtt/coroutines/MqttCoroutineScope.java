@@ -0,0 +1,233 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.coroutines;
+
+import io.micronaut.context.annotation.Bean;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.mqtt.exception.MqttClientException;
+import io.micronaut.scheduling.TaskExecutors;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import kotlin.ResultKt;
+import kotlin.Unit;
+import kotlin.coroutines.Continuation;
+import kotlin.coroutines.CoroutineContext;
+import kotlin.coroutines.EmptyCoroutineContext;
+import kotlin.coroutines.intrinsics.IntrinsicsKt;
+import kotlin.jvm.functions.Function2;
+import kotlinx.coroutines.BuildersKt;
+import kotlinx.coroutines.CompletableJob;
+import kotlinx.coroutines.CoroutineDispatcher;
+import kotlinx.coroutines.CoroutineScope;
+import kotlinx.coroutines.CoroutineScopeKt;
+import kotlinx.coroutines.CoroutineStart;
+import kotlinx.coroutines.Deferred;
+import kotlinx.coroutines.Dispatchers;
+import kotlinx.coroutines.ExecutorsKt;
+import kotlinx.coroutines.Job;
+import kotlinx.coroutines.SupervisorKt;
+import kotlinx.coroutines.flow.Flow;
+import kotlinx.coroutines.flow.FlowCollector;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+/**
+ * The coroutine scope suspending subscriber methods and the flows of publisher methods are
+ * run in. Each coroutine is a child of a supervisor job, so a failing coroutine does not
+ * affect the others, and all of them are cancelled when the application shuts down.
+ *
+ * @since 3.0.0
+ */
+@Singleton
+@Bean(preDestroy = "close")
+@Requires(classes = CoroutineScope.class)
+public class MqttCoroutineScope {
+
+    private final CompletableJob job = SupervisorKt.SupervisorJob(null);
+    private final CoroutineScope scope;
+    private final int flowMaxInflight;
+
+    public MqttCoroutineScope(MqttCoroutineConfigurationProperties configuration,
+                              @Named(TaskExecutors.MESSAGE_CONSUMER) ExecutorService executorService) {
+        CoroutineDispatcher dispatcher = switch (configuration.getDispatcher()) {
+            case DEFAULT -> Dispatchers.getDefault();
+            case IO -> Dispatchers.getIO();
+            case UNCONFINED -> Dispatchers.getUnconfined();
+            case CONSUMER -> ExecutorsKt.from(executorService);
+        };
+        this.scope = CoroutineScopeKt.CoroutineScope(job.plus(dispatcher));
+        this.flowMaxInflight = Math.max(1, configuration.getFlowMaxInflight());
+    }
+
+    /**
+     * Invokes a suspending method in a new coroutine.
+     *
+     * @param invocation Invokes the method with the continuation of the coroutine, returning its result
+     * @return A future completed with the result of the method once it has resumed
+     */
+    public CompletableFuture<Object> launch(Function<Continuation<Object>, Object> invocation) {
+        Function2<CoroutineScope, Continuation<? super Object>, Object> block = (coroutineScope, continuation) -> invocation.apply((Continuation<Object>) continuation);
+        return toFuture(BuildersKt.async(scope, EmptyCoroutineContext.INSTANCE, CoroutineStart.DEFAULT, block));
+    }
+
+    /**
+     * Collects a flow and publishes each element. Collecting suspends while the configured
+     * number of messages awaits their acknowledgement. A flow passed to a suspending method is
+     * collected in a child of the calling coroutine, so cancelling the caller stops the
+     * collection.
+     *
+     * @param flow The flow
+     * @param caller The continuation of the calling coroutine, null if the caller is not suspending
+     * @param publish Publishes an element, returning a future completed once it is acknowledged
+     * @return A future completed once every element has been acknowledged
+     */
+    public CompletableFuture<Void> collect(Object flow, @Nullable Object caller, Function<Object, CompletableFuture<?>> publish) {
+        CoroutineScope target = scope;
+        CompletableJob callerJob = null;
+        if (caller instanceof Continuation<?> continuation) {
+            CoroutineContext context = continuation.getContext();
+            // a supervisor keeps a failed collection from cancelling the caller, which receives the failure instead
+            callerJob = SupervisorKt.SupervisorJob(context.get(Job.Key));
+            target = CoroutineScopeKt.CoroutineScope(context.plus(callerJob));
+        }
+        PublishingCollector collector = new PublishingCollector(publish, flowMaxInflight);
+        Function2<CoroutineScope, Continuation<? super Unit>, Object> block = (coroutineScope, continuation) -> ((Flow<Object>) flow).collect(collector, continuation);
+        Deferred<Unit> collection = BuildersKt.async(target, EmptyCoroutineContext.INSTANCE, CoroutineStart.DEFAULT, block);
+        if (callerJob != null) {
+            // completes once the collection has, so the caller does not wait on it
+            callerJob.complete();
+        }
+        return toFuture(collection).thenCompose(result -> collector.drained());
+    }
+
+    /**
+     * Cancels the running coroutines.
+     */
+    public void close() {
+        job.cancel(new CancellationException("The application is shutting down"));
+    }
+
+    private static <T> CompletableFuture<T> toFuture(Deferred<T> deferred) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        deferred.invokeOnCompletion(cause -> {
+            if (cause == null) {
+                future.complete(deferred.getCompleted());
+            } else {
+                future.completeExceptionally(cause);
+            }
+            return Unit.INSTANCE;
+        });
+        return future;
+    }
+
+    /**
+     * Publishes the elements of a flow, suspending the flow while too many of them await
+     * their acknowledgement.
+     */
+    private static final class PublishingCollector implements FlowCollector<Object> {
+
+        private final Function<Object, CompletableFuture<?>> publish;
+        private final int maxInflight;
+        private final CompletableFuture<Void> drained = new CompletableFuture<>();
+        private int inflight;
+        private boolean collected;
+        private Throwable failure;
+        private Continuation<? super Unit> suspended;
+
+        private PublishingCollector(Function<Object, CompletableFuture<?>> publish, int maxInflight) {
+            this.publish = publish;
+            this.maxInflight = maxInflight;
+        }
+
+        @Override
+        public Object emit(Object value, Continuation<? super Unit> continuation) {
+            synchronized (this) {
+                if (failure != null) {
+                    throw new MqttClientException("Failed to publish an element of the flow", failure);
+                }
+                inflight++;
+            }
+            CompletableFuture<?> acknowledged;
+            try {
+                acknowledged = publish.apply(value);
+            } catch (RuntimeException e) {
+                acknowledged(e);
+                throw e;
+            }
+            acknowledged.whenComplete((result, throwable) -> acknowledged(throwable));
+            synchronized (this) {
+                if (inflight < maxInflight || failure != null) {
+                    return Unit.INSTANCE;
+                }
+                suspended = continuation;
+                return IntrinsicsKt.getCOROUTINE_SUSPENDED();
+            }
+        }
+
+        CompletableFuture<Void> drained() {
+            synchronized (this) {
+                collected = true;
+            }
+            completeIfDrained();
+            return drained;
+        }
+
+        private void acknowledged(@Nullable Throwable throwable) {
+            Continuation<? super Unit> resume = null;
+            Throwable error;
+            synchronized (this) {
+                inflight--;
+                if (throwable != null && failure == null) {
+                    failure = throwable;
+                }
+                if (suspended != null && (inflight < maxInflight || failure != null)) {
+                    resume = suspended;
+                    suspended = null;
+                }
+                error = failure;
+            }
+            if (resume != null) {
+                // resumes on the dispatcher of the flow rather than the thread of the acknowledgement
+                Continuation<? super Unit> intercepted = IntrinsicsKt.intercepted(resume);
+                if (error == null) {
+                    intercepted.resumeWith(Unit.INSTANCE);
+                } else {
+                    intercepted.resumeWith(ResultKt.createFailure(new MqttClientException("Failed to publish an element of the flow", error)));
+                }
+            }
+            completeIfDrained();
+        }
+
+        private void completeIfDrained() {
+            Throwable error;
+            synchronized (this) {
+                if (!collected || inflight > 0) {
+                    return;
+                }
+                error = failure;
+            }
+            if (error == null) {
+                drained.complete(null);
+            } else {
+                drained.completeExceptionally(error);
+            }
+        }
+    }
+}
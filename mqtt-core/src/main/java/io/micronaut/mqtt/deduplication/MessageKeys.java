@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.deduplication;
+
+import io.micronaut.core.annotation.Internal;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Computes 64 bit keys for messages.
+ *
+ * @since 3.0.0
+ */
+@Internal
+public final class MessageKeys {
+
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private MessageKeys() {
+    }
+
+    /**
+     * @param data The data to hash
+     * @return A 64 bit hash of the data
+     */
+    public static long hash(byte[] data) {
+        if (data == null) {
+            return 0;
+        }
+        int length = data.length;
+        long h = length * C2;
+        int i = 0;
+        for (; i + Long.BYTES <= length; i += Long.BYTES) {
+            h ^= mixKey((long) LONG_VIEW.get(data, i));
+            h = Long.rotateLeft(h, 27) * 5 + 0x52dce729;
+        }
+        if (i < length) {
+            long k = 0;
+            for (int j = length - 1; j >= i; j--) {
+                k = (k << 8) | (data[j] & 0xFF);
+            }
+            h ^= mixKey(k);
+        }
+        return fmix(h ^ length);
+    }
+
+    /**
+     * @param value The value to hash
+     * @return A 64 bit hash of the value
+     */
+    public static long hash(String value) {
+        return value == null ? 0 : hash(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param first The first hash
+     * @param second The second hash
+     * @return A hash of both values
+     */
+    public static long combine(long first, long second) {
+        return fmix(first * C1 + second);
+    }
+
+    private static long mixKey(long k) {
+        k *= C1;
+        k = Long.rotateLeft(k, 31);
+        return k * C2;
+    }
+
+    private static long fmix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.deduplication;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+import io.micronaut.core.annotation.Nullable;
+
+import java.time.Duration;
+
+/**
+ * Configuration for suppressing duplicate messages before they are delivered to subscribers.
+ *
+ * @since 3.0.0
+ */
+@ConfigurationProperties(MqttDeduplicationConfigurationProperties.PREFIX)
+public class MqttDeduplicationConfigurationProperties {
+
+    public static final String PREFIX = "mqtt.subscriber.deduplication";
+
+    private static final boolean DEFAULT_ENABLED = false;
+    private static final long DEFAULT_EXPECTED_KEYS = 5_000_000;
+    private static final double DEFAULT_FALSE_POSITIVE_PROBABILITY = 0.0001;
+    private static final int DEFAULT_SEGMENTS = 4;
+
+    private boolean enabled = DEFAULT_ENABLED;
+    private Duration window = Duration.ofHours(1);
+    private long expectedKeys = DEFAULT_EXPECTED_KEYS;
+    private double falsePositiveProbability = DEFAULT_FALSE_POSITIVE_PROBABILITY;
+    private int segments = DEFAULT_SEGMENTS;
+    private String keyProperty;
+
+    /**
+     * @return True if duplicate messages should be dropped
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables duplicate suppression. Default value {@value #DEFAULT_ENABLED}
+     *
+     * @param enabled True if it is enabled
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return How long message keys are remembered
+     */
+    public Duration getWindow() {
+        return window;
+    }
+
+    /**
+     * @param window How long message keys are remembered. Default value 1 hour
+     */
+    public void setWindow(Duration window) {
+        this.window = window;
+    }
+
+    /**
+     * @return The number of distinct keys expected within the window
+     */
+    public long getExpectedKeys() {
+        return expectedKeys;
+    }
+
+    /**
+     * The memory used is fixed up front from this value and the false positive
+     * probability. Default value {@value #DEFAULT_EXPECTED_KEYS}
+     *
+     * @param expectedKeys The number of distinct keys expected within the window
+     */
+    public void setExpectedKeys(long expectedKeys) {
+        this.expectedKeys = expectedKeys;
+    }
+
+    /**
+     * @return The probability of a unique message being dropped as a duplicate
+     */
+    public double getFalsePositiveProbability() {
+        return falsePositiveProbability;
+    }
+
+    /**
+     * @param falsePositiveProbability The probability of a unique message being dropped as a duplicate. Default value {@value #DEFAULT_FALSE_POSITIVE_PROBABILITY}
+     */
+    public void setFalsePositiveProbability(double falsePositiveProbability) {
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    /**
+     * @return The number of segments the window is divided into
+     */
+    public int getSegments() {
+        return segments;
+    }
+
+    /**
+     * The oldest segment is discarded each time a fraction of the window elapses.
+     * Default value {@value #DEFAULT_SEGMENTS}
+     *
+     * @param segments The number of segments the window is divided into
+     */
+    public void setSegments(int segments) {
+        this.segments = segments;
+    }
+
+    /**
+     * @return The user property that identifies a message
+     */
+    @Nullable
+    public String getKeyProperty() {
+        return keyProperty;
+    }
+
+    /**
+     * Sets a user property that uniquely identifies a message (MQTT v5 only). If not
+     * set, or the property is absent, messages are identified by a hash of the topic and payload.
+     *
+     * @param keyProperty The user property name
+     */
+    public void setKeyProperty(@Nullable String keyProperty) {
+        this.keyProperty = keyProperty;
+    }
+}
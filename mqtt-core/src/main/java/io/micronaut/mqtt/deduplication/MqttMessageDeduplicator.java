@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.deduplication;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.core.util.StringUtils;
+import io.micronaut.mqtt.bind.MqttBindingContext;
+import jakarta.inject.Singleton;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drops messages that have already been handled within the configured window,
+ * for example messages redelivered by the broker with QoS 1 after a reconnect.
+ * Messages received with QoS 0 are never redelivered and are not checked. A message is
+ * remembered once its subscriber has handled it, so a message whose handling failed is
+ * delivered again.
+ *
+ * @since 3.0.0
+ */
+@Singleton
+@Requires(property = MqttDeduplicationConfigurationProperties.PREFIX + ".enabled", value = StringUtils.TRUE)
+public class MqttMessageDeduplicator {
+
+    private final MqttMessageKeyResolver keyResolver;
+    private final RotatingBloomFilter filter;
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+
+    /**
+     * @param configuration The deduplication configuration
+     * @param keyResolver The message key resolver
+     */
+    public MqttMessageDeduplicator(MqttDeduplicationConfigurationProperties configuration,
+                                   MqttMessageKeyResolver keyResolver) {
+        this.keyResolver = keyResolver;
+        this.filter = new RotatingBloomFilter(
+                configuration.getExpectedKeys(),
+                configuration.getFalsePositiveProbability(),
+                configuration.getSegments(),
+                configuration.getWindow().toNanos());
+    }
+
+    /**
+     * @param context The binding context of the received message
+     * @param subscriberKey A key identifying the subscriber the message is delivered to
+     * @return The key of the message for the subscriber
+     */
+    public long resolveKey(MqttBindingContext<?> context, long subscriberKey) {
+        return MessageKeys.combine(subscriberKey, keyResolver.resolveKey(context));
+    }
+
+    /**
+     * Determines if a message was already handled by the subscriber. The message is not
+     * recorded, a message that fails is delivered again if the broker redelivers it.
+     *
+     * @param messageKey The key of the message returned by {@link #resolveKey}
+     * @return True if the message is a duplicate and should be dropped
+     */
+    public boolean isDuplicate(long messageKey) {
+        checked.increment();
+        if (filter.contains(messageKey)) {
+            duplicates.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records a message the subscriber has handled, or acknowledged if messages are
+     * acknowledged manually, so it is dropped if it is received again.
+     *
+     * @param messageKey The key of the message returned by {@link #resolveKey}
+     */
+    public void handled(long messageKey) {
+        filter.add(messageKey);
+    }
+
+    /**
+     * @return The number of messages checked
+     */
+    public long getChecked() {
+        return checked.sum();
+    }
+
+    /**
+     * @return The number of messages dropped as duplicates
+     */
+    public long getDuplicates() {
+        return duplicates.sum();
+    }
+
+    /**
+     * @return The ratio of duplicates to checked messages
+     */
+    public double getHitRate() {
+        long total = checked.sum();
+        return total == 0 ? 0 : (double) duplicates.sum() / total;
+    }
+
+    /**
+     * @return The number of bytes allocated to remember message keys
+     */
+    public long getSizeInBytes() {
+        return filter.getSizeInBytes();
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.deduplication;
+
+import io.micronaut.mqtt.bind.MqttBindingContext;
+import jakarta.inject.Singleton;
+
+/**
+ * The default {@link MqttMessageKeyResolver} that identifies messages by a hash
+ * of the topic and the payload.
+ *
+ * @since 3.0.0
+ */
+@Singleton
+public class PayloadMessageKeyResolver implements MqttMessageKeyResolver {
+
+    @Override
+    public long resolveKey(MqttBindingContext<?> context) {
+        return MessageKeys.combine(MessageKeys.hash(context.getTopic()), MessageKeys.hash(context.getPayload()));
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.deduplication;
+
+import io.micronaut.core.annotation.Internal;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * A time windowed set of 64 bit keys with constant memory. The window is divided
+ * into segments, each a Bloom filter sized for its share of the expected keys.
+ * Keys are inserted into the newest segment and looked up in all of them. Once the
+ * window duration divided by the number of segments has elapsed, the oldest segment
+ * is cleared and becomes the newest, so a key is remembered for at least
+ * {@code window * (segments - 1) / segments} and at most {@code window}.
+ *
+ * No background thread is used, rotation happens on access.
+ *
+ * @since 3.0.0
+ */
+@Internal
+public final class RotatingBloomFilter {
+
+    private final AtomicLongArray[] segments;
+    private final int bitsPerSegment;
+    private final int hashFunctions;
+    private final long rotationNanos;
+    private final LongSupplier clock;
+    private volatile int current;
+    private volatile long nextRotation;
+
+    /**
+     * @param expectedKeys The number of distinct keys expected within the window
+     * @param falsePositiveProbability The desired false positive probability across all segments
+     * @param segmentCount The number of segments, at least 2
+     * @param windowNanos The window duration in nanoseconds
+     */
+    public RotatingBloomFilter(long expectedKeys, double falsePositiveProbability, int segmentCount, long windowNanos) {
+        this(expectedKeys, falsePositiveProbability, segmentCount, windowNanos, System::nanoTime);
+    }
+
+    RotatingBloomFilter(long expectedKeys, double falsePositiveProbability, int segmentCount, long windowNanos, LongSupplier clock) {
+        if (segmentCount < 2) {
+            throw new IllegalArgumentException("At least 2 segments are required");
+        }
+        if (expectedKeys < 1 || falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("Invalid Bloom filter sizing");
+        }
+        long keysPerSegment = Math.max(1, expectedKeys / segmentCount);
+        // each lookup consults every segment so the probability is shared between them
+        double segmentProbability = falsePositiveProbability / segmentCount;
+        long bits = (long) Math.ceil(-keysPerSegment * Math.log(segmentProbability) / (Math.log(2) * Math.log(2)));
+        bits = Math.min(Math.max(Long.SIZE, bits), (long) Integer.MAX_VALUE - Long.SIZE);
+        this.bitsPerSegment = (int) bits;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bits / keysPerSegment * Math.log(2)));
+        this.segments = new AtomicLongArray[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new AtomicLongArray((bitsPerSegment + Long.SIZE - 1) / Long.SIZE);
+        }
+        this.rotationNanos = Math.max(1, windowNanos / segmentCount);
+        this.clock = clock;
+        this.nextRotation = clock.getAsLong() + rotationNanos;
+    }
+
+    /**
+     * @param key The key
+     * @return True if the key was probably added within the window, false if it definitely was not
+     */
+    public boolean contains(long key) {
+        rotateIfNecessary();
+        int h1 = (int) key;
+        int h2 = (int) (key >>> 32);
+        for (AtomicLongArray segment : segments) {
+            if (contains(segment, h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the key to the newest segment.
+     *
+     * @param key The key
+     */
+    public void add(long key) {
+        rotateIfNecessary();
+        add(segments[current], (int) key, (int) (key >>> 32));
+    }
+
+    /**
+     * Adds the key to the filter.
+     *
+     * @param key The key
+     * @return True if the key was probably seen within the window, false if it is definitely new
+     */
+    public boolean checkAndAdd(long key) {
+        rotateIfNecessary();
+        int h1 = (int) key;
+        int h2 = (int) (key >>> 32);
+        int newest = current;
+        for (int s = 0; s < segments.length; s++) {
+            if (s != newest && contains(segments[s], h1, h2)) {
+                return true;
+            }
+        }
+        return !add(segments[newest], h1, h2);
+    }
+
+    /**
+     * @return The number of bytes allocated for the filter
+     */
+    public long getSizeInBytes() {
+        return (long) segments.length * segments[0].length() * Long.BYTES;
+    }
+
+    private boolean contains(AtomicLongArray bitset, int h1, int h2) {
+        for (int i = 0; i < hashFunctions; i++) {
+            int bit = index(h1, h2, i);
+            if ((bitset.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return True if any bit changed, meaning the key was not present
+     */
+    private boolean add(AtomicLongArray bitset, int h1, int h2) {
+        boolean changed = false;
+        for (int i = 0; i < hashFunctions; i++) {
+            int bit = index(h1, h2, i);
+            int word = bit >>> 6;
+            long mask = 1L << bit;
+            long value = bitset.get(word);
+            while ((value & mask) == 0) {
+                if (bitset.compareAndSet(word, value, value | mask)) {
+                    changed = true;
+                    break;
+                }
+                value = bitset.get(word);
+            }
+        }
+        return changed;
+    }
+
+    private int index(int h1, int h2, int i) {
+        int combined = h1 + i * h2;
+        return (combined & Integer.MAX_VALUE) % bitsPerSegment;
+    }
+
+    private void rotateIfNecessary() {
+        long now = clock.getAsLong();
+        if (now - nextRotation < 0) {
+            return;
+        }
+        synchronized (this) {
+            long behind = now - nextRotation;
+            if (behind < 0) {
+                return;
+            }
+            long rotations = behind / rotationNanos + 1;
+            int expired = (int) Math.min(rotations, segments.length);
+            for (int r = 0; r < expired; r++) {
+                int oldest = (current + 1) % segments.length;
+                AtomicLongArray bitset = segments[oldest];
+                for (int i = 0; i < bitset.length(); i++) {
+                    bitset.set(i, 0);
+                }
+                current = oldest;
+            }
+            nextRotation = rotations > segments.length ? now + rotationNanos : nextRotation + rotations * rotationNanos;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.exception;
+
+/**
+ * Allows an {@link MqttSubscriberExceptionHandler} to deliver a message that
+ * failed to be processed to the subscriber again.
+ *
+ * @since 3.0.0
+ */
+public interface MqttMessageRedelivery {
+
+    /**
+     * @return The number of times the message has been delivered to the subscriber, starting at 1
+     */
+    int getAttempt();
+
+    /**
+     * Binds the message and invokes the subscriber again on the calling thread.
+     * Failures are routed to the exception handler with an incremented attempt.
+     */
+    void redeliver();
+
+    /**
+     * Acknowledges the message if the client requires manual acknowledgement so
+     * that the session is not blocked by a message that will not be processed.
+     */
+    void acknowledge();
+}
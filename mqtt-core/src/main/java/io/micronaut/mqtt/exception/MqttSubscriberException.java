@@ -15,7 +15,11 @@
  */
 package io.micronaut.mqtt.exception;
 
+import io.micronaut.core.annotation.Nullable;
 import io.micronaut.messaging.exceptions.MessageListenerException;
+import io.micronaut.mqtt.bind.MqttBindingContext;
+
+import java.util.Optional;
 
 /**
  * An exception thrown while subscribing to MQTT topics.
@@ -25,12 +29,47 @@ import io.micronaut.messaging.exceptions.MessageListenerException;
  */
 public class MqttSubscriberException extends MessageListenerException {
 
+    private final transient MqttBindingContext<?> bindingContext;
+    private final transient MqttMessageRedelivery redelivery;
+
     public MqttSubscriberException(String message) {
-        super(message);
+        this(message, null, null, null);
     }
 
     public MqttSubscriberException(String message, Throwable cause) {
+        this(message, cause, null, null);
+    }
+
+    /**
+     * @param message The message
+     * @param cause The cause
+     * @param bindingContext The context of the message that failed to be processed
+     * @param redelivery Allows the message to be delivered to the subscriber again
+     * @since 3.0.0
+     */
+    public MqttSubscriberException(String message,
+                                   @Nullable Throwable cause,
+                                   @Nullable MqttBindingContext<?> bindingContext,
+                                   @Nullable MqttMessageRedelivery redelivery) {
         super(message, cause);
+        this.bindingContext = bindingContext;
+        this.redelivery = redelivery;
+    }
+
+    /**
+     * @return The context of the message that failed to be processed, if the failure relates to a message
+     * @since 3.0.0
+     */
+    public Optional<MqttBindingContext<?>> getBindingContext() {
+        return Optional.ofNullable(bindingContext);
+    }
+
+    /**
+     * @return The redelivery of the message, if the failure relates to a message
+     * @since 3.0.0
+     */
+    public Optional<MqttMessageRedelivery> getRedelivery() {
+        return Optional.ofNullable(redelivery);
     }
 
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017-2022 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.exception;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An exception thrown when the broker acknowledged a SUBSCRIBE packet but rejected some of
+ * its topic filters. The other filters of the packet have been subscribed to.
+ *
+ * @since 3.0.0
+ */
+public class MqttSubscriptionRejectedException extends MqttSubscriberException {
+
+    private final List<String> rejectedFilters;
+
+    /**
+     * @param rejectedFilters The topic filters the broker rejected
+     */
+    public MqttSubscriptionRejectedException(List<String> rejectedFilters) {
+        super(String.format("The broker rejected the subscription to the topics: %s", rejectedFilters));
+        this.rejectedFilters = Collections.unmodifiableList(rejectedFilters);
+    }
+
+    /**
+     * @return The topic filters the broker rejected
+     */
+    public List<String> getRejectedFilters() {
+        return rejectedFilters;
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.executor;
+
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.scheduling.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A hashed timing wheel for scheduling large numbers of short lived timeouts, such
+ * as message retries and request timeouts, without a thread or a scheduled future per task.
+ * The wheel is advanced by a single daemon thread owned by the timer, which only ticks while
+ * timeouts are scheduled, and expired tasks are executed on the given executor.
+ *
+ * Timeouts are accurate to the tick duration.
+ *
+ * @since 3.0.0
+ */
+public final class HashedWheelTimer implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    private final Executor executor;
+    private final ScheduledExecutorService ticker;
+    private final long tickNanos;
+    private final Queue<Timeout>[] buckets;
+    private final int mask;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger scheduled = new AtomicInteger();
+    private final long startTime;
+    private long tick;
+    private int inWheel;
+    private volatile ScheduledFuture<?> ticking;
+    private volatile boolean closed;
+
+    /**
+     * @param executor The executor that runs expired tasks, of any type
+     * @param tickDuration The duration of a tick
+     * @param ticksPerWheel The number of buckets, rounded up to a power of two
+     */
+    @SuppressWarnings("unchecked")
+    public HashedWheelTimer(@NonNull Executor executor, @NonNull Duration tickDuration, int ticksPerWheel) {
+        if (tickDuration.isNegative() || tickDuration.isZero()) {
+            throw new IllegalArgumentException("The tick duration must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(1, ticksPerWheel - 1)) << 1;
+        this.executor = executor;
+        this.ticker = Executors.newSingleThreadScheduledExecutor(daemonThreads());
+        this.tickNanos = tickDuration.toNanos();
+        this.buckets = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.mask = size - 1;
+        this.startTime = System.nanoTime();
+    }
+
+    /**
+     * Schedules the task to run once the delay has elapsed.
+     *
+     * @param task The task
+     * @param delay The delay
+     * @return A handle to cancel the task
+     */
+    @NonNull
+    public Timeout schedule(@NonNull Runnable task, @NonNull Duration delay) {
+        if (closed) {
+            throw new IllegalStateException("The timer has been closed");
+        }
+        Timeout timeout = new Timeout(task, System.nanoTime() - startTime + Math.max(0, delay.toNanos()));
+        scheduled.incrementAndGet();
+        pending.add(timeout);
+        if (ticking == null) {
+            start();
+        }
+        return timeout;
+    }
+
+    /**
+     * @return True if the wheel is currently being advanced
+     */
+    public boolean isTicking() {
+        return ticking != null;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        ticking = null;
+        ticker.shutdownNow();
+    }
+
+    private synchronized void start() {
+        if (ticking == null && !closed) {
+            ticking = ticker.scheduleAtFixedRate(this::advance, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Stops ticking once no timeouts are left. A timeout scheduled concurrently either sees
+     * the ticker stopped and starts it again, or is counted before the second check.
+     */
+    private synchronized void stopIfIdle() {
+        ScheduledFuture<?> future = ticking;
+        if (future == null || scheduled.get() > 0) {
+            return;
+        }
+        ticking = null;
+        future.cancel(false);
+        if (scheduled.get() > 0) {
+            start();
+        }
+    }
+
+    /**
+     * Processes every tick that has elapsed. Only ever invoked by the ticker thread.
+     */
+    private void advance() {
+        long elapsedTicks = (System.nanoTime() - startTime) / tickNanos;
+        if (inWheel == 0) {
+            // nothing is left in the buckets, so the ticks missed while idle can be skipped
+            tick = Math.max(tick, elapsedTicks);
+        }
+        while (tick <= elapsedTicks) {
+            transferPending();
+            expire(buckets[(int) (tick & mask)]);
+            tick++;
+        }
+        if (inWheel == 0 && pending.isEmpty()) {
+            stopIfIdle();
+        }
+    }
+
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.cancelled) {
+                scheduled.decrementAndGet();
+                continue;
+            }
+            // never schedule into a bucket that has already been processed
+            long deadlineTick = Math.max(timeout.deadline / tickNanos, tick);
+            timeout.remainingRounds = (deadlineTick - tick) / buckets.length;
+            buckets[(int) (deadlineTick & mask)].add(timeout);
+            inWheel++;
+        }
+    }
+
+    private void expire(Queue<Timeout> bucket) {
+        Iterator<Timeout> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            Timeout timeout = iterator.next();
+            if (timeout.cancelled) {
+                remove(iterator);
+            } else if (timeout.remainingRounds <= 0) {
+                remove(iterator);
+                if (!closed) {
+                    run(timeout);
+                }
+            } else {
+                timeout.remainingRounds--;
+            }
+        }
+    }
+
+    private void run(Timeout timeout) {
+        try {
+            executor.execute(timeout.task);
+        } catch (RejectedExecutionException e) {
+            // an exception escaping the tick would stop the wheel for all later timeouts
+            if (LOG.isWarnEnabled()) {
+                LOG.warn("The executor rejected an expired timeout, the task is dropped", e);
+            }
+        }
+    }
+
+    private void remove(Iterator<Timeout> iterator) {
+        iterator.remove();
+        inWheel--;
+        scheduled.decrementAndGet();
+    }
+
+    private static ThreadFactory daemonThreads() {
+        ThreadFactory threadFactory = new NamedThreadFactory("mqtt-timer");
+        return runnable -> {
+            Thread thread = threadFactory.newThread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * A handle to a scheduled task.
+     */
+    public static final class Timeout {
+
+        private final Runnable task;
+        private final long deadline;
+        private long remainingRounds;
+        private volatile boolean cancelled;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the task if it has not been executed yet.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * @return True if the task was cancelled
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
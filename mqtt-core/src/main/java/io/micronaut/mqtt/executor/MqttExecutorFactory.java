@@ -15,8 +15,10 @@
  */
 package io.micronaut.mqtt.executor;
 
+import io.micronaut.context.annotation.Bean;
 import io.micronaut.context.annotation.Factory;
 import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
 import io.micronaut.scheduling.TaskExecutors;
 import io.micronaut.scheduling.executor.ExecutorConfiguration;
 import io.micronaut.scheduling.executor.ExecutorType;
@@ -24,6 +26,9 @@ import io.micronaut.scheduling.executor.UserExecutorConfiguration;
 import jakarta.inject.Named;
 import jakarta.inject.Singleton;
 
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+
 /**
  * Configures a {@link java.util.concurrent.ScheduledExecutorService} for running {@link} instances.
  *
@@ -33,14 +38,30 @@ import jakarta.inject.Singleton;
 @Factory
 public class MqttExecutorFactory {
 
+    private static final int THREADS_PER_CONNECTION = 3;
+
     /**
+     * @param poolSize The number of connections of the client
      * @return The executor configurations
      */
     @Singleton
     @Requires(missingProperty = ExecutorConfiguration.PREFIX_CONSUMER)
     @Named(TaskExecutors.MESSAGE_CONSUMER)
-    ExecutorConfiguration executor() {
-        return UserExecutorConfiguration.of(ExecutorType.SCHEDULED);
+    ExecutorConfiguration executor(@Value("${mqtt.client.pool-size:1}") int poolSize) {
+        // the receiver, sender and callback of every connection each occupy a thread
+        int threads = Runtime.getRuntime().availableProcessors() * 2 + Math.max(0, poolSize - 1) * THREADS_PER_CONNECTION;
+        return UserExecutorConfiguration.of(ExecutorType.SCHEDULED, threads);
+    }
+
+    /**
+     * @param executorService The consumer executor
+     * @return The timer used to schedule retries and timeouts
+     * @since 3.0.0
+     */
+    @Singleton
+    @Bean(preDestroy = "close")
+    HashedWheelTimer timer(@Named(TaskExecutors.MESSAGE_CONSUMER) ExecutorService executorService) {
+        return new HashedWheelTimer(executorService, Duration.ofMillis(10), 512);
     }
 
 }
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.flow;
+
+import io.micronaut.mqtt.exception.MqttClientException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Limits the number of QoS 1 and 2 messages a client has in flight. The limit is adjusted
+ * from the time it takes the broker to acknowledge a message (PUBACK for QoS 1, PUBCOMP for
+ * QoS 2), so it grows on links with a high latency and shrinks once messages start to queue
+ * up at the broker.
+ *
+ * <p>Publishes that exceed the window wait in order until an acknowledgement frees a permit
+ * and are then published on the thread delivering the acknowledgement.</p>
+ *
+ * @since 3.0.0
+ */
+public final class AdaptiveInflightWindow {
+
+    private static final int RTT_SMOOTHING_SHIFT = 3;
+
+    private final String client;
+    private final InflightWindowAlgorithm algorithm;
+    private final int minWindow;
+    private final int maxWindow;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+    private final int alpha;
+    private final int beta;
+    private final long minRttWindowNanos;
+    private final Deque<Pending> queue = new ArrayDeque<>();
+    private double window;
+    private int inFlight;
+    private long minRtt;
+    private long minRttTimestamp;
+    private long smoothedRtt;
+    private long lastDecrease;
+    private long decreases;
+    private boolean draining;
+    private boolean closed;
+
+    /**
+     * @param client The name of the client
+     * @param configuration The window configuration
+     */
+    public AdaptiveInflightWindow(String client, MqttInflightWindowConfigurationProperties configuration) {
+        this(client, configuration, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param client The name of the client
+     * @param configuration The window configuration
+     * @param maxInflight The number of messages the client accepts in flight, the window never exceeds it
+     */
+    public AdaptiveInflightWindow(String client, MqttInflightWindowConfigurationProperties configuration, int maxInflight) {
+        this.client = client;
+        this.algorithm = configuration.getAlgorithm();
+        this.minWindow = Math.max(1, Math.min(configuration.getMinWindow(), maxInflight));
+        this.maxWindow = Math.max(minWindow, Math.min(configuration.getMaxWindow(), maxInflight));
+        this.backoffRatio = configuration.getBackoffRatio();
+        this.latencyTolerance = configuration.getLatencyTolerance();
+        this.alpha = configuration.getAlpha();
+        this.beta = Math.max(alpha, configuration.getBeta());
+        this.minRttWindowNanos = configuration.getMinRttWindow().toNanos();
+        this.window = Math.max(minWindow, Math.min(maxWindow, configuration.getInitialWindow()));
+    }
+
+    /**
+     * Publishes a message once a permit is available. The publish function receives the
+     * permit, which must be completed once the broker has acknowledged the message or the
+     * publish failed, and returns the token of the publish, or null if the message was not
+     * sent to the broker, for example because it was buffered while disconnected.
+     *
+     * @param publish Publishes the message
+     * @param onError Called if a waiting publish fails or is discarded
+     * @return The result of the publish function, or null if the publish is waiting for a permit
+     */
+    public Object submit(Function<Permit, Object> publish, Consumer<Throwable> onError) {
+        synchronized (this) {
+            if (closed) {
+                throw new MqttClientException("The client is closed");
+            }
+            if (!queue.isEmpty() || inFlight >= limit()) {
+                queue.add(new Pending(publish, onError));
+                return null;
+            }
+            inFlight++;
+        }
+        Permit permit = new Permit();
+        Object result;
+        try {
+            result = publish.apply(permit);
+        } catch (RuntimeException e) {
+            permit.release();
+            throw e;
+        }
+        permit.sent(result != null);
+        return result;
+    }
+
+    /**
+     * @return The name of the client
+     */
+    public String getClient() {
+        return client;
+    }
+
+    /**
+     * @return The number of messages that may currently be in flight
+     */
+    public synchronized int getWindow() {
+        return limit();
+    }
+
+    /**
+     * @return The number of messages in flight
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return The number of publishes waiting for a permit
+     */
+    public synchronized int getQueued() {
+        return queue.size();
+    }
+
+    /**
+     * @return The smoothed acknowledgement latency in nanoseconds
+     */
+    public synchronized long getSmoothedRttNanos() {
+        return smoothedRtt;
+    }
+
+    /**
+     * @return The lowest acknowledgement latency in nanoseconds observed within the configured window
+     */
+    public synchronized long getMinRttNanos() {
+        return minRtt;
+    }
+
+    /**
+     * @return The number of times the window was decreased
+     */
+    public synchronized long getDecreases() {
+        return decreases;
+    }
+
+    /**
+     * Fails the publishes waiting for a permit.
+     */
+    public void close() {
+        List<Pending> discarded;
+        synchronized (this) {
+            closed = true;
+            discarded = new ArrayList<>(queue);
+            queue.clear();
+        }
+        MqttClientException exception = new MqttClientException("The client closed before the message could be published");
+        for (Pending pending : discarded) {
+            pending.onError.accept(exception);
+        }
+    }
+
+    private int limit() {
+        return (int) window;
+    }
+
+    private void complete(boolean sample, boolean success, long rtt) {
+        synchronized (this) {
+            // a window that is mostly unused says nothing about the capacity of the link
+            boolean saturated = inFlight * 2 >= limit();
+            inFlight--;
+            if (sample) {
+                long now = System.nanoTime();
+                if (success) {
+                    acknowledged(rtt, now, saturated);
+                } else {
+                    decrease(now);
+                }
+            }
+            if (draining || queue.isEmpty() || inFlight >= limit()) {
+                return;
+            }
+            draining = true;
+        }
+        drain();
+    }
+
+    private void drain() {
+        while (true) {
+            Pending next;
+            synchronized (this) {
+                if (queue.isEmpty() || inFlight >= limit()) {
+                    draining = false;
+                    return;
+                }
+                next = queue.poll();
+                inFlight++;
+            }
+            Permit permit = new Permit();
+            try {
+                permit.sent(next.publish.apply(permit) != null);
+            } catch (RuntimeException e) {
+                permit.release();
+                next.onError.accept(e);
+            }
+        }
+    }
+
+    private void acknowledged(long rtt, long now, boolean saturated) {
+        if (minRtt == 0 || rtt < minRtt || now - minRttTimestamp > minRttWindowNanos) {
+            minRtt = Math.max(1, rtt);
+            minRttTimestamp = now;
+        }
+        smoothedRtt = smoothedRtt == 0 ? rtt : smoothedRtt + ((rtt - smoothedRtt) >> RTT_SMOOTHING_SHIFT);
+        if (algorithm == InflightWindowAlgorithm.VEGAS) {
+            double queued = window * (1 - (double) minRtt / Math.max(minRtt, smoothedRtt));
+            if (queued < alpha) {
+                increase(saturated);
+            } else if (queued > beta) {
+                decreases++;
+                window = Math.max(minWindow, window - 1 / window);
+            }
+        } else if (smoothedRtt > minRtt * latencyTolerance) {
+            decrease(now);
+        } else {
+            increase(saturated);
+        }
+    }
+
+    private void increase(boolean saturated) {
+        if (saturated) {
+            window = Math.min(maxWindow, window + 1 / window);
+        }
+    }
+
+    private void decrease(long now) {
+        // at most once per round trip, late acknowledgements of a burst are one congestion event
+        if (lastDecrease != 0 && now - lastDecrease < smoothedRtt) {
+            return;
+        }
+        lastDecrease = now;
+        decreases++;
+        window = Math.max(minWindow, window * backoffRatio);
+    }
+
+    /**
+     * A permit to have a message in flight. It is completed once the broker has acknowledged the
+     * message or the publish has failed, which frees the permit for the next publish.
+     */
+    public final class Permit {
+
+        private final long start = System.nanoTime();
+        private boolean returned;
+        private boolean sent;
+        private boolean completed;
+        private boolean success;
+        private long rtt;
+
+        private Permit() {
+        }
+
+        /**
+         * Completes the permit once the broker has acknowledged the message.
+         */
+        public void acknowledged() {
+            complete(true);
+        }
+
+        /**
+         * Completes the permit once the publish has failed.
+         */
+        public void failed() {
+            complete(false);
+        }
+
+        private void complete(boolean success) {
+            long now = System.nanoTime();
+            synchronized (this) {
+                if (completed) {
+                    return;
+                }
+                completed = true;
+                this.success = success;
+                this.rtt = now - start;
+                if (!returned) {
+                    return;
+                }
+            }
+            AdaptiveInflightWindow.this.complete(sent, success, rtt);
+        }
+
+        private void sent(boolean sent) {
+            synchronized (this) {
+                returned = true;
+                this.sent = sent;
+                if (!completed) {
+                    return;
+                }
+            }
+            AdaptiveInflightWindow.this.complete(sent, success, rtt);
+        }
+
+        private void release() {
+            synchronized (this) {
+                if (returned) {
+                    return;
+                }
+                returned = true;
+                completed = true;
+            }
+            AdaptiveInflightWindow.this.complete(false, true, 0);
+        }
+    }
+
+    /**
+     * A publish waiting for a permit.
+     */
+    private static final class Pending {
+
+        private final Function<Permit, Object> publish;
+        private final Consumer<Throwable> onError;
+
+        Pending(Function<Permit, Object> publish, Consumer<Throwable> onError) {
+            this.publish = publish;
+            this.onError = onError;
+        }
+    }
+}
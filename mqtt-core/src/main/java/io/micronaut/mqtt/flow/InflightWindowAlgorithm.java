@@ -0,0 +1,38 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.flow;
+
+/**
+ * The algorithm used to adjust the in-flight window from the acknowledgement latency.
+ *
+ * @since 3.0.0
+ */
+public enum InflightWindowAlgorithm {
+
+    /**
+     * Additive increase, multiplicative decrease. The window grows by one message per round
+     * trip and is cut by the backoff ratio once the latency exceeds the tolerated multiple of
+     * the lowest latency observed, or a publish fails.
+     */
+    AIMD,
+
+    /**
+     * Estimates the number of messages queued along the path from the difference between the
+     * current and the lowest latency. The window grows while fewer than {@code alpha} messages
+     * are queued and shrinks once more than {@code beta} messages are queued.
+     */
+    VEGAS
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.flow;
+
+import io.micronaut.context.annotation.Bean;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.core.util.StringUtils;
+import jakarta.inject.Singleton;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Holds the {@link AdaptiveInflightWindow} of each client, created when the client first
+ * publishes a message.
+ *
+ * @since 3.0.0
+ */
+@Singleton
+@Bean(preDestroy = "close")
+@Requires(property = MqttInflightWindowConfigurationProperties.PREFIX + ".enabled", value = StringUtils.TRUE)
+public class InflightWindowRegistry {
+
+    private final MqttInflightWindowConfigurationProperties configuration;
+    private final ConcurrentMap<String, AdaptiveInflightWindow> windows = new ConcurrentHashMap<>();
+    private final List<Consumer<AdaptiveInflightWindow>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param configuration The window configuration
+     */
+    public InflightWindowRegistry(MqttInflightWindowConfigurationProperties configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * @param client The name of the client, empty for the default client
+     * @return The window of the client
+     */
+    public AdaptiveInflightWindow getWindow(String client) {
+        return getWindow(client, () -> Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param client The name of the client, empty for the default client
+     * @param maxInflight Supplies the number of messages the client accepts in flight across
+     *                    all of its connections when the window is created
+     * @return The window of the client
+     */
+    public AdaptiveInflightWindow getWindow(String client, IntSupplier maxInflight) {
+        AdaptiveInflightWindow window = windows.get(client);
+        if (window == null) {
+            window = windows.computeIfAbsent(client, name -> createWindow(name, maxInflight.getAsInt()));
+        }
+        return window;
+    }
+
+    /**
+     * @return The windows created so far
+     */
+    public Collection<AdaptiveInflightWindow> getWindows() {
+        return Collections.unmodifiableCollection(windows.values());
+    }
+
+    /**
+     * Registers a listener called with every window, the existing ones and those created later.
+     *
+     * @param listener The listener
+     */
+    public void addWindowListener(Consumer<AdaptiveInflightWindow> listener) {
+        listeners.add(listener);
+        windows.values().forEach(listener);
+    }
+
+    /**
+     * Fails the publishes waiting for a permit.
+     */
+    public void close() {
+        windows.values().forEach(AdaptiveInflightWindow::close);
+    }
+
+    private AdaptiveInflightWindow createWindow(String client, int maxInflight) {
+        AdaptiveInflightWindow window = new AdaptiveInflightWindow(client, configuration, maxInflight);
+        listeners.forEach(listener -> listener.accept(window));
+        return window;
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.flow;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration for limiting the number of QoS 1 and 2 messages in flight with a window
+ * adjusted from the acknowledgement latency.
+ *
+ * @since 3.0.0
+ */
+@ConfigurationProperties(MqttInflightWindowConfigurationProperties.PREFIX)
+public class MqttInflightWindowConfigurationProperties {
+
+    public static final String PREFIX = "mqtt.publisher.inflight-window";
+
+    private static final boolean DEFAULT_ENABLED = false;
+    private static final int DEFAULT_INITIAL_WINDOW = 10;
+    private static final int DEFAULT_MIN_WINDOW = 1;
+    private static final int DEFAULT_MAX_WINDOW = 1000;
+    private static final double DEFAULT_BACKOFF_RATIO = 0.7;
+    private static final double DEFAULT_LATENCY_TOLERANCE = 2.0;
+    private static final int DEFAULT_ALPHA = 3;
+    private static final int DEFAULT_BETA = 6;
+
+    private boolean enabled = DEFAULT_ENABLED;
+    private InflightWindowAlgorithm algorithm = InflightWindowAlgorithm.AIMD;
+    private int initialWindow = DEFAULT_INITIAL_WINDOW;
+    private int minWindow = DEFAULT_MIN_WINDOW;
+    private int maxWindow = DEFAULT_MAX_WINDOW;
+    private double backoffRatio = DEFAULT_BACKOFF_RATIO;
+    private double latencyTolerance = DEFAULT_LATENCY_TOLERANCE;
+    private int alpha = DEFAULT_ALPHA;
+    private int beta = DEFAULT_BETA;
+    private Duration minRttWindow = Duration.ofSeconds(30);
+
+    /**
+     * @return True if the in-flight window is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables the in-flight window. Default value {@value #DEFAULT_ENABLED}
+     *
+     * @param enabled True if it is enabled
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return The algorithm adjusting the window
+     */
+    public InflightWindowAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @param algorithm The algorithm adjusting the window. Default value AIMD
+     */
+    public void setAlgorithm(InflightWindowAlgorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * @return The window before any acknowledgement has been received
+     */
+    public int getInitialWindow() {
+        return initialWindow;
+    }
+
+    /**
+     * @param initialWindow The window before any acknowledgement has been received. Default value {@value #DEFAULT_INITIAL_WINDOW}
+     */
+    public void setInitialWindow(int initialWindow) {
+        this.initialWindow = initialWindow;
+    }
+
+    /**
+     * @return The smallest window
+     */
+    public int getMinWindow() {
+        return minWindow;
+    }
+
+    /**
+     * @param minWindow The smallest window. Default value {@value #DEFAULT_MIN_WINDOW}
+     */
+    public void setMinWindow(int minWindow) {
+        this.minWindow = minWindow;
+    }
+
+    /**
+     * @return The largest window
+     */
+    public int getMaxWindow() {
+        return maxWindow;
+    }
+
+    /**
+     * The window applies to all connections of a client. It never exceeds the number of
+     * messages the client accepts in flight, for MQTT v3 the {@code max-inflight} connect
+     * option times the pool size. Default value {@value #DEFAULT_MAX_WINDOW}
+     *
+     * @param maxWindow The largest window
+     */
+    public void setMaxWindow(int maxWindow) {
+        this.maxWindow = maxWindow;
+    }
+
+    /**
+     * @return The factor the AIMD window is multiplied with when it is decreased
+     */
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+
+    /**
+     * @param backoffRatio The factor the AIMD window is multiplied with when it is decreased. Default value {@value #DEFAULT_BACKOFF_RATIO}
+     */
+    public void setBackoffRatio(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+    }
+
+    /**
+     * @return The multiple of the lowest latency tolerated before the AIMD window is decreased
+     */
+    public double getLatencyTolerance() {
+        return latencyTolerance;
+    }
+
+    /**
+     * @param latencyTolerance The multiple of the lowest latency tolerated before the AIMD window is decreased. Default value {@value #DEFAULT_LATENCY_TOLERANCE}
+     */
+    public void setLatencyTolerance(double latencyTolerance) {
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    /**
+     * @return The number of queued messages below which the Vegas window grows
+     */
+    public int getAlpha() {
+        return alpha;
+    }
+
+    /**
+     * @param alpha The number of queued messages below which the Vegas window grows. Default value {@value #DEFAULT_ALPHA}
+     */
+    public void setAlpha(int alpha) {
+        this.alpha = alpha;
+    }
+
+    /**
+     * @return The number of queued messages above which the Vegas window shrinks
+     */
+    public int getBeta() {
+        return beta;
+    }
+
+    /**
+     * @param beta The number of queued messages above which the Vegas window shrinks. Default value {@value #DEFAULT_BETA}
+     */
+    public void setBeta(int beta) {
+        this.beta = beta;
+    }
+
+    /**
+     * @return How long the lowest latency is remembered
+     */
+    public Duration getMinRttWindow() {
+        return minRttWindow;
+    }
+
+    /**
+     * The lowest latency is measured again after this interval, so the window follows a
+     * change of the network path. Default value 30 seconds
+     *
+     * @param minRttWindow How long the lowest latency is remembered
+     */
+    public void setMinRttWindow(Duration minRttWindow) {
+        this.minRttWindow = minRttWindow;
+    }
+}
@@ -18,74 +18,143 @@ package io.micronaut.mqtt.intercept;
 import io.micronaut.aop.InterceptedMethod;
 import io.micronaut.aop.MethodInterceptor;
 import io.micronaut.aop.MethodInvocationContext;
+import io.micronaut.context.processor.ExecutableMethodProcessor;
 import io.micronaut.core.annotation.AnnotationValue;
+import io.micronaut.core.annotation.Nullable;
 import io.micronaut.core.convert.DefaultMutableConversionService;
 import io.micronaut.core.type.Argument;
+import io.micronaut.inject.BeanDefinition;
 import io.micronaut.inject.ExecutableMethod;
+import io.micronaut.mqtt.annotation.MqttPublisher;
 import io.micronaut.mqtt.annotation.Qos;
+import io.micronaut.mqtt.annotation.Request;
 import io.micronaut.mqtt.annotation.Retained;
 import io.micronaut.mqtt.annotation.Topic;
 import io.micronaut.mqtt.bind.MqttBinder;
 import io.micronaut.mqtt.bind.MqttBinderRegistry;
 import io.micronaut.mqtt.bind.MqttBindingContext;
+import io.micronaut.mqtt.coroutines.MqttCoroutineScope;
 import io.micronaut.mqtt.exception.MqttClientException;
+import io.micronaut.mqtt.flow.InflightWindowRegistry;
+import io.micronaut.mqtt.latency.LatencyRegistry;
+import io.micronaut.mqtt.loopback.MqttLoopback;
+import io.micronaut.mqtt.observer.MqttObservers;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
 
 import java.lang.annotation.Annotation;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 /**
- * Intercepts calls to MQTT clients to publish messages.
+ * Intercepts calls to MQTT clients to publish messages. Validates the {@link Request} methods of
+ * the clients when the application starts.
  *
  * @param <L> The listener type
  * @param <M> The message type
  * @author James Kleeh
  * @since 1.0.0
  */
-public abstract class AbstractMqttIntroductionAdvice<L, M> implements MethodInterceptor<Object, Object> {
+public abstract class AbstractMqttIntroductionAdvice<L, M> implements MethodInterceptor<Object, Object>, ExecutableMethodProcessor<Request> {
 
     private static final Logger LOG = LoggerFactory.getLogger(AbstractMqttIntroductionAdvice.class);
+    private static final String FLOW_TYPE = "kotlinx.coroutines.flow.Flow";
+    private static final String UNIT_TYPE = "kotlin.Unit";
 
     private final ConcurrentMap<ExecutableMethod<?, ?>, MqttPublisherState> publisherCache = new ConcurrentHashMap<>();
     private final MqttBinderRegistry binderRegistry;
+    private final InflightWindowRegistry inflightWindows;
+    private final MqttObservers observers;
+    private final LatencyRegistry latency;
+    private final MqttLoopback loopback;
+    private final MqttCoroutineScope coroutines;
 
     public AbstractMqttIntroductionAdvice(MqttBinderRegistry binderRegistry) {
+        this(binderRegistry, MqttAdviceCollaborators.none());
+    }
+
+    /**
+     * @param binderRegistry The binder registry
+     * @param collaborators The optional features applied to every publish
+     * @since 3.0.0
+     */
+    public AbstractMqttIntroductionAdvice(MqttBinderRegistry binderRegistry, MqttAdviceCollaborators collaborators) {
         this.binderRegistry = binderRegistry;
+        this.inflightWindows = collaborators.getInflightWindows();
+        this.observers = collaborators.getObservers();
+        this.latency = collaborators.getLatency();
+        this.loopback = collaborators.getLoopback();
+        this.coroutines = collaborators.getCoroutines();
+    }
+
+    @Override
+    public void process(BeanDefinition<?> beanDefinition, ExecutableMethod<?, ?> method) {
+        boolean required = method.hasAnnotation(getRequiredAnnotation());
+        if (!required && !method.hasAnnotation(MqttPublisher.class)) {
+            return;
+        }
+        if (!supportsRequests()) {
+            throw new MqttClientException(String.format("Publisher [%s] sends requests, which are not supported by the client", method));
+        }
+        String client = method.stringValue(required ? getRequiredAnnotation() : MqttPublisher.class, "client").orElse("");
+        if (!client.isEmpty()) {
+            // the responses are received by the subscription of the default client
+            throw new MqttClientException(String.format("Publisher [%s] sends requests with the named client [%s], requests are only supported with the default client", method, client));
+        }
+        // the result of a suspending function is checked once it is first called
+        if (!method.isSuspend()) {
+            Argument<?> returnType = method.getReturnType().asArgument();
+            boolean async = CompletionStage.class.isAssignableFrom(returnType.getType()) || Publisher.class.isAssignableFrom(returnType.getType());
+            if (!async || isVoid(returnType.getFirstTypeVariable().orElse(Argument.OBJECT_ARGUMENT))) {
+                throw new MqttClientException(String.format("Publisher [%s] sends requests and must return a future or a reactive type of the response", method));
+            }
+        }
     }
 
     @Override
     public Object intercept(MethodInvocationContext<Object, Object> context) {
-        if (context.hasAnnotation(getRequiredAnnotation())) {
+        if (context.hasAnnotation(getRequiredAnnotation()) || context.hasAnnotation(MqttPublisher.class)) {
 
             InterceptedMethod interceptedMethod = InterceptedMethod.of(context, new DefaultMutableConversionService());
 
             try {
-                MqttPublisherState publisherState = getPublisherState(context);
+                MqttPublisherState publisherState = getPublisherState(context, interceptedMethod);
+                if (publisherState.getFlowArgument() != null) {
+                    return publishFlow(publisherState, context, interceptedMethod);
+                }
 
                 switch (interceptedMethod.resultType()) {
                     case PUBLISHER:
+                        if (publisherState.getResponseType() != null) {
+                            return interceptedMethod.handleResult(Mono.defer(() -> Mono.fromFuture(request(publisherState, context))));
+                        }
                         return interceptedMethod.handleResult(Flux.create(emitter ->
-                            publish(publisherState, context, createListener(emitter::complete, emitter::error)), FluxSink.OverflowStrategy.ERROR)
+                            publish(publisherState, context, emitter::complete, emitter::error), FluxSink.OverflowStrategy.ERROR)
                         );
                     case COMPLETION_STAGE:
+                        if (publisherState.getResponseType() != null) {
+                            return interceptedMethod.handleResult(request(publisherState, context));
+                        }
                         CompletableFuture<Void> future = new CompletableFuture<>();
-                        publish(publisherState, context, createListener(() -> future.complete(null), future::completeExceptionally));
+                        publish(publisherState, context, () -> future.complete(null), future::completeExceptionally);
                         return interceptedMethod.handleResult(future);
                     case SYNCHRONOUS:
                         CountDownLatch countDownLatch = new CountDownLatch(1);
                         AtomicReference<Throwable> error = new AtomicReference<>();
-                        Object token = publish(publisherState, context, createListener(countDownLatch::countDown, t -> {
+                        Object token = publish(publisherState, context, countDownLatch::countDown, t -> {
                             error.set(t);
                             countDownLatch.countDown();
-                        }));
+                        });
                         try {
                             countDownLatch.await();
                         } catch (InterruptedException e) {
@@ -123,6 +192,69 @@ public abstract class AbstractMqttIntroductionAdvice<L, M> implements MethodInte
      */
     public abstract Object publish(String topic, M message, L listener);
 
+    /**
+     * Publishes the message with the named client. Implementations that support named
+     * clients override this method, the default publishes with the default client.
+     *
+     * @param client The name of the client, empty for the default client
+     * @param topic The topic to publish the message to
+     * @param message The message to publish
+     * @param listener The publish action listener
+     * @return The result of the publish method
+     * @since 3.0.0
+     */
+    public Object publish(String client, String topic, M message, L listener) {
+        return publish(topic, message, listener);
+    }
+
+    /**
+     * Stamps the message with the time it is sent, to measure its end-to-end latency. The
+     * default does not stamp messages.
+     *
+     * @param context The binding context of the message, after the arguments have been bound
+     * @param sentMicros The send time in microseconds since the epoch
+     * @since 3.0.0
+     */
+    protected void stampSendTime(MqttBindingContext<M> context, long sentMicros) {
+    }
+
+    /**
+     * The in-flight window of a client never exceeds the number returned. The default does not
+     * limit the window.
+     *
+     * @param client The name of the client, empty for the default client
+     * @return The number of QoS 1 and 2 messages the client accepts in flight across all of its connections
+     * @since 3.0.0
+     */
+    protected int getMaxInflight(String client) {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return True if publisher methods annotated with {@link Request} are supported, completed
+     * with the response to the published message
+     * @since 3.0.0
+     */
+    protected boolean supportsRequests() {
+        return false;
+    }
+
+    /**
+     * Prepares the message of a request and sends it once the response can be received. The
+     * response future must be completed with the decoded response, or exceptionally if it is
+     * not received in time. Only called if {@link #supportsRequests()} returns true.
+     *
+     * @param client The name of the client, empty for the default client
+     * @param context The binding context of the request, after the arguments have been bound
+     * @param responseType The type of the response
+     * @param response The future to complete with the response
+     * @param send Sends the request, failures complete the response exceptionally
+     * @since 3.0.0
+     */
+    protected void request(String client, MqttBindingContext<M> context, Argument<Object> responseType, CompletableFuture<Object> response, Runnable send) {
+        response.completeExceptionally(new MqttClientException("Requests are not supported"));
+    }
+
     /**
      * Create a listener.
      *
@@ -133,13 +265,25 @@ public abstract class AbstractMqttIntroductionAdvice<L, M> implements MethodInte
     public abstract L createListener(Runnable onSuccess, Consumer<Throwable> onError);
 
     /**
+     * The transport neutral {@link MqttPublisher} is accepted in addition to the annotation returned.
+     *
      * @return The implement specific client annotation class
      */
     public abstract Class<? extends Annotation> getRequiredAnnotation();
 
-    private MqttPublisherState getPublisherState(MethodInvocationContext<Object, Object> context) {
+    private MqttPublisherState getPublisherState(MethodInvocationContext<Object, Object> context, InterceptedMethod interceptedMethod) {
         return publisherCache.computeIfAbsent(context.getExecutableMethod(), method -> {
             MqttPublisherState state = new MqttPublisherState();
+            InterceptedMethod.ResultType resultType = interceptedMethod.resultType();
+            if (method.hasAnnotation(Request.class)) {
+                Argument<?> responseType = interceptedMethod.returnTypeValue();
+                if (resultType != InterceptedMethod.ResultType.COMPLETION_STAGE && resultType != InterceptedMethod.ResultType.PUBLISHER || isVoid(responseType)) {
+                    throw new MqttClientException(String.format("Publisher [%s] sends requests and must return a response", method));
+                }
+                state.setResponseType((Argument<Object>) responseType);
+            }
+            Class<? extends Annotation> publisherAnnotation = method.hasAnnotation(getRequiredAnnotation()) ? getRequiredAnnotation() : MqttPublisher.class;
+            method.stringValue(publisherAnnotation, "client").ifPresent(state::setClient);
 
             method.findAnnotation(Topic.class)
                     .ifPresent(topicAnn -> {
@@ -153,14 +297,89 @@ public abstract class AbstractMqttIntroductionAdvice<L, M> implements MethodInte
                     .ifPresent(state::setRetained);
 
             for (Argument<?> argument: context.getArguments()) {
-                state.setBinder(argument, (MqttBinder<Object, Object>) binderRegistry.findArgumentBinder(argument));
+                if (FLOW_TYPE.equals(argument.getType().getName()) && state.getFlowArgument() == null) {
+                    // each element is bound in place of the flow
+                    Argument<Object> elementType = (Argument<Object>) argument.getFirstTypeVariable().orElse(Argument.OBJECT_ARGUMENT);
+                    if (state.getResponseType() != null) {
+                        throw new MqttClientException(String.format("Publisher [%s] sends requests, which cannot publish a flow", method));
+                    }
+                    state.setFlow(argument, elementType, (MqttBinder<Object, Object>) binderRegistry.findArgumentBinder(elementType));
+                } else {
+                    state.setBinder(argument, (MqttBinder<Object, Object>) binderRegistry.findArgumentBinder(argument));
+                }
             }
             return state;
         });
     }
 
-    private Object publish(MqttPublisherState state, MethodInvocationContext<Object, Object> context, L listener) {
-        MqttBindingContext<M> bindingContext = createBindingContext(context);
+    /**
+     * Publishes every element of the flow argument as a message, the other arguments are
+     * bound to each of them.
+     */
+    private Object publishFlow(MqttPublisherState state, MethodInvocationContext<Object, Object> context, InterceptedMethod interceptedMethod) {
+        if (coroutines == null) {
+            throw new MqttClientException("Publishing a flow requires kotlinx-coroutines-core on the classpath");
+        }
+        Object flow = context.getParameterValueMap().get(state.getFlowArgument().getName());
+        if (flow == null) {
+            throw new MqttClientException("The flow to publish must not be null");
+        }
+        Object[] parameters = context.getParameterValues();
+        Object caller = context.isSuspend() ? parameters[parameters.length - 1] : null;
+        switch (interceptedMethod.resultType()) {
+            case PUBLISHER:
+                return interceptedMethod.handleResult(Mono.defer(() -> Mono.fromFuture(collect(state, context, flow, caller))));
+            case COMPLETION_STAGE:
+                return interceptedMethod.handleResult(collect(state, context, flow, caller));
+            case SYNCHRONOUS:
+                try {
+                    collect(state, context, flow, null).get();
+                    return interceptedMethod.handleResult(null);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new MqttClientException("Publish thread interrupted waiting for the flow to be published", e);
+                } catch (ExecutionException e) {
+                    throw new MqttClientException("Failed to publish the flow", e.getCause());
+                }
+            default:
+                return interceptedMethod.unsupported();
+        }
+    }
+
+    private CompletableFuture<Void> collect(MqttPublisherState state, MethodInvocationContext<Object, Object> context, Object flow, @Nullable Object caller) {
+        return coroutines.collect(flow, caller, element -> {
+            CompletableFuture<Void> acknowledged = new CompletableFuture<>();
+            MqttBindingContext<M> bindingContext = createBindingContext(context);
+            state.getFlowBinder().bindTo(bindingContext, element, state.getFlowElementType());
+            bind(state, context, bindingContext);
+            publish(state, bindingContext, () -> acknowledged.complete(null), acknowledged::completeExceptionally);
+            return acknowledged;
+        });
+    }
+
+    private CompletableFuture<Object> request(MqttPublisherState state, MethodInvocationContext<Object, Object> context) {
+        MqttBindingContext<M> bindingContext = bind(state, context);
+        CompletableFuture<Object> response = new CompletableFuture<>();
+        request(state.getClient(), bindingContext, state.getResponseType(), response, () -> {
+            try {
+                // the response completes the future, not the acknowledgement of the request
+                publish(state, bindingContext, () -> { }, response::completeExceptionally);
+            } catch (RuntimeException e) {
+                response.completeExceptionally(e);
+            }
+        });
+        return response;
+    }
+
+    private Object publish(MqttPublisherState state, MethodInvocationContext<Object, Object> context, Runnable onSuccess, Consumer<Throwable> onError) {
+        return publish(state, bind(state, context), onSuccess, onError);
+    }
+
+    private MqttBindingContext<M> bind(MqttPublisherState state, MethodInvocationContext<Object, Object> context) {
+        return bind(state, context, createBindingContext(context));
+    }
+
+    private MqttBindingContext<M> bind(MqttPublisherState state, MethodInvocationContext<Object, Object> context, MqttBindingContext<M> bindingContext) {
         Integer qos = state.getQos();
         if (qos != null) {
             bindingContext.setQos(qos);
@@ -174,14 +393,87 @@ public abstract class AbstractMqttIntroductionAdvice<L, M> implements MethodInte
             bindingContext.setTopic(topic);
         }
         state.bind(bindingContext, context);
-        topic = bindingContext.getTopic();
-        if (topic == null) {
+        if (bindingContext.getTopic() == null) {
             throw new MqttClientException("The topic was not found in any @Topic annotation or method argument");
         }
+        return bindingContext;
+    }
+
+    private Object publish(MqttPublisherState state, MqttBindingContext<M> bindingContext, Runnable onSuccess, Consumer<Throwable> onError) {
+        if (latency != null) {
+            stampSendTime(bindingContext, latency.stamp());
+        }
         if (LOG.isTraceEnabled()) {
             LOG.trace("Publishing the following message to {}", bindingContext.getTopic());
             LOG.trace("Qos = {}, Retained = {}, Payload = {}", bindingContext.getQos(), bindingContext.isRetained(), new String(bindingContext.getPayload()));
         }
-        return publish(bindingContext.getTopic(), bindingContext.getNativeMessage(), listener);
+        String client = state.getClient();
+        String publishTopic = bindingContext.getTopic();
+        String template = state.getTopic();
+        M message = bindingContext.getNativeMessage();
+        int messageQos = bindingContext.getQos();
+        byte[] payload = bindingContext.getPayload();
+        int size = payload == null ? 0 : payload.length;
+        boolean local = loopback != null && payload != null && client.isEmpty();
+        // QoS 0 messages are not acknowledged and do not count towards the window
+        if (inflightWindows == null || messageQos == 0) {
+            Object result = send(client, publishTopic, template, message, messageQos, size, onSuccess, onError);
+            if (local) {
+                deliverLocally(publishTopic, payload, messageQos, onError);
+            }
+            return result;
+        }
+        return inflightWindows.getWindow(client, () -> getMaxInflight(client)).submit(permit -> {
+            Object result = send(client, publishTopic, template, message, messageQos, size, () -> {
+                permit.acknowledged();
+                onSuccess.run();
+            }, t -> {
+                permit.failed();
+                onError.accept(t);
+            });
+            if (local) {
+                deliverLocally(publishTopic, payload, messageQos, onError);
+            }
+            return result;
+        }, onError);
+    }
+
+    /**
+     * Delivers the message to the local subscribers once the client has accepted the publish.
+     * Local subscribers are subscribed with noLocal, the broker publish reaches the other
+     * applications only.
+     */
+    private void deliverLocally(String topic, byte[] payload, int qos, Consumer<Throwable> onError) {
+        try {
+            loopback.deliver(topic, payload, qos);
+        } catch (MqttClientException e) {
+            onError.accept(e);
+        }
+    }
+
+    private static boolean isVoid(Argument<?> type) {
+        // suspending functions without a result return Unit
+        return type.isVoid() || UNIT_TYPE.equals(type.getType().getName());
+    }
+
+    private Object send(String client, String topic, @Nullable String template, M message, int qos, int size, Runnable onSuccess, Consumer<Throwable> onError) {
+        if (observers == null || !observers.isEnabled()) {
+            return publish(client, topic, message, createListener(onSuccess, onError));
+        }
+        String topicTag = observers.topicTag(topic, template);
+        Object observation = observers.publishStarted(client, topic, topicTag, qos, size);
+        long start = System.nanoTime();
+        try {
+            return publish(client, topic, message, createListener(() -> {
+                observers.publishCompleted(observation, client, topicTag, qos, System.nanoTime() - start, null);
+                onSuccess.run();
+            }, t -> {
+                observers.publishCompleted(observation, client, topicTag, qos, System.nanoTime() - start, t);
+                onError.accept(t);
+            }));
+        } catch (RuntimeException e) {
+            observers.publishCompleted(observation, client, topicTag, qos, System.nanoTime() - start, e);
+            throw e;
+        }
     }
 }
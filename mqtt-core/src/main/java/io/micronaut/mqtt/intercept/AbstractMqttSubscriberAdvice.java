@@ -16,16 +16,12 @@
 package io.micronaut.mqtt.intercept;
 
 import io.micronaut.context.BeanContext;
+import io.micronaut.context.event.ApplicationEventListener;
+import io.micronaut.context.event.StartupEvent;
 import io.micronaut.context.processor.ExecutableMethodProcessor;
 import io.micronaut.core.annotation.AnnotationValue;
-import io.micronaut.core.bind.BoundExecutable;
-import io.micronaut.core.bind.exceptions.UnsatisfiedArgumentException;
-import io.micronaut.core.convert.ArgumentConversionContext;
-import io.micronaut.core.convert.ConversionContext;
-import io.micronaut.core.convert.ConversionError;
-import io.micronaut.core.convert.exceptions.ConversionErrorException;
+import io.micronaut.core.annotation.Nullable;
 import io.micronaut.core.type.Argument;
-import io.micronaut.core.type.Executable;
 import io.micronaut.inject.BeanDefinition;
 import io.micronaut.inject.ExecutableMethod;
 import io.micronaut.mqtt.annotation.MqttSubscriber;
@@ -33,12 +29,25 @@ import io.micronaut.mqtt.annotation.Topic;
 import io.micronaut.mqtt.bind.MqttBinder;
 import io.micronaut.mqtt.bind.MqttBinderRegistry;
 import io.micronaut.mqtt.bind.MqttBindingContext;
+import io.micronaut.mqtt.client.MqttConnectionLifecycle;
+import io.micronaut.mqtt.coroutines.MqttCoroutineScope;
+import io.micronaut.mqtt.deduplication.MessageKeys;
+import io.micronaut.mqtt.exception.MqttClientException;
 import io.micronaut.mqtt.exception.MqttSubscriberException;
 import io.micronaut.mqtt.exception.MqttSubscriberExceptionHandler;
+import io.micronaut.mqtt.loopback.MqttLoopback;
+import io.micronaut.mqtt.topic.TopicTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.*;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 /**
@@ -50,26 +59,70 @@ import java.util.function.Consumer;
  * @author James Kleeh
  * @since 1.0.0
  */
-public abstract class AbstractMqttSubscriberAdvice<M> implements ExecutableMethodProcessor<Topic>, AutoCloseable {
+public abstract class AbstractMqttSubscriberAdvice<M> implements ExecutableMethodProcessor<Topic>, ApplicationEventListener<StartupEvent>, AutoCloseable {
 
     private static final Logger LOG = LoggerFactory.getLogger(AbstractMqttSubscriberAdvice.class);
 
     private final BeanContext beanContext;
     private final MqttBinderRegistry binderRegistry;
     private final MqttSubscriberExceptionHandler exceptionHandler;
-    private final Set<String> topics = new HashSet<>();
+    private final MqttConnectionLifecycle connectionLifecycle;
+    private final MqttLoopback loopback;
+    private final MqttCoroutineScope coroutines;
+    private final TopicSubscriptions<M> subscriptions;
+    private final SubscriberInvoker<M> invoker;
+    private final Set<ExecutableMethod<?, ?>> processedMethods = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<AbstractMqttSubscriberAdvice<M>> namedAdvices = Collections.newSetFromMap(new IdentityHashMap<>());
+    private Boolean localDelivery;
 
     public AbstractMqttSubscriberAdvice(BeanContext beanContext,
                                         MqttBinderRegistry binderRegistry,
                                         MqttSubscriberExceptionHandler exceptionHandler) {
+        this(beanContext, binderRegistry, exceptionHandler, MqttAdviceCollaborators.none(), null);
+    }
+
+    /**
+     * @param beanContext The bean context
+     * @param binderRegistry The binder registry
+     * @param exceptionHandler The default exception handler
+     * @param collaborators The subscriber configuration and the optional features applied to every message
+     * @param connectionLifecycle The connection of the client, used to subscribe once it is established
+     * @since 3.0.0
+     */
+    public AbstractMqttSubscriberAdvice(BeanContext beanContext,
+                                        MqttBinderRegistry binderRegistry,
+                                        MqttSubscriberExceptionHandler exceptionHandler,
+                                        MqttAdviceCollaborators collaborators,
+                                        @Nullable MqttConnectionLifecycle connectionLifecycle) {
         this.beanContext = beanContext;
         this.binderRegistry = binderRegistry;
         this.exceptionHandler = exceptionHandler;
+        this.connectionLifecycle = connectionLifecycle;
+        this.loopback = collaborators.getLoopback();
+        this.coroutines = collaborators.getCoroutines();
+        this.invoker = new SubscriberInvoker<>(this, collaborators);
+        this.subscriptions = new TopicSubscriptions<>(this, exceptionHandler, collaborators.getSubscriberConfiguration(), connectionLifecycle);
     }
 
     @Override
     public void process(BeanDefinition<?> beanDefinition, ExecutableMethod<?, ?> method) {
         if (method.hasAnnotation(MqttSubscriber.class)) {
+            String client = method.stringValue(MqttSubscriber.class, "client").orElse("");
+            if (!client.equals(getClientName())) {
+                if (getClientName().isEmpty()) {
+                    AbstractMqttSubscriberAdvice<M> namedAdvice = getNamedAdvice(client);
+                    synchronized (namedAdvices) {
+                        namedAdvices.add(namedAdvice);
+                    }
+                    namedAdvice.process(beanDefinition, method);
+                }
+                return;
+            }
+            synchronized (processedMethods) {
+                if (!processedMethods.add(method)) {
+                    return;
+                }
+            }
             List<AnnotationValue<Topic>> topicAnnotations = method.getAnnotationValuesByType(Topic.class);
             if (!topicAnnotations.isEmpty()) {
 
@@ -82,32 +135,43 @@ public abstract class AbstractMqttSubscriberAdvice<M> implements ExecutableMetho
                         binders[i] = (MqttBinder<MqttBindingContext<?>, Object>) binderRegistry.findArgumentBinder(arguments[i]);
                     }
 
-                    String[] topicValues = new String[topicAnnotations.size()];
-                    int[] qosValues = new int[topicAnnotations.size()];
-
+                    TopicTemplate[] topicTemplates = new TopicTemplate[topicAnnotations.size()];
                     for (int i = 0; i < topicAnnotations.size(); i++) {
-                        AnnotationValue<Topic> topicAnn = topicAnnotations.get(i);
-                        topicValues[i] = topicAnn.getRequiredValue(String.class); //the value is required
-                        qosValues[i] = topicAnn.getRequiredValue("qos", int.class);
+                        topicTemplates[i] = TopicTemplate.compile(topicAnnotations.get(i).getRequiredValue(String.class)); //the value is required
+                    }
+                    if (method.isSuspend() && coroutines == null) {
+                        throw new MqttSubscriberException(String.format("Subscriber [%s] is suspending, which requires kotlinx-coroutines-core on the classpath", method));
                     }
+                    SubscriberMethod subscriberMethod = new SubscriberMethod(bean, (ExecutableMethod<Object, Object>) method, binders,
+                            beanDefinition.getBeanType().getSimpleName() + '#' + method.getMethodName(), topicTemplates,
+                            supportsReplies() ? SubscriberMethod.findReplyType(method) : null, method.isSuspend() ? coroutines : null);
+                    // the same message may be delivered to several subscriber methods
+                    long subscriberKey = MessageKeys.hash(beanDefinition.getBeanType().getName() + '#' + method.getMethodName() + Arrays.toString(method.getArgumentTypes()));
+                    Consumer<MqttBindingContext<M>> callback = invoker.callback(subscriberMethod, subscriberKey);
 
-                    topics.addAll(Arrays.asList(topicValues));
-                    if (LOG.isTraceEnabled()) {
-                        for (int i = 0; i < topicValues.length; i++) {
-                            LOG.trace("Subscribing to {} with Qos {}", topicValues[i], qosValues[i]);
+                    boolean local = isLocalDelivery();
+                    List<TopicSubscription<M>> methodSubscriptions = new ArrayList<>(topicTemplates.length);
+                    for (int i = 0; i < topicTemplates.length; i++) {
+                        AnnotationValue<Topic> topicAnn = topicAnnotations.get(i);
+                        String filter = topicTemplates[i].getFilter();
+                        int qos = topicAnn.getRequiredValue("qos", int.class);
+                        boolean noLocal = topicAnn.booleanValue("noLocal").orElse(false);
+                        int retainHandling = topicAnn.intValue("retainHandling").orElse(0);
+                        if (retainHandling < 0 || retainHandling > 2) {
+                            throw new MqttSubscriberException(String.format("Invalid retain handling %d for the topic %s, it must be 0, 1 or 2", retainHandling, filter));
                         }
-                    }
-                    subscribe(topicValues, qosValues, (context) -> {
-                        if (LOG.isTraceEnabled()) {
-                            LOG.trace("Received the following message from {}", context.getTopic());
-                            LOG.trace("Qos = {}, MessageId = {}, Payload = {}", context.getQos(), context.getId(), new String(context.getPayload()));
+                        TopicSubscription<M> subscription = new TopicSubscription<>(filter, qos, topicAnn, callback, 0, noLocal);
+                        if (noLocal && subscription.isShared()) {
+                            throw new MqttSubscriberException(String.format("The noLocal option cannot be set on the shared subscription %s", filter));
                         }
-                        try {
-                            Object result = bind((Executable<Object, Object>) method, arguments, binders, context).invoke(bean);
-                        } catch (Exception e) {
-                            handleException(e, bean, method);
+                        // the broker balances shared subscriptions across the group, which rules out delivering them locally
+                        if (local && !noLocal && !subscription.isShared()) {
+                            subscription = new TopicSubscription<>(filter, qos, topicAnn, callback, 0, true);
+                            loopback.register(filter, qos, (localTopic, payload, localQos) -> callback.accept(createLocalContext(localTopic, payload, localQos)));
                         }
-                    });
+                        methodSubscriptions.add(subscription);
+                    }
+                    subscriptions.add(methodSubscriptions, subscriberMethod);
                 } catch (Exception e) {
                     handleException(e, bean, method);
                 }
@@ -115,16 +179,231 @@ public abstract class AbstractMqttSubscriberAdvice<M> implements ExecutableMetho
         }
     }
 
-    public abstract void subscribe(String[] topics, int[] qos, Consumer<MqttBindingContext<M>> callback);
+    /**
+     * Subscribes to all topic filters discovered while the application was starting. The
+     * filters are sent in as few SUBSCRIBE packets as the configured limits allow, the packets
+     * are sent concurrently and startup continues once all of them have been acknowledged.
+     * Subscriptions assigned to a connection that is still connecting are sent once the
+     * connection has been established instead.
+     *
+     * @param event The startup event
+     */
+    @Override
+    public void onApplicationEvent(StartupEvent event) {
+        List<AbstractMqttSubscriberAdvice<M>> named;
+        synchronized (namedAdvices) {
+            named = new ArrayList<>(namedAdvices);
+        }
+        for (AbstractMqttSubscriberAdvice<M> namedAdvice : named) {
+            namedAdvice.onApplicationEvent(event);
+        }
+        subscriptions.start();
+    }
+
+    /**
+     * Subscribes to a topic filter without a subscriber method. Like the subscriptions of
+     * subscriber methods, the subscription is deferred until the client is connected and made
+     * again when the broker discarded the session. Messages are acknowledged once the listener
+     * returned when manual acknowledgements are enabled.
+     *
+     * @param filter The topic filter
+     * @param qos The maximum qos
+     * @param listener The listener of the received messages
+     * @return A future completed once the broker has acknowledged the subscription
+     * @since 3.0.0
+     */
+    public CompletableFuture<Void> subscribe(String filter, int qos, Consumer<? super MqttBindingContext<M>> listener) {
+        AnnotationValue<Topic> annotation = AnnotationValue.builder(Topic.class).value(filter).member("qos", qos).build();
+        Consumer<MqttBindingContext<M>> callback = context -> {
+            try {
+                listener.accept(context);
+            } catch (RuntimeException e) {
+                exceptionHandler.handle(new MqttSubscriberException(String.format("The listener of the topic %s encountered an error", filter), e, context, null));
+            }
+            if (isManualAcks()) {
+                context.acknowlege();
+            }
+        };
+        String subscribed = TopicTemplate.compile(filter).getFilter();
+        return subscriptions.add(new TopicSubscription<>(subscribed, qos, annotation, callback));
+    }
+
+    /**
+     * Subscribes to the given topic filters on the first connection of the client pool. The
+     * subscriptions are kept like the ones of subscriber methods, so they are made again after
+     * a reconnect and removed when the advice is closed.
+     *
+     * @param topics The topic filters
+     * @param qos The maximum qos of each topic filter
+     * @param callback The callback for received messages
+     * @deprecated Transports implement {@link #subscribe(int, List)} instead, which replaced this
+     * method as the abstract subscription method. Use {@link #subscribe(String, int, Consumer)}
+     * to subscribe at runtime.
+     */
+    @Deprecated
+    public void subscribe(String[] topics, int[] qos, Consumer<MqttBindingContext<M>> callback) {
+        for (int i = 0; i < topics.length; i++) {
+            AnnotationValue<Topic> annotation = AnnotationValue.builder(Topic.class).value(topics[i]).member("qos", qos[i]).build();
+            subscriptions.add(new TopicSubscription<>(topics[i], qos[i], annotation, callback));
+        }
+    }
+
+    /**
+     * Subscribes to the given topic filters with a single SUBSCRIBE packet.
+     *
+     * @param connection The index of the connection of the client pool to subscribe on
+     * @param subscriptions The subscriptions
+     * @return A future completed once the broker has acknowledged the subscriptions
+     * @since 3.0.0
+     */
+    public abstract CompletableFuture<Void> subscribe(int connection, List<TopicSubscription<M>> subscriptions);
 
     public abstract void unsubscribe(Set<String> topics);
 
+    /**
+     * Unsubscribes from topic filters subscribed on a connection of the client pool.
+     *
+     * @param connection The index of the connection
+     * @param topics The topic filters
+     * @since 3.0.0
+     */
+    public void unsubscribe(int connection, Set<String> topics) {
+        unsubscribe(topics);
+    }
+
+    /**
+     * @return The name of the client under {@code mqtt.clients} the subscriptions are made with, empty for the default client
+     * @since 3.0.0
+     */
+    protected String getClientName() {
+        return "";
+    }
+
+    /**
+     * Looks up the advice subscribing with a named client. Methods of subscribers that select
+     * a named client are passed on to it by the advice of the default client.
+     *
+     * @param client The name of the client under {@code mqtt.clients}
+     * @return The advice of the named client
+     * @since 3.0.0
+     */
+    protected AbstractMqttSubscriberAdvice<M> getNamedAdvice(String client) {
+        throw new MqttSubscriberException(String.format("Subscribing with the named client [%s] is not supported", client));
+    }
+
+    /**
+     * Reads the send time the publisher stamped onto a received message, removing it from the
+     * payload if it was appended to it. The default reads nothing.
+     *
+     * @param context The binding context of the received message
+     * @return The send time in microseconds since the epoch, or -1 if the message is not stamped
+     * @since 3.0.0
+     */
+    protected long readSendTime(MqttBindingContext<M> context) {
+        return -1;
+    }
+
+    /**
+     * @return True if subscriptions can be made with the MQTT 5 {@code noLocal} option, which
+     * is required to deliver messages published by the application in process
+     * @since 3.0.0
+     */
+    protected boolean supportsNoLocal() {
+        return false;
+    }
+
+    /**
+     * Creates the binding context of a message published by the application and delivered in
+     * process. Only called if {@link #supportsNoLocal()} returns true.
+     *
+     * @param topic The topic the message was published to
+     * @param payload The serialized payload
+     * @param qos The qos the message is delivered with
+     * @return The binding context
+     * @throws MqttClientException If the client does not support local delivery
+     * @since 3.0.0
+     */
+    protected MqttBindingContext<M> createLocalContext(String topic, byte[] payload, int qos) {
+        throw new MqttClientException("Local delivery is not supported");
+    }
+
+    /**
+     * @return True if the values returned by subscriber methods can be published as replies
+     * to the response topics of the received messages
+     * @since 3.0.0
+     */
+    protected boolean supportsReplies() {
+        return false;
+    }
+
+    /**
+     * Publishes the value returned by a subscriber method as the reply to the message it
+     * received. Messages without a response topic are not replied to. Only called if
+     * {@link #supportsReplies()} returns true.
+     *
+     * @param context The binding context of the received message
+     * @param value The value returned by the subscriber method, or emitted by the returned future or publisher
+     * @param type The type of the value
+     * @throws MqttClientException If the client does not support replies
+     * @since 3.0.0
+     */
+    protected void reply(MqttBindingContext<M> context, Object value, Argument<Object> type) {
+        throw new MqttClientException("Replies are not supported");
+    }
+
+    /**
+     * @return True if the client requires messages to be acknowledged manually
+     * @since 3.0.0
+     */
+    protected boolean isManualAcks() {
+        return false;
+    }
+
+    /**
+     * @return The time it took to subscribe to all topic filters when the application started
+     * @since 3.0.0
+     */
+    public Duration getStartupSubscriptionDuration() {
+        return subscriptions.getStartupDuration();
+    }
+
+    /**
+     * @return The number of subscribed topic filters
+     * @since 3.0.0
+     */
+    public int getSubscriptionCount() {
+        return subscriptions.getCount();
+    }
+
     @Override
     public void close() throws Exception {
-        unsubscribe(topics);
+        subscriptions.close();
     }
 
-    private void handleException(Exception e, Object bean, ExecutableMethod<?, ?> method) {
+    private synchronized boolean isLocalDelivery() {
+        if (localDelivery == null) {
+            localDelivery = loopback != null && getClientName().isEmpty();
+            if (localDelivery && !supportsNoLocal()) {
+                localDelivery = false;
+                if (LOG.isWarnEnabled()) {
+                    LOG.warn("Loopback delivery requires MQTT 5, messages are delivered through the broker only");
+                }
+            } else if (localDelivery && connectionLifecycle != null && connectionLifecycle.getConnectionCount() > 1) {
+                // noLocal only suppresses messages published on the connection the subscription is made on
+                localDelivery = false;
+                if (LOG.isWarnEnabled()) {
+                    LOG.warn("Loopback delivery requires a single connection, messages are delivered through the broker only");
+                }
+            }
+        }
+        return localDelivery;
+    }
+
+    /**
+     * Routes an exception to the subscriber bean if it handles its own exceptions, otherwise to
+     * the default exception handler.
+     */
+    void handleException(Exception e, Object bean, ExecutableMethod<?, ?> method) {
         if (!(e instanceof MqttSubscriberException)) {
             e = new MqttSubscriberException(String.format("Subscriber [%s] encountered an error", method), e);
         }
@@ -134,52 +413,4 @@ public abstract class AbstractMqttSubscriberAdvice<M> implements ExecutableMetho
             exceptionHandler.handle((MqttSubscriberException) e);
         }
     }
-
-    private BoundExecutable bind(
-            Executable<Object, Object> target,
-            Argument<?>[] arguments,
-            MqttBinder<MqttBindingContext<?>, Object>[] binders,
-            MqttBindingContext context) {
-
-        Object[] boundArguments = new Object[arguments.length];
-        for (int i = 0; i < arguments.length; i++) {
-            Argument argument = arguments[i];
-            ArgumentConversionContext<Object> conversionContext = ConversionContext.of(argument);
-            Optional<?> result = binders[i].bindFrom(
-                    context,
-                    conversionContext
-            );
-            if (!result.isPresent()) {
-                if (argument.isNullable()) {
-                    boundArguments[i] = null;
-                } else {
-                    final Optional<ConversionError> lastError = conversionContext.getLastError();
-                    if (lastError.isPresent()) {
-                        throw new ConversionErrorException(argument, lastError.get());
-                    } else {
-                        throw new UnsatisfiedArgumentException(argument);
-                    }
-                }
-            } else {
-                boundArguments[i] = result.get();
-            }
-        }
-
-        return new BoundExecutable<Object, Object>() {
-            @Override
-            public Executable<Object, Object> getTarget() {
-                return target;
-            }
-
-            @Override
-            public Object invoke(Object instance) {
-                return target.invoke(instance, getBoundArguments());
-            }
-
-            @Override
-            public Object[] getBoundArguments() {
-                return boundArguments;
-            }
-        };
-    }
 }
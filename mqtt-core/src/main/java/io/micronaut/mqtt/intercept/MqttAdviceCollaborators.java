@@ -0,0 +1,136 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.intercept;
+
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.mqtt.config.MqttSubscriberConfigurationProperties;
+import io.micronaut.mqtt.coroutines.MqttCoroutineScope;
+import io.micronaut.mqtt.deduplication.MqttMessageDeduplicator;
+import io.micronaut.mqtt.flow.InflightWindowRegistry;
+import io.micronaut.mqtt.latency.LatencyRegistry;
+import io.micronaut.mqtt.loopback.MqttLoopback;
+import io.micronaut.mqtt.observer.MqttObservers;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+/**
+ * The optional features shared by the publisher and subscriber advices of all clients. A
+ * feature that is disabled, or whose dependencies are not on the classpath, is null.
+ *
+ * @since 3.0.0
+ */
+@Singleton
+public final class MqttAdviceCollaborators {
+
+    private final MqttSubscriberConfigurationProperties subscriberConfiguration;
+    private final MqttObservers observers;
+    private final InflightWindowRegistry inflightWindows;
+    private final LatencyRegistry latency;
+    private final MqttLoopback loopback;
+    private final MqttMessageDeduplicator deduplicator;
+    private final MqttCoroutineScope coroutines;
+
+    /**
+     * @param subscriberConfiguration The subscriber configuration
+     * @param observers The observers notified of every publish and handled message
+     * @param inflightWindows The windows limiting the messages in flight, if enabled
+     * @param latency The registry of the end-to-end latency of stamped messages, if enabled
+     * @param loopback The loopback delivering published messages to local subscribers, if enabled
+     * @param deduplicator The deduplicator used to drop redelivered messages, if enabled
+     * @param coroutines The scope of suspending subscriber methods and flows, if Kotlin coroutines are on the classpath
+     */
+    @Inject
+    public MqttAdviceCollaborators(MqttSubscriberConfigurationProperties subscriberConfiguration,
+                                   @Nullable MqttObservers observers,
+                                   @Nullable InflightWindowRegistry inflightWindows,
+                                   @Nullable LatencyRegistry latency,
+                                   @Nullable MqttLoopback loopback,
+                                   @Nullable MqttMessageDeduplicator deduplicator,
+                                   @Nullable MqttCoroutineScope coroutines) {
+        this.subscriberConfiguration = subscriberConfiguration;
+        this.observers = observers == null || observers.isEmpty() ? null : observers;
+        this.inflightWindows = inflightWindows;
+        this.latency = latency;
+        this.loopback = loopback;
+        this.deduplicator = deduplicator;
+        this.coroutines = coroutines;
+    }
+
+    /**
+     * @return Collaborators with every optional feature disabled
+     */
+    @NonNull
+    public static MqttAdviceCollaborators none() {
+        return new MqttAdviceCollaborators(new MqttSubscriberConfigurationProperties(), null, null, null, null, null, null);
+    }
+
+    /**
+     * @return The subscriber configuration
+     */
+    @NonNull
+    public MqttSubscriberConfigurationProperties getSubscriberConfiguration() {
+        return subscriberConfiguration;
+    }
+
+    /**
+     * @return The observers, or null if there are none
+     */
+    @Nullable
+    public MqttObservers getObservers() {
+        return observers;
+    }
+
+    /**
+     * @return The windows limiting the messages in flight, or null if disabled
+     */
+    @Nullable
+    public InflightWindowRegistry getInflightWindows() {
+        return inflightWindows;
+    }
+
+    /**
+     * @return The latency registry, or null if disabled
+     */
+    @Nullable
+    public LatencyRegistry getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return The loopback, or null if disabled
+     */
+    @Nullable
+    public MqttLoopback getLoopback() {
+        return loopback;
+    }
+
+    /**
+     * @return The deduplicator, or null if disabled
+     */
+    @Nullable
+    public MqttMessageDeduplicator getDeduplicator() {
+        return deduplicator;
+    }
+
+    /**
+     * @return The coroutine scope, or null if Kotlin coroutines are not on the classpath
+     */
+    @Nullable
+    public MqttCoroutineScope getCoroutines() {
+        return coroutines;
+    }
+}
@@ -29,6 +29,11 @@ final class MqttPublisherState {
     private String topic;
     private Integer qos;
     private Boolean retained;
+    private String client = "";
+    private Argument<Object> responseType;
+    private Argument<?> flowArgument;
+    private Argument<Object> flowElementType;
+    private MqttBinder<Object, Object> flowBinder;
 
     private Map<Argument<?>, MqttBinder<Object, Object>> binderCache = new IdentityHashMap<>(5);
 
@@ -44,6 +49,26 @@ final class MqttPublisherState {
         return retained;
     }
 
+    String getClient() {
+        return client;
+    }
+
+    Argument<Object> getResponseType() {
+        return responseType;
+    }
+
+    Argument<?> getFlowArgument() {
+        return flowArgument;
+    }
+
+    Argument<Object> getFlowElementType() {
+        return flowElementType;
+    }
+
+    MqttBinder<Object, Object> getFlowBinder() {
+        return flowBinder;
+    }
+
     public void setTopic(String topic) {
         this.topic = topic;
     }
@@ -56,6 +81,20 @@ final class MqttPublisherState {
         this.retained = retained;
     }
 
+    public void setClient(String client) {
+        this.client = client;
+    }
+
+    public void setResponseType(Argument<Object> responseType) {
+        this.responseType = responseType;
+    }
+
+    public void setFlow(Argument<?> flowArgument, Argument<Object> flowElementType, MqttBinder<Object, Object> flowBinder) {
+        this.flowArgument = flowArgument;
+        this.flowElementType = flowElementType;
+        this.flowBinder = flowBinder;
+    }
+
     public void setBinder(Argument<?> argument, MqttBinder<Object, Object> binder) {
         binderCache.put(argument, binder);
     }
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.intercept;
+
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.core.bind.BoundExecutable;
+import io.micronaut.mqtt.bind.MqttBindingContext;
+import io.micronaut.mqtt.deduplication.MqttMessageDeduplicator;
+import io.micronaut.mqtt.exception.MqttMessageRedelivery;
+import io.micronaut.mqtt.exception.MqttSubscriberException;
+import io.micronaut.mqtt.latency.LatencyRegistry;
+import io.micronaut.mqtt.observer.MqttObservers;
+import io.micronaut.mqtt.topic.TopicVariables;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+
+/**
+ * Delivers received messages to subscriber methods. Drops duplicates, records the end-to-end
+ * latency, notifies the observers, launches suspending methods, publishes replies and routes
+ * failures to the exception handler of the subscriber with the option to deliver again.
+ *
+ * @param <M> The specific message type
+ * @since 3.0.0
+ */
+final class SubscriberInvoker<M> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AbstractMqttSubscriberAdvice.class);
+
+    private final AbstractMqttSubscriberAdvice<M> advice;
+    private final MqttObservers observers;
+    private final LatencyRegistry latency;
+    private final MqttMessageDeduplicator deduplicator;
+
+    /**
+     * @param advice The advice the subscriber methods belong to
+     * @param collaborators The optional features applied to every message
+     */
+    SubscriberInvoker(AbstractMqttSubscriberAdvice<M> advice, MqttAdviceCollaborators collaborators) {
+        this.advice = advice;
+        this.observers = collaborators.getObservers();
+        this.latency = collaborators.getLatency();
+        this.deduplicator = collaborators.getDeduplicator();
+    }
+
+    /**
+     * @param subscriberMethod The subscriber method
+     * @param subscriberKey The key distinguishing the method when messages are deduplicated
+     * @return The callback receiving the messages of the subscriptions of the method
+     */
+    Consumer<MqttBindingContext<M>> callback(SubscriberMethod subscriberMethod, long subscriberKey) {
+        return context -> {
+            long received = observers != null && observers.isEnabled() ? System.nanoTime() : 0;
+            long sent = latency != null ? advice.readSendTime(context) : -1;
+            Runnable handled = null;
+            if (deduplicator != null && context.getQos() > 0) {
+                long messageKey = deduplicator.resolveKey(context, subscriberKey);
+                if (deduplicator.isDuplicate(messageKey)) {
+                    if (LOG.isTraceEnabled()) {
+                        LOG.trace("Dropping duplicate message id {} received from {}", context.getId(), context.getTopic());
+                    }
+                    // only messages whose first delivery completed are remembered
+                    if (advice.isManualAcks()) {
+                        context.acknowlege();
+                    }
+                    return;
+                }
+                handled = () -> deduplicator.handled(messageKey);
+                if (advice.isManualAcks()) {
+                    // a message that is never acknowledged is delivered again by the broker
+                    context.onAcknowledged(handled);
+                    handled = null;
+                }
+            }
+            if (sent != -1) {
+                latency.record(subscriberMethod.name, sent, latency.currentTimeMicros());
+            }
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("Received the following message from {}", context.getTopic());
+                LOG.trace("Qos = {}, MessageId = {}, Payload = {}", context.getQos(), context.getId(), new String(context.getPayload()));
+            }
+            TopicVariables variables = subscriberMethod.extractVariables(context.getTopic());
+            if (variables != null) {
+                context.setTopicVariables(variables);
+            }
+            deliver(subscriberMethod, context, 1, received, handled);
+        };
+    }
+
+    private void deliver(SubscriberMethod subscriberMethod, MqttBindingContext<M> context, int attempt, long received, @Nullable Runnable handled) {
+        if (observers != null && observers.isEnabled()) {
+            deliverObserved(subscriberMethod, context, attempt, received, handled);
+            return;
+        }
+        Object result;
+        try {
+            BoundExecutable<Object, Object> executable = subscriberMethod.bind(context);
+            if (subscriberMethod.coroutines != null) {
+                // a failure of the coroutine may deliver the message again later
+                context.retainPayload();
+                subscriberMethod.launch(executable).whenComplete((value, throwable) -> completed(subscriberMethod, context, attempt, received, handled, value, throwable));
+                return;
+            }
+            result = executable.invoke(subscriberMethod.bean);
+        } catch (Exception e) {
+            handleDeliveryException(e, subscriberMethod, context, attempt, received, handled);
+            return;
+        }
+        succeeded(subscriberMethod, context, handled, result);
+    }
+
+    private void deliverObserved(SubscriberMethod subscriberMethod, MqttBindingContext<M> context, int attempt, long received, @Nullable Runnable handled) {
+        String topic = context.getTopic();
+        String topicTag = observers.topicTag(topic, subscriberMethod.findTemplate(topic));
+        ByteBuffer payload = context.getPayloadBuffer();
+        int size = payload == null ? 0 : payload.remaining();
+        Object observation = observers.messageStarted(subscriberMethod.name, topic, topicTag, context.getQos(), size);
+        long start = System.nanoTime();
+        long bound = start;
+        boolean binding = true;
+        Exception error = null;
+        Object result = null;
+        try {
+            BoundExecutable<Object, Object> executable = subscriberMethod.bind(context);
+            bound = System.nanoTime();
+            binding = false;
+            if (subscriberMethod.coroutines != null) {
+                context.retainPayload();
+                long boundAt = bound;
+                // the handling time of a suspending method includes the time it was suspended
+                subscriberMethod.launch(executable).whenComplete((value, throwable) -> {
+                    Exception failure = throwable == null || throwable instanceof Exception ? (Exception) throwable : new CompletionException(throwable);
+                    observers.messageHandled(observation, subscriberMethod.name, topic, topicTag, context.getQos(), size,
+                            received == 0 ? 0 : start - received, boundAt - start, System.nanoTime() - boundAt, failure);
+                    completed(subscriberMethod, context, attempt, received, handled, value, throwable);
+                });
+                return;
+            }
+            result = executable.invoke(subscriberMethod.bean);
+        } catch (Exception e) {
+            error = e;
+        }
+        long end = System.nanoTime();
+        if (binding) {
+            bound = end;
+        }
+        // the observers may have been enabled after the message arrived
+        long queued = received == 0 ? 0 : start - received;
+        observers.messageHandled(observation, subscriberMethod.name, topic, topicTag, context.getQos(), size, queued, bound - start, end - bound, error);
+        if (error != null) {
+            handleDeliveryException(error, subscriberMethod, context, attempt, received, handled);
+        } else {
+            succeeded(subscriberMethod, context, handled, result);
+        }
+    }
+
+    private void completed(SubscriberMethod subscriberMethod, MqttBindingContext<M> context, int attempt, long received, @Nullable Runnable handled, @Nullable Object result, @Nullable Throwable throwable) {
+        if (throwable instanceof CancellationException) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Subscriber [{}] was cancelled while handling a message from {}", subscriberMethod.method, context.getTopic());
+            }
+        } else if (throwable != null) {
+            handleDeliveryException(throwable instanceof Exception e ? e : new CompletionException(throwable), subscriberMethod, context, attempt, received, handled);
+        } else {
+            succeeded(subscriberMethod, context, handled, result);
+        }
+    }
+
+    private void succeeded(SubscriberMethod subscriberMethod, MqttBindingContext<M> context, @Nullable Runnable handled, @Nullable Object result) {
+        if (handled != null) {
+            // remembered only now, a message that failed must not be dropped when the broker delivers it again
+            handled.run();
+        }
+        if (subscriberMethod.replyType != null && result != null) {
+            reply(subscriberMethod, context, result);
+        }
+    }
+
+    private void reply(SubscriberMethod subscriberMethod, MqttBindingContext<M> context, Object result) {
+        if (result instanceof CompletionStage<?> stage) {
+            stage.whenComplete((value, throwable) -> {
+                if (throwable != null) {
+                    handleReplyException(throwable, subscriberMethod);
+                } else if (value != null) {
+                    publishReply(subscriberMethod, context, value);
+                }
+            });
+        } else if (result instanceof Publisher<?> publisher) {
+            Mono.from(publisher).subscribe(value -> publishReply(subscriberMethod, context, value), throwable -> handleReplyException(throwable, subscriberMethod));
+        } else {
+            publishReply(subscriberMethod, context, result);
+        }
+    }
+
+    private void publishReply(SubscriberMethod subscriberMethod, MqttBindingContext<M> context, Object value) {
+        try {
+            advice.reply(context, value, subscriberMethod.replyType);
+        } catch (Exception e) {
+            handleReplyException(e, subscriberMethod);
+        }
+    }
+
+    private void handleReplyException(Throwable throwable, SubscriberMethod subscriberMethod) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+        advice.handleException(new MqttSubscriberException(String.format("Subscriber [%s] failed to reply", subscriberMethod.method), cause), subscriberMethod.bean, subscriberMethod.method);
+    }
+
+    private void handleDeliveryException(Exception e, SubscriberMethod subscriberMethod, MqttBindingContext<M> context, int attempt, long received, @Nullable Runnable handled) {
+        // the exception handler may deliver the message again later
+        context.retainPayload();
+        MqttSubscriberException exception;
+        if (e instanceof MqttSubscriberException) {
+            exception = new MqttSubscriberException(e.getMessage(), e.getCause(), context, new SubscriberRedelivery(subscriberMethod, context, attempt, received, handled));
+        } else {
+            exception = new MqttSubscriberException(String.format("Subscriber [%s] encountered an error", subscriberMethod.method), e, context, new SubscriberRedelivery(subscriberMethod, context, attempt, received, handled));
+        }
+        advice.handleException(exception, subscriberMethod.bean, subscriberMethod.method);
+    }
+
+    /**
+     * Delivers a message that failed to be processed to the subscriber method again.
+     */
+    private final class SubscriberRedelivery implements MqttMessageRedelivery {
+
+        private final SubscriberMethod subscriberMethod;
+        private final MqttBindingContext<M> context;
+        private final int attempt;
+        private final long received;
+        private final Runnable handled;
+
+        private SubscriberRedelivery(SubscriberMethod subscriberMethod, MqttBindingContext<M> context, int attempt, long received, @Nullable Runnable handled) {
+            this.subscriberMethod = subscriberMethod;
+            this.context = context;
+            this.attempt = attempt;
+            this.received = received;
+            this.handled = handled;
+        }
+
+        @Override
+        public int getAttempt() {
+            return attempt;
+        }
+
+        @Override
+        public void redeliver() {
+            deliver(subscriberMethod, context, attempt + 1, received, handled);
+        }
+
+        @Override
+        public void acknowledge() {
+            if (advice.isManualAcks()) {
+                context.acknowlege();
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.intercept;
+
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.core.bind.BoundExecutable;
+import io.micronaut.core.bind.exceptions.UnsatisfiedArgumentException;
+import io.micronaut.core.convert.ArgumentConversionContext;
+import io.micronaut.core.convert.ConversionContext;
+import io.micronaut.core.convert.ConversionError;
+import io.micronaut.core.convert.exceptions.ConversionErrorException;
+import io.micronaut.core.type.Argument;
+import io.micronaut.core.type.Executable;
+import io.micronaut.inject.ExecutableMethod;
+import io.micronaut.mqtt.bind.MqttBinder;
+import io.micronaut.mqtt.bind.MqttBindingContext;
+import io.micronaut.mqtt.coroutines.MqttCoroutineScope;
+import io.micronaut.mqtt.topic.TopicTemplate;
+import io.micronaut.mqtt.topic.TopicVariables;
+import org.reactivestreams.Publisher;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A subscriber method with the binders resolved for its arguments.
+ *
+ * @since 3.0.0
+ */
+final class SubscriberMethod {
+
+    final Object bean;
+    final ExecutableMethod<Object, Object> method;
+    final String name;
+    final Argument<Object> replyType;
+    final MqttCoroutineScope coroutines;
+    private final Argument<?>[] arguments;
+    private final MqttBinder<MqttBindingContext<?>, Object>[] binders;
+    private final TopicTemplate[] topicTemplates;
+    private final TopicTemplate[] variableTemplates;
+
+    /**
+     * @param bean The subscriber bean
+     * @param method The subscriber method
+     * @param binders The binders of the arguments of the method
+     * @param name The name the method is reported with
+     * @param topicTemplates The templates of the topics the method subscribes to
+     * @param replyType The type of the reply, or null if the method is not replied with
+     * @param coroutines The scope the method is launched in if it is suspending
+     */
+    SubscriberMethod(Object bean,
+                     ExecutableMethod<Object, Object> method,
+                     MqttBinder<MqttBindingContext<?>, Object>[] binders,
+                     String name,
+                     TopicTemplate[] topicTemplates,
+                     @Nullable Argument<Object> replyType,
+                     @Nullable MqttCoroutineScope coroutines) {
+        this.bean = bean;
+        this.method = method;
+        this.arguments = method.getArguments();
+        this.binders = binders;
+        this.name = name;
+        this.topicTemplates = topicTemplates;
+        this.replyType = replyType;
+        this.coroutines = coroutines;
+        TopicTemplate[] variables = new TopicTemplate[topicTemplates.length];
+        int count = 0;
+        for (TopicTemplate template : topicTemplates) {
+            if (template.hasVariables()) {
+                variables[count++] = template;
+            }
+        }
+        this.variableTemplates = count == 0 ? null : Arrays.copyOf(variables, count);
+    }
+
+    /**
+     * @param topic The topic a message was received from
+     * @return The declared topic of the method matching the topic
+     */
+    @Nullable
+    String findTemplate(String topic) {
+        if (topicTemplates.length == 1) {
+            return topicTemplates[0].getTemplate();
+        }
+        for (TopicTemplate template : topicTemplates) {
+            if (template.matches(topic)) {
+                return template.getTemplate();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param topic The topic a message was received from
+     * @return The variables of the first template with variables matching the topic, or null if there are none
+     */
+    @Nullable
+    TopicVariables extractVariables(String topic) {
+        if (variableTemplates == null) {
+            return null;
+        }
+        for (TopicTemplate template : variableTemplates) {
+            TopicVariables variables = template.extract(topic);
+            if (variables != null) {
+                return variables;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Invokes a suspending subscriber method in a coroutine, passing the continuation of the
+     * coroutine as the last argument.
+     */
+    CompletableFuture<Object> launch(BoundExecutable<Object, Object> executable) {
+        Object[] boundArguments = executable.getBoundArguments();
+        return coroutines.launch(continuation -> {
+            boundArguments[boundArguments.length - 1] = continuation;
+            return method.invoke(bean, boundArguments);
+        });
+    }
+
+    BoundExecutable<Object, Object> bind(MqttBindingContext context) {
+        Object[] boundArguments = new Object[arguments.length];
+        // the continuation of a suspending method is passed once its coroutine has been launched
+        int count = method.isSuspend() ? arguments.length - 1 : arguments.length;
+        for (int i = 0; i < count; i++) {
+            Argument argument = arguments[i];
+            ArgumentConversionContext<Object> conversionContext = ConversionContext.of(argument);
+            Optional<?> result = binders[i].bindFrom(
+                    context,
+                    conversionContext
+            );
+            if (!result.isPresent()) {
+                if (argument.isNullable()) {
+                    boundArguments[i] = null;
+                } else {
+                    final Optional<ConversionError> lastError = conversionContext.getLastError();
+                    if (lastError.isPresent()) {
+                        throw new ConversionErrorException(argument, lastError.get());
+                    } else {
+                        throw new UnsatisfiedArgumentException(argument);
+                    }
+                }
+            } else {
+                boundArguments[i] = result.get();
+            }
+        }
+
+        return new BoundExecutable<Object, Object>() {
+            @Override
+            public Executable<Object, Object> getTarget() {
+                return method;
+            }
+
+            @Override
+            public Object invoke(Object instance) {
+                return method.invoke(instance, getBoundArguments());
+            }
+
+            @Override
+            public Object[] getBoundArguments() {
+                return boundArguments;
+            }
+        };
+    }
+
+    /**
+     * @return The type of the reply of a subscriber method, or null if it does not return a value
+     */
+    @Nullable
+    static Argument<Object> findReplyType(ExecutableMethod<?, ?> method) {
+        Argument<?> type = method.getReturnType().asArgument();
+        if (CompletionStage.class.isAssignableFrom(type.getType()) || Publisher.class.isAssignableFrom(type.getType())) {
+            type = type.getFirstTypeVariable().orElse(Argument.OBJECT_ARGUMENT);
+        }
+        return type.isVoid() || type.getType().getName().equals("kotlin.Unit") ? null : (Argument<Object>) type;
+    }
+}
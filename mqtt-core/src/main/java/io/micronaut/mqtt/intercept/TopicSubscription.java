@@ -0,0 +1,182 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.intercept;
+
+import io.micronaut.core.annotation.AnnotationValue;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.mqtt.annotation.Topic;
+import io.micronaut.mqtt.bind.MqttBindingContext;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * A topic filter to subscribe to and the callback for messages received from it.
+ *
+ * @param <M> The message type
+ * @since 3.0.0
+ */
+public final class TopicSubscription<M> {
+
+    private static final String SHARED_PREFIX = "$share/";
+
+    private final String filter;
+    private final int qos;
+    private final AnnotationValue<Topic> annotation;
+    private final Consumer<MqttBindingContext<M>> callback;
+    private final int connection;
+    private final boolean noLocal;
+
+    /**
+     * @param filter The topic filter
+     * @param qos The maximum qos
+     * @param annotation The topic annotation the subscription was created from
+     * @param callback The callback for received messages
+     */
+    public TopicSubscription(@NonNull String filter,
+                             int qos,
+                             @NonNull AnnotationValue<Topic> annotation,
+                             @NonNull Consumer<MqttBindingContext<M>> callback) {
+        this(filter, qos, annotation, callback, 0);
+    }
+
+    /**
+     * @param filter The topic filter
+     * @param qos The maximum qos
+     * @param annotation The topic annotation the subscription was created from
+     * @param callback The callback for received messages
+     * @param connection The index of the connection the subscription is made on
+     */
+    public TopicSubscription(@NonNull String filter,
+                             int qos,
+                             @NonNull AnnotationValue<Topic> annotation,
+                             @NonNull Consumer<MqttBindingContext<M>> callback,
+                             int connection) {
+        this(filter, qos, annotation, callback, connection, false);
+    }
+
+    /**
+     * @param filter The topic filter
+     * @param qos The maximum qos
+     * @param annotation The topic annotation the subscription was created from
+     * @param callback The callback for received messages
+     * @param connection The index of the connection the subscription is made on
+     * @param noLocal True if the broker must not deliver messages published by the same connection
+     */
+    public TopicSubscription(@NonNull String filter,
+                             int qos,
+                             @NonNull AnnotationValue<Topic> annotation,
+                             @NonNull Consumer<MqttBindingContext<M>> callback,
+                             int connection,
+                             boolean noLocal) {
+        this.filter = filter;
+        this.qos = qos;
+        this.annotation = annotation;
+        this.callback = callback;
+        this.connection = connection;
+        this.noLocal = noLocal;
+    }
+
+    /**
+     * @return The topic filter
+     */
+    @NonNull
+    public String getFilter() {
+        return filter;
+    }
+
+    /**
+     * @return The maximum qos
+     */
+    public int getQos() {
+        return qos;
+    }
+
+    /**
+     * @return The topic annotation the subscription was created from
+     */
+    @NonNull
+    public AnnotationValue<Topic> getAnnotation() {
+        return annotation;
+    }
+
+    /**
+     * @return The callback for received messages
+     */
+    @NonNull
+    public Consumer<MqttBindingContext<M>> getCallback() {
+        return callback;
+    }
+
+    /**
+     * @return The index of the connection the subscription is made on
+     */
+    public int getConnection() {
+        return connection;
+    }
+
+    /**
+     * @return True if the broker must not deliver messages published by the same connection,
+     * either because the topic annotation asks for it or because they are delivered to the
+     * subscriber in process (MQTT v5 only)
+     */
+    public boolean isNoLocal() {
+        return noLocal;
+    }
+
+    /**
+     * @return True if messages keep the retain flag they were published with (MQTT v5 only)
+     */
+    public boolean isRetainAsPublished() {
+        return annotation.booleanValue("retainAsPublished").orElse(false);
+    }
+
+    /**
+     * @return When the broker sends the retained messages matching the filter (MQTT v5 only),
+     * 0 on every subscribe, 1 only for new subscriptions and 2 never
+     */
+    public int getRetainHandling() {
+        return annotation.intValue("retainHandling").orElse(0);
+    }
+
+    /**
+     * @return True if the filter is a shared subscription
+     */
+    public boolean isShared() {
+        return filter.startsWith(SHARED_PREFIX);
+    }
+
+    /**
+     * @param connection The index of the connection
+     * @return A copy of this subscription made on the given connection
+     */
+    TopicSubscription<M> withConnection(int connection) {
+        return new TopicSubscription<>(filter, qos, annotation, callback, connection, noLocal);
+    }
+
+    /**
+     * @return The number of bytes the filter occupies in a SUBSCRIBE packet
+     */
+    int getEncodedLength() {
+        // length prefixed UTF-8 string followed by the subscription options
+        return 2 + filter.getBytes(StandardCharsets.UTF_8).length + 1;
+    }
+
+    @Override
+    public String toString() {
+        return filter + " (qos " + qos + ", connection " + connection + ")";
+    }
+}
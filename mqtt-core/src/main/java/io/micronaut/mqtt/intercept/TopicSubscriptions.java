@@ -0,0 +1,383 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.intercept;
+
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.mqtt.client.MqttClientPool;
+import io.micronaut.mqtt.client.MqttConnectionLifecycle;
+import io.micronaut.mqtt.config.MqttSubscriberConfigurationProperties;
+import io.micronaut.mqtt.exception.MqttSubscriberException;
+import io.micronaut.mqtt.exception.MqttSubscriberExceptionHandler;
+import io.micronaut.mqtt.exception.MqttSubscriptionRejectedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The topic subscriptions of an advice. Assigns subscriptions to the connections of the client
+ * pool, defers them until the application has started and the connection is established, sends
+ * them in as few SUBSCRIBE packets as the configured limits allow and makes them again when the
+ * broker discarded the session.
+ *
+ * @param <M> The specific message type
+ * @since 3.0.0
+ */
+final class TopicSubscriptions<M> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AbstractMqttSubscriberAdvice.class);
+    // fixed header, packet identifier and subscription identifier property
+    private static final int SUBSCRIBE_PACKET_OVERHEAD = 16;
+
+    private final AbstractMqttSubscriberAdvice<M> advice;
+    private final MqttSubscriberExceptionHandler exceptionHandler;
+    private final MqttSubscriberConfigurationProperties subscriberConfiguration;
+    private final MqttConnectionLifecycle connectionLifecycle;
+    private final int subscriberConnections;
+    private final Set<String> topics = new HashSet<>();
+    private final List<TopicSubscription<M>> pendingSubscriptions = new ArrayList<>();
+    private final Map<TopicSubscription<M>, SubscriberMethod> subscriptionOwners = new IdentityHashMap<>();
+    private final Map<TopicSubscription<M>, CompletableFuture<Void>> subscribedFutures = new IdentityHashMap<>();
+    private boolean started;
+    private volatile long startupSubscriptionNanos;
+
+    /**
+     * @param advice The advice sending the SUBSCRIBE and UNSUBSCRIBE packets
+     * @param exceptionHandler The handler of failed subscriptions without a subscriber method
+     * @param subscriberConfiguration The subscriber configuration
+     * @param connectionLifecycle The connection of the client, or null if the advice is always connected
+     */
+    TopicSubscriptions(AbstractMqttSubscriberAdvice<M> advice,
+                       MqttSubscriberExceptionHandler exceptionHandler,
+                       MqttSubscriberConfigurationProperties subscriberConfiguration,
+                       @Nullable MqttConnectionLifecycle connectionLifecycle) {
+        this.advice = advice;
+        this.exceptionHandler = exceptionHandler;
+        this.subscriberConfiguration = subscriberConfiguration;
+        this.connectionLifecycle = connectionLifecycle;
+        if (connectionLifecycle != null) {
+            this.subscriberConnections = Math.max(1, Math.min(subscriberConfiguration.getConnections(), connectionLifecycle.getConnectionCount()));
+            connectionLifecycle.addConnectionListener(this::onConnect);
+        } else {
+            this.subscriberConnections = 1;
+        }
+    }
+
+    /**
+     * Subscribes to all topic filters added while the application was starting and waits for
+     * the broker to acknowledge them.
+     */
+    void start() {
+        List<TopicSubscription<M>> subscriptions;
+        synchronized (pendingSubscriptions) {
+            started = true;
+            subscriptions = takePending(-1);
+            if (LOG.isDebugEnabled() && !pendingSubscriptions.isEmpty()) {
+                LOG.debug("Deferring {} subscriptions until the client is connected", pendingSubscriptions.size());
+            }
+        }
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        CompletableFuture<?>[] futures = subscribeChunked(subscriptions);
+        try {
+            CompletableFuture.allOf(futures).get(subscriberConfiguration.getSubscribeTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            startupSubscriptionNanos = System.nanoTime() - start;
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Subscribed to {} topic filters with {} SUBSCRIBE packets in {}ms", subscriptions.size(), futures.length, TimeUnit.NANOSECONDS.toMillis(startupSubscriptionNanos));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // failures have been routed to the exception handlers of the subscribers
+            startupSubscriptionNanos = System.nanoTime() - start;
+        } catch (TimeoutException e) {
+            startupSubscriptionNanos = System.nanoTime() - start;
+            if (LOG.isErrorEnabled()) {
+                LOG.error("Timed out after {} waiting for the broker to acknowledge {} subscriptions", subscriberConfiguration.getSubscribeTimeout(), subscriptions.size());
+            }
+        }
+    }
+
+    /**
+     * Adds the subscriptions of a subscriber method.
+     *
+     * @param subscriptions The subscriptions
+     * @param owner The subscriber method
+     */
+    void add(List<TopicSubscription<M>> subscriptions, SubscriberMethod owner) {
+        addSubscriptions(assignConnections(subscriptions), owner);
+    }
+
+    /**
+     * Adds a subscription without a subscriber method.
+     *
+     * @param subscription The subscription
+     * @return A future completed once the broker has acknowledged the subscription
+     */
+    CompletableFuture<Void> add(TopicSubscription<M> subscription) {
+        List<TopicSubscription<M>> subscriptions = assignConnections(List.of(subscription));
+        CompletableFuture<?>[] futures = new CompletableFuture[subscriptions.size()];
+        synchronized (pendingSubscriptions) {
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = subscribedFutures.computeIfAbsent(subscriptions.get(i), s -> new CompletableFuture<>());
+            }
+        }
+        addSubscriptions(subscriptions, null);
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * @return The time it took to subscribe to all topic filters when the application started
+     */
+    Duration getStartupDuration() {
+        return Duration.ofNanos(startupSubscriptionNanos);
+    }
+
+    /**
+     * @return The number of subscribed topic filters
+     */
+    int getCount() {
+        synchronized (pendingSubscriptions) {
+            return topics.size();
+        }
+    }
+
+    /**
+     * Unsubscribes from all topic filters, on the connection each of them was subscribed on.
+     */
+    void close() {
+        if (subscriberConnections == 1) {
+            advice.unsubscribe(topics);
+            return;
+        }
+        Map<Integer, Set<String>> connectionTopics = new TreeMap<>();
+        synchronized (pendingSubscriptions) {
+            for (TopicSubscription<M> subscription : subscriptionOwners.keySet()) {
+                connectionTopics.computeIfAbsent(subscription.getConnection(), c -> new HashSet<>()).add(subscription.getFilter());
+            }
+        }
+        for (Map.Entry<Integer, Set<String>> entry : connectionTopics.entrySet()) {
+            advice.unsubscribe(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void onConnect(int connection, boolean reconnect) {
+        if (connection >= subscriberConnections) {
+            return;
+        }
+        List<TopicSubscription<M>> subscriptions;
+        synchronized (pendingSubscriptions) {
+            if (!started) {
+                // the startup event subscribes to the pending topic filters
+                return;
+            }
+            if (reconnect && connectionLifecycle.isCleanSession()) {
+                // the broker discarded the session along with the subscriptions
+                subscriptions = new ArrayList<>();
+                for (TopicSubscription<M> subscription : subscriptionOwners.keySet()) {
+                    if (subscription.getConnection() == connection) {
+                        subscriptions.add(subscription);
+                    }
+                }
+                pendingSubscriptions.removeIf(subscription -> subscription.getConnection() == connection);
+            } else {
+                subscriptions = takePending(connection);
+            }
+        }
+        if (!subscriptions.isEmpty()) {
+            long start = System.nanoTime();
+            CompletableFuture<?>[] futures = subscribeChunked(subscriptions);
+            if (!reconnect) {
+                CompletableFuture.allOf(futures).whenComplete((result, throwable) -> startupSubscriptionNanos = System.nanoTime() - start);
+            }
+        }
+    }
+
+    private boolean isConnected(int connection) {
+        return connectionLifecycle == null || connectionLifecycle.isConnected(connection);
+    }
+
+    /**
+     * Assigns each subscription to a connection of the client pool. Shared subscriptions are
+     * made on every connection so the broker balances the messages of the group across them.
+     */
+    private List<TopicSubscription<M>> assignConnections(List<TopicSubscription<M>> subscriptions) {
+        if (subscriberConnections == 1) {
+            return subscriptions;
+        }
+        List<TopicSubscription<M>> assigned = new ArrayList<>(subscriptions.size());
+        for (TopicSubscription<M> subscription : subscriptions) {
+            if (subscription.isShared()) {
+                for (int connection = 0; connection < subscriberConnections; connection++) {
+                    assigned.add(subscription.withConnection(connection));
+                }
+            } else {
+                assigned.add(subscription.withConnection(MqttClientPool.shard(subscription.getFilter(), subscriberConnections)));
+            }
+        }
+        return assigned;
+    }
+
+    /**
+     * Removes the pending subscriptions that can be sent now.
+     *
+     * @param connection The connection that has been established, or -1 for all connected connections
+     */
+    private List<TopicSubscription<M>> takePending(int connection) {
+        List<TopicSubscription<M>> subscriptions = new ArrayList<>();
+        Iterator<TopicSubscription<M>> iterator = pendingSubscriptions.iterator();
+        while (iterator.hasNext()) {
+            TopicSubscription<M> subscription = iterator.next();
+            if (connection == -1 ? isConnected(subscription.getConnection()) : subscription.getConnection() == connection) {
+                subscriptions.add(subscription);
+                iterator.remove();
+            }
+        }
+        return subscriptions;
+    }
+
+    private void addSubscriptions(List<TopicSubscription<M>> subscriptions, @Nullable SubscriberMethod owner) {
+        List<TopicSubscription<M>> subscribeNow = new ArrayList<>(subscriptions.size());
+        synchronized (pendingSubscriptions) {
+            for (TopicSubscription<M> subscription : subscriptions) {
+                topics.add(subscription.getFilter());
+                subscriptionOwners.put(subscription, owner);
+                if (started && isConnected(subscription.getConnection())) {
+                    subscribeNow.add(subscription);
+                } else {
+                    pendingSubscriptions.add(subscription);
+                }
+            }
+        }
+        if (!subscribeNow.isEmpty()) {
+            subscribeChunked(subscribeNow);
+        }
+    }
+
+    private CompletableFuture<?>[] subscribeChunked(List<TopicSubscription<M>> subscriptions) {
+        int maxTopics = Math.max(1, subscriberConfiguration.getMaxTopicsPerSubscribe());
+        int maxBytes = subscriberConfiguration.getMaxSubscribePacketSize() - SUBSCRIBE_PACKET_OVERHEAD;
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        Map<Integer, List<TopicSubscription<M>>> byConnection = new TreeMap<>();
+        for (TopicSubscription<M> subscription : subscriptions) {
+            byConnection.computeIfAbsent(subscription.getConnection(), c -> new ArrayList<>()).add(subscription);
+        }
+        for (Map.Entry<Integer, List<TopicSubscription<M>>> entry : byConnection.entrySet()) {
+            int connection = entry.getKey();
+            List<TopicSubscription<M>> chunk = new ArrayList<>();
+            int chunkBytes = 0;
+            for (TopicSubscription<M> subscription : entry.getValue()) {
+                int length = subscription.getEncodedLength();
+                if (!chunk.isEmpty() && (chunk.size() == maxTopics || chunkBytes + length > maxBytes)) {
+                    futures.add(subscribeChunk(connection, chunk));
+                    chunk = new ArrayList<>();
+                    chunkBytes = 0;
+                }
+                chunk.add(subscription);
+                chunkBytes += length;
+            }
+            if (!chunk.isEmpty()) {
+                futures.add(subscribeChunk(connection, chunk));
+            }
+        }
+        return futures.toArray(new CompletableFuture[0]);
+    }
+
+    private CompletableFuture<Void> subscribeChunk(int connection, List<TopicSubscription<M>> chunk) {
+        if (LOG.isTraceEnabled()) {
+            for (TopicSubscription<M> subscription : chunk) {
+                LOG.trace("Subscribing to {} with Qos {}", subscription.getFilter(), subscription.getQos());
+            }
+        }
+        CompletableFuture<Void> future;
+        try {
+            future = advice.subscribe(connection, chunk);
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((result, throwable) -> {
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+            // only the rejected filters of a packet failed, the others have been subscribed to
+            List<TopicSubscription<M>> failed = chunk;
+            if (cause instanceof MqttSubscriptionRejectedException rejected) {
+                failed = new ArrayList<>(rejected.getRejectedFilters().size());
+                for (TopicSubscription<M> subscription : chunk) {
+                    if (rejected.getRejectedFilters().contains(subscription.getFilter())) {
+                        failed.add(subscription);
+                    }
+                }
+            }
+            completeSubscribed(chunk, failed, cause);
+            if (cause != null) {
+                Set<SubscriberMethod> owners = Collections.newSetFromMap(new IdentityHashMap<>());
+                boolean unowned = false;
+                synchronized (pendingSubscriptions) {
+                    for (TopicSubscription<M> subscription : failed) {
+                        SubscriberMethod owner = subscriptionOwners.get(subscription);
+                        if (owner == null) {
+                            unowned = true;
+                        } else {
+                            owners.add(owner);
+                        }
+                    }
+                }
+                Exception exception = cause instanceof Exception ex ? ex : new MqttSubscriberException(String.format("Failed to subscribe to the topics: %s", chunk), cause);
+                for (SubscriberMethod owner : owners) {
+                    advice.handleException(exception, owner.bean, owner.method);
+                }
+                if (unowned) {
+                    // a subscription made through AbstractMqttSubscriberAdvice#subscribe(String, int, Consumer)
+                    exceptionHandler.handle(exception instanceof MqttSubscriberException subscriberException ? subscriberException
+                            : new MqttSubscriberException(String.format("Failed to subscribe to the topics: %s", chunk), exception));
+                }
+            }
+        });
+    }
+
+    private void completeSubscribed(List<TopicSubscription<M>> chunk, List<TopicSubscription<M>> failed, @Nullable Throwable throwable) {
+        List<CompletableFuture<Void>> succeeded = new ArrayList<>(0);
+        List<CompletableFuture<Void>> failures = new ArrayList<>(0);
+        synchronized (pendingSubscriptions) {
+            if (subscribedFutures.isEmpty()) {
+                return;
+            }
+            for (TopicSubscription<M> subscription : chunk) {
+                CompletableFuture<Void> future = subscribedFutures.remove(subscription);
+                if (future != null) {
+                    (throwable != null && failed.contains(subscription) ? failures : succeeded).add(future);
+                }
+            }
+        }
+        succeeded.forEach(future -> future.complete(null));
+        failures.forEach(future -> future.completeExceptionally(throwable));
+    }
+}
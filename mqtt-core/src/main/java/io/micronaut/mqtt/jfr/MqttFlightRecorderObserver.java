@@ -0,0 +1,179 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.jfr;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.core.util.StringUtils;
+import io.micronaut.mqtt.observer.MqttObserver;
+import jakarta.inject.Singleton;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+
+/**
+ * Emits Java Flight Recorder events of publishing, receiving, serialization and connections.
+ * While no recording enables the events nothing is measured, see {@link #isEnabled()}.
+ *
+ * @since 3.0.0
+ */
+@Singleton
+@Requires(classes = Event.class)
+@Requires(property = MqttFlightRecorderObserver.ENABLED, notEquals = StringUtils.FALSE)
+public class MqttFlightRecorderObserver implements MqttObserver {
+
+    /**
+     * The property to disable the events.
+     */
+    public static final String ENABLED = "mqtt.jfr.enabled";
+
+    private static final String CONNECTED = "connected";
+    private static final String RECONNECTED = "reconnected";
+    private static final String LOST = "lost";
+
+    private final EventType publishType = EventType.getEventType(MqttPublishEvent.class);
+    private final EventType messageType = EventType.getEventType(MqttMessageEvent.class);
+    private final EventType serDesType = EventType.getEventType(MqttSerDesEvent.class);
+
+    @Override
+    public boolean isEnabled() {
+        return publishType.isEnabled() || messageType.isEnabled() || serDesType.isEnabled();
+    }
+
+    @Override
+    @Nullable
+    public Object publishStarted(String client, String topic, String topicTag, int qos, int size) {
+        MqttPublishEvent event = new MqttPublishEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        event.client = clientName(client);
+        event.topic = topic;
+        event.qos = qos;
+        event.size = size;
+        event.publisherThread = Thread.currentThread();
+        return event;
+    }
+
+    @Override
+    public void publishCompleted(@Nullable Object context, String client, String topicTag, int qos, long durationNanos, @Nullable Throwable error) {
+        if (context instanceof MqttPublishEvent event) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.error = error == null ? null : error.toString();
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    @Nullable
+    public Object messageStarted(String subscriber, String topic, String topicTag, int qos, int size) {
+        MqttMessageEvent event = new MqttMessageEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        event.subscriber = subscriber;
+        event.topic = topic;
+        event.qos = qos;
+        event.size = size;
+        return event;
+    }
+
+    @Override
+    public void messageHandled(@Nullable Object context, String subscriber, String topic, String topicTag, int qos, int size,
+                               long queueNanos, long bindNanos, long handlerNanos, @Nullable Throwable error) {
+        if (context instanceof MqttMessageEvent event) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.queueWait = queueNanos;
+                event.bindingTime = bindNanos;
+                event.handlerTime = handlerNanos;
+                event.error = error == null ? null : error.toString();
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    @Nullable
+    public Object serializeStarted(Class<?> type) {
+        return serDesStarted(type, "serialize");
+    }
+
+    @Override
+    public void serialized(@Nullable Object context, Class<?> type, int size, long durationNanos) {
+        serDesCompleted(context, size);
+    }
+
+    @Override
+    @Nullable
+    public Object deserializeStarted(Class<?> type, int size) {
+        return serDesStarted(type, "deserialize");
+    }
+
+    @Override
+    public void deserialized(@Nullable Object context, Class<?> type, int size, long durationNanos) {
+        serDesCompleted(context, size);
+    }
+
+    @Override
+    public void connected(String client, int connection, boolean reconnect) {
+        connectionEvent(client, connection, reconnect ? RECONNECTED : CONNECTED);
+    }
+
+    @Override
+    public void connectionLost(String client, int connection) {
+        connectionEvent(client, connection, LOST);
+    }
+
+    @Nullable
+    private static MqttSerDesEvent serDesStarted(Class<?> type, String operation) {
+        MqttSerDesEvent event = new MqttSerDesEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        event.type = type;
+        event.operation = operation;
+        return event;
+    }
+
+    private static void serDesCompleted(@Nullable Object context, int size) {
+        if (context instanceof MqttSerDesEvent event) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.size = size;
+                event.commit();
+            }
+        }
+    }
+
+    private static String clientName(String client) {
+        return client.isEmpty() ? "default" : client;
+    }
+
+    private static void connectionEvent(String client, int connection, String state) {
+        MqttConnectionEvent event = new MqttConnectionEvent();
+        if (event.isEnabled()) {
+            event.client = clientName(client);
+            event.connection = connection;
+            event.state = state;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Spans the binding and handling of a received message by a subscriber method.
+ *
+ * @since 3.0.0
+ */
+@Name(MqttMessageEvent.NAME)
+@Label("MQTT Message")
+@Description("A received message bound to and handled by a subscriber method")
+@Category({"Micronaut", "MQTT"})
+@StackTrace(false)
+final class MqttMessageEvent extends Event {
+
+    static final String NAME = "io.micronaut.mqtt.Message";
+
+    @Label("Subscriber")
+    String subscriber;
+
+    @Label("Topic")
+    String topic;
+
+    @Label("QoS")
+    int qos;
+
+    @Label("Payload Size")
+    @DataAmount
+    int size;
+
+    @Label("Queue Wait")
+    @Description("The time between the arrival of the message and the start of binding, including the delay of a redelivery")
+    @Timespan
+    long queueWait;
+
+    @Label("Binding Time")
+    @Timespan
+    long bindingTime;
+
+    @Label("Handler Time")
+    @Timespan
+    long handlerTime;
+
+    @Label("Error")
+    String error;
+}
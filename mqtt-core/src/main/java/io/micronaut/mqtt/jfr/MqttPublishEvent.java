@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Spans the time between sending a message to the broker and its acknowledgement.
+ *
+ * @since 3.0.0
+ */
+@Name(MqttPublishEvent.NAME)
+@Label("MQTT Publish")
+@Description("A message sent to the broker, ending once the broker has acknowledged it")
+@Category({"Micronaut", "MQTT"})
+@StackTrace(false)
+final class MqttPublishEvent extends Event {
+
+    static final String NAME = "io.micronaut.mqtt.Publish";
+
+    @Label("Client")
+    String client;
+
+    @Label("Topic")
+    String topic;
+
+    @Label("QoS")
+    int qos;
+
+    @Label("Payload Size")
+    @DataAmount
+    int size;
+
+    @Label("Publisher Thread")
+    Thread publisherThread;
+
+    @Label("Error")
+    String error;
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Spans the serialization or deserialization of a payload.
+ *
+ * @since 3.0.0
+ */
+@Name(MqttSerDesEvent.NAME)
+@Label("MQTT SerDes")
+@Description("A payload serialized or deserialized by a ser-des")
+@Category({"Micronaut", "MQTT"})
+@StackTrace(false)
+final class MqttSerDesEvent extends Event {
+
+    static final String NAME = "io.micronaut.mqtt.SerDes";
+
+    @Label("Type")
+    Class<?> type;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Payload Size")
+    @DataAmount
+    int size;
+}
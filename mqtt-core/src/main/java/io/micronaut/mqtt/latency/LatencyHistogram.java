@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.latency;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies with a fixed relative precision, laid out like an HDR histogram:
+ * values are grouped into buckets of powers of two, each split into the same number of
+ * linear sub-buckets. Recording is lock free and does not allocate.
+ *
+ * @since 3.0.0
+ */
+public final class LatencyHistogram {
+
+    private final long highestTrackableValue;
+    private final int subBucketHalfCountMagnitude;
+    private final int subBucketHalfCount;
+    private final long subBucketMask;
+    private final int leadingZeroCountBase;
+    private final AtomicLongArray counts;
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * @param highestTrackableValue The highest value, higher values are recorded as this value
+     * @param significantDigits The number of significant decimal digits, between 1 and 4
+     */
+    public LatencyHistogram(long highestTrackableValue, int significantDigits) {
+        if (significantDigits < 1 || significantDigits > 4) {
+            throw new IllegalArgumentException("The significant digits must be between 1 and 4: " + significantDigits);
+        }
+        this.highestTrackableValue = Math.max(2, highestTrackableValue);
+        long largestSingleUnitValue = 2 * (long) Math.pow(10, significantDigits);
+        int subBucketCountMagnitude = 64 - Long.numberOfLeadingZeros(largestSingleUnitValue - 1);
+        this.subBucketHalfCountMagnitude = subBucketCountMagnitude - 1;
+        int subBucketCount = 1 << subBucketCountMagnitude;
+        this.subBucketHalfCount = subBucketCount / 2;
+        this.subBucketMask = subBucketCount - 1;
+        this.leadingZeroCountBase = 64 - subBucketCountMagnitude;
+        int bucketCount = 1;
+        long smallestUntrackableValue = subBucketCount;
+        while (smallestUntrackableValue <= this.highestTrackableValue) {
+            if (smallestUntrackableValue > Long.MAX_VALUE / 2) {
+                bucketCount++;
+                break;
+            }
+            smallestUntrackableValue <<= 1;
+            bucketCount++;
+        }
+        this.counts = new AtomicLongArray((bucketCount + 1) * subBucketHalfCount);
+    }
+
+    /**
+     * Records a value. Negative values are recorded as zero.
+     *
+     * @param value The value
+     */
+    public void record(long value) {
+        long v = Math.min(Math.max(0, value), highestTrackableValue);
+        counts.incrementAndGet(countsIndex(v));
+        totalCount.incrementAndGet();
+        long max = maxValue.get();
+        while (v > max && !maxValue.compareAndSet(max, v)) {
+            max = maxValue.get();
+        }
+    }
+
+    /**
+     * @return The number of recorded values
+     */
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * @return The highest recorded value
+     */
+    public long getMaxValue() {
+        return maxValue.get();
+    }
+
+    /**
+     * @param percentile The percentile, between 0 and 100
+     * @return The highest value equivalent to the value at the percentile, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = totalCount.get();
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(i), maxValue.get());
+            }
+        }
+        return maxValue.get();
+    }
+
+    private int countsIndex(long value) {
+        int bucketIndex = leadingZeroCountBase - Long.numberOfLeadingZeros(value | subBucketMask);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        return ((bucketIndex + 1) << subBucketHalfCountMagnitude) + (subBucketIndex - subBucketHalfCount);
+    }
+
+    private long highestEquivalentValue(int index) {
+        int bucketIndex = (index >> subBucketHalfCountMagnitude) - 1;
+        int subBucketIndex = (index & (subBucketHalfCount - 1)) + subBucketHalfCount;
+        if (bucketIndex < 0) {
+            subBucketIndex -= subBucketHalfCount;
+            bucketIndex = 0;
+        }
+        return ((long) subBucketIndex << bucketIndex) + (1L << bucketIndex) - 1;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.latency;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.core.util.StringUtils;
+import jakarta.inject.Singleton;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Provides the send time stamped onto published messages and holds the
+ * {@link SubscriberLatency} of each subscriber method, created when the method first receives
+ * a stamped message.
+ *
+ * <p>Send times are wall clock times, so the latency between hosts is only as accurate as
+ * their clocks are synchronized. Within the application the stamps never go backwards, even if
+ * the wall clock does.</p>
+ *
+ * @since 3.0.0
+ */
+@Singleton
+@Requires(property = MqttLatencyConfigurationProperties.PREFIX + ".enabled", value = StringUtils.TRUE)
+public class LatencyRegistry {
+
+    /**
+     * The user property holding the send time in microseconds since the epoch, for protocol
+     * versions supporting message properties.
+     */
+    public static final String SENT_AT_PROPERTY = "micronaut-mqtt-sent-at";
+
+    private static final double[] SUMMARY_PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] SUMMARY_NAMES = {"p50", "p90", "p99", "p99.9"};
+
+    private final MqttLatencyConfigurationProperties configuration;
+    private final long maxLatencyMicros;
+    private final AtomicLong lastStamp = new AtomicLong();
+    private final ConcurrentMap<String, SubscriberLatency> latencies = new ConcurrentHashMap<>();
+    private final List<Consumer<SubscriberLatency>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param configuration The latency configuration
+     */
+    public LatencyRegistry(MqttLatencyConfigurationProperties configuration) {
+        this.configuration = configuration;
+        this.maxLatencyMicros = configuration.getMaxLatency().toNanos() / 1000;
+    }
+
+    /**
+     * @return The current time in microseconds since the epoch, never lower than a previous stamp
+     */
+    public long stamp() {
+        long now = currentTimeMicros();
+        long last = lastStamp.get();
+        while (now > last) {
+            if (lastStamp.compareAndSet(last, now)) {
+                return now;
+            }
+            last = lastStamp.get();
+        }
+        return last;
+    }
+
+    /**
+     * Records the latency of a received message.
+     *
+     * @param subscriber The subscriber method, in the form {@code Type#method}
+     * @param sentMicros The send time stamped onto the message
+     * @param receivedMicros The time the message was received in microseconds since the epoch
+     */
+    public void record(String subscriber, long sentMicros, long receivedMicros) {
+        long latency = receivedMicros - sentMicros;
+        // messages stamped by a host whose clock is off by more than the tracked range are ignored
+        if (latency > maxLatencyMicros || latency < -maxLatencyMicros) {
+            return;
+        }
+        getLatency(subscriber).record(latency);
+    }
+
+    /**
+     * @return The current time in microseconds since the epoch
+     */
+    public long currentTimeMicros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000 + now.getNano() / 1000;
+    }
+
+    /**
+     * @param subscriber The subscriber method, in the form {@code Type#method}
+     * @return The latency of the messages received by the method
+     */
+    public SubscriberLatency getLatency(String subscriber) {
+        SubscriberLatency latency = latencies.get(subscriber);
+        if (latency == null) {
+            latency = latencies.computeIfAbsent(subscriber, this::createLatency);
+        }
+        return latency;
+    }
+
+    /**
+     * @return The latencies of the subscriber methods that have received stamped messages
+     */
+    public Collection<SubscriberLatency> getLatencies() {
+        return Collections.unmodifiableCollection(latencies.values());
+    }
+
+    /**
+     * Summarizes the latency of each subscriber method during the last completed window, as
+     * reported by the health endpoint.
+     *
+     * @return The message count and the latency percentiles in milliseconds by subscriber method
+     */
+    public Map<String, Map<String, Object>> getSummary() {
+        Map<String, Map<String, Object>> summary = new TreeMap<>();
+        for (SubscriberLatency latency : latencies.values()) {
+            Map<String, Object> percentiles = new LinkedHashMap<>();
+            percentiles.put("count", latency.getCount());
+            for (int i = 0; i < SUMMARY_PERCENTILES.length; i++) {
+                percentiles.put(SUMMARY_NAMES[i], toMillis(latency.getValueAtPercentile(SUMMARY_PERCENTILES[i])));
+            }
+            percentiles.put("max", toMillis(latency.getMax()));
+            summary.put(latency.getSubscriber(), percentiles);
+        }
+        return summary;
+    }
+
+    /**
+     * Registers a listener called with the latency of every subscriber method, the existing
+     * ones and those created later.
+     *
+     * @param listener The listener
+     */
+    public void addLatencyListener(Consumer<SubscriberLatency> listener) {
+        listeners.add(listener);
+        latencies.values().forEach(listener);
+    }
+
+    private static double toMillis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private SubscriberLatency createLatency(String subscriber) {
+        SubscriberLatency latency = new SubscriberLatency(subscriber, configuration);
+        listeners.forEach(listener -> listener.accept(latency));
+        return latency;
+    }
+}
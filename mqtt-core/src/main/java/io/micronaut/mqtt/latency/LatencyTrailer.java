@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.latency;
+
+import io.micronaut.core.annotation.Internal;
+
+import java.util.Arrays;
+
+/**
+ * Appends the send time to a payload, for protocol versions without message properties. The
+ * trailer consists of the send time in microseconds since the epoch and a magic number, both
+ * big-endian.
+ *
+ * @since 3.0.0
+ */
+@Internal
+public final class LatencyTrailer {
+
+    /**
+     * The length of the trailer in bytes.
+     */
+    public static final int LENGTH = 12;
+
+    private static final int MAGIC = 0xE2E1A7C5;
+
+    private LatencyTrailer() {
+    }
+
+    /**
+     * @param payload The payload
+     * @param sentMicros The send time in microseconds since the epoch
+     * @return A copy of the payload followed by the trailer
+     */
+    public static byte[] append(byte[] payload, long sentMicros) {
+        byte[] stamped = Arrays.copyOf(payload, payload.length + LENGTH);
+        for (int i = 0; i < 8; i++) {
+            stamped[payload.length + i] = (byte) (sentMicros >>> (56 - 8 * i));
+        }
+        for (int i = 0; i < 4; i++) {
+            stamped[payload.length + 8 + i] = (byte) (MAGIC >>> (24 - 8 * i));
+        }
+        return stamped;
+    }
+
+    /**
+     * @param payload The payload
+     * @return The send time in microseconds since the epoch, or -1 if the payload does not end with a trailer
+     */
+    public static long read(byte[] payload) {
+        if (payload == null || payload.length < LENGTH) {
+            return -1;
+        }
+        int offset = payload.length - LENGTH;
+        int magic = 0;
+        for (int i = 0; i < 4; i++) {
+            magic = (magic << 8) | (payload[offset + 8 + i] & 0xFF);
+        }
+        if (magic != MAGIC) {
+            return -1;
+        }
+        long sentMicros = 0;
+        for (int i = 0; i < 8; i++) {
+            sentMicros = (sentMicros << 8) | (payload[offset + i] & 0xFF);
+        }
+        return sentMicros;
+    }
+
+    /**
+     * @param payload A payload ending with a trailer
+     * @return A copy of the payload without the trailer
+     */
+    public static byte[] strip(byte[] payload) {
+        return Arrays.copyOf(payload, payload.length - LENGTH);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.latency;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration for stamping published messages with their send time and recording the
+ * end-to-end latency of received messages.
+ *
+ * @since 3.0.0
+ */
+@ConfigurationProperties(MqttLatencyConfigurationProperties.PREFIX)
+public class MqttLatencyConfigurationProperties {
+
+    public static final String PREFIX = "mqtt.latency";
+
+    private static final boolean DEFAULT_ENABLED = false;
+    private static final int DEFAULT_SIGNIFICANT_DIGITS = 2;
+
+    private boolean enabled = DEFAULT_ENABLED;
+    private Duration window = Duration.ofMinutes(1);
+    private Duration maxLatency = Duration.ofHours(1);
+    private int significantDigits = DEFAULT_SIGNIFICANT_DIGITS;
+
+    /**
+     * @return True if messages are stamped and their latency is recorded
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables stamping published messages with their send time and recording the latency of
+     * stamped messages received by subscribers. Default value {@value #DEFAULT_ENABLED}
+     *
+     * @param enabled True if it is enabled
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return The time window the percentiles are reported for
+     */
+    public Duration getWindow() {
+        return window;
+    }
+
+    /**
+     * @param window The time window the percentiles are reported for. Default value 1 minute
+     */
+    public void setWindow(Duration window) {
+        this.window = window;
+    }
+
+    /**
+     * @return The highest latency tracked by the histograms
+     */
+    public Duration getMaxLatency() {
+        return maxLatency;
+    }
+
+    /**
+     * @param maxLatency The highest latency tracked by the histograms, higher latencies are
+     *                   recorded as this value. Stamps further in the past or future are
+     *                   ignored. Default value 1 hour
+     */
+    public void setMaxLatency(Duration maxLatency) {
+        this.maxLatency = maxLatency;
+    }
+
+    /**
+     * @return The number of significant decimal digits of the recorded latencies
+     */
+    public int getSignificantDigits() {
+        return significantDigits;
+    }
+
+    /**
+     * @param significantDigits The number of significant decimal digits of the recorded
+     *                          latencies, between 1 and 4. Default value {@value #DEFAULT_SIGNIFICANT_DIGITS}
+     */
+    public void setSignificantDigits(int significantDigits) {
+        this.significantDigits = significantDigits;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.latency;
+
+/**
+ * The end-to-end latency of the messages received by a subscriber method. Latencies are
+ * recorded in microseconds into the histogram of the current time window, the percentiles are
+ * reported from the last completed window.
+ *
+ * @since 3.0.0
+ */
+public final class SubscriberLatency {
+
+    private final String subscriber;
+    private final long highestTrackableValue;
+    private final int significantDigits;
+    private final long windowNanos;
+    private volatile LatencyHistogram active;
+    private volatile LatencyHistogram completed;
+    private volatile long windowEnd;
+
+    /**
+     * @param subscriber The subscriber method, in the form {@code Type#method}
+     * @param configuration The latency configuration
+     */
+    public SubscriberLatency(String subscriber, MqttLatencyConfigurationProperties configuration) {
+        this.subscriber = subscriber;
+        this.highestTrackableValue = configuration.getMaxLatency().toNanos() / 1000;
+        this.significantDigits = configuration.getSignificantDigits();
+        this.windowNanos = configuration.getWindow().toNanos();
+        this.active = new LatencyHistogram(highestTrackableValue, significantDigits);
+        this.completed = new LatencyHistogram(highestTrackableValue, significantDigits);
+        this.windowEnd = System.nanoTime() + windowNanos;
+    }
+
+    /**
+     * @return The subscriber method, in the form {@code Type#method}
+     */
+    public String getSubscriber() {
+        return subscriber;
+    }
+
+    /**
+     * @param latencyMicros The latency of a message in microseconds
+     */
+    public void record(long latencyMicros) {
+        rotate();
+        active.record(latencyMicros);
+    }
+
+    /**
+     * @param percentile The percentile, between 0 and 100
+     * @return The latency at the percentile in microseconds, during the last completed window
+     */
+    public long getValueAtPercentile(double percentile) {
+        rotate();
+        return completed.getValueAtPercentile(percentile);
+    }
+
+    /**
+     * @return The highest latency in microseconds, during the last completed window
+     */
+    public long getMax() {
+        rotate();
+        return completed.getMaxValue();
+    }
+
+    /**
+     * @return The number of messages received during the last completed window
+     */
+    public long getCount() {
+        rotate();
+        return completed.getTotalCount();
+    }
+
+    private void rotate() {
+        long now = System.nanoTime();
+        if (now - windowEnd < 0) {
+            return;
+        }
+        synchronized (this) {
+            if (now - windowEnd < 0) {
+                return;
+            }
+            // a window without any message leaves nothing to report
+            completed = now - windowEnd < windowNanos ? active : new LatencyHistogram(highestTrackableValue, significantDigits);
+            active = new LatencyHistogram(highestTrackableValue, significantDigits);
+            windowEnd = now + windowNanos;
+        }
+    }
+}
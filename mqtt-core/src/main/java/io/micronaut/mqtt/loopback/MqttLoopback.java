@@ -0,0 +1,197 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.loopback;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.core.util.StringUtils;
+import io.micronaut.mqtt.exception.MqttClientException;
+import io.micronaut.mqtt.topic.TopicTemplate;
+import io.micronaut.scheduling.TaskExecutors;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Delivers published messages straight to the subscribers of the same application whose topic
+ * filters match, in addition to publishing them to the broker. The subscriptions of the local
+ * subscribers are made with the MQTT 5 {@code noLocal} option so the broker does not deliver
+ * the same message a second time.
+ *
+ * <p>The payload the publisher serialized is handed to the subscribers as is. Deliveries are
+ * queued in a bounded queue and run one at a time on the consumer executor, in the order the
+ * messages were published. When the queue is full publishers wait for a free slot, which slows
+ * them down to the pace of the local subscribers. A publish fails if no slot frees up in time,
+ * or if the queue is full when a local subscriber publishes itself, since waiting would block
+ * the only thread draining the queue.</p>
+ *
+ * @since 3.0.0
+ */
+@Singleton
+@Requires(property = MqttLoopbackConfigurationProperties.PREFIX + ".enabled", value = StringUtils.TRUE)
+public final class MqttLoopback {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MqttLoopback.class);
+
+    private final List<LocalSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<Runnable> queue;
+    private final ExecutorService executor;
+    private final long queueTimeoutNanos;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile Thread drainingThread;
+
+    /**
+     * @param configuration The loopback configuration
+     * @param executor The executor the local subscribers are called on
+     */
+    public MqttLoopback(MqttLoopbackConfigurationProperties configuration,
+                        @Named(TaskExecutors.MESSAGE_CONSUMER) ExecutorService executor) {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, configuration.getQueueSize()));
+        this.queueTimeoutNanos = configuration.getQueueTimeout().toNanos();
+        this.executor = executor;
+    }
+
+    /**
+     * Registers a local subscriber. Shared subscriptions must not be registered, their messages
+     * are balanced by the broker across all members of the group.
+     *
+     * @param filter The topic filter
+     * @param qos The maximum qos of the subscription
+     * @param subscriber The subscriber
+     */
+    public void register(@NonNull String filter, int qos, @NonNull LocalSubscriber subscriber) {
+        subscriptions.add(new LocalSubscription(TopicTemplate.compile(filter), qos, subscriber));
+    }
+
+    /**
+     * @return True if no local subscriber is registered
+     */
+    public boolean isEmpty() {
+        return subscriptions.isEmpty();
+    }
+
+    /**
+     * Delivers a published message to the matching local subscribers.
+     *
+     * @param topic The topic the message is published to
+     * @param payload The serialized payload
+     * @param qos The qos the message is published with
+     * @return The number of local subscribers the message is delivered to
+     * @throws MqttClientException If the queue stays full for longer than the queue timeout
+     */
+    public int deliver(@NonNull String topic, @NonNull byte[] payload, int qos) {
+        int matched = 0;
+        for (LocalSubscription subscription : subscriptions) {
+            if (subscription.template.matches(topic)) {
+                // as with the broker, the message is delivered with the lower qos of the publish and the subscription
+                int deliveredQos = Math.min(qos, subscription.qos);
+                Runnable delivery = () -> subscription.subscriber.deliver(topic, payload, deliveredQos);
+                enqueue(delivery);
+                matched++;
+            }
+        }
+        if (matched > 0) {
+            schedule();
+        }
+        return matched;
+    }
+
+    private void enqueue(Runnable delivery) {
+        if (queue.offer(delivery)) {
+            return;
+        }
+        // the queued deliveries may be waiting for the very subscriber that is publishing
+        if (Thread.currentThread() == drainingThread) {
+            throw new MqttClientException("The loopback queue is full, a local subscriber cannot publish to local subscribers until it frees up");
+        }
+        // wake up the consumer in case its last drain ended before the queue filled up
+        schedule();
+        try {
+            if (!queue.offer(delivery, queueTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new MqttClientException("Timed out waiting for a free slot in the loopback queue");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MqttClientException("Publish thread interrupted waiting for a free slot in the loopback queue", e);
+        }
+    }
+
+    private void schedule() {
+        if (!queue.isEmpty() && draining.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // the application is shutting down
+                draining.set(false);
+            }
+        }
+    }
+
+    private void drain() {
+        drainingThread = Thread.currentThread();
+        try {
+            Runnable delivery;
+            while ((delivery = queue.poll()) != null) {
+                runDelivery(delivery);
+            }
+        } finally {
+            drainingThread = null;
+            draining.set(false);
+            // a delivery queued between the last poll and resetting the flag must not be stranded
+            schedule();
+        }
+    }
+
+    private static void runDelivery(Runnable delivery) {
+        try {
+            delivery.run();
+        } catch (RuntimeException e) {
+            if (LOG.isErrorEnabled()) {
+                LOG.error("Failed to deliver a message to a local subscriber", e);
+            }
+        }
+    }
+
+    /**
+     * Receives the messages published by the same application.
+     */
+    @FunctionalInterface
+    public interface LocalSubscriber {
+
+        /**
+         * @param topic The topic the message was published to
+         * @param payload The serialized payload
+         * @param qos The qos the message is delivered with
+         */
+        void deliver(String topic, byte[] payload, int qos);
+    }
+
+    /**
+     * A registered local subscriber and its topic filter.
+     */
+    private record LocalSubscription(TopicTemplate template, int qos, LocalSubscriber subscriber) {
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.loopback;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration for delivering published messages straight to subscribers of the same application.
+ *
+ * @since 3.0.0
+ */
+@ConfigurationProperties(MqttLoopbackConfigurationProperties.PREFIX)
+public class MqttLoopbackConfigurationProperties {
+
+    public static final String PREFIX = "mqtt.loopback";
+
+    private static final boolean DEFAULT_ENABLED = false;
+    private static final int DEFAULT_QUEUE_SIZE = 10_000;
+
+    private boolean enabled = DEFAULT_ENABLED;
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+    private Duration queueTimeout = Duration.ofSeconds(10);
+
+    /**
+     * @return True if messages are delivered to local subscribers in process
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables in-process delivery to local subscribers. Requires MQTT 5 and a single
+     * connection. Default value {@value #DEFAULT_ENABLED}
+     *
+     * @param enabled True if it is enabled
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return The maximum number of local deliveries waiting for a subscriber
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Once the queue is full, publishers wait for a free slot.
+     * Default value {@value #DEFAULT_QUEUE_SIZE}
+     *
+     * @param queueSize The maximum number of local deliveries waiting for a subscriber
+     */
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * @return How long a publisher waits for a free slot in the full queue
+     */
+    public Duration getQueueTimeout() {
+        return queueTimeout;
+    }
+
+    /**
+     * @param queueTimeout How long a publisher waits for a free slot in the full queue before the publish fails. Default value 10 seconds
+     */
+    public void setQueueTimeout(Duration queueTimeout) {
+        this.queueTimeout = queueTimeout;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.mqtt.deduplication.MqttMessageDeduplicator;
+import jakarta.inject.Singleton;
+
+/**
+ * Exports the counters of the {@link MqttMessageDeduplicator}.
+ *
+ * @since 3.0.0
+ */
+@Singleton
+@Requires(classes = MeterBinder.class)
+@Requires(beans = {MeterRegistry.class, MqttMessageDeduplicator.class})
+public class MqttDeduplicationMetrics implements MeterBinder {
+
+    private final MqttMessageDeduplicator deduplicator;
+
+    /**
+     * @param deduplicator The deduplicator
+     */
+    public MqttDeduplicationMetrics(MqttMessageDeduplicator deduplicator) {
+        this.deduplicator = deduplicator;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("mqtt.subscriber.deduplication.checked", deduplicator, MqttMessageDeduplicator::getChecked)
+                .description("The number of received messages checked for duplicates")
+                .baseUnit(BaseUnits.MESSAGES)
+                .register(registry);
+        FunctionCounter.builder("mqtt.subscriber.deduplication.duplicates", deduplicator, MqttMessageDeduplicator::getDuplicates)
+                .description("The number of received messages dropped as duplicates")
+                .baseUnit(BaseUnits.MESSAGES)
+                .register(registry);
+        Gauge.builder("mqtt.subscriber.deduplication.hit.rate", deduplicator, MqttMessageDeduplicator::getHitRate)
+                .description("The ratio of duplicates to checked messages")
+                .register(registry);
+        Gauge.builder("mqtt.subscriber.deduplication.memory", deduplicator, MqttMessageDeduplicator::getSizeInBytes)
+                .description("The memory allocated to remember message keys")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.mqtt.flow.AdaptiveInflightWindow;
+import io.micronaut.mqtt.flow.InflightWindowRegistry;
+import jakarta.inject.Singleton;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports the state of the {@link AdaptiveInflightWindow} of each client, tagged with the
+ * name of the client.
+ *
+ * @since 3.0.0
+ */
+@Singleton
+@Requires(classes = MeterBinder.class)
+@Requires(beans = {MeterRegistry.class, InflightWindowRegistry.class})
+public class MqttInflightWindowMetrics implements MeterBinder {
+
+    private final InflightWindowRegistry windowRegistry;
+
+    /**
+     * @param windowRegistry The in-flight windows
+     */
+    public MqttInflightWindowMetrics(InflightWindowRegistry windowRegistry) {
+        this.windowRegistry = windowRegistry;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        windowRegistry.addWindowListener(window -> bindTo(registry, window));
+    }
+
+    private void bindTo(MeterRegistry registry, AdaptiveInflightWindow window) {
+        Tags tags = Tags.of("client", window.getClient().isEmpty() ? "default" : window.getClient());
+        Gauge.builder("mqtt.publisher.inflight.window", window, AdaptiveInflightWindow::getWindow)
+                .description("The number of messages that may be in flight")
+                .baseUnit(BaseUnits.MESSAGES)
+                .tags(tags)
+                .register(registry);
+        Gauge.builder("mqtt.publisher.inflight", window, AdaptiveInflightWindow::getInFlight)
+                .description("The number of messages waiting to be acknowledged by the broker")
+                .baseUnit(BaseUnits.MESSAGES)
+                .tags(tags)
+                .register(registry);
+        Gauge.builder("mqtt.publisher.inflight.queued", window, AdaptiveInflightWindow::getQueued)
+                .description("The number of messages waiting for room in the in-flight window")
+                .baseUnit(BaseUnits.MESSAGES)
+                .tags(tags)
+                .register(registry);
+        FunctionCounter.builder("mqtt.publisher.inflight.window.decreases", window, AdaptiveInflightWindow::getDecreases)
+                .description("The number of times the in-flight window was decreased")
+                .tags(tags)
+                .register(registry);
+        TimeGauge.builder("mqtt.publisher.ack.rtt", window, TimeUnit.NANOSECONDS, AdaptiveInflightWindow::getSmoothedRttNanos)
+                .description("The smoothed time it takes the broker to acknowledge a message")
+                .tags(tags)
+                .register(registry);
+        TimeGauge.builder("mqtt.publisher.ack.rtt.min", window, TimeUnit.NANOSECONDS, AdaptiveInflightWindow::getMinRttNanos)
+                .description("The lowest time it took the broker to acknowledge a message")
+                .tags(tags)
+                .register(registry);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.mqtt.latency.LatencyRegistry;
+import io.micronaut.mqtt.latency.SubscriberLatency;
+import jakarta.inject.Singleton;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports the end-to-end latency percentiles of each subscriber method during the last
+ * completed window, tagged with the subscriber method.
+ *
+ * @since 3.0.0
+ */
+@Singleton
+@Requires(classes = MeterBinder.class)
+@Requires(beans = {MeterRegistry.class, LatencyRegistry.class})
+public class MqttLatencyMetrics implements MeterBinder {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] QUANTILES = {"0.5", "0.9", "0.99", "0.999"};
+
+    private final LatencyRegistry latencyRegistry;
+
+    /**
+     * @param latencyRegistry The latencies
+     */
+    public MqttLatencyMetrics(LatencyRegistry latencyRegistry) {
+        this.latencyRegistry = latencyRegistry;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        latencyRegistry.addLatencyListener(latency -> bindTo(registry, latency));
+    }
+
+    private void bindTo(MeterRegistry registry, SubscriberLatency latency) {
+        Tags tags = Tags.of("subscriber", latency.getSubscriber());
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            double percentile = PERCENTILES[i];
+            TimeGauge.builder("mqtt.subscriber.latency", latency, TimeUnit.MICROSECONDS, l -> l.getValueAtPercentile(percentile))
+                    .description("The time between publishing a message and its arrival at the subscriber")
+                    .tags(tags)
+                    .tag("quantile", QUANTILES[i])
+                    .register(registry);
+        }
+        TimeGauge.builder("mqtt.subscriber.latency.max", latency, TimeUnit.MICROSECONDS, SubscriberLatency::getMax)
+                .description("The highest time between publishing a message and its arrival at the subscriber")
+                .tags(tags)
+                .register(registry);
+        Gauge.builder("mqtt.subscriber.latency.count", latency, SubscriberLatency::getCount)
+                .description("The number of stamped messages received during the last window")
+                .baseUnit(BaseUnits.MESSAGES)
+                .tags(tags)
+                .register(registry);
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.core.util.StringUtils;
+import io.micronaut.mqtt.observer.MqttObserver;
+import io.micronaut.mqtt.observer.MqttObserverConfigurationProperties;
+import jakarta.inject.Singleton;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records Micrometer metrics of publishing, subscriber invocations, payload serialization and
+ * connection state. Meters are tagged with the topic tags resolved by the
+ * {@link io.micronaut.mqtt.observer.MqttObservers}, so the number of meters is bounded.
+ *
+ * @since 3.0.0
+ */
+@Singleton
+@Requires(classes = MeterRegistry.class)
+@Requires(beans = MeterRegistry.class)
+@Requires(property = MqttObserverConfigurationProperties.PREFIX + ".enabled", notEquals = StringUtils.FALSE)
+public class MqttMicrometerObserver implements MqttObserver {
+
+    private static final String SUCCESS = "success";
+    private static final String FAILURE = "failure";
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<MeterKey, Timer> publishTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<MeterKey, Timer> handlerTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> bindingTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, SerDesMeters> serializers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, SerDesMeters> deserializers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> connectionsLost = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> reconnects = new ConcurrentHashMap<>();
+
+    /**
+     * @param registry The meter registry
+     */
+    public MqttMicrometerObserver(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void publishCompleted(@Nullable Object context, String client, String topicTag, int qos, long durationNanos, @Nullable Throwable error) {
+        MeterKey key = new MeterKey(client, topicTag, qos, error == null);
+        Timer timer = publishTimers.get(key);
+        if (timer == null) {
+            timer = publishTimers.computeIfAbsent(key, k -> Timer.builder("mqtt.publisher.publish")
+                    .description("The time between sending a message and its acknowledgement by the broker")
+                    .tag("client", clientTag(k.name))
+                    .tag("topic", k.topicTag)
+                    .tag("qos", String.valueOf(k.qos))
+                    .tag("outcome", k.success ? SUCCESS : FAILURE)
+                    .register(registry));
+        }
+        timer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void messageHandled(@Nullable Object context, String subscriber, String topic, String topicTag, int qos, int size,
+                               long queueNanos, long bindNanos, long handlerNanos, @Nullable Throwable error) {
+        MeterKey key = new MeterKey(subscriber, topicTag, qos, error == null);
+        Timer timer = handlerTimers.get(key);
+        if (timer == null) {
+            timer = handlerTimers.computeIfAbsent(key, k -> Timer.builder("mqtt.subscriber.invocation")
+                    .description("The time it took a subscriber method to handle a message")
+                    .tag("subscriber", k.name)
+                    .tag("topic", k.topicTag)
+                    .tag("qos", String.valueOf(k.qos))
+                    .tag("outcome", k.success ? SUCCESS : FAILURE)
+                    .register(registry));
+        }
+        timer.record(handlerNanos, TimeUnit.NANOSECONDS);
+        Timer bindingTimer = bindingTimers.get(subscriber);
+        if (bindingTimer == null) {
+            bindingTimer = bindingTimers.computeIfAbsent(subscriber, s -> Timer.builder("mqtt.subscriber.binding")
+                    .description("The time it took to bind the arguments of a subscriber method")
+                    .tag("subscriber", s)
+                    .register(registry));
+        }
+        bindingTimer.record(bindNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void serialized(@Nullable Object context, Class<?> type, int size, long durationNanos) {
+        SerDesMeters meters = serializers.get(type);
+        if (meters == null) {
+            meters = serializers.computeIfAbsent(type, t -> new SerDesMeters(registry, "mqtt.serdes.serialize", "serialize", t));
+        }
+        meters.record(size, durationNanos);
+    }
+
+    @Override
+    public void deserialized(@Nullable Object context, Class<?> type, int size, long durationNanos) {
+        SerDesMeters meters = deserializers.get(type);
+        if (meters == null) {
+            meters = deserializers.computeIfAbsent(type, t -> new SerDesMeters(registry, "mqtt.serdes.deserialize", "deserialize", t));
+        }
+        meters.record(size, durationNanos);
+    }
+
+    @Override
+    public void connected(String client, int connection, boolean reconnect) {
+        if (reconnect) {
+            reconnects.computeIfAbsent(client, c -> Counter.builder("mqtt.client.reconnects")
+                    .description("The number of times a lost connection was re-established")
+                    .tag("client", clientTag(c))
+                    .register(registry)).increment();
+        }
+    }
+
+    @Override
+    public void connectionLost(String client, int connection) {
+        connectionsLost.computeIfAbsent(client, c -> Counter.builder("mqtt.client.connection.lost")
+                .description("The number of times a connection to the broker was lost")
+                .tag("client", clientTag(c))
+                .register(registry)).increment();
+    }
+
+    private static String clientTag(String client) {
+        return client.isEmpty() ? "default" : client;
+    }
+
+    /**
+     * The timer and size distribution of serializing or deserializing a type.
+     */
+    private static final class SerDesMeters {
+
+        private final Timer timer;
+        private final DistributionSummary size;
+
+        SerDesMeters(MeterRegistry registry, String name, String action, Class<?> type) {
+            this.timer = Timer.builder(name)
+                    .description("The time it took to " + action + " a payload")
+                    .tag("type", type.getSimpleName())
+                    .register(registry);
+            this.size = DistributionSummary.builder(name + ".size")
+                    .description("The size of the serialized payloads")
+                    .baseUnit(BaseUnits.BYTES)
+                    .tag("type", type.getSimpleName())
+                    .register(registry);
+        }
+
+        void record(int bytes, long durationNanos) {
+            timer.record(durationNanos, TimeUnit.NANOSECONDS);
+            size.record(bytes);
+        }
+    }
+
+    /**
+     * Identifies the meter of a client or subscriber, topic tag, QoS and outcome.
+     */
+    private static final class MeterKey {
+
+        private final String name;
+        private final String topicTag;
+        private final int qos;
+        private final boolean success;
+
+        MeterKey(String name, String topicTag, int qos, boolean success) {
+            this.name = name;
+            this.topicTag = topicTag;
+            this.qos = qos;
+            this.success = success;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof MeterKey)) {
+                return false;
+            }
+            MeterKey other = (MeterKey) o;
+            return qos == other.qos && success == other.success && name.equals(other.name) && topicTag.equals(other.topicTag);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, topicTag, qos, success);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.mqtt.buffer.OfflinePublishBuffer;
+import jakarta.inject.Singleton;
+
+/**
+ * Exports the state of the {@link OfflinePublishBuffer}.
+ *
+ * @since 3.0.0
+ */
+@Singleton
+@Requires(classes = MeterBinder.class)
+@Requires(beans = {MeterRegistry.class, OfflinePublishBuffer.class})
+public class MqttOfflineBufferMetrics implements MeterBinder {
+
+    private final OfflinePublishBuffer offlineBuffer;
+
+    /**
+     * @param offlineBuffer The offline buffer
+     */
+    public MqttOfflineBufferMetrics(OfflinePublishBuffer offlineBuffer) {
+        this.offlineBuffer = offlineBuffer;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("mqtt.publisher.offline.buffer.messages", offlineBuffer, OfflinePublishBuffer::getBufferedMessages)
+                .description("The number of messages waiting to be published")
+                .baseUnit(BaseUnits.MESSAGES)
+                .register(registry);
+        Gauge.builder("mqtt.publisher.offline.buffer.size", offlineBuffer, OfflinePublishBuffer::getBufferedBytes)
+                .description("The size of the messages waiting to be published")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        FunctionCounter.builder("mqtt.publisher.offline.buffer.dropped", offlineBuffer, OfflinePublishBuffer::getDropped)
+                .description("The number of messages dropped because the buffer was full")
+                .baseUnit(BaseUnits.MESSAGES)
+                .register(registry);
+    }
+}
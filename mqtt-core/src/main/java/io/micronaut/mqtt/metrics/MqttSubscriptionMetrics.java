@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.mqtt.intercept.AbstractMqttSubscriberAdvice;
+import jakarta.inject.Singleton;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports the state of the subscriptions made by the {@link AbstractMqttSubscriberAdvice}.
+ *
+ * @since 3.0.0
+ */
+@Singleton
+@Requires(classes = MeterBinder.class)
+@Requires(beans = {MeterRegistry.class, AbstractMqttSubscriberAdvice.class})
+public class MqttSubscriptionMetrics implements MeterBinder {
+
+    private final AbstractMqttSubscriberAdvice<?> subscriberAdvice;
+
+    /**
+     * @param subscriberAdvice The subscriber advice
+     */
+    public MqttSubscriptionMetrics(AbstractMqttSubscriberAdvice<?> subscriberAdvice) {
+        this.subscriberAdvice = subscriberAdvice;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("mqtt.subscriber.subscriptions", subscriberAdvice, AbstractMqttSubscriberAdvice::getSubscriptionCount)
+                .description("The number of subscribed topic filters")
+                .register(registry);
+        TimeGauge.builder("mqtt.subscriber.startup.subscribe.duration", subscriberAdvice, TimeUnit.NANOSECONDS,
+                        advice -> advice.getStartupSubscriptionDuration().toNanos())
+                .description("The time it took to subscribe to all topic filters when the application started")
+                .register(registry);
+    }
+}
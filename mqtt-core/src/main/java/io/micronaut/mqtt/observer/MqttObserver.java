@@ -0,0 +1,168 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.observer;
+
+import io.micronaut.core.annotation.Nullable;
+
+/**
+ * Observes the messages published and received by the MQTT clients. Beans of this type are
+ * called on the publishing and receiving threads and must return quickly.
+ *
+ * <p>Topic tags passed to the observer have a bounded number of values, see
+ * {@link MqttObserverConfigurationProperties}.</p>
+ *
+ * <p>Methods ending with {@code Started} are called before the measured operation and may
+ * return a context, which is passed to the method called once the operation has completed.</p>
+ *
+ * @since 3.0.0
+ */
+public interface MqttObserver {
+
+    /**
+     * Messages are only measured while at least one observer is enabled.
+     *
+     * @return True if the observer currently records anything
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Called when a message is sent to the broker.
+     *
+     * @param client The name of the client, empty for the default client
+     * @param topic The topic the message is published to
+     * @param topicTag The topic tag
+     * @param qos The QoS of the message
+     * @param size The size of the payload in bytes
+     * @return A context passed to {@link #publishCompleted}, or null
+     */
+    @Nullable
+    default Object publishStarted(String client, String topic, String topicTag, int qos, int size) {
+        return null;
+    }
+
+    /**
+     * Called once the broker has acknowledged the message, or the publish has failed. For QoS 0
+     * messages the publish completes once the message has been written to the connection.
+     *
+     * @param context The context returned by {@link #publishStarted}
+     * @param client The name of the client, empty for the default client
+     * @param topicTag The topic tag
+     * @param qos The QoS of the message
+     * @param durationNanos The time between sending the message and its acknowledgement
+     * @param error The error if the publish failed
+     */
+    default void publishCompleted(@Nullable Object context, String client, String topicTag, int qos, long durationNanos, @Nullable Throwable error) {
+    }
+
+    /**
+     * Called before a received message is bound to the arguments of a subscriber method.
+     *
+     * @param subscriber The subscriber method, in the form {@code Type#method}
+     * @param topic The topic the message was received from
+     * @param topicTag The topic tag
+     * @param qos The QoS of the message
+     * @param size The size of the payload in bytes
+     * @return A context passed to {@link #messageHandled}, or null
+     */
+    @Nullable
+    default Object messageStarted(String subscriber, String topic, String topicTag, int qos, int size) {
+        return null;
+    }
+
+    /**
+     * Called once a received message has been handled by a subscriber method.
+     *
+     * @param context The context returned by {@link #messageStarted}
+     * @param subscriber The subscriber method, in the form {@code Type#method}
+     * @param topic The topic the message was received from
+     * @param topicTag The topic tag
+     * @param qos The QoS of the message
+     * @param size The size of the payload in bytes
+     * @param queueNanos The time between the arrival of the message and the start of binding,
+     *                   including the delay of a redelivery
+     * @param bindNanos The time it took to bind the arguments of the method
+     * @param handlerNanos The time it took the method to handle the message
+     * @param error The error if the message could not be bound or handled
+     */
+    default void messageHandled(@Nullable Object context, String subscriber, String topic, String topicTag, int qos, int size, long queueNanos, long bindNanos, long handlerNanos, @Nullable Throwable error) {
+    }
+
+    /**
+     * Called before a payload is serialized.
+     *
+     * @param type The type of the payload
+     * @return A context passed to {@link #serialized}, or null
+     */
+    @Nullable
+    default Object serializeStarted(Class<?> type) {
+        return null;
+    }
+
+    /**
+     * Called after a payload has been serialized.
+     *
+     * @param context The context returned by {@link #serializeStarted}
+     * @param type The type of the payload
+     * @param size The size of the serialized payload in bytes
+     * @param durationNanos The time it took to serialize the payload
+     */
+    default void serialized(@Nullable Object context, Class<?> type, int size, long durationNanos) {
+    }
+
+    /**
+     * Called before a payload is deserialized.
+     *
+     * @param type The type of the payload
+     * @param size The size of the serialized payload in bytes
+     * @return A context passed to {@link #deserialized}, or null
+     */
+    @Nullable
+    default Object deserializeStarted(Class<?> type, int size) {
+        return null;
+    }
+
+    /**
+     * Called after a payload has been deserialized.
+     *
+     * @param context The context returned by {@link #deserializeStarted}
+     * @param type The type of the payload
+     * @param size The size of the serialized payload in bytes
+     * @param durationNanos The time it took to deserialize the payload
+     */
+    default void deserialized(@Nullable Object context, Class<?> type, int size, long durationNanos) {
+    }
+
+    /**
+     * Called after a connection to the broker has been established.
+     *
+     * @param client The name of the client, empty for the default client
+     * @param connection The index of the connection within the client pool
+     * @param reconnect True if the connection was re-established after it had been lost
+     */
+    default void connected(String client, int connection, boolean reconnect) {
+    }
+
+    /**
+     * Called after a connection to the broker has been lost.
+     *
+     * @param client The name of the client, empty for the default client
+     * @param connection The index of the connection within the client pool
+     */
+    default void connectionLost(String client, int connection) {
+    }
+}
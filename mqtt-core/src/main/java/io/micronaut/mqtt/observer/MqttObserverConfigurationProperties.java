@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.observer;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Configuration of the metrics and the topic tags passed to the {@link MqttObserver} beans.
+ *
+ * @since 3.0.0
+ */
+@ConfigurationProperties(MqttObserverConfigurationProperties.PREFIX)
+public class MqttObserverConfigurationProperties {
+
+    public static final String PREFIX = "mqtt.metrics";
+
+    private static final boolean DEFAULT_ENABLED = true;
+    private static final boolean DEFAULT_TEMPLATE_TAGS = true;
+    private static final String DEFAULT_OTHER_TAG = "other";
+
+    private boolean enabled = DEFAULT_ENABLED;
+    private List<String> topicTags = Collections.emptyList();
+    private boolean templateTags = DEFAULT_TEMPLATE_TAGS;
+    private String otherTag = DEFAULT_OTHER_TAG;
+
+    /**
+     * @return True if Micrometer metrics are recorded when a meter registry is present
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables the Micrometer metrics. Default value {@value #DEFAULT_ENABLED}
+     *
+     * @param enabled True if it is enabled
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return The topic filters used as topic tags
+     */
+    public List<String> getTopicTags() {
+        return topicTags;
+    }
+
+    /**
+     * A topic matching one of these filters, which may contain the {@code +} and {@code #}
+     * wildcards, is tagged with the first matching filter.
+     *
+     * @param topicTags The topic filters used as topic tags
+     */
+    public void setTopicTags(List<String> topicTags) {
+        this.topicTags = topicTags;
+    }
+
+    /**
+     * @return True if the topic of an annotation is used as the tag of topics matching no filter
+     */
+    public boolean isTemplateTags() {
+        return templateTags;
+    }
+
+    /**
+     * Topics matching none of the {@code topic-tags} are tagged with the topic of the
+     * {@code @Topic} annotation of the publisher or subscriber method, for example
+     * {@code devices/{id}/state}. Default value {@value #DEFAULT_TEMPLATE_TAGS}
+     *
+     * @param templateTags True if the topic of an annotation is used as the tag
+     */
+    public void setTemplateTags(boolean templateTags) {
+        this.templateTags = templateTags;
+    }
+
+    /**
+     * @return The tag of topics that match no filter and no annotation
+     */
+    public String getOtherTag() {
+        return otherTag;
+    }
+
+    /**
+     * @param otherTag The tag of topics that match no filter and no annotation. Default value {@value #DEFAULT_OTHER_TAG}
+     */
+    public void setOtherTag(String otherTag) {
+        this.otherTag = otherTag;
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.observer;
+
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.mqtt.client.MqttConnectionListener;
+import io.micronaut.mqtt.topic.TopicTemplate;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Notifies all {@link MqttObserver} beans and resolves the topic tags passed to them. Callers
+ * check {@link #isEmpty()} first to avoid measuring anything if no observer is registered, and
+ * {@link #isEnabled()} for each operation to skip measuring while all observers are disabled.
+ *
+ * @since 3.0.0
+ */
+@Singleton
+public class MqttObservers {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MqttObservers.class);
+
+    private final MqttObserver[] observers;
+    private final TopicTemplate[] topicTags;
+    private final boolean templateTags;
+    private final String otherTag;
+
+    /**
+     * @param observers The observers
+     * @param configuration The topic tag configuration
+     */
+    public MqttObservers(List<MqttObserver> observers, MqttObserverConfigurationProperties configuration) {
+        this.observers = observers.toArray(new MqttObserver[0]);
+        this.topicTags = configuration.getTopicTags().stream()
+                .map(TopicTemplate::compile)
+                .toArray(TopicTemplate[]::new);
+        this.templateTags = configuration.isTemplateTags();
+        this.otherTag = configuration.getOtherTag();
+    }
+
+    /**
+     * @return True if there are no observers
+     */
+    public boolean isEmpty() {
+        return observers.length == 0;
+    }
+
+    /**
+     * @return True if at least one observer is enabled, nothing is measured otherwise
+     */
+    public boolean isEnabled() {
+        for (MqttObserver observer : observers) {
+            if (observer.isEnabled()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Resolves the tag of a topic. The tag is the first configured topic filter matching the
+     * topic, otherwise the topic of the annotation if enabled, otherwise the tag for other topics.
+     *
+     * @param topic The topic
+     * @param template The topic of the annotation of the publisher or subscriber method, if any
+     * @return The topic tag
+     */
+    public String topicTag(String topic, @Nullable String template) {
+        for (TopicTemplate topicTag : topicTags) {
+            if (topicTag.matches(topic)) {
+                return topicTag.getTemplate();
+            }
+        }
+        if (templateTags && template != null) {
+            return template;
+        }
+        return otherTag;
+    }
+
+    /**
+     * @see MqttObserver#publishStarted
+     * @param client The name of the client
+     * @param topic The topic
+     * @param topicTag The topic tag
+     * @param qos The QoS
+     * @param size The size of the payload
+     * @return The context to pass to {@link #publishCompleted}
+     */
+    @Nullable
+    public Object publishStarted(String client, String topic, String topicTag, int qos, int size) {
+        if (observers.length == 1) {
+            try {
+                return observers[0].publishStarted(client, topic, topicTag, qos, size);
+            } catch (RuntimeException e) {
+                failed(observers[0], e);
+                return null;
+            }
+        }
+        Object[] contexts = new Object[observers.length];
+        for (int i = 0; i < observers.length; i++) {
+            try {
+                contexts[i] = observers[i].publishStarted(client, topic, topicTag, qos, size);
+            } catch (RuntimeException e) {
+                failed(observers[i], e);
+            }
+        }
+        return contexts;
+    }
+
+    /**
+     * @see MqttObserver#publishCompleted
+     * @param context The context returned by {@link #publishStarted}
+     * @param client The name of the client
+     * @param topicTag The topic tag
+     * @param qos The QoS
+     * @param durationNanos The time between sending the message and its acknowledgement
+     * @param error The error if the publish failed
+     */
+    public void publishCompleted(@Nullable Object context, String client, String topicTag, int qos, long durationNanos, @Nullable Throwable error) {
+        for (int i = 0; i < observers.length; i++) {
+            try {
+                observers[i].publishCompleted(context(context, i), client, topicTag, qos, durationNanos, error);
+            } catch (RuntimeException e) {
+                failed(observers[i], e);
+            }
+        }
+    }
+
+    /**
+     * @see MqttObserver#messageStarted
+     * @param subscriber The subscriber method
+     * @param topic The topic
+     * @param topicTag The topic tag
+     * @param qos The QoS
+     * @param size The size of the payload
+     * @return The context to pass to {@link #messageHandled}
+     */
+    @Nullable
+    public Object messageStarted(String subscriber, String topic, String topicTag, int qos, int size) {
+        if (observers.length == 1) {
+            try {
+                return observers[0].messageStarted(subscriber, topic, topicTag, qos, size);
+            } catch (RuntimeException e) {
+                failed(observers[0], e);
+                return null;
+            }
+        }
+        Object[] contexts = new Object[observers.length];
+        for (int i = 0; i < observers.length; i++) {
+            try {
+                contexts[i] = observers[i].messageStarted(subscriber, topic, topicTag, qos, size);
+            } catch (RuntimeException e) {
+                failed(observers[i], e);
+            }
+        }
+        return contexts;
+    }
+
+    /**
+     * @see MqttObserver#messageHandled
+     * @param context The context returned by {@link #messageStarted}
+     * @param subscriber The subscriber method
+     * @param topic The topic
+     * @param topicTag The topic tag
+     * @param qos The QoS
+     * @param size The size of the payload
+     * @param queueNanos The time between the arrival of the message and the start of binding
+     * @param bindNanos The time it took to bind the arguments
+     * @param handlerNanos The time it took to handle the message
+     * @param error The error if the message could not be bound or handled
+     */
+    public void messageHandled(@Nullable Object context, String subscriber, String topic, String topicTag, int qos, int size,
+                               long queueNanos, long bindNanos, long handlerNanos, @Nullable Throwable error) {
+        for (int i = 0; i < observers.length; i++) {
+            try {
+                observers[i].messageHandled(context(context, i), subscriber, topic, topicTag, qos, size, queueNanos, bindNanos, handlerNanos, error);
+            } catch (RuntimeException e) {
+                failed(observers[i], e);
+            }
+        }
+    }
+
+    /**
+     * @see MqttObserver#serializeStarted
+     * @param type The type of the payload
+     * @return The context to pass to {@link #serialized}
+     */
+    @Nullable
+    public Object serializeStarted(Class<?> type) {
+        if (observers.length == 1) {
+            try {
+                return observers[0].serializeStarted(type);
+            } catch (RuntimeException e) {
+                failed(observers[0], e);
+                return null;
+            }
+        }
+        Object[] contexts = new Object[observers.length];
+        for (int i = 0; i < observers.length; i++) {
+            try {
+                contexts[i] = observers[i].serializeStarted(type);
+            } catch (RuntimeException e) {
+                failed(observers[i], e);
+            }
+        }
+        return contexts;
+    }
+
+    /**
+     * @see MqttObserver#serialized
+     * @param context The context returned by {@link #serializeStarted}
+     * @param type The type of the payload
+     * @param size The size of the serialized payload
+     * @param durationNanos The time it took
+     */
+    public void serialized(@Nullable Object context, Class<?> type, int size, long durationNanos) {
+        for (int i = 0; i < observers.length; i++) {
+            try {
+                observers[i].serialized(context(context, i), type, size, durationNanos);
+            } catch (RuntimeException e) {
+                failed(observers[i], e);
+            }
+        }
+    }
+
+    /**
+     * @see MqttObserver#deserializeStarted
+     * @param type The type of the payload
+     * @param size The size of the serialized payload
+     * @return The context to pass to {@link #deserialized}
+     */
+    @Nullable
+    public Object deserializeStarted(Class<?> type, int size) {
+        if (observers.length == 1) {
+            try {
+                return observers[0].deserializeStarted(type, size);
+            } catch (RuntimeException e) {
+                failed(observers[0], e);
+                return null;
+            }
+        }
+        Object[] contexts = new Object[observers.length];
+        for (int i = 0; i < observers.length; i++) {
+            try {
+                contexts[i] = observers[i].deserializeStarted(type, size);
+            } catch (RuntimeException e) {
+                failed(observers[i], e);
+            }
+        }
+        return contexts;
+    }
+
+    /**
+     * @see MqttObserver#deserialized
+     * @param context The context returned by {@link #deserializeStarted}
+     * @param type The type of the payload
+     * @param size The size of the serialized payload
+     * @param durationNanos The time it took
+     */
+    public void deserialized(@Nullable Object context, Class<?> type, int size, long durationNanos) {
+        for (int i = 0; i < observers.length; i++) {
+            try {
+                observers[i].deserialized(context(context, i), type, size, durationNanos);
+            } catch (RuntimeException e) {
+                failed(observers[i], e);
+            }
+        }
+    }
+
+    /**
+     * @param client The name of the client, empty for the default client
+     * @return A listener passing the connection events of the client to the observers
+     */
+    public MqttConnectionListener connectionListener(String client) {
+        return new MqttConnectionListener() {
+            @Override
+            public void connected(int connection, boolean reconnect) {
+                for (MqttObserver observer : observers) {
+                    observer.connected(client, connection, reconnect);
+                }
+            }
+
+            @Override
+            public void disconnected(int connection) {
+                for (MqttObserver observer : observers) {
+                    observer.connectionLost(client, connection);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return The context of the observer at the given index, contexts of several observers are held in an array
+     */
+    @Nullable
+    private Object context(@Nullable Object context, int index) {
+        return observers.length == 1 || context == null ? context : ((Object[]) context)[index];
+    }
+
+    private static void failed(MqttObserver observer, RuntimeException e) {
+        if (LOG.isWarnEnabled()) {
+            LOG.warn("MQTT observer [{}] failed", observer, e);
+        }
+    }
+}
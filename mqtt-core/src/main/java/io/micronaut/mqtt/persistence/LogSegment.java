@@ -0,0 +1,209 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * A memory-mapped file of the segment log. Each record is written as its length, a checksum,
+ * the record type, the key length, the key and the value. The length is written last, so
+ * records interrupted by a crash are either missing or fail the checksum when recovered.
+ */
+final class LogSegment {
+
+    static final byte PUT = 1;
+    static final byte TOMBSTONE = 2;
+    // length, checksum, type and key length
+    static final int HEADER_SIZE = 4 + 4 + 1 + 2;
+
+    private final Path path;
+    private final long sequence;
+    private final MappedByteBuffer buffer;
+    private int writePosition;
+    private long liveBytes;
+
+    private LogSegment(Path path, long sequence, MappedByteBuffer buffer) {
+        this.path = path;
+        this.sequence = sequence;
+        this.buffer = buffer;
+    }
+
+    /**
+     * @param path The file
+     * @param sequence The sequence number
+     * @param size The size in bytes
+     * @return A new, empty segment
+     * @throws IOException If the file could not be mapped
+     */
+    static LogSegment create(Path path, long sequence, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new LogSegment(path, sequence, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    /**
+     * @param path The file
+     * @param sequence The sequence number
+     * @return The segment written by a previous run, positioned at the start
+     * @throws IOException If the file could not be mapped
+     */
+    static LogSegment open(Path path, long sequence) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new LogSegment(path, sequence, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Appends a record.
+     *
+     * @param type The record type
+     * @param key The key
+     * @param header The first part of the value
+     * @param headerOffset The offset of the first part
+     * @param headerLength The length of the first part
+     * @param payload The second part of the value, can be null
+     * @param payloadOffset The offset of the second part
+     * @param payloadLength The length of the second part
+     * @return The offset of the record or -1 if the segment is full
+     */
+    int append(byte type, byte[] key, byte[] header, int headerOffset, int headerLength, byte[] payload, int payloadOffset, int payloadLength) {
+        int size = HEADER_SIZE + key.length + headerLength + payloadLength;
+        if (writePosition + size > buffer.capacity()) {
+            return -1;
+        }
+        int offset = writePosition;
+        buffer.put(offset + 8, type);
+        buffer.putShort(offset + 9, (short) key.length);
+        buffer.put(offset + HEADER_SIZE, key);
+        if (headerLength > 0) {
+            buffer.put(offset + HEADER_SIZE + key.length, header, headerOffset, headerLength);
+        }
+        if (payloadLength > 0) {
+            buffer.put(offset + HEADER_SIZE + key.length + headerLength, payload, payloadOffset, payloadLength);
+        }
+        buffer.putInt(offset + 4, checksum(offset, size));
+        buffer.putInt(offset, size - 4);
+        writePosition += size;
+        return offset;
+    }
+
+    /**
+     * @param offset The offset of a record
+     * @return The size of the record at the offset or -1 if there is no valid record
+     */
+    int recordSize(int offset) {
+        if (offset + HEADER_SIZE > buffer.capacity()) {
+            return -1;
+        }
+        int size = buffer.getInt(offset) + 4;
+        if (size < HEADER_SIZE || offset + size > buffer.capacity()) {
+            return -1;
+        }
+        if (buffer.getInt(offset + 4) != checksum(offset, size)) {
+            return -1;
+        }
+        return size;
+    }
+
+    /**
+     * @param offset The offset of a record
+     * @return The record type
+     */
+    byte type(int offset) {
+        return buffer.get(offset + 8);
+    }
+
+    /**
+     * @param offset The offset of a record
+     * @return The key of the record
+     */
+    String key(int offset) {
+        byte[] key = new byte[keyLength(offset)];
+        buffer.get(offset + HEADER_SIZE, key);
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param offset The offset of a record
+     * @param size The size of the record
+     * @return The value of the record
+     */
+    byte[] value(int offset, int size) {
+        int keyLength = keyLength(offset);
+        byte[] value = new byte[size - HEADER_SIZE - keyLength];
+        buffer.get(offset + HEADER_SIZE + keyLength, value);
+        return value;
+    }
+
+    /**
+     * Forces the written records to the storage device.
+     */
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Deletes the file.
+     *
+     * @throws IOException If the file could not be deleted
+     */
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    int getWritePosition() {
+        return writePosition;
+    }
+
+    void setWritePosition(int writePosition) {
+        this.writePosition = writePosition;
+    }
+
+    int getRemaining() {
+        return buffer.capacity() - writePosition;
+    }
+
+    long getLiveBytes() {
+        return liveBytes;
+    }
+
+    void addLiveBytes(long bytes) {
+        liveBytes += bytes;
+    }
+
+    private int keyLength(int offset) {
+        return buffer.getShort(offset + 9) & 0xFFFF;
+    }
+
+    private int checksum(int offset, int size) {
+        CRC32C crc = new CRC32C();
+        ByteBuffer record = buffer.slice(offset + 8, size - 8);
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+}
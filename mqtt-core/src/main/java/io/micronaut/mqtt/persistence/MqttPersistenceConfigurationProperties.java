@@ -0,0 +1,218 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.persistence;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.core.convert.format.ReadableBytes;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Configuration for the persistence of in-flight messages.
+ *
+ * @since 3.0.0
+ */
+@ConfigurationProperties(MqttPersistenceConfigurationProperties.PREFIX)
+public class MqttPersistenceConfigurationProperties {
+
+    public static final String PREFIX = "mqtt.client.persistence";
+
+    /**
+     * Selects the {@link SegmentLogStore} backed persistence.
+     */
+    public static final String TYPE_SEGMENT_LOG = "segment-log";
+
+    /**
+     * Selects the {@link OffHeapStore} backed persistence.
+     */
+    public static final String TYPE_OFF_HEAP = "off-heap";
+
+    private static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+    private static final double DEFAULT_COMPACTION_THRESHOLD = 0.5;
+    private static final int DEFAULT_SLAB_SIZE = 1024 * 1024;
+    private static final long DEFAULT_MAX_OFF_HEAP_SIZE = 512L * 1024 * 1024;
+
+    private String type;
+    private Path directory = Paths.get(System.getProperty("java.io.tmpdir"), "micronaut-mqtt-persistence");
+    private int segmentSize = DEFAULT_SEGMENT_SIZE;
+    private Durability durability = Durability.ASYNC;
+    private Duration groupCommitInterval = Duration.ofMillis(2);
+    private Duration compactionInterval = Duration.ofSeconds(10);
+    private double compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+    private int slabSize = DEFAULT_SLAB_SIZE;
+    private long maxOffHeapSize = DEFAULT_MAX_OFF_HEAP_SIZE;
+
+    /**
+     * @return The type of persistence
+     */
+    @Nullable
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * If not set, the default persistence of the client is used.
+     *
+     * @param type The type of persistence, {@value #TYPE_SEGMENT_LOG} or {@value #TYPE_OFF_HEAP}
+     */
+    public void setType(@Nullable String type) {
+        this.type = type;
+    }
+
+    /**
+     * @return The directory the segment log is stored in
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @param directory The directory the segment log is stored in. Default value is a directory in {@code java.io.tmpdir}
+     */
+    public void setDirectory(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return The size of each memory-mapped segment file
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * @param segmentSize The size of each memory-mapped segment file. Default value 16MB
+     */
+    public void setSegmentSize(@ReadableBytes int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * @return When writes are forced to the storage device
+     */
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * @param durability When writes are forced to the storage device. Default value ASYNC
+     */
+    public void setDurability(Durability durability) {
+        this.durability = durability;
+    }
+
+    /**
+     * @return How long writes are collected before they are forced to the storage device together
+     */
+    public Duration getGroupCommitInterval() {
+        return groupCommitInterval;
+    }
+
+    /**
+     * @param groupCommitInterval How long writes are collected before they are forced to the storage device together. Default value 2 milliseconds
+     */
+    public void setGroupCommitInterval(Duration groupCommitInterval) {
+        this.groupCommitInterval = groupCommitInterval;
+    }
+
+    /**
+     * @return How often segments are checked for compaction
+     */
+    public Duration getCompactionInterval() {
+        return compactionInterval;
+    }
+
+    /**
+     * @param compactionInterval How often segments are checked for compaction. Default value 10 seconds
+     */
+    public void setCompactionInterval(Duration compactionInterval) {
+        this.compactionInterval = compactionInterval;
+    }
+
+    /**
+     * @return The ratio of live data below which a segment is compacted
+     */
+    public double getCompactionThreshold() {
+        return compactionThreshold;
+    }
+
+    /**
+     * @param compactionThreshold The ratio of live data below which a segment is compacted. Default value {@value #DEFAULT_COMPACTION_THRESHOLD}
+     */
+    public void setCompactionThreshold(double compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * @return The size of each direct buffer slab messages are stored in
+     */
+    public int getSlabSize() {
+        return slabSize;
+    }
+
+    /**
+     * @param slabSize The size of each direct buffer slab messages are stored in. Default value 1MB
+     */
+    public void setSlabSize(@ReadableBytes int slabSize) {
+        this.slabSize = slabSize;
+    }
+
+    /**
+     * @return The maximum amount of direct memory allocated for messages
+     */
+    public long getMaxOffHeapSize() {
+        return maxOffHeapSize;
+    }
+
+    /**
+     * @param maxOffHeapSize The maximum amount of direct memory allocated for messages. Default value 512MB
+     */
+    public void setMaxOffHeapSize(@ReadableBytes long maxOffHeapSize) {
+        this.maxOffHeapSize = maxOffHeapSize;
+    }
+
+    /**
+     * Determines when writes to the segment log are forced to the storage device.
+     */
+    public enum Durability {
+
+        /**
+         * Writes are never forced. They survive a crash of the application, but not of the operating system.
+         */
+        NONE,
+
+        /**
+         * Writes are forced together by a background thread once per group commit interval, without waiting for them.
+         * Writes made within the last interval may be lost in a crash of the operating system.
+         */
+        ASYNC,
+
+        /**
+         * Writers wait until their write has been forced. Writes made within the group commit interval are forced together.
+         * Paho stores a message while holding the lock of the client, so each connection completes at most one
+         * write per interval.
+         */
+        GROUP,
+
+        /**
+         * Every write is forced before it returns.
+         */
+        ALWAYS
+    }
+}
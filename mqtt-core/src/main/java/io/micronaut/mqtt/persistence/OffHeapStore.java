@@ -0,0 +1,392 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.persistence;
+
+import io.micronaut.core.annotation.Internal;
+import io.micronaut.core.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A key value store for in-flight messages that keeps the values outside of the heap. Values
+ * are copied into chunks carved out of pooled direct buffer slabs, with one slab per power of
+ * two chunk size. Freed chunks are reused for values of the same size class. Values larger
+ * than a slab get a direct buffer of their own.
+ *
+ * <p>Keys of the form {@code <prefix>-<message id>}, as used by the Paho clients, are packed
+ * into a long and looked up in an open addressing index of primitive arrays, so storing a
+ * message does not allocate on the heap.</p>
+ *
+ * @since 3.0.0
+ */
+@Internal
+public final class OffHeapStore {
+
+    private static final int MIN_CHUNK_SHIFT = 6;
+    private static final long OTHER_KEY = 1L << 63;
+
+    private final int slabSize;
+    private final long maxSize;
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final LongStack freeSlabs = new LongStack();
+    private final LongStack[] freeChunks;
+    private final LongIndex index = new LongIndex();
+    private final Map<String, Long> otherKeys = new HashMap<>();
+    private final Map<Long, String> otherKeyNames = new HashMap<>();
+    private long nextOtherKey;
+    private long allocated;
+
+    /**
+     * @param slabSize The size of each slab in bytes, rounded up to a power of two
+     * @param maxSize The maximum number of bytes allocated
+     */
+    public OffHeapStore(int slabSize, long maxSize) {
+        this.slabSize = Math.max(1 << MIN_CHUNK_SHIFT, Integer.highestOneBit(slabSize - 1) << 1);
+        this.maxSize = maxSize;
+        this.freeChunks = new LongStack[Integer.numberOfTrailingZeros(this.slabSize) - MIN_CHUNK_SHIFT + 1];
+        for (int i = 0; i < freeChunks.length; i++) {
+            freeChunks[i] = new LongStack();
+        }
+    }
+
+    /**
+     * Stores the value, made of two parts, under the key.
+     *
+     * @param key The key
+     * @param header The first part of the value
+     * @param headerOffset The offset of the first part
+     * @param headerLength The length of the first part
+     * @param payload The second part of the value, can be null
+     * @param payloadOffset The offset of the second part
+     * @param payloadLength The length of the second part
+     * @throws IllegalStateException If the maximum size would be exceeded
+     */
+    public synchronized void put(String key, byte[] header, int headerOffset, int headerLength, @Nullable byte[] payload, int payloadOffset, int payloadLength) {
+        if (payload == null) {
+            payloadLength = 0;
+        }
+        int length = headerLength + payloadLength;
+        long handle = allocate(length);
+        long code = code(key, true);
+        int slot = index.find(code);
+        if (slot >= 0) {
+            free(index.handles[slot], index.lengths[slot]);
+            index.removeAt(slot);
+        }
+        ByteBuffer slab = slabs.get(slab(handle));
+        int offset = offset(handle);
+        slab.put(offset, header, headerOffset, headerLength);
+        if (payloadLength > 0) {
+            slab.put(offset + headerLength, payload, payloadOffset, payloadLength);
+        }
+        index.put(code, handle, length);
+    }
+
+    /**
+     * @param key The key
+     * @return A copy of the value or null if the key is not present
+     */
+    @Nullable
+    public synchronized byte[] get(String key) {
+        int slot = index.find(code(key, false));
+        if (slot < 0) {
+            return null;
+        }
+        long handle = index.handles[slot];
+        byte[] value = new byte[index.lengths[slot]];
+        slabs.get(slab(handle)).get(offset(handle), value);
+        return value;
+    }
+
+    /**
+     * @param key The key
+     * @return True if the key is present
+     */
+    public synchronized boolean containsKey(String key) {
+        return index.find(code(key, false)) >= 0;
+    }
+
+    /**
+     * @param key The key
+     */
+    public synchronized void remove(String key) {
+        long code = code(key, false);
+        int slot = index.find(code);
+        if (slot >= 0) {
+            free(index.handles[slot], index.lengths[slot]);
+            index.removeAt(slot);
+            if ((code & OTHER_KEY) != 0) {
+                otherKeys.remove(key);
+                otherKeyNames.remove(code);
+            }
+        }
+    }
+
+    /**
+     * @return A copy of the keys present
+     */
+    public synchronized Set<String> keys() {
+        Set<String> keys = new HashSet<>(index.size * 2);
+        for (long code : index.keys) {
+            if (code != 0) {
+                keys.add(name(code));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * @return The number of keys present
+     */
+    public synchronized int size() {
+        return index.size;
+    }
+
+    /**
+     * @return The number of bytes allocated for slabs
+     */
+    public synchronized long getAllocatedBytes() {
+        return allocated;
+    }
+
+    /**
+     * Removes all keys and releases the slabs.
+     */
+    public synchronized void clear() {
+        index.clear();
+        otherKeys.clear();
+        otherKeyNames.clear();
+        slabs.clear();
+        freeSlabs.size = 0;
+        for (LongStack stack : freeChunks) {
+            stack.size = 0;
+        }
+        allocated = 0;
+    }
+
+    private long allocate(int length) {
+        if (length > slabSize) {
+            return newSlab(length) << 32;
+        }
+        int sizeClass = sizeClass(length);
+        LongStack free = freeChunks[sizeClass];
+        if (free.size == 0) {
+            int chunkSize = 1 << (sizeClass + MIN_CHUNK_SHIFT);
+            long slab = newSlab(slabSize);
+            for (int offset = slabSize - chunkSize; offset >= 0; offset -= chunkSize) {
+                free.push(slab << 32 | offset);
+            }
+        }
+        return free.pop();
+    }
+
+    private void free(long handle, int length) {
+        if (length > slabSize) {
+            int slab = slab(handle);
+            slabs.set(slab, null);
+            freeSlabs.push(slab);
+            allocated -= length;
+        } else {
+            freeChunks[sizeClass(length)].push(handle);
+        }
+    }
+
+    private long newSlab(int size) {
+        if (allocated + size > maxSize) {
+            throw new IllegalStateException("Storing the message would exceed the maximum off-heap size of " + maxSize + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+        allocated += size;
+        if (freeSlabs.size > 0) {
+            int slab = (int) freeSlabs.pop();
+            slabs.set(slab, buffer);
+            return slab;
+        }
+        slabs.add(buffer);
+        return slabs.size() - 1;
+    }
+
+    private static int sizeClass(int length) {
+        int shift = length <= 1 << MIN_CHUNK_SHIFT ? MIN_CHUNK_SHIFT : 32 - Integer.numberOfLeadingZeros(length - 1);
+        return shift - MIN_CHUNK_SHIFT;
+    }
+
+    private static int slab(long handle) {
+        return (int) (handle >>> 32);
+    }
+
+    private static int offset(long handle) {
+        return (int) handle;
+    }
+
+    private long code(String key, boolean create) {
+        int dash = key.lastIndexOf('-');
+        if (dash > 0 && dash <= 4 && dash < key.length() - 1 && key.length() - dash <= 10) {
+            long prefix = 0;
+            boolean valid = true;
+            for (int i = 0; i < dash && valid; i++) {
+                char c = key.charAt(i);
+                valid = c > 0 && c < 128;
+                prefix = prefix << 8 | c;
+            }
+            long id = 0;
+            for (int i = dash + 1; i < key.length() && valid; i++) {
+                char c = key.charAt(i);
+                valid = c >= '0' && c <= '9';
+                id = id * 10 + (c - '0');
+            }
+            if (valid && id <= Integer.MAX_VALUE) {
+                return prefix << 32 | id;
+            }
+        }
+        Long code = otherKeys.get(key);
+        if (code == null) {
+            if (!create) {
+                return OTHER_KEY;
+            }
+            code = OTHER_KEY | ++nextOtherKey;
+            otherKeys.put(key, code);
+            otherKeyNames.put(code, key);
+        }
+        return code;
+    }
+
+    private String name(long code) {
+        if ((code & OTHER_KEY) != 0) {
+            return otherKeyNames.get(code);
+        }
+        int prefix = (int) (code >>> 32);
+        byte[] bytes = new byte[4];
+        int length = 0;
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            int c = prefix >>> shift & 0xFF;
+            if (c != 0) {
+                bytes[length++] = (byte) c;
+            }
+        }
+        return new String(bytes, 0, length, StandardCharsets.US_ASCII) + '-' + (code & 0xFFFFFFFFL);
+    }
+
+    /**
+     * A growable stack of longs.
+     */
+    private static final class LongStack {
+
+        private long[] values = new long[16];
+        private int size;
+
+        void push(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long pop() {
+            return values[--size];
+        }
+    }
+
+    /**
+     * An open addressing hash index with linear probing. Zero marks an empty slot, which is
+     * never a valid key since key prefixes are not empty.
+     */
+    private static final class LongIndex {
+
+        private long[] keys = new long[64];
+        private long[] handles = new long[64];
+        private int[] lengths = new int[64];
+        private int size;
+
+        int find(long key) {
+            int mask = keys.length - 1;
+            for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+                long existing = keys[slot];
+                if (existing == key) {
+                    return slot;
+                }
+                if (existing == 0) {
+                    return -1;
+                }
+            }
+        }
+
+        void put(long key, long handle, int length) {
+            if ((size + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            handles[slot] = handle;
+            lengths[slot] = length;
+            size++;
+        }
+
+        void removeAt(int slot) {
+            int mask = keys.length - 1;
+            // shift back the following entries of the probe sequence so lookups need no tombstones
+            int gap = slot;
+            for (int next = (gap + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+                int home = mix(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    keys[gap] = keys[next];
+                    handles[gap] = handles[next];
+                    lengths[gap] = lengths[next];
+                    gap = next;
+                }
+            }
+            keys[gap] = 0;
+            size--;
+        }
+
+        void clear() {
+            Arrays.fill(keys, 0);
+            size = 0;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            long[] oldHandles = handles;
+            int[] oldLengths = lengths;
+            keys = new long[capacity];
+            handles = new long[capacity];
+            lengths = new int[capacity];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i], oldHandles[i], oldLengths[i]);
+                }
+            }
+        }
+
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
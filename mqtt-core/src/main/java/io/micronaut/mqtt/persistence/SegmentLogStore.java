@@ -0,0 +1,457 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.persistence;
+
+import io.micronaut.core.annotation.Internal;
+import io.micronaut.core.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * A key value store for in-flight messages backed by an append-only log of memory-mapped
+ * segments. The location of the latest value of each key is kept in memory. Removing a key
+ * appends a tombstone. Segments that mostly contain overwritten or removed values are
+ * compacted in the background by copying the remaining values to the end of the log.
+ *
+ * <p>With {@link MqttPersistenceConfigurationProperties.Durability#ASYNC} a background thread
+ * forces the writes to the storage device periodically. With
+ * {@link MqttPersistenceConfigurationProperties.Durability#GROUP} writers additionally wait
+ * until their write has been forced, and all writes made in the meantime are forced together.</p>
+ *
+ * @since 3.0.0
+ */
+@Internal
+public final class SegmentLogStore implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SegmentLogStore.class);
+    private static final String SUFFIX = ".seg";
+    private static final byte[] EMPTY = new byte[0];
+
+    private final Path directory;
+    private final int segmentSize;
+    private final MqttPersistenceConfigurationProperties.Durability durability;
+    private final long groupCommitNanos;
+    private final long compactionNanos;
+    private final double compactionThreshold;
+    private final TreeMap<Long, LogSegment> segments = new TreeMap<>();
+    private final Map<String, Location> index = new HashMap<>();
+    private final Set<LogSegment> dirty = new HashSet<>();
+    private final Object syncLock = new Object();
+    private LogSegment active;
+    private long nextSequence;
+    private long written;
+    private long synced;
+    private volatile boolean closed = true;
+    private Thread background;
+
+    /**
+     * @param directory The directory of the log
+     * @param configuration The persistence configuration
+     */
+    public SegmentLogStore(Path directory, MqttPersistenceConfigurationProperties configuration) {
+        this.directory = directory;
+        this.segmentSize = configuration.getSegmentSize();
+        this.durability = configuration.getDurability();
+        this.groupCommitNanos = Math.max(1, configuration.getGroupCommitInterval().toNanos());
+        this.compactionNanos = configuration.getCompactionInterval().toNanos();
+        this.compactionThreshold = configuration.getCompactionThreshold();
+    }
+
+    /**
+     * @param clientId The client id
+     * @param serverUri The server URI, can be null
+     * @return A directory name unique to the client
+     */
+    public static String directoryName(String clientId, @Nullable String serverUri) {
+        String name = serverUri == null ? clientId : clientId + '-' + serverUri;
+        StringBuilder builder = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            builder.append(Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == '.' ? c : '_');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Opens the log, recovering the values written by a previous run.
+     *
+     * @throws IOException If the log could not be read
+     */
+    public synchronized void open() throws IOException {
+        if (!closed) {
+            return;
+        }
+        Files.createDirectories(directory);
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(directory)) {
+            stream.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).sorted().forEach(files::add);
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long sequence = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+            recover(LogSegment.open(file, sequence));
+            nextSequence = sequence + 1;
+        }
+        if (active == null) {
+            active = newSegment(segmentSize);
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Opened the segment log in {} with {} segments and {} keys", directory, segments.size(), index.size());
+        }
+        closed = false;
+        if (isForcedInBackground() || compactionNanos > 0) {
+            background = new Thread(this::runBackground, "mqtt-persistence-" + directory.getFileName());
+            background.setDaemon(true);
+            background.start();
+        }
+    }
+
+    /**
+     * Stores the value, made of two parts, under the key.
+     *
+     * @param key The key
+     * @param header The first part of the value
+     * @param headerOffset The offset of the first part
+     * @param headerLength The length of the first part
+     * @param payload The second part of the value, can be null
+     * @param payloadOffset The offset of the second part
+     * @param payloadLength The length of the second part
+     */
+    public void put(String key, byte[] header, int headerOffset, int headerLength, @Nullable byte[] payload, int payloadOffset, int payloadLength) {
+        long ticket;
+        synchronized (this) {
+            ensureOpen();
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            Location location = append(LogSegment.PUT, keyBytes, header, headerOffset, headerLength, payload, payloadOffset, payload == null ? 0 : payloadLength);
+            release(index.put(key, location));
+            ticket = ++written;
+        }
+        commit(ticket);
+    }
+
+    /**
+     * @param key The key
+     * @return The value or null if the key is not present
+     */
+    @Nullable
+    public synchronized byte[] get(String key) {
+        ensureOpen();
+        Location location = index.get(key);
+        return location == null ? null : location.segment.value(location.offset, location.size);
+    }
+
+    /**
+     * @param key The key
+     * @return True if the key is present
+     */
+    public synchronized boolean containsKey(String key) {
+        ensureOpen();
+        return index.containsKey(key);
+    }
+
+    /**
+     * @return A copy of the keys present
+     */
+    public synchronized Set<String> keys() {
+        ensureOpen();
+        return new HashSet<>(index.keySet());
+    }
+
+    /**
+     * @return The number of keys present
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Removes the key. Removals are not waited for, since a removal that is lost in a crash
+     * only causes a message to be delivered again.
+     *
+     * @param key The key
+     */
+    public synchronized void remove(String key) {
+        ensureOpen();
+        Location location = index.remove(key);
+        if (location != null) {
+            release(location);
+            append(LogSegment.TOMBSTONE, key.getBytes(StandardCharsets.UTF_8), EMPTY, 0, 0, null, 0, 0);
+            written++;
+        }
+    }
+
+    /**
+     * Removes all keys and deletes the segments.
+     */
+    public synchronized void clear() {
+        ensureOpen();
+        for (LogSegment segment : segments.values()) {
+            delete(segment);
+        }
+        segments.clear();
+        dirty.clear();
+        index.clear();
+        active = newSegment(segmentSize);
+    }
+
+    /**
+     * Compacts the segments with a ratio of live data below the configured threshold.
+     */
+    public synchronized void compact() {
+        if (closed) {
+            return;
+        }
+        List<LogSegment> candidates = new ArrayList<>();
+        for (LogSegment segment : segments.values()) {
+            if (segment != active && segment.getLiveBytes() < segment.getWritePosition() * compactionThreshold) {
+                candidates.add(segment);
+            }
+        }
+        for (LogSegment segment : candidates) {
+            compact(segment);
+        }
+    }
+
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            thread = background;
+            background = null;
+            for (LogSegment segment : dirty) {
+                segment.force();
+            }
+            dirty.clear();
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+        synchronized (syncLock) {
+            synced = Long.MAX_VALUE;
+            syncLock.notifyAll();
+        }
+        synchronized (this) {
+            segments.clear();
+            index.clear();
+            active = null;
+        }
+    }
+
+    private void recover(LogSegment segment) {
+        int offset = 0;
+        int size;
+        while ((size = segment.recordSize(offset)) > 0) {
+            String key = segment.key(offset);
+            if (segment.type(offset) == LogSegment.PUT) {
+                release(index.put(key, new Location(segment, offset, size)));
+                segment.addLiveBytes(size);
+            } else {
+                release(index.remove(key));
+            }
+            offset += size;
+        }
+        segment.setWritePosition(offset);
+        segments.put(segment.getSequence(), segment);
+        active = segment;
+    }
+
+    private void compact(LogSegment segment) {
+        boolean oldest = segments.firstKey() == segment.getSequence();
+        int offset = 0;
+        int size;
+        while (offset < segment.getWritePosition() && (size = segment.recordSize(offset)) > 0) {
+            String key = segment.key(offset);
+            if (segment.type(offset) == LogSegment.PUT) {
+                Location location = index.get(key);
+                if (location != null && location.segment == segment && location.offset == offset) {
+                    byte[] value = segment.value(offset, size);
+                    release(location);
+                    index.put(key, append(LogSegment.PUT, key.getBytes(StandardCharsets.UTF_8), value, 0, value.length, null, 0, 0));
+                }
+            } else if (!oldest && !index.containsKey(key)) {
+                // an older segment may still hold a value for the key
+                append(LogSegment.TOMBSTONE, key.getBytes(StandardCharsets.UTF_8), EMPTY, 0, 0, null, 0, 0);
+            }
+            offset += size;
+        }
+        // the copies must be durable before the original is deleted
+        active.force();
+        segments.remove(segment.getSequence());
+        dirty.remove(segment);
+        delete(segment);
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("Compacted segment {} of the segment log in {}", segment.getSequence(), directory);
+        }
+    }
+
+    private Location append(byte type, byte[] key, byte[] header, int headerOffset, int headerLength, byte[] payload, int payloadOffset, int payloadLength) {
+        int size = LogSegment.HEADER_SIZE + key.length + headerLength + payloadLength;
+        int offset = active.append(type, key, header, headerOffset, headerLength, payload, payloadOffset, payloadLength);
+        if (offset < 0) {
+            if (dirty.remove(active)) {
+                active.force();
+            }
+            active = newSegment(Math.max(segmentSize, size));
+            offset = active.append(type, key, header, headerOffset, headerLength, payload, payloadOffset, payloadLength);
+        }
+        dirty.add(active);
+        if (type == LogSegment.PUT) {
+            active.addLiveBytes(size);
+        }
+        return new Location(active, offset, size);
+    }
+
+    private void release(@Nullable Location location) {
+        if (location != null) {
+            location.segment.addLiveBytes(-location.size);
+        }
+    }
+
+    private void commit(long ticket) {
+        switch (durability) {
+            case ALWAYS:
+                synchronized (this) {
+                    forceDirty();
+                }
+                break;
+            case GROUP:
+                synchronized (syncLock) {
+                    boolean interrupted = false;
+                    while (synced < ticket) {
+                        try {
+                            syncLock.wait();
+                        } catch (InterruptedException e) {
+                            interrupted = true;
+                        }
+                    }
+                    if (interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                break;
+            case ASYNC:
+            case NONE:
+            default:
+                break;
+        }
+    }
+
+    private boolean isForcedInBackground() {
+        return durability == MqttPersistenceConfigurationProperties.Durability.ASYNC
+                || durability == MqttPersistenceConfigurationProperties.Durability.GROUP;
+    }
+
+    private void runBackground() {
+        long lastCompaction = System.nanoTime();
+        while (!closed) {
+            LockSupport.parkNanos(groupCommitNanos);
+            long target;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                target = written;
+                if (target > synced && isForcedInBackground()) {
+                    forceDirty();
+                }
+            }
+            if (target > synced) {
+                synchronized (syncLock) {
+                    synced = target;
+                    syncLock.notifyAll();
+                }
+            }
+            if (compactionNanos > 0 && System.nanoTime() - lastCompaction >= compactionNanos) {
+                lastCompaction = System.nanoTime();
+                try {
+                    compact();
+                } catch (RuntimeException e) {
+                    if (LOG.isWarnEnabled()) {
+                        LOG.warn("Failed to compact the segment log in {}", directory, e);
+                    }
+                }
+            }
+        }
+    }
+
+    private void forceDirty() {
+        for (LogSegment segment : dirty) {
+            segment.force();
+        }
+        dirty.clear();
+    }
+
+    private LogSegment newSegment(int size) {
+        long sequence = nextSequence++;
+        try {
+            LogSegment segment = LogSegment.create(directory.resolve(String.format("%020d%s", sequence, SUFFIX)), sequence, size);
+            segments.put(sequence, segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create a segment in " + directory, e);
+        }
+    }
+
+    private void delete(LogSegment segment) {
+        try {
+            segment.delete();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete segment " + segment.getSequence() + " in " + directory, e);
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("The segment log in " + directory + " is closed");
+        }
+    }
+
+    /**
+     * The location of the latest value of a key.
+     */
+    private static final class Location {
+
+        private final LogSegment segment;
+        private final int offset;
+        private final int size;
+
+        private Location(LogSegment segment, int offset, int size) {
+            this.segment = segment;
+            this.offset = offset;
+            this.size = size;
+        }
+    }
+}
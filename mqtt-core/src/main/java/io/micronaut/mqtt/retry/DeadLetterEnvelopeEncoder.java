@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.retry;
+
+import io.micronaut.mqtt.bind.MqttBindingContext;
+import io.micronaut.mqtt.exception.MqttClientException;
+import io.micronaut.mqtt.exception.MqttSubscriberException;
+import io.micronaut.json.JsonMapper;
+import jakarta.inject.Singleton;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Encodes dead letters as a JSON envelope for protocols without message properties. The
+ * envelope contains the {@link MqttDeadLetterPublisher} metadata, the original qos and
+ * retained flag, the time of the failure and the original payload encoded as Base64.
+ *
+ * @since 3.0.0
+ */
+@Singleton
+public class DeadLetterEnvelopeEncoder {
+
+    /**
+     * The name of the original payload in the envelope.
+     */
+    public static final String PAYLOAD = "payload";
+
+    private final JsonMapper jsonMapper;
+
+    /**
+     * @param jsonMapper The json mapper
+     */
+    public DeadLetterEnvelopeEncoder(JsonMapper jsonMapper) {
+        this.jsonMapper = jsonMapper;
+    }
+
+    /**
+     * @param context The context of the message that failed
+     * @param exception The final failure
+     * @param attempts The number of attempts that were made
+     * @return The encoded envelope
+     */
+    public byte[] encode(MqttBindingContext<?> context, MqttSubscriberException exception, int attempts) {
+        Throwable cause = MqttDeadLetterPublisher.rootCause(exception);
+        Map<String, Object> envelope = new LinkedHashMap<>();
+        envelope.put(MqttDeadLetterPublisher.ORIGINAL_TOPIC, context.getTopic());
+        envelope.put("qos", context.getQos());
+        envelope.put("retained", context.isRetained());
+        envelope.put(MqttDeadLetterPublisher.EXCEPTION, cause.getClass().getName());
+        envelope.put(MqttDeadLetterPublisher.EXCEPTION_MESSAGE, cause.getMessage());
+        envelope.put(MqttDeadLetterPublisher.ATTEMPTS, attempts);
+        envelope.put("timestamp", System.currentTimeMillis());
+        byte[] payload = context.getPayload();
+        envelope.put(PAYLOAD, payload == null ? null : Base64.getEncoder().encodeToString(payload));
+        try {
+            return jsonMapper.writeValueAsBytes(envelope);
+        } catch (IOException e) {
+            throw new MqttClientException("Failed to encode the dead letter envelope", e);
+        }
+    }
+}
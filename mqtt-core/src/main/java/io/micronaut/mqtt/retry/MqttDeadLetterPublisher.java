@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.retry;
+
+import io.micronaut.mqtt.bind.MqttBindingContext;
+import io.micronaut.mqtt.exception.MqttSubscriberException;
+
+/**
+ * Publishes messages that could not be processed to a dead letter topic along with
+ * the original topic and details of the failure. Implemented by each client module.
+ *
+ * @since 3.0.0
+ */
+public interface MqttDeadLetterPublisher {
+
+    /**
+     * The name of the original topic in the dead letter metadata.
+     */
+    String ORIGINAL_TOPIC = "originalTopic";
+
+    /**
+     * The name of the exception type in the dead letter metadata.
+     */
+    String EXCEPTION = "exception";
+
+    /**
+     * The name of the exception message in the dead letter metadata.
+     */
+    String EXCEPTION_MESSAGE = "exceptionMessage";
+
+    /**
+     * The name of the number of attempts in the dead letter metadata.
+     */
+    String ATTEMPTS = "attempts";
+
+    /**
+     * Publishes the message to the dead letter topic without waiting for completion.
+     *
+     * @param topic The dead letter topic
+     * @param qos The qos to publish with
+     * @param context The context of the message that failed
+     * @param exception The final failure
+     * @param attempts The number of attempts that were made
+     */
+    void publish(String topic, int qos, MqttBindingContext<?> context, MqttSubscriberException exception, int attempts);
+
+    /**
+     * @param exception The subscriber exception
+     * @return The exception that caused the failure
+     */
+    static Throwable rootCause(MqttSubscriberException exception) {
+        return exception.getCause() != null ? exception.getCause() : exception;
+    }
+}
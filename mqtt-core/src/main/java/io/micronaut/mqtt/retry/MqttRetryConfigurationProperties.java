@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.retry;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+import io.micronaut.core.annotation.Nullable;
+
+import java.time.Duration;
+
+/**
+ * Configuration for retrying messages that subscribers failed to process.
+ *
+ * @since 3.0.0
+ */
+@ConfigurationProperties(MqttRetryConfigurationProperties.PREFIX)
+public class MqttRetryConfigurationProperties {
+
+    public static final String PREFIX = "mqtt.subscriber.retry";
+
+    private static final boolean DEFAULT_ENABLED = false;
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final double DEFAULT_MULTIPLIER = 2.0;
+    private static final int DEFAULT_DEAD_LETTER_QOS = 1;
+
+    private boolean enabled = DEFAULT_ENABLED;
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private Duration initialDelay = Duration.ofSeconds(1);
+    private double multiplier = DEFAULT_MULTIPLIER;
+    private Duration maxDelay = Duration.ofMinutes(1);
+    private String deadLetterTopic;
+    private int deadLetterQos = DEFAULT_DEAD_LETTER_QOS;
+
+    /**
+     * @return True if failed messages should be retried
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables retrying of failed messages. Default value {@value #DEFAULT_ENABLED}
+     *
+     * @param enabled True if it is enabled
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return The maximum number of times a message is delivered to a subscriber
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @param maxAttempts The maximum number of times a message is delivered to a subscriber, including the first delivery. Default value {@value #DEFAULT_MAX_ATTEMPTS}
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * @return The delay before the first retry
+     */
+    public Duration getInitialDelay() {
+        return initialDelay;
+    }
+
+    /**
+     * @param initialDelay The delay before the first retry. Default value 1 second
+     */
+    public void setInitialDelay(Duration initialDelay) {
+        this.initialDelay = initialDelay;
+    }
+
+    /**
+     * @return The factor the delay is multiplied by for each subsequent retry
+     */
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    /**
+     * @param multiplier The factor the delay is multiplied by for each subsequent retry. Default value {@value #DEFAULT_MULTIPLIER}
+     */
+    public void setMultiplier(double multiplier) {
+        this.multiplier = multiplier;
+    }
+
+    /**
+     * @return The maximum delay between retries
+     */
+    public Duration getMaxDelay() {
+        return maxDelay;
+    }
+
+    /**
+     * @param maxDelay The maximum delay between retries. Default value 1 minute
+     */
+    public void setMaxDelay(Duration maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * @return The topic messages are published to once all attempts have failed
+     */
+    @Nullable
+    public String getDeadLetterTopic() {
+        return deadLetterTopic;
+    }
+
+    /**
+     * @param deadLetterTopic The topic messages are published to once all attempts have failed. If not set the messages are discarded.
+     */
+    public void setDeadLetterTopic(@Nullable String deadLetterTopic) {
+        this.deadLetterTopic = deadLetterTopic;
+    }
+
+    /**
+     * @return The qos dead letters are published with
+     */
+    public int getDeadLetterQos() {
+        return deadLetterQos;
+    }
+
+    /**
+     * @param deadLetterQos The qos dead letters are published with. Default value {@value #DEFAULT_DEAD_LETTER_QOS}
+     */
+    public void setDeadLetterQos(int deadLetterQos) {
+        this.deadLetterQos = deadLetterQos;
+    }
+
+    /**
+     * @param attempt The number of attempts made so far
+     * @return The delay before the next attempt
+     */
+    public Duration getDelay(int attempt) {
+        double delay = initialDelay.toMillis() * Math.pow(multiplier, Math.max(0, attempt - 1));
+        return Duration.ofMillis((long) Math.min(delay, maxDelay.toMillis()));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.retry;
+
+import io.micronaut.context.annotation.Primary;
+import io.micronaut.context.annotation.Replaces;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.core.util.StringUtils;
+import io.micronaut.mqtt.bind.MqttBindingContext;
+import io.micronaut.mqtt.exception.DefaultMqttSubscriberExceptionHandler;
+import io.micronaut.mqtt.exception.MqttMessageRedelivery;
+import io.micronaut.mqtt.exception.MqttSubscriberException;
+import io.micronaut.mqtt.exception.MqttSubscriberExceptionHandler;
+import io.micronaut.mqtt.executor.HashedWheelTimer;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * An exception handler that schedules messages that failed to be processed to be
+ * delivered again with an exponential backoff. Retries are scheduled on a
+ * {@link HashedWheelTimer} and run on the consumer executor, so the client callback
+ * thread is never blocked. Once the maximum number of attempts is reached, the
+ * message is published to the dead letter topic if one is configured.
+ *
+ * @since 3.0.0
+ */
+@Singleton
+@Primary
+@Replaces(DefaultMqttSubscriberExceptionHandler.class)
+@Requires(property = MqttRetryConfigurationProperties.PREFIX + ".enabled", value = StringUtils.TRUE)
+public class RetryingMqttSubscriberExceptionHandler implements MqttSubscriberExceptionHandler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RetryingMqttSubscriberExceptionHandler.class);
+
+    private final MqttRetryConfigurationProperties configuration;
+    private final HashedWheelTimer timer;
+    private final MqttDeadLetterPublisher deadLetterPublisher;
+
+    /**
+     * @param configuration The retry configuration
+     * @param timer The timer to schedule retries with
+     * @param deadLetterPublisher The dead letter publisher of the client module
+     */
+    public RetryingMqttSubscriberExceptionHandler(MqttRetryConfigurationProperties configuration,
+                                                  HashedWheelTimer timer,
+                                                  @Nullable MqttDeadLetterPublisher deadLetterPublisher) {
+        this.configuration = configuration;
+        this.timer = timer;
+        this.deadLetterPublisher = deadLetterPublisher;
+    }
+
+    @Override
+    public void handle(MqttSubscriberException exception) {
+        Optional<MqttMessageRedelivery> redelivery = exception.getRedelivery();
+        Optional<MqttBindingContext<?>> context = exception.getBindingContext();
+        if (redelivery.isEmpty() || context.isEmpty()) {
+            if (LOG.isErrorEnabled()) {
+                LOG.error(exception.getMessage(), exception);
+            }
+            return;
+        }
+        MqttMessageRedelivery delivery = redelivery.get();
+        int attempt = delivery.getAttempt();
+        if (attempt < configuration.getMaxAttempts()) {
+            Duration delay = configuration.getDelay(attempt);
+            if (LOG.isWarnEnabled()) {
+                LOG.warn("Attempt {} of {} failed to process a message from {}, retrying in {}ms: {}",
+                        attempt, configuration.getMaxAttempts(), context.get().getTopic(), delay.toMillis(), exception.getMessage());
+            }
+            timer.schedule(delivery::redeliver, delay);
+        } else {
+            String deadLetterTopic = configuration.getDeadLetterTopic();
+            if (LOG.isErrorEnabled()) {
+                LOG.error("Failed to process a message from {} after {} attempts{}", context.get().getTopic(), attempt,
+                        deadLetterTopic != null ? ", publishing it to " + deadLetterTopic : "", exception);
+            }
+            try {
+                if (deadLetterTopic != null && deadLetterPublisher != null) {
+                    deadLetterPublisher.publish(deadLetterTopic, configuration.getDeadLetterQos(), context.get(), exception, attempt);
+                }
+            } catch (Exception e) {
+                if (LOG.isErrorEnabled()) {
+                    LOG.error("Failed to publish a message to the dead letter topic {}", deadLetterTopic, e);
+                }
+            } finally {
+                delivery.acknowledge();
+            }
+        }
+    }
+}
@@ -80,6 +80,17 @@ public class JavaLangMqttPayloadSerDes implements MqttPayloadSerDes<Object> {
         return findSerDes(dataType).deserialize(payload, argument);
     }
 
+    @Override
+    public Object deserialize(ByteBuffer payload, Argument<Object> argument) {
+        Argument<?> dataType;
+        if (Collection.class.isAssignableFrom(argument.getType())) {
+            dataType = argument.getFirstTypeVariable().orElse(argument);
+        } else {
+            dataType = argument;
+        }
+        return findSerDes(dataType).deserialize(payload, argument);
+    }
+
     @Override
     public boolean supports(Argument<Object> argument) {
         return findSerDes(argument) != null;
@@ -201,6 +212,16 @@ public class JavaLangMqttPayloadSerDes implements MqttPayloadSerDes<Object> {
             }
         }
 
+        @Override
+        public String deserialize(ByteBuffer payload, Argument<String> argument) {
+            if (payload == null || !payload.hasRemaining()) {
+                return null;
+            } else {
+                // decoded straight from the buffer, which may be lent from a pool
+                return ENCODING.decode(payload.duplicate()).toString();
+            }
+        }
+
         @Override
         public byte[] serialize(String data) {
             if (data == null) {
@@ -487,7 +508,8 @@ public class JavaLangMqttPayloadSerDes implements MqttPayloadSerDes<Object> {
 
         @Override
         public boolean supports(Argument<ByteBuffer> argument) {
-            return argument.getType() == ByteBuffer.class;
+            // serialized buffers are looked up by their runtime type, a subclass of ByteBuffer
+            return ByteBuffer.class.isAssignableFrom(argument.getType());
         }
     }
 
@@ -22,6 +22,8 @@ import io.micronaut.json.JsonMapper;
 import jakarta.inject.Singleton;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Serializes and deserializes objects as JSON using Jackson.
@@ -61,6 +63,22 @@ public class JsonMqttPayloadSerDes implements MqttPayloadSerDes<Object> {
         }
     }
 
+    @Override
+    public Object deserialize(ByteBuffer payload, Argument<Object> type) {
+        if (payload == null || !payload.hasRemaining()) {
+            return null;
+        }
+        if (payload.hasArray()) {
+            return MqttPayloadSerDes.super.deserialize(payload, type);
+        }
+        try {
+            // parsed straight from the buffer, which may be lent from a pool
+            return jsonMapper.readValue(new ByteBufferInputStream(payload.duplicate()), type);
+        } catch (IOException e) {
+            throw new SerializationException("Error decoding JSON stream for type [" + type.getName() + "]: " + e.getMessage());
+        }
+    }
+
     @Override
     public byte[] serialize(Object data) {
         if (data == null) {
@@ -82,4 +100,39 @@ public class JsonMqttPayloadSerDes implements MqttPayloadSerDes<Object> {
     public boolean supports(Argument<Object> argument) {
         return !ClassUtils.isJavaBasicType(argument.getType());
     }
+
+    /**
+     * Reads the remaining bytes of a buffer.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
 }
@@ -19,6 +19,8 @@ import io.micronaut.core.annotation.Nullable;
 import io.micronaut.core.order.Ordered;
 import io.micronaut.core.type.Argument;
 
+import java.nio.ByteBuffer;
+
 /**
  * Responsible for serializing and deserializing MQTT message payloads.
  *
@@ -38,6 +40,29 @@ public interface MqttPayloadSerDes<T> extends Ordered {
     @Nullable
     T deserialize(byte[] payload, Argument<T> argument);
 
+    /**
+     * Deserializes the message into the requested type. The payload may be a view of a pooled
+     * buffer that is reused once the message has been delivered, so the result must not refer
+     * to it. The default copies the payload unless it wraps a whole array.
+     *
+     * @param payload The message to deserialize
+     * @param argument The type to be returned
+     * @return The deserialized body
+     * @since 3.0.0
+     */
+    @Nullable
+    default T deserialize(@Nullable ByteBuffer payload, Argument<T> argument) {
+        if (payload == null) {
+            return deserialize((byte[]) null, argument);
+        }
+        if (payload.hasArray() && payload.arrayOffset() == 0 && payload.position() == 0 && payload.remaining() == payload.array().length) {
+            return deserialize(payload.array(), argument);
+        }
+        byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+        return deserialize(bytes, argument);
+    }
+
     /**
      * Serializes the data into a byte[] to be published
      * to MQTT.
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.topic;
+
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.core.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A topic filter compiled once into its levels so that received topics can be
+ * matched, and any named variables extracted, without regular expressions or
+ * splitting the topic.
+ *
+ * Variables are declared as whole topic levels in the form {@code {name}} and are
+ * subscribed to as the single level wildcard {@code +}. Shared subscriptions
+ * ({@code $share/group/filter}) are matched against the filter following the group.
+ *
+ * @since 3.0.0
+ */
+public final class TopicTemplate {
+
+    private static final String SHARED_PREFIX = "$share/";
+    private static final byte LITERAL = 0;
+    private static final byte SINGLE_LEVEL = 1;
+    private static final byte MULTI_LEVEL = 2;
+
+    private final String template;
+    private final String filter;
+    private final String[] literals;
+    private final byte[] kinds;
+    private final int[] variableIndexes;
+    private final String[] variableNames;
+
+    private TopicTemplate(String template, String filter, String[] literals, byte[] kinds, int[] variableIndexes, String[] variableNames) {
+        this.template = template;
+        this.filter = filter;
+        this.literals = literals;
+        this.kinds = kinds;
+        this.variableIndexes = variableIndexes;
+        this.variableNames = variableNames;
+    }
+
+    /**
+     * Compiles the given topic template.
+     *
+     * @param template The topic filter, optionally containing {@code {name}} variables
+     * @return The compiled template
+     */
+    @NonNull
+    public static TopicTemplate compile(@NonNull String template) {
+        if (template.isEmpty()) {
+            throw new IllegalArgumentException("The topic filter must not be empty");
+        }
+        int start = 0;
+        if (template.startsWith(SHARED_PREFIX)) {
+            int groupEnd = template.indexOf('/', SHARED_PREFIX.length());
+            if (groupEnd < 0) {
+                throw new IllegalArgumentException("Invalid shared subscription: " + template);
+            }
+            start = groupEnd + 1;
+        }
+
+        List<String> literals = new ArrayList<>();
+        List<Byte> kinds = new ArrayList<>();
+        List<Integer> variableIndexes = new ArrayList<>();
+        List<String> variableNames = new ArrayList<>();
+        StringBuilder filter = new StringBuilder(template.length()).append(template, 0, start);
+
+        int pos = start;
+        while (true) {
+            int end = template.indexOf('/', pos);
+            if (end < 0) {
+                end = template.length();
+            }
+            String level = template.substring(pos, end);
+            if (pos > start) {
+                filter.append('/');
+            }
+            if (level.length() > 2 && level.charAt(0) == '{' && level.charAt(level.length() - 1) == '}') {
+                String name = level.substring(1, level.length() - 1);
+                if (variableNames.contains(name)) {
+                    throw new IllegalArgumentException("Duplicate topic variable {" + name + "} in " + template);
+                }
+                variableIndexes.add(kinds.size());
+                variableNames.add(name);
+                kinds.add(SINGLE_LEVEL);
+                literals.add(null);
+                filter.append('+');
+            } else if (level.equals("+")) {
+                kinds.add(SINGLE_LEVEL);
+                literals.add(null);
+                filter.append(level);
+            } else if (level.equals("#")) {
+                if (end != template.length()) {
+                    throw new IllegalArgumentException("The multi level wildcard must be the last level of " + template);
+                }
+                kinds.add(MULTI_LEVEL);
+                literals.add(null);
+                filter.append(level);
+            } else {
+                kinds.add(LITERAL);
+                literals.add(level);
+                filter.append(level);
+            }
+            if (end == template.length()) {
+                break;
+            }
+            pos = end + 1;
+        }
+
+        byte[] kindArray = new byte[kinds.size()];
+        for (int i = 0; i < kindArray.length; i++) {
+            kindArray[i] = kinds.get(i);
+        }
+        int[] levelVariables = new int[kindArray.length];
+        Arrays.fill(levelVariables, -1);
+        for (int i = 0; i < variableIndexes.size(); i++) {
+            levelVariables[variableIndexes.get(i)] = i;
+        }
+        return new TopicTemplate(
+                template,
+                filter.toString(),
+                literals.toArray(new String[0]),
+                kindArray,
+                levelVariables,
+                variableNames.toArray(new String[0]));
+    }
+
+    /**
+     * @return The template as it was declared
+     */
+    @NonNull
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * @return The topic filter to subscribe to, with all variables replaced by {@code +}
+     */
+    @NonNull
+    public String getFilter() {
+        return filter;
+    }
+
+    /**
+     * @return True if the template declares any variables
+     */
+    public boolean hasVariables() {
+        return variableNames.length > 0;
+    }
+
+    /**
+     * @return The names of the declared variables in the order they appear
+     */
+    @NonNull
+    public String[] getVariableNames() {
+        return variableNames.clone();
+    }
+
+    /**
+     * Determines whether the given topic matches this filter.
+     *
+     * @param topic The topic a message was published to
+     * @return True if the topic matches
+     */
+    public boolean matches(@NonNull String topic) {
+        return match(topic, null);
+    }
+
+    /**
+     * Matches the given topic and extracts the variables.
+     *
+     * @param topic The topic a message was published to
+     * @return The variables, or null if the topic does not match
+     */
+    @Nullable
+    public TopicVariables extract(@NonNull String topic) {
+        int[] offsets = new int[variableNames.length * 2];
+        if (match(topic, offsets)) {
+            return new TopicVariables(topic, variableNames, offsets);
+        }
+        return null;
+    }
+
+    private boolean match(String topic, @Nullable int[] offsets) {
+        int length = topic.length();
+        if (length > 0 && topic.charAt(0) == '$' && kinds[0] != LITERAL) {
+            // wildcards never match topics reserved by the server
+            return false;
+        }
+        int pos = 0;
+        for (int i = 0; i < kinds.length; i++) {
+            if (i > 0) {
+                if (pos == length) {
+                    // "a/#" also matches the parent level "a"
+                    return kinds[i] == MULTI_LEVEL && i == kinds.length - 1;
+                }
+                if (topic.charAt(pos) != '/') {
+                    return false;
+                }
+                pos++;
+            }
+            byte kind = kinds[i];
+            if (kind == MULTI_LEVEL) {
+                return true;
+            }
+            int end = topic.indexOf('/', pos);
+            if (end < 0) {
+                end = length;
+            }
+            if (kind == SINGLE_LEVEL) {
+                int variable = variableIndexes[i];
+                if (offsets != null && variable >= 0) {
+                    offsets[variable * 2] = pos;
+                    offsets[variable * 2 + 1] = end;
+                }
+            } else {
+                String literal = literals[i];
+                if (end - pos != literal.length() || !topic.regionMatches(pos, literal, 0, literal.length())) {
+                    return false;
+                }
+            }
+            pos = end;
+        }
+        return pos == length;
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+}
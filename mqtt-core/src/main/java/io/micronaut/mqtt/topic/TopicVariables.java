@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.topic;
+
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.core.annotation.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The variables extracted from a topic by a {@link TopicTemplate}. Values are
+ * only materialized when requested.
+ *
+ * @since 3.0.0
+ */
+public final class TopicVariables {
+
+    private final String topic;
+    private final String[] names;
+    private final int[] offsets;
+
+    /**
+     * @param topic The matched topic
+     * @param names The variable names
+     * @param offsets The start and end offset of each variable in the topic
+     */
+    TopicVariables(String topic, String[] names, int[] offsets) {
+        this.topic = topic;
+        this.names = names;
+        this.offsets = offsets;
+    }
+
+    /**
+     * @param name The variable name
+     * @return The value of the variable, or null if the template does not declare it
+     */
+    @Nullable
+    public String get(@NonNull String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return topic.substring(offsets[i * 2], offsets[i * 2 + 1]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The variables by name
+     */
+    @NonNull
+    public Map<String, String> asMap() {
+        Map<String, String> values = new LinkedHashMap<>(names.length);
+        for (int i = 0; i < names.length; i++) {
+            values.put(names[i], topic.substring(offsets[i * 2], offsets[i * 2 + 1]));
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return asMap().toString();
+    }
+}
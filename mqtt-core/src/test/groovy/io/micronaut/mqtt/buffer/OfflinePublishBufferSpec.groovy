@@ -0,0 +1,297 @@
+package io.micronaut.mqtt.buffer
+
+import io.micronaut.mqtt.client.MqttConnectionLifecycle
+import io.micronaut.mqtt.exception.MqttClientException
+import spock.lang.Specification
+import spock.lang.TempDir
+import spock.util.concurrent.PollingConditions
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CopyOnWriteArrayList
+
+class OfflinePublishBufferSpec extends Specification {
+
+    @TempDir
+    Path directory
+
+    MqttConnectionLifecycle lifecycle = new MqttConnectionLifecycle(10, true)
+    List<String> sent = new CopyOnWriteArrayList<>()
+    List<OfflinePublishBuffer> buffers = []
+
+    void cleanup() {
+        buffers*.close()
+    }
+
+    void "messages are published directly while connected"() {
+        given:
+        OfflinePublishBuffer buffer = createBuffer(memoryCapacity: 2)
+        lifecycle.connected(false)
+
+        expect:
+        !buffer.isBuffering()
+        buffer.offer(message("a")) == OfflinePublishBuffer.Result.PUBLISH
+    }
+
+    void "messages are spilled to disk and replayed in order"() {
+        given:
+        OfflinePublishBuffer buffer = createBuffer(memoryCapacity: 2, segmentSize: 128)
+        lifecycle.connected(false)
+        lifecycle.disconnected()
+
+        when:
+        def results = (1..10).collect { buffer.offer(message("m$it")) }
+
+        then:
+        results.every { it == OfflinePublishBuffer.Result.BUFFERED }
+        buffer.bufferedMessages == 10
+        Files.list(directory).count() > 0
+
+        when:
+        lifecycle.connected(true)
+        buffer.replay { sent.add(new String(it.payload)) }
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert sent == (1..10).collect { "m$it" }
+            assert buffer.bufferedMessages == 0
+        }
+        buffer.offer(message("direct")) == OfflinePublishBuffer.Result.PUBLISH
+    }
+
+    void "spilled messages are recovered after a restart"() {
+        given:
+        OfflinePublishBuffer buffer = createBuffer(memoryCapacity: 0)
+        lifecycle.connected(false)
+        lifecycle.disconnected()
+        (1..3).each { buffer.offer(message("m$it")) }
+
+        when:
+        OfflinePublishBuffer recovered = createBuffer(memoryCapacity: 0)
+
+        then:
+        recovered.bufferedMessages == 3
+        recovered.isBuffering()
+    }
+
+    void "completed messages are not replayed again after a restart"() {
+        given:
+        // each message with a two byte payload takes 24 bytes, so a segment holds two
+        OfflinePublishBuffer buffer = createBuffer(memoryCapacity: 0, segmentSize: 64)
+        lifecycle.connected(false)
+        lifecycle.disconnected()
+        (1..5).each { buffer.offer(message("m$it")) }
+        List<BufferedMessage> replayed = new CopyOnWriteArrayList<>()
+
+        when:
+        lifecycle.connected(true)
+        buffer.replay { replayed.add(it) }
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert replayed.size() == 5
+        }
+
+        when: "the first three messages complete out of order before the restart"
+        [2, 0, 1].each { replayed[it].complete(null) }
+        buffer.close()
+
+        then: "the fully completed segment is deleted"
+        Files.list(directory).count() == 2
+
+        when:
+        OfflinePublishBuffer recovered = createBuffer(memoryCapacity: 0, segmentSize: 64)
+        recovered.replay { sent.add(new String(it.payload)) }
+
+        then:
+        recovered.bufferedMessages == 2
+        new PollingConditions(timeout: 5).eventually {
+            assert sent == ["m4", "m5"]
+        }
+    }
+
+    void "a message completed ahead of an older one is replayed again after a restart"() {
+        given:
+        OfflinePublishBuffer buffer = createBuffer(memoryCapacity: 0)
+        lifecycle.connected(false)
+        lifecycle.disconnected()
+        (1..3).each { buffer.offer(message("m$it")) }
+        List<BufferedMessage> replayed = new CopyOnWriteArrayList<>()
+        lifecycle.connected(true)
+        buffer.replay { replayed.add(it) }
+        new PollingConditions(timeout: 5).eventually {
+            assert replayed.size() == 3
+        }
+
+        when:
+        replayed[1].complete(null)
+        buffer.close()
+        OfflinePublishBuffer recovered = createBuffer(memoryCapacity: 0)
+        recovered.replay { sent.add(new String(it.payload)) }
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert sent == ["m1", "m2", "m3"]
+        }
+    }
+
+    void "message properties are buffered with the message"() {
+        given:
+        OfflinePublishBuffer buffer = createBuffer(memoryCapacity: 1)
+        lifecycle.connected(false)
+        lifecycle.disconnected()
+        List<BufferedMessage> replayed = new CopyOnWriteArrayList<>()
+
+        when: "one message is held in memory and one is spilled to disk"
+        buffer.offer(new BufferedMessage("test/buffer", "a".bytes, 1, true, [1, 2] as byte[], null))
+        buffer.offer(new BufferedMessage("test/buffer", "b".bytes, 2, false, [3, 4, 5] as byte[], null))
+        lifecycle.connected(true)
+        buffer.replay { replayed.add(it) }
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert replayed.size() == 2
+        }
+        replayed.collect { it.getProperties().toList() } == [[1, 2], [3, 4, 5]]
+        replayed*.payload.collect { new String(it) } == ["a", "b"]
+        replayed*.qos == [1, 2]
+        replayed*.retained == [true, false]
+    }
+
+    void "the drop policy decides which message is discarded"() {
+        given:
+        OfflinePublishBuffer buffer = createBuffer(memoryCapacity: 2, maxDiskSize: 0, dropPolicy: policy)
+        lifecycle.connected(false)
+        lifecycle.disconnected()
+
+        when:
+        buffer.offer(message("a", 0))
+        buffer.offer(message("b", 1))
+        def result = buffer.offer(message("c", 1))
+        lifecycle.connected(true)
+        buffer.replay { sent.add(new String(it.payload)) }
+
+        then:
+        result == expectedResult
+        buffer.dropped == 1
+        new PollingConditions(timeout: 5).eventually {
+            assert sent == expected
+        }
+
+        where:
+        policy                             | expectedResult                      | expected
+        OfflineBufferDropPolicy.OLDEST     | OfflinePublishBuffer.Result.BUFFERED | ["b", "c"]
+        OfflineBufferDropPolicy.NEWEST     | OfflinePublishBuffer.Result.DROPPED  | ["a", "b"]
+        OfflineBufferDropPolicy.LOWEST_QOS | OfflinePublishBuffer.Result.BUFFERED | ["b", "c"]
+    }
+
+    void "a buffered message completes once the replayed message is acknowledged"() {
+        given:
+        OfflinePublishBuffer buffer = createBuffer(memoryCapacity: 1, segmentSize: 128)
+        lifecycle.connected(false)
+        lifecycle.disconnected()
+        CompletableFuture<Void> inMemory = new CompletableFuture<>()
+        CompletableFuture<Void> spilled = new CompletableFuture<>()
+        List<BufferedMessage> replayed = new CopyOnWriteArrayList<>()
+
+        when:
+        buffer.offer(message("a", 1, inMemory))
+        buffer.offer(message("b", 1, spilled))
+
+        then:
+        !inMemory.done
+        !spilled.done
+
+        when:
+        lifecycle.connected(true)
+        buffer.replay { replayed.add(it) }
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert replayed.size() == 2
+        }
+        !inMemory.done
+        !spilled.done
+
+        when:
+        replayed*.complete(null)
+
+        then:
+        inMemory.done && !inMemory.completedExceptionally
+        spilled.done && !spilled.completedExceptionally
+    }
+
+    void "a discarded message completes with an error"() {
+        given:
+        OfflinePublishBuffer buffer = createBuffer(memoryCapacity: 1, maxDiskSize: 0, dropPolicy: OfflineBufferDropPolicy.OLDEST)
+        lifecycle.connected(false)
+        lifecycle.disconnected()
+        CompletableFuture<Void> oldest = new CompletableFuture<>()
+        CompletableFuture<Void> closed = new CompletableFuture<>()
+
+        when:
+        buffer.offer(message("a", 1, oldest))
+        buffer.offer(message("b", 1, closed))
+
+        then:
+        oldest.completedExceptionally
+        !closed.done
+
+        when:
+        buffer.close()
+
+        then:
+        closed.completedExceptionally
+    }
+
+    void "the lowest qos policy keeps buffered messages if the new message does not fit"() {
+        given:
+        // each message with a two byte payload takes 24 bytes on disk
+        OfflinePublishBuffer buffer = createBuffer(memoryCapacity: 1, segmentSize: 128, maxDiskSize: 48, dropPolicy: OfflineBufferDropPolicy.LOWEST_QOS)
+        lifecycle.connected(false)
+        lifecycle.disconnected()
+        CompletableFuture<Void> lowest = new CompletableFuture<>()
+        buffer.offer(message("a0", 0, lowest))
+        buffer.offer(message("b1"))
+        buffer.offer(message("b2"))
+
+        when:
+        def result = buffer.offer(message("c-large"))
+
+        then:
+        result == OfflinePublishBuffer.Result.DROPPED
+        buffer.dropped == 1
+        buffer.bufferedMessages == 3
+        !lowest.done
+
+        when:
+        lifecycle.connected(true)
+        buffer.replay { sent.add(new String(it.payload)) }
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert sent == ["a0", "b1", "b2"]
+        }
+    }
+
+    private OfflinePublishBuffer createBuffer(Map properties) {
+        MqttOfflineBufferConfigurationProperties configuration = new MqttOfflineBufferConfigurationProperties()
+        configuration.directory = directory
+        configuration.replayRate = 10_000
+        properties.each { k, v -> configuration[k] = v }
+        OfflinePublishBuffer buffer = new OfflinePublishBuffer(configuration, lifecycle)
+        buffers << buffer
+        buffer
+    }
+
+    private static BufferedMessage message(String payload, int qos = 1, CompletableFuture<Void> future = null) {
+        new BufferedMessage("test/buffer", payload.bytes, qos, false, future == null ? null : { Throwable error ->
+            if (error == null) {
+                future.complete(null)
+            } else {
+                future.completeExceptionally(error)
+            }
+        })
+    }
+}
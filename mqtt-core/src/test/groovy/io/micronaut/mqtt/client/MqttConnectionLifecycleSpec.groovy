@@ -0,0 +1,79 @@
+package io.micronaut.mqtt.client
+
+import io.micronaut.mqtt.exception.MqttClientException
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class MqttConnectionLifecycleSpec extends Specification {
+
+    void "buffered publishes are sent once all connections are established"() {
+        given:
+        MqttConnectionLifecycle lifecycle = new MqttConnectionLifecycle(10, true, 2)
+        List<String> published = []
+
+        when:
+        lifecycle.defer({ published << "a" }, { throw it })
+        lifecycle.defer({ published << "b" }, { throw it })
+        lifecycle.connected(0, false)
+
+        then:
+        published.isEmpty()
+        lifecycle.bufferedCount == 2
+
+        when:
+        lifecycle.connected(1, false)
+
+        then:
+        published == ["a", "b"]
+        lifecycle.established
+        !lifecycle.defer({ published << "c" }, { throw it })
+    }
+
+    void "a publish that does not fit into the buffer fails through the error callback"() {
+        given:
+        MqttConnectionLifecycle lifecycle = new MqttConnectionLifecycle(1, true)
+        List<Throwable> errors = []
+
+        expect:
+        lifecycle.defer({}, { errors << it })
+        lifecycle.defer({}, { errors << it })
+        errors.size() == 1
+        errors[0] instanceof MqttClientException
+        lifecycle.bufferedCount == 1
+    }
+
+    void "a slow listener does not block other lifecycle calls"() {
+        given:
+        MqttConnectionLifecycle lifecycle = new MqttConnectionLifecycle(10, true, 2)
+        CountDownLatch entered = new CountDownLatch(1)
+        CountDownLatch release = new CountDownLatch(1)
+        lifecycle.addConnectionListener { connection, reconnect ->
+            if (connection == 0) {
+                entered.countDown()
+                release.await(5, TimeUnit.SECONDS)
+            }
+        }
+
+        when: "the listener of the first connection is blocked"
+        Thread thread = Thread.start { lifecycle.connected(0, false) }
+        entered.await(5, TimeUnit.SECONDS)
+
+        then: "the state has been updated and the other connection can report its state"
+        lifecycle.isConnected(0)
+        runsWithin { lifecycle.connected(1, false) }
+        runsWithin { lifecycle.disconnected(1) }
+        !lifecycle.connected
+
+        cleanup:
+        release.countDown()
+        thread?.join(5000)
+    }
+
+    private static boolean runsWithin(Closure<?> call) {
+        Thread thread = Thread.start(call)
+        thread.join(1000)
+        return !thread.alive
+    }
+}
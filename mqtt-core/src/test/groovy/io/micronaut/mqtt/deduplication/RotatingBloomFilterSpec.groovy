@@ -0,0 +1,87 @@
+package io.micronaut.mqtt.deduplication
+
+import spock.lang.Specification
+
+import java.util.function.LongSupplier
+
+class RotatingBloomFilterSpec extends Specification {
+
+    long now = 0
+    LongSupplier clock = { now } as LongSupplier
+
+    void "keys are remembered within the window"() {
+        given:
+        RotatingBloomFilter filter = new RotatingBloomFilter(1000, 0.001, 4, 4000, clock)
+        long key = MessageKeys.hash("a".bytes)
+
+        expect:
+        !filter.checkAndAdd(key)
+        filter.checkAndAdd(key)
+
+        when:
+        now = 2999
+
+        then:
+        filter.checkAndAdd(key)
+    }
+
+    void "looking up a key does not add it"() {
+        given:
+        RotatingBloomFilter filter = new RotatingBloomFilter(1000, 0.001, 4, 4000, clock)
+        long key = MessageKeys.hash("a".bytes)
+
+        expect:
+        !filter.contains(key)
+        !filter.contains(key)
+
+        when:
+        filter.add(key)
+
+        then:
+        filter.contains(key)
+    }
+
+    void "keys expire once the window has elapsed"() {
+        given:
+        RotatingBloomFilter filter = new RotatingBloomFilter(1000, 0.001, 4, 4000, clock)
+        long key = MessageKeys.hash("a".bytes)
+        filter.checkAndAdd(key)
+
+        when:
+        now = 4000
+
+        then:
+        !filter.checkAndAdd(key)
+    }
+
+    void "the false positive rate stays within bounds at the expected load"() {
+        given:
+        RotatingBloomFilter filter = new RotatingBloomFilter(100_000, 0.001, 4, 100_000, clock)
+        int falsePositives = 0
+
+        when:
+        for (int i = 0; i < 100_000; i++) {
+            now = i
+            if (filter.checkAndAdd(MessageKeys.hash("key-$i".toString()))) {
+                falsePositives++
+            }
+        }
+
+        then:
+        falsePositives < 100
+    }
+
+    void "memory does not depend on the number of keys"() {
+        given:
+        RotatingBloomFilter filter = new RotatingBloomFilter(1000, 0.001, 4, 4000, clock)
+        long size = filter.sizeInBytes
+
+        when:
+        for (int i = 0; i < 10_000; i++) {
+            filter.checkAndAdd(i)
+        }
+
+        then:
+        filter.sizeInBytes == size
+    }
+}
@@ -0,0 +1,100 @@
+package io.micronaut.mqtt.executor
+
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.time.Duration
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class HashedWheelTimerSpec extends Specification {
+
+    @AutoCleanup("shutdownNow")
+    ExecutorService executor = Executors.newFixedThreadPool(2)
+
+    @AutoCleanup
+    HashedWheelTimer timer = new HashedWheelTimer(executor, Duration.ofMillis(5), 8)
+
+    void "expired tasks run on an executor that is not scheduled"() {
+        given:
+        CountDownLatch latch = new CountDownLatch(3)
+
+        when:
+        3.times { timer.schedule(latch::countDown, Duration.ofMillis(20)) }
+
+        then:
+        latch.await(5, TimeUnit.SECONDS)
+    }
+
+    void "cancelled tasks do not run"() {
+        given:
+        AtomicInteger runs = new AtomicInteger()
+        CountDownLatch latch = new CountDownLatch(1)
+
+        when:
+        timer.schedule(runs::incrementAndGet, Duration.ofMillis(20)).cancel()
+        timer.schedule(latch::countDown, Duration.ofMillis(60))
+
+        then:
+        latch.await(5, TimeUnit.SECONDS)
+        runs.get() == 0
+    }
+
+    void "the wheel stops ticking once it is empty and starts again for new tasks"() {
+        given:
+        PollingConditions conditions = new PollingConditions(timeout: 5)
+        CountDownLatch first = new CountDownLatch(1)
+        CountDownLatch second = new CountDownLatch(1)
+
+        expect:
+        !timer.ticking
+
+        when:
+        timer.schedule(first::countDown, Duration.ofMillis(10))
+
+        then:
+        timer.ticking
+        first.await(5, TimeUnit.SECONDS)
+        conditions.eventually {
+            assert !timer.ticking
+        }
+
+        when: "a task is scheduled after an idle period longer than the wheel"
+        Thread.sleep(100)
+        long scheduled = System.nanoTime()
+        timer.schedule(second::countDown, Duration.ofMillis(30))
+
+        then: "it does not expire early"
+        second.await(5, TimeUnit.SECONDS)
+        System.nanoTime() - scheduled >= TimeUnit.MILLISECONDS.toNanos(25)
+    }
+
+    void "a task rejected by the executor does not stop the wheel"() {
+        given:
+        AtomicInteger executions = new AtomicInteger()
+        Executor rejectingFirst = { Runnable task ->
+            if (executions.incrementAndGet() == 1) {
+                throw new RejectedExecutionException("saturated")
+            }
+            executor.execute(task)
+        } as Executor
+        HashedWheelTimer rejectingTimer = new HashedWheelTimer(rejectingFirst, Duration.ofMillis(5), 8)
+        CountDownLatch latch = new CountDownLatch(1)
+
+        when:
+        rejectingTimer.schedule({ }, Duration.ofMillis(10))
+        rejectingTimer.schedule(latch::countDown, Duration.ofMillis(60))
+
+        then:
+        latch.await(5, TimeUnit.SECONDS)
+
+        cleanup:
+        rejectingTimer.close()
+    }
+}
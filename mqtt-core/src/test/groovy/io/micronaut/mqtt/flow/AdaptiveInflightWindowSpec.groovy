@@ -0,0 +1,115 @@
+package io.micronaut.mqtt.flow
+
+import spock.lang.Specification
+
+class AdaptiveInflightWindowSpec extends Specification {
+
+    MqttInflightWindowConfigurationProperties configuration = new MqttInflightWindowConfigurationProperties(
+            initialWindow: 2,
+            maxWindow: 20)
+
+    void "publishes beyond the window wait for an acknowledgement"() {
+        given:
+        AdaptiveInflightWindow window = new AdaptiveInflightWindow("", configuration)
+        List<AdaptiveInflightWindow.Permit> permits = []
+        List<Integer> published = []
+
+        when:
+        (1..4).each { i -> window.submit({ permit -> permits << permit; published << i; "token" }, {}) }
+
+        then:
+        published == [1, 2]
+        window.inFlight == 2
+        window.queued == 2
+
+        when:
+        permits[0].acknowledged()
+
+        then:
+        published == [1, 2, 3]
+        window.queued == 1
+    }
+
+    void "the window grows while it is used up and acknowledgements are fast"() {
+        given:
+        configuration.latencyTolerance = 1_000_000
+        AdaptiveInflightWindow window = new AdaptiveInflightWindow("", configuration)
+        List<AdaptiveInflightWindow.Permit> permits = []
+
+        when:
+        200.times {
+            window.getWindow().times { window.submit({ permit -> permits << permit; "token" }, {}) }
+            List<AdaptiveInflightWindow.Permit> acknowledged = new ArrayList<>(permits)
+            permits.clear()
+            acknowledged*.acknowledged()
+        }
+
+        then:
+        window.window == 20
+        window.minRttNanos > 0
+        window.smoothedRttNanos > 0
+    }
+
+    void "the window never exceeds the in-flight limit of the client"() {
+        given:
+        configuration.latencyTolerance = 1_000_000
+        configuration.initialWindow = 10
+        AdaptiveInflightWindow window = new AdaptiveInflightWindow("", configuration, 5)
+        List<AdaptiveInflightWindow.Permit> permits = []
+
+        when:
+        50.times {
+            window.getWindow().times { window.submit({ permit -> permits << permit; "token" }, {}) }
+            List<AdaptiveInflightWindow.Permit> acknowledged = new ArrayList<>(permits)
+            permits.clear()
+            acknowledged*.acknowledged()
+        }
+
+        then:
+        window.window == 5
+    }
+
+    void "a failed publish decreases the window"() {
+        given:
+        configuration.initialWindow = 10
+        AdaptiveInflightWindow window = new AdaptiveInflightWindow("", configuration)
+        AdaptiveInflightWindow.Permit permit
+
+        when:
+        window.submit({ p -> permit = p; "token" }, {})
+        permit.failed()
+
+        then:
+        window.window == 7
+        window.decreases == 1
+        window.inFlight == 0
+    }
+
+    void "messages that were not sent to the broker free their permit without a sample"() {
+        given:
+        AdaptiveInflightWindow window = new AdaptiveInflightWindow("", configuration)
+
+        when:
+        window.submit({ permit -> permit.acknowledged(); null }, {})
+        window.submit({ permit -> permit.failed(); null }, {})
+
+        then:
+        window.inFlight == 0
+        window.window == 2
+        window.minRttNanos == 0
+    }
+
+    void "waiting publishes fail when the window is closed"() {
+        given:
+        AdaptiveInflightWindow window = new AdaptiveInflightWindow("", configuration)
+        List<Throwable> errors = []
+
+        when:
+        3.times { window.submit({ permit -> "token" }, { errors << it }) }
+        window.close()
+
+        then:
+        errors.size() == 1
+        window.queued == 0
+    }
+}
@@ -0,0 +1,56 @@
+package io.micronaut.mqtt.jfr
+
+import io.micronaut.mqtt.observer.MqttObserverConfigurationProperties
+import io.micronaut.mqtt.observer.MqttObservers
+import jdk.jfr.Configuration
+import jdk.jfr.Recording
+import jdk.jfr.consumer.RecordedEvent
+import jdk.jfr.consumer.RecordingFile
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.Duration
+
+class MqttFlightRecorderObserverSpec extends Specification {
+
+    MqttObservers observers = new MqttObservers([new MqttFlightRecorderObserver()], new MqttObserverConfigurationProperties())
+
+    void "nothing is measured while no recording enables the events"() {
+        expect:
+        !observers.enabled
+        observers.publishStarted("", "a/b", "a/b", 1, 10) == null
+    }
+
+    void "the shipped settings record the MQTT events"() {
+        given:
+        Configuration configuration = getClass().getResourceAsStream("/META-INF/jfr/micronaut-mqtt.jfc").withReader {
+            Configuration.create(it)
+        }
+        Recording recording = new Recording(configuration.settings)
+        recording.enable(MqttMessageEvent.NAME).withThreshold(Duration.ZERO)
+        Path file = Files.createTempFile("mqtt", ".jfr")
+
+        when:
+        recording.start()
+        Object message = observers.messageStarted("MySubscriber#receive", "sensors/1", "sensors/{id}", 1, 5)
+        observers.messageHandled(message, "MySubscriber#receive", "sensors/1", "sensors/{id}", 1, 5, 100, 200, 300, null)
+        observers.connectionListener("").connected(0, true)
+        recording.stop()
+        recording.dump(file)
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file)
+
+        then:
+        observers.enabled
+        RecordedEvent event = events.find { it.eventType.name == MqttMessageEvent.NAME }
+        event.getString("subscriber") == "MySubscriber#receive"
+        event.getString("topic") == "sensors/1"
+        event.getDuration("queueWait").toNanos() == 100
+        event.getDuration("handlerTime").toNanos() == 300
+        events.find { it.eventType.name == MqttConnectionEvent.NAME }.getString("state") == "reconnected"
+
+        cleanup:
+        recording.close()
+        Files.deleteIfExists(file)
+    }
+}
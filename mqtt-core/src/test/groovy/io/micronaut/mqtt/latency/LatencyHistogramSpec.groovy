@@ -0,0 +1,47 @@
+package io.micronaut.mqtt.latency
+
+import spock.lang.Specification
+
+class LatencyHistogramSpec extends Specification {
+
+    void "percentiles are within the configured precision"() {
+        given:
+        LatencyHistogram histogram = new LatencyHistogram(3_600_000_000L, 2)
+        Random random = new Random(1)
+        List<Long> values = (1..10_000).collect { (long) Math.exp(random.nextGaussian() * 1.5 + 8) }.sort()
+        values.each { histogram.record(it) }
+
+        expect:
+        histogram.totalCount == 10_000
+        histogram.maxValue == values.last()
+        [50d, 90d, 99d, 99.9d].every { double percentile ->
+            long exact = values[(int) Math.ceil(percentile / 100 * values.size()) - 1]
+            Math.abs(histogram.getValueAtPercentile(percentile) - exact) <= exact / 100
+        }
+    }
+
+    void "values outside the trackable range are clamped"() {
+        given:
+        LatencyHistogram histogram = new LatencyHistogram(1000, 2)
+
+        when:
+        histogram.record(-5)
+        histogram.record(5000)
+
+        then:
+        histogram.getValueAtPercentile(50) == 0
+        histogram.maxValue == 1000
+    }
+
+    void "the send time is appended to and read from the payload"() {
+        given:
+        byte[] stamped = LatencyTrailer.append("hello".bytes, 1_700_000_000_123_456L)
+
+        expect:
+        stamped.length == 5 + LatencyTrailer.LENGTH
+        LatencyTrailer.read(stamped) == 1_700_000_000_123_456L
+        new String(LatencyTrailer.strip(stamped)) == "hello"
+        LatencyTrailer.read("hello world, no trailer".bytes) == -1
+        LatencyTrailer.read(new byte[0]) == -1
+    }
+}
@@ -0,0 +1,95 @@
+package io.micronaut.mqtt.loopback
+
+import io.micronaut.mqtt.exception.MqttClientException
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.time.Duration
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class MqttLoopbackSpec extends Specification {
+
+    @AutoCleanup("shutdownNow")
+    ExecutorService executor = Executors.newFixedThreadPool(2)
+
+    MqttLoopbackConfigurationProperties configuration = new MqttLoopbackConfigurationProperties(
+            enabled: true,
+            queueSize: 2,
+            queueTimeout: Duration.ofSeconds(10))
+
+    void "publishers wait for a free slot and messages are delivered in publish order"() {
+        given:
+        MqttLoopback loopback = new MqttLoopback(configuration, executor)
+        CountDownLatch release = new CountDownLatch(1)
+        List<String> delivered = new CopyOnWriteArrayList<>()
+        List<String> threads = new CopyOnWriteArrayList<>()
+        loopback.register("a/#", 1) { topic, payload, qos ->
+            release.await(5, TimeUnit.SECONDS)
+            delivered << new String(payload)
+            threads << Thread.currentThread().name
+        }
+        String publisher = Thread.currentThread().name
+
+        when:
+        Thread releaser = Thread.start {
+            sleep(200)
+            release.countDown()
+        }
+        (1..10).each { loopback.deliver("a/b", "$it".bytes, 1) }
+        releaser.join()
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert delivered == (1..10)*.toString()
+        }
+        !threads.contains(publisher)
+    }
+
+    void "a publish fails if no slot frees up in time"() {
+        given:
+        configuration.queueTimeout = Duration.ofMillis(100)
+        MqttLoopback loopback = new MqttLoopback(configuration, executor)
+        CountDownLatch release = new CountDownLatch(1)
+        loopback.register("a/#", 1) { topic, payload, qos -> release.await(5, TimeUnit.SECONDS) }
+
+        when:
+        4.times { loopback.deliver("a/b", "x".bytes, 1) }
+
+        then:
+        MqttClientException e = thrown()
+        e.message.contains("Timed out")
+
+        cleanup:
+        release.countDown()
+    }
+
+    void "a local subscriber publishing to the full queue fails instead of waiting for itself"() {
+        given:
+        configuration.queueSize = 1
+        MqttLoopback loopback = new MqttLoopback(configuration, executor)
+        List<Throwable> errors = new CopyOnWriteArrayList<>()
+        CountDownLatch done = new CountDownLatch(1)
+        loopback.register("a/#", 1) { topic, payload, qos ->
+            if (topic == "a/start") {
+                try {
+                    2.times { loopback.deliver("a/next", "x".bytes, 1) }
+                } catch (MqttClientException e) {
+                    errors << e
+                }
+                done.countDown()
+            }
+        }
+
+        when:
+        loopback.deliver("a/start", "x".bytes, 1)
+
+        then:
+        done.await(5, TimeUnit.SECONDS)
+        errors.size() == 1
+    }
+}
@@ -0,0 +1,68 @@
+package io.micronaut.mqtt.observer
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import io.micronaut.mqtt.metrics.MqttMicrometerObserver
+import spock.lang.Specification
+
+class MqttObserversSpec extends Specification {
+
+    void "topic tags are bounded by the allow-list and the annotated topics"() {
+        given:
+        MqttObservers observers = new MqttObservers([], new MqttObserverConfigurationProperties(
+                topicTags: ['sensors/+/temperature'],
+                templateTags: templateTags))
+
+        expect:
+        observers.topicTag(topic, template) == tag
+
+        where:
+        topic                        | template               | templateTags | tag
+        'sensors/1/temperature'      | 'sensors/{id}/+'       | true         | 'sensors/+/temperature'
+        'sensors/1/humidity'         | 'sensors/{id}/+'       | true         | 'sensors/{id}/+'
+        'sensors/1/humidity'         | 'sensors/{id}/+'       | false        | 'other'
+        'devices/1'                  | null                   | true         | 'other'
+    }
+
+    void "a failing observer does not affect the others"() {
+        given:
+        SimpleMeterRegistry registry = new SimpleMeterRegistry()
+        MqttObserver failing = new MqttObserver() {
+            @Override
+            void publishCompleted(Object context, String client, String topicTag, int qos, long durationNanos, Throwable error) {
+                throw new IllegalStateException("failed")
+            }
+        }
+        MqttObservers observers = new MqttObservers([failing, new MqttMicrometerObserver(registry)], new MqttObserverConfigurationProperties())
+
+        when:
+        Object context = observers.publishStarted("", "a/b", "a/b", 1, 10)
+        observers.publishCompleted(context, "", "a/b", 1, 1_000_000, null)
+
+        then:
+        registry.get("mqtt.publisher.publish")
+                .tags("client", "default", "topic", "a/b", "qos", "1", "outcome", "success")
+                .timer().count() == 1
+    }
+
+    void "micrometer records subscriber, serdes and connection metrics"() {
+        given:
+        SimpleMeterRegistry registry = new SimpleMeterRegistry()
+        MqttObservers observers = new MqttObservers([new MqttMicrometerObserver(registry)], new MqttObserverConfigurationProperties())
+
+        when:
+        observers.messageHandled(null, "MySubscriber#receive", "a/b", "a/+", 0, 5, 500, 1000, 2000, new RuntimeException())
+        observers.serialized(null, String, 5, 1000)
+        observers.deserialized(null, String, 7, 1000)
+        observers.connectionListener("secondary").connected(0, false)
+        observers.connectionListener("secondary").disconnected(0)
+        observers.connectionListener("secondary").connected(0, true)
+
+        then:
+        registry.get("mqtt.subscriber.invocation").tags("subscriber", "MySubscriber#receive", "topic", "a/+", "outcome", "failure").timer().count() == 1
+        registry.get("mqtt.subscriber.binding").tags("subscriber", "MySubscriber#receive").timer().count() == 1
+        registry.get("mqtt.serdes.serialize.size").tags("type", "String").summary().totalAmount() == 5
+        registry.get("mqtt.serdes.deserialize.size").tags("type", "String").summary().totalAmount() == 7
+        registry.get("mqtt.client.connection.lost").tags("client", "secondary").counter().count() == 1
+        registry.get("mqtt.client.reconnects").tags("client", "secondary").counter().count() == 1
+    }
+}
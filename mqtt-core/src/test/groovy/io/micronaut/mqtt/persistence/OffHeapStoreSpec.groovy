@@ -0,0 +1,80 @@
+package io.micronaut.mqtt.persistence
+
+import spock.lang.Specification
+
+class OffHeapStoreSpec extends Specification {
+
+    void "values are stored, overwritten and removed"() {
+        given:
+        OffHeapStore store = new OffHeapStore(1024, 1024 * 1024)
+
+        when:
+        put(store, "s-1", "header", "one")
+        put(store, "sc-2", "header", "two")
+        put(store, "s-1", "header", "uno")
+        put(store, "custom key", "header", "three")
+        store.remove("sc-2")
+
+        then:
+        new String(store.get("s-1")) == "headeruno"
+        new String(store.get("custom key")) == "headerthree"
+        store.get("sc-2") == null
+        store.keys() == ["s-1", "custom key"] as Set
+        store.containsKey("s-1")
+        !store.containsKey("sc-2")
+        store.size() == 2
+    }
+
+    void "freed chunks are reused"() {
+        given:
+        OffHeapStore store = new OffHeapStore(1024, 1024 * 1024)
+
+        when:
+        10.times { round ->
+            (1..500).each { put(store, "s-$it", "h", "payload-$round-$it") }
+            (1..500).each { store.remove("s-$it") }
+        }
+        (1..500).each { put(store, "r-$it", "h", "payload-$it") }
+
+        then:
+        store.size() == 500
+        store.keys().containsAll((1..500).collect { "r-$it".toString() })
+        new String(store.get("r-250")) == "hpayload-250"
+        store.allocatedBytes == 32 * 1024
+    }
+
+    void "values larger than a slab get a buffer of their own"() {
+        given:
+        OffHeapStore store = new OffHeapStore(1024, 1024 * 1024)
+        byte[] payload = new byte[4000]
+        new Random().nextBytes(payload)
+
+        when:
+        store.put("s-1", "h".bytes, 0, 1, payload, 0, payload.length)
+
+        then:
+        store.get("s-1") == "h".bytes + payload
+
+        when:
+        store.remove("s-1")
+
+        then:
+        store.allocatedBytes == 0
+    }
+
+    void "storing beyond the maximum size fails"() {
+        given:
+        OffHeapStore store = new OffHeapStore(1024, 2048)
+
+        when:
+        store.put("s-1", new byte[3000], 0, 3000, null, 0, 0)
+
+        then:
+        thrown(IllegalStateException)
+        !store.containsKey("s-1")
+    }
+
+    private static void put(OffHeapStore store, String key, String header, String payload) {
+        store.put(key, header.bytes, 0, header.length(), payload.bytes, 0, payload.length())
+    }
+}
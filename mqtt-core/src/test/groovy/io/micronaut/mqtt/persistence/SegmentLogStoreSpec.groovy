@@ -0,0 +1,132 @@
+package io.micronaut.mqtt.persistence
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.Duration
+
+class SegmentLogStoreSpec extends Specification {
+
+    @TempDir
+    Path directory
+
+    MqttPersistenceConfigurationProperties configuration = new MqttPersistenceConfigurationProperties(
+            segmentSize: 1024,
+            durability: MqttPersistenceConfigurationProperties.Durability.NONE,
+            compactionInterval: Duration.ZERO)
+
+    void "values are stored, overwritten and removed"() {
+        given:
+        SegmentLogStore store = open()
+
+        when:
+        put(store, "s-1", "header", "one")
+        put(store, "s-2", "header", "two")
+        put(store, "s-1", "header", "uno")
+        store.remove("s-2")
+
+        then:
+        new String(store.get("s-1")) == "headeruno"
+        store.get("s-2") == null
+        store.keys() == ["s-1"] as Set
+        store.containsKey("s-1")
+        !store.containsKey("s-2")
+
+        cleanup:
+        store.close()
+    }
+
+    void "the index is recovered after a restart"() {
+        given:
+        SegmentLogStore store = open()
+        (1..100).each { put(store, "s-$it", "h", "payload-$it") }
+        (1..90).each { store.remove("s-$it") }
+        store.close()
+
+        when:
+        SegmentLogStore recovered = open()
+
+        then:
+        recovered.keys() == (91..100).collect { "s-$it".toString() } as Set
+        new String(recovered.get("s-95")) == "hpayload-95"
+
+        cleanup:
+        recovered.close()
+    }
+
+    void "segments holding mostly removed values are compacted"() {
+        given:
+        SegmentLogStore store = open()
+        (1..200).each { put(store, "s-$it", "h", "payload-$it") }
+        (1..195).each { store.remove("s-$it") }
+        long before = Files.list(directory).count()
+
+        when:
+        store.compact()
+
+        then:
+        Files.list(directory).count() < before
+        store.keys().size() == 5
+        new String(store.get("s-200")) == "hpayload-200"
+
+        when:
+        store.close()
+        SegmentLogStore recovered = open()
+
+        then:
+        recovered.keys() == (196..200).collect { "s-$it".toString() } as Set
+
+        cleanup:
+        recovered?.close()
+    }
+
+    void "group commit returns once the write has been forced"() {
+        given:
+        configuration.durability = MqttPersistenceConfigurationProperties.Durability.GROUP
+        SegmentLogStore store = open()
+
+        when:
+        def threads = (1..4).collect { t ->
+            Thread.start {
+                (1..25).each { put(store, "s-$t-$it", "h", "p") }
+            }
+        }
+        threads*.join(5000)
+
+        then:
+        store.size() == 100
+
+        cleanup:
+        store.close()
+    }
+
+    void "async durability does not wait for the write to be forced"() {
+        given:
+        configuration.durability = MqttPersistenceConfigurationProperties.Durability.ASYNC
+        configuration.groupCommitInterval = Duration.ofSeconds(30)
+        SegmentLogStore store = open()
+
+        when:
+        long start = System.nanoTime()
+        (1..100).each { put(store, "s-$it", "h", "p") }
+
+        then:
+        Duration.ofNanos(System.nanoTime() - start) < Duration.ofSeconds(5)
+        store.size() == 100
+
+        cleanup:
+        store.close()
+    }
+
+    private SegmentLogStore open() {
+        SegmentLogStore store = new SegmentLogStore(directory, configuration)
+        store.open()
+        store
+    }
+
+    private static void put(SegmentLogStore store, String key, String header, String payload) {
+        store.put(key, header.bytes, 0, header.length(), payload.bytes, 0, payload.length())
+    }
+}
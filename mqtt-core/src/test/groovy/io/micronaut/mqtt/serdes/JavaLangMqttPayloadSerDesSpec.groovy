@@ -0,0 +1,41 @@
+package io.micronaut.mqtt.serdes
+
+import io.micronaut.core.type.Argument
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.nio.ByteBuffer
+
+class JavaLangMqttPayloadSerDesSpec extends Specification {
+
+    JavaLangMqttPayloadSerDes serDes = new JavaLangMqttPayloadSerDes()
+
+    @Unroll
+    void "#type.simpleName values round trip"() {
+        when:
+        byte[] payload = serDes.serialize(value)
+
+        then:
+        serDes.deserialize(payload, Argument.of(type)) == value
+
+        where:
+        type    | value
+        String  | "hello"
+        Boolean | true
+        Short   | (short) 7
+        Integer | 42
+        Long    | 1234567890123L
+        Float   | 1.5f
+        Double  | 2.25d
+        UUID    | UUID.fromString("0b6c9a8e-4c39-4b5e-9a8e-2f1d3c4b5a69")
+    }
+
+    void "byte buffers are serialized by their runtime type"() {
+        when:
+        byte[] payload = serDes.serialize(ByteBuffer.wrap([1, 2, 3] as byte[]))
+
+        then:
+        payload == [1, 2, 3] as byte[]
+        serDes.deserialize(payload, Argument.of(ByteBuffer)).array() == [1, 2, 3] as byte[]
+    }
+}
@@ -0,0 +1,58 @@
+package io.micronaut.mqtt.topic
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class TopicTemplateSpec extends Specification {
+
+    void "variables are subscribed to as single level wildcards"() {
+        expect:
+        TopicTemplate.compile("sites/{site}/devices/{device}/temp").filter == "sites/+/devices/+/temp"
+        TopicTemplate.compile('$share/group/sites/{site}').filter == '$share/group/sites/+'
+        !TopicTemplate.compile("sites/+/temp").hasVariables()
+    }
+
+    void "variables are extracted from the topic"() {
+        when:
+        TopicVariables variables = TopicTemplate.compile("sites/{site}/devices/{device}/temp")
+                .extract("sites/north/devices/d-1/temp")
+
+        then:
+        variables.get("site") == "north"
+        variables.get("device") == "d-1"
+        variables.get("other") == null
+        variables.asMap() == [site: "north", device: "d-1"]
+    }
+
+    @Unroll
+    void "filter #filter matches topic #topic: #expected"() {
+        expect:
+        TopicTemplate.compile(filter).matches(topic) == expected
+
+        where:
+        filter              | topic           | expected
+        "a/b"               | "a/b"           | true
+        "a/b"               | "a/bc"          | false
+        "a/b"               | "a/b/"          | false
+        "a/+"               | "a/"            | true
+        "a/+"               | "a"             | false
+        "a/{x}/c"           | "a/b/c"         | true
+        "a/{x}/c"           | "a/b/d"         | false
+        "a/#"               | "a"             | true
+        "a/#"               | "a/b/c"         | true
+        "a/#"               | "ab"            | false
+        "#"                 | '$SYS/uptime'   | false
+        '$share/g/a/{x}'    | "a/b"           | true
+    }
+
+    void "invalid templates are rejected"() {
+        when:
+        TopicTemplate.compile(template)
+
+        then:
+        thrown(IllegalArgumentException)
+
+        where:
+        template << ["", "a/#/b", "a/{x}/{x}", '$share/group']
+    }
+}
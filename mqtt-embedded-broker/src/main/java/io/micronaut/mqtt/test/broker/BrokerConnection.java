@@ -0,0 +1,582 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.test.broker;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static io.micronaut.mqtt.test.broker.MqttWire.readBinary;
+import static io.micronaut.mqtt.test.broker.MqttWire.readString;
+import static io.micronaut.mqtt.test.broker.MqttWire.readVarInt;
+import static io.micronaut.mqtt.test.broker.MqttWire.varIntSize;
+import static io.micronaut.mqtt.test.broker.MqttWire.writeVarInt;
+
+/**
+ * A client connection. Decodes the packets read from the channel and encodes the packets
+ * written to it, all on the thread of its {@link IoLoop}.
+ */
+final class BrokerConnection {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // stop draining queued messages into the write buffer beyond this size
+    private static final int HIGH_WATER_MARK = 1024 * 1024;
+    private static final int MQTT_3 = 4;
+    private static final int MQTT_5 = 5;
+    private static final int CONNACK_UNACCEPTABLE_PROTOCOL = 0x01;
+    private static final int CONNACK_IDENTIFIER_REJECTED = 0x02;
+    private static final int CONNACK_V5_UNSUPPORTED_PROTOCOL = 0x84;
+    private static final int CONNACK_V5_INVALID_IDENTIFIER = 0x85;
+    private static final int SUBACK_FAILURE = 0x80;
+    private static final int SUBACK_V5_INVALID_FILTER = 0x8F;
+    private static final int UNSUBACK_V5_NO_SUBSCRIPTION = 0x11;
+    private static final int DISCONNECT_WITH_WILL = 0x04;
+
+    private final EmbeddedMqttBroker broker;
+    private final IoLoop loop;
+    private final SocketChannel channel;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private SelectionKey key;
+    private ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+    private ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+    private int protocolLevel;
+    private long keepAliveNanos;
+    private long lastRead = System.nanoTime();
+    private int maxInflight;
+    private int maxPacketSize;
+    private BrokerSession session;
+    private BrokerMessage will;
+    private boolean closed;
+
+    /**
+     * @param broker The broker
+     * @param loop The loop serving the connection
+     * @param channel The channel
+     */
+    BrokerConnection(EmbeddedMqttBroker broker, IoLoop loop, SocketChannel channel) {
+        this.broker = broker;
+        this.loop = loop;
+        this.channel = channel;
+    }
+
+    /**
+     * @param key The key of the channel registered with the selector of the loop
+     */
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    /**
+     * @return The maximum number of unacknowledged QoS 1 and 2 messages sent to the client
+     */
+    int getMaxInflight() {
+        return maxInflight;
+    }
+
+    /**
+     * @return True if the write buffer has room for more messages
+     */
+    boolean isWritable() {
+        return !closed && out.position() < HIGH_WATER_MARK;
+    }
+
+    /**
+     * @param now The current time
+     * @return True if the client has not sent anything for one and a half times its keep alive
+     */
+    boolean isExpired(long now) {
+        return keepAliveNanos > 0 && now - lastRead > keepAliveNanos;
+    }
+
+    /**
+     * Schedules the connection on its loop to drain the messages queued in its session. Can be
+     * called from any thread.
+     */
+    void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            loop.schedule(this);
+        }
+    }
+
+    /**
+     * Closes the connection on its loop without publishing the will message. Can be called
+     * from any thread.
+     */
+    void closeLater() {
+        loop.execute(() -> close(false));
+    }
+
+    /**
+     * Called by the loop once the connection has been scheduled.
+     */
+    void onScheduled() {
+        scheduled.set(false);
+        if (!closed && session != null) {
+            session.drain(this);
+            flush();
+        }
+    }
+
+    /**
+     * Called by the loop when the channel can be written to again.
+     */
+    void onWritable() {
+        flush();
+        if (!closed && session != null) {
+            session.drain(this);
+            flush();
+        }
+    }
+
+    /**
+     * Called by the loop when data has been received.
+     */
+    void onReadable() {
+        try {
+            if (channel.read(in) < 0) {
+                close(true);
+                return;
+            }
+            lastRead = System.nanoTime();
+            in.flip();
+            while (!closed && decode()) {
+                // decode all complete packets
+            }
+            if (closed) {
+                return;
+            }
+            in.compact();
+            if (session != null) {
+                session.drain(this);
+            }
+            flush();
+        } catch (IOException | RuntimeException e) {
+            close(true);
+        }
+    }
+
+    /**
+     * Closes the connection.
+     *
+     * @param publishWill True if the will message is published
+     */
+    void close(boolean publishWill) {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // ignore
+        }
+        broker.disconnected(this, session, publishWill ? will : null);
+    }
+
+    /**
+     * @param delivery A message
+     * @return True if the message does not exceed the maximum packet size of the client
+     */
+    boolean accepts(Delivery delivery) {
+        if (maxPacketSize == 0) {
+            return true;
+        }
+        int remaining = publishLength(delivery);
+        return 1 + varIntSize(remaining) + remaining <= maxPacketSize;
+    }
+
+    /**
+     * Writes a PUBLISH packet.
+     *
+     * @param delivery The message
+     * @param packetId The packet identifier, 0 for QoS 0
+     * @param duplicate True if the message is sent again
+     */
+    void writePublish(Delivery delivery, int packetId, boolean duplicate) {
+        BrokerMessage message = delivery.message;
+        int remaining = publishLength(delivery);
+        ensureCapacity(5 + remaining);
+        out.put((byte) (MqttWire.PUBLISH << 4 | (duplicate ? 0x08 : 0) | delivery.qos << 1 | (delivery.retain ? 1 : 0)));
+        writeVarInt(out, remaining);
+        out.putShort((short) message.topicBytes.length);
+        out.put(message.topicBytes);
+        if (delivery.qos > 0) {
+            out.putShort((short) packetId);
+        }
+        if (protocolLevel == MQTT_5) {
+            writeVarInt(out, propertiesLength(delivery));
+            if (message.properties != null) {
+                out.put(message.properties);
+            }
+            if (delivery.subscriptionIdentifiers != null) {
+                for (int identifier : delivery.subscriptionIdentifiers) {
+                    out.put((byte) MqttWire.PROPERTY_SUBSCRIPTION_IDENTIFIER);
+                    writeVarInt(out, identifier);
+                }
+            }
+        }
+        out.put(message.payload);
+    }
+
+    /**
+     * Writes a PUBACK, PUBREC, PUBREL or PUBCOMP packet.
+     *
+     * @param type The packet type
+     * @param packetId The packet identifier
+     */
+    void writeAck(int type, int packetId) {
+        ensureCapacity(4);
+        // PUBREL has the reserved flags 0010
+        out.put((byte) (type << 4 | (type == MqttWire.PUBREL ? 0x02 : 0)));
+        out.put((byte) 2);
+        out.putShort((short) packetId);
+    }
+
+    private int publishLength(Delivery delivery) {
+        BrokerMessage message = delivery.message;
+        int length = 2 + message.topicBytes.length + message.payload.length;
+        if (delivery.qos > 0) {
+            length += 2;
+        }
+        if (protocolLevel == MQTT_5) {
+            int properties = propertiesLength(delivery);
+            length += varIntSize(properties) + properties;
+        }
+        return length;
+    }
+
+    private static int propertiesLength(Delivery delivery) {
+        int length = delivery.message.properties == null ? 0 : delivery.message.properties.length;
+        if (delivery.subscriptionIdentifiers != null) {
+            for (int identifier : delivery.subscriptionIdentifiers) {
+                length += 1 + varIntSize(identifier);
+            }
+        }
+        return length;
+    }
+
+    private boolean decode() throws IOException {
+        int start = in.position();
+        int offset = start + 1;
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (offset >= in.limit()) {
+                return false;
+            }
+            if (shift == 28) {
+                throw new IOException("Malformed remaining length");
+            }
+            int b = in.get(offset++) & 0xFF;
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        int end = offset + length;
+        if (end > in.limit()) {
+            if (end - start > in.capacity()) {
+                // make room for the whole packet
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(end - start, in.capacity() * 2));
+                larger.put(in);
+                larger.flip();
+                in = larger;
+            }
+            return false;
+        }
+        int header = in.get(start) & 0xFF;
+        ByteBuffer packet = in.slice(offset, length);
+        in.position(end);
+        handle(header, packet);
+        return true;
+    }
+
+    private void handle(int header, ByteBuffer packet) throws IOException {
+        int type = header >>> 4;
+        if (protocolLevel == 0 && type != MqttWire.CONNECT) {
+            close(false);
+            return;
+        }
+        switch (type) {
+            case MqttWire.CONNECT -> {
+                if (protocolLevel == 0) {
+                    connect(packet);
+                } else {
+                    close(true);
+                }
+            }
+            case MqttWire.PUBLISH -> publish(header, packet);
+            case MqttWire.PUBACK, MqttWire.PUBCOMP -> session.acknowledged(packet.getShort() & 0xFFFF);
+            case MqttWire.PUBREC -> {
+                int packetId = packet.getShort() & 0xFFFF;
+                session.released(packetId);
+                writeAck(MqttWire.PUBREL, packetId);
+            }
+            case MqttWire.PUBREL -> {
+                int packetId = packet.getShort() & 0xFFFF;
+                session.complete(packetId);
+                writeAck(MqttWire.PUBCOMP, packetId);
+            }
+            case MqttWire.SUBSCRIBE -> subscribe(packet);
+            case MqttWire.UNSUBSCRIBE -> unsubscribe(packet);
+            case MqttWire.PINGREQ -> {
+                ensureCapacity(2);
+                out.put((byte) (MqttWire.PINGRESP << 4));
+                out.put((byte) 0);
+            }
+            case MqttWire.DISCONNECT -> {
+                boolean keepWill = protocolLevel == MQTT_5 && packet.hasRemaining() && (packet.get() & 0xFF) == DISCONNECT_WITH_WILL;
+                flush();
+                close(keepWill);
+            }
+            default -> close(true);
+        }
+    }
+
+    private void connect(ByteBuffer packet) throws IOException {
+        String protocol = readString(packet);
+        int level = packet.get() & 0xFF;
+        if (!(protocol.equals("MQTT") && (level == MQTT_3 || level == MQTT_5)) && !(protocol.equals("MQIsdp") && level == 3)) {
+            protocolLevel = level == MQTT_5 ? MQTT_5 : MQTT_3;
+            refuse(level == MQTT_5 ? CONNACK_V5_UNSUPPORTED_PROTOCOL : CONNACK_UNACCEPTABLE_PROTOCOL);
+            return;
+        }
+        protocolLevel = level == MQTT_5 ? MQTT_5 : MQTT_3;
+        int flags = packet.get() & 0xFF;
+        int keepAlive = packet.getShort() & 0xFFFF;
+        boolean cleanStart = (flags & 0x02) != 0;
+        long sessionExpiry = 0;
+        int receiveMaximum = 0xFFFF;
+        if (protocolLevel == MQTT_5) {
+            int end = readVarInt(packet) + packet.position();
+            while (packet.position() < end) {
+                int identifier = packet.get() & 0xFF;
+                switch (identifier) {
+                    case MqttWire.PROPERTY_SESSION_EXPIRY_INTERVAL -> sessionExpiry = packet.getInt() & 0xFFFFFFFFL;
+                    case MqttWire.PROPERTY_RECEIVE_MAXIMUM -> receiveMaximum = packet.getShort() & 0xFFFF;
+                    case MqttWire.PROPERTY_MAXIMUM_PACKET_SIZE -> maxPacketSize = packet.getInt();
+                    default -> MqttWire.skipProperty(packet, identifier);
+                }
+            }
+        }
+        String clientId = readString(packet);
+        if ((flags & 0x04) != 0) {
+            byte[] properties = protocolLevel == MQTT_5 ? MqttWire.readPublishProperties(packet) : null;
+            String topic = readString(packet);
+            byte[] payload = readBinary(packet);
+            will = new BrokerMessage(topic, payload, (flags >> 3) & 0x03, (flags & 0x20) != 0, properties, null);
+        }
+        boolean assigned = false;
+        if (clientId.isEmpty()) {
+            if (protocolLevel != MQTT_5 && !cleanStart) {
+                refuse(CONNACK_IDENTIFIER_REJECTED);
+                return;
+            }
+            clientId = broker.nextClientId();
+            assigned = protocolLevel == MQTT_5;
+        } else if (clientId.startsWith(EmbeddedMqttBroker.ASSIGNED_CLIENT_ID_PREFIX) && protocolLevel == MQTT_5) {
+            refuse(CONNACK_V5_INVALID_IDENTIFIER);
+            return;
+        }
+        keepAliveNanos = TimeUnit.SECONDS.toNanos(keepAlive) * 3 / 2;
+        maxInflight = Math.min(receiveMaximum, broker.getMaxInflight());
+        boolean persistent = protocolLevel == MQTT_5 ? sessionExpiry > 0 : !cleanStart;
+        BrokerSession previous = broker.getSession(clientId);
+        session = broker.connect(this, clientId, cleanStart, persistent);
+        writeConnack(!cleanStart && session == previous, 0, assigned ? clientId : null);
+        session.resend(this);
+    }
+
+    private void refuse(int reasonCode) {
+        writeConnack(false, reasonCode, null);
+        flush();
+        close(false);
+    }
+
+    private void writeConnack(boolean sessionPresent, int reasonCode, String assignedClientId) {
+        if (protocolLevel == MQTT_5) {
+            byte[] assigned = assignedClientId == null ? null : assignedClientId.getBytes(StandardCharsets.UTF_8);
+            int properties = assigned == null ? 0 : 3 + assigned.length;
+            ensureCapacity(8 + properties);
+            out.put((byte) (MqttWire.CONNACK << 4));
+            writeVarInt(out, 2 + varIntSize(properties) + properties);
+            out.put((byte) (sessionPresent ? 1 : 0));
+            out.put((byte) reasonCode);
+            writeVarInt(out, properties);
+            if (assigned != null) {
+                out.put((byte) MqttWire.PROPERTY_ASSIGNED_CLIENT_IDENTIFIER);
+                out.putShort((short) assigned.length);
+                out.put(assigned);
+            }
+        } else {
+            ensureCapacity(4);
+            out.put((byte) (MqttWire.CONNACK << 4));
+            out.put((byte) 2);
+            out.put((byte) (sessionPresent ? 1 : 0));
+            out.put((byte) reasonCode);
+        }
+    }
+
+    private void publish(int header, ByteBuffer packet) throws IOException {
+        int qos = (header >> 1) & 0x03;
+        String topic = readString(packet);
+        int packetId = qos > 0 ? packet.getShort() & 0xFFFF : 0;
+        byte[] properties = protocolLevel == MQTT_5 ? MqttWire.readPublishProperties(packet) : null;
+        if (qos == 3 || topic.isEmpty() || topic.indexOf('+') != -1 || topic.indexOf('#') != -1) {
+            close(true);
+            return;
+        }
+        byte[] payload = new byte[packet.remaining()];
+        packet.get(payload);
+        BrokerMessage message = new BrokerMessage(topic, payload, qos, (header & 0x01) != 0, properties, session);
+        switch (qos) {
+            case 0 -> broker.publish(message);
+            case 1 -> {
+                broker.publish(message);
+                writeAck(MqttWire.PUBACK, packetId);
+            }
+            default -> {
+                // a redelivered QoS 2 message is only routed once
+                if (session.receive(packetId)) {
+                    broker.publish(message);
+                }
+                writeAck(MqttWire.PUBREC, packetId);
+            }
+        }
+    }
+
+    private void subscribe(ByteBuffer packet) throws IOException {
+        broker.subscribeReceived(1 + varIntSize(packet.remaining()) + packet.remaining());
+        int packetId = packet.getShort() & 0xFFFF;
+        int identifier = 0;
+        if (protocolLevel == MQTT_5) {
+            int end = readVarInt(packet) + packet.position();
+            while (packet.position() < end) {
+                int property = packet.get() & 0xFF;
+                if (property == MqttWire.PROPERTY_SUBSCRIPTION_IDENTIFIER) {
+                    identifier = readVarInt(packet);
+                } else {
+                    MqttWire.skipProperty(packet, property);
+                }
+            }
+        }
+        List<Subscription> retained = new ArrayList<>();
+        ByteBuffer reasonCodes = ByteBuffer.allocate(packet.remaining());
+        while (packet.hasRemaining()) {
+            String filter = readString(packet);
+            int options = packet.get() & 0xFF;
+            Subscription subscription = Subscription.create(session, filter, protocolLevel == MQTT_5 ? options : options & 0x03, identifier);
+            if (subscription == null || broker.isRejected(filter)) {
+                reasonCodes.put((byte) (protocolLevel == MQTT_5 ? SUBACK_V5_INVALID_FILTER : SUBACK_FAILURE));
+                continue;
+            }
+            boolean existed = broker.subscribe(subscription);
+            reasonCodes.put((byte) subscription.qos);
+            // retained messages are not sent to shared subscriptions
+            if (!subscription.isShared() && (subscription.retainHandling == 0 || (subscription.retainHandling == 1 && !existed))) {
+                retained.add(subscription);
+            }
+        }
+        reasonCodes.flip();
+        long delay = broker.getSubscribeAckDelayNanos();
+        if (delay > 0) {
+            CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS).execute(() -> loop.execute(() -> {
+                if (!closed) {
+                    acknowledgeSubscribe(packetId, reasonCodes, retained);
+                    flush();
+                }
+            }));
+        } else {
+            acknowledgeSubscribe(packetId, reasonCodes, retained);
+        }
+    }
+
+    private void acknowledgeSubscribe(int packetId, ByteBuffer reasonCodes, List<Subscription> retained) {
+        writeAcknowledgement(MqttWire.SUBACK, packetId, reasonCodes);
+        for (Subscription subscription : retained) {
+            broker.deliverRetained(subscription);
+        }
+    }
+
+    private void unsubscribe(ByteBuffer packet) throws IOException {
+        int packetId = packet.getShort() & 0xFFFF;
+        if (protocolLevel == MQTT_5) {
+            int end = readVarInt(packet) + packet.position();
+            packet.position(end);
+        }
+        ByteBuffer reasonCodes = ByteBuffer.allocate(packet.remaining());
+        while (packet.hasRemaining()) {
+            boolean existed = broker.unsubscribe(session, readString(packet));
+            reasonCodes.put((byte) (existed ? 0 : UNSUBACK_V5_NO_SUBSCRIPTION));
+        }
+        reasonCodes.flip();
+        if (protocolLevel == MQTT_5) {
+            writeAcknowledgement(MqttWire.UNSUBACK, packetId, reasonCodes);
+        } else {
+            writeAck(MqttWire.UNSUBACK, packetId);
+        }
+    }
+
+    private void writeAcknowledgement(int type, int packetId, ByteBuffer reasonCodes) {
+        int properties = protocolLevel == MQTT_5 ? 1 : 0;
+        int remaining = 2 + properties + reasonCodes.remaining();
+        ensureCapacity(5 + remaining);
+        out.put((byte) (type << 4));
+        writeVarInt(out, remaining);
+        out.putShort((short) packetId);
+        if (properties > 0) {
+            out.put((byte) 0);
+        }
+        out.put(reasonCodes);
+    }
+
+    private void ensureCapacity(int length) {
+        if (out.remaining() < length) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + length));
+            out.flip();
+            larger.put(out);
+            out = larger;
+        }
+    }
+
+    private void flush() {
+        if (closed || out.position() == 0) {
+            return;
+        }
+        out.flip();
+        try {
+            channel.write(out);
+        } catch (IOException e) {
+            close(true);
+            return;
+        } finally {
+            out.compact();
+        }
+        int interest = out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+        if (key.interestOps() != interest) {
+            key.interestOps(interest);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.test.broker;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A message published to the broker.
+ */
+final class BrokerMessage {
+
+    final String topic;
+    final String[] levels;
+    final byte[] topicBytes;
+    final byte[] payload;
+    final int qos;
+    final boolean retain;
+    final byte[] properties;
+    final BrokerSession sender;
+
+    /**
+     * @param topic The topic
+     * @param payload The payload
+     * @param qos The qos it was published with
+     * @param retain True if it was published as a retained message
+     * @param properties The encoded MQTT 5 properties forwarded to subscribers, null if there are none
+     * @param sender The session of the publisher, null for will messages
+     */
+    BrokerMessage(String topic, byte[] payload, int qos, boolean retain, byte[] properties, BrokerSession sender) {
+        this.topic = topic;
+        this.levels = MqttWire.levels(topic);
+        this.topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+        this.payload = payload;
+        this.qos = qos;
+        this.retain = retain;
+        this.properties = properties;
+        this.sender = sender;
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.test.broker;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The state of a client identifier: its subscriptions, the messages queued for it and the
+ * QoS 1 and 2 exchanges in progress. A persistent session outlives its connections.
+ */
+final class BrokerSession {
+
+    final String clientId;
+
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private final Queue<Delivery> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final int maxQueued;
+    // guarded by this
+    private final Map<Integer, Delivery> inflight = new LinkedHashMap<>();
+    private final Set<Integer> received = new HashSet<>();
+    private int nextPacketId = 1;
+    private volatile BrokerConnection connection;
+    private volatile boolean persistent;
+
+    /**
+     * @param clientId The client identifier
+     * @param maxQueued The maximum number of messages queued before QoS 0 messages are dropped
+     */
+    BrokerSession(String clientId, int maxQueued) {
+        this.clientId = clientId;
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * @return True if the session is kept once its connection is closed
+     */
+    boolean isPersistent() {
+        return persistent;
+    }
+
+    /**
+     * @param persistent True if the session is kept once its connection is closed
+     */
+    void setPersistent(boolean persistent) {
+        this.persistent = persistent;
+    }
+
+    /**
+     * @return True if a client is connected with the session
+     */
+    boolean isConnected() {
+        return connection != null;
+    }
+
+    /**
+     * @return The connection of the session, null if the client is not connected
+     */
+    BrokerConnection getConnection() {
+        return connection;
+    }
+
+    /**
+     * @return The subscriptions by topic filter
+     */
+    Map<String, Subscription> getSubscriptions() {
+        return subscriptions;
+    }
+
+    /**
+     * @param connection The connection taking over the session
+     */
+    synchronized void attach(BrokerConnection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * @param connection The connection that was closed
+     * @return True if the session was attached to the connection, false if it has been taken over
+     */
+    synchronized boolean detach(BrokerConnection connection) {
+        if (this.connection != connection) {
+            return false;
+        }
+        this.connection = null;
+        return true;
+    }
+
+    /**
+     * Queues a message for delivery and wakes up the connection of the session.
+     *
+     * @param delivery The message
+     */
+    void deliver(Delivery delivery) {
+        if (delivery.qos == 0 && (connection == null || queued.get() >= maxQueued)) {
+            return;
+        }
+        queue.add(delivery);
+        queued.incrementAndGet();
+        BrokerConnection current = connection;
+        if (current != null) {
+            current.schedule();
+        }
+    }
+
+    /**
+     * Writes queued messages to the connection until the window of unacknowledged messages or
+     * the write buffer of the connection is full.
+     *
+     * @param connection The connection
+     */
+    synchronized void drain(BrokerConnection connection) {
+        if (this.connection != connection) {
+            return;
+        }
+        while (connection.isWritable()) {
+            Delivery delivery = queue.peek();
+            if (delivery == null || (delivery.qos > 0 && inflight.size() >= connection.getMaxInflight())) {
+                return;
+            }
+            queue.poll();
+            queued.decrementAndGet();
+            if (!connection.accepts(delivery)) {
+                continue;
+            }
+            int packetId = 0;
+            if (delivery.qos > 0) {
+                packetId = nextPacketId();
+                inflight.put(packetId, delivery);
+            }
+            connection.writePublish(delivery, packetId, false);
+        }
+    }
+
+    /**
+     * Resends the unacknowledged messages to a client resuming the session.
+     *
+     * @param connection The connection
+     */
+    synchronized void resend(BrokerConnection connection) {
+        for (Map.Entry<Integer, Delivery> entry : inflight.entrySet()) {
+            if (entry.getValue().released) {
+                connection.writeAck(MqttWire.PUBREL, entry.getKey());
+            } else {
+                connection.writePublish(entry.getValue(), entry.getKey(), true);
+            }
+        }
+    }
+
+    /**
+     * @param packetId The identifier of a message acknowledged with PUBACK or PUBCOMP
+     */
+    synchronized void acknowledged(int packetId) {
+        inflight.remove(packetId);
+    }
+
+    /**
+     * @param packetId The identifier of a QoS 2 message the client acknowledged with PUBREC
+     */
+    synchronized void released(int packetId) {
+        Delivery delivery = inflight.get(packetId);
+        if (delivery != null) {
+            delivery.released = true;
+        }
+    }
+
+    /**
+     * @param packetId The identifier of a QoS 2 message published by the client
+     * @return True if the message is received for the first time and has to be routed
+     */
+    synchronized boolean receive(int packetId) {
+        return received.add(packetId);
+    }
+
+    /**
+     * @param packetId The identifier of a QoS 2 message the client released with PUBREL
+     */
+    synchronized void complete(int packetId) {
+        received.remove(packetId);
+    }
+
+    /**
+     * Drops the queued and unacknowledged messages of a discarded session.
+     */
+    synchronized void discard() {
+        connection = null;
+        subscriptions.clear();
+        queue.clear();
+        queued.set(0);
+        inflight.clear();
+        received.clear();
+    }
+
+    private int nextPacketId() {
+        while (true) {
+            int packetId = nextPacketId;
+            nextPacketId = packetId == 0xFFFF ? 1 : packetId + 1;
+            if (!inflight.containsKey(packetId)) {
+                return packetId;
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.test.broker;
+
+/**
+ * A message queued for delivery to a session.
+ */
+final class Delivery {
+
+    final BrokerMessage message;
+    final int qos;
+    final boolean retain;
+    final int[] subscriptionIdentifiers;
+    /**
+     * True once the subscriber has acknowledged a QoS 2 message with PUBREC, guarded by the session.
+     */
+    boolean released;
+
+    /**
+     * @param message The message
+     * @param qos The qos the message is delivered with
+     * @param retain The retain flag of the delivered message
+     * @param subscriptionIdentifiers The identifiers of the matching MQTT 5 subscriptions, null if there are none
+     */
+    Delivery(BrokerMessage message, int qos, boolean retain, int[] subscriptionIdentifiers) {
+        this.message = message;
+        this.qos = qos;
+        this.retain = retain;
+        this.subscriptionIdentifiers = subscriptionIdentifiers;
+    }
+}
@@ -0,0 +1,482 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.test.broker;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * An MQTT 3.1.1 and 5 broker running in the JVM, to run tests and benchmarks without Docker
+ * or network access. It listens on a loopback port and supports QoS 0, 1 and 2, retained
+ * messages, wildcards, shared subscriptions, persistent sessions, will messages and the
+ * MQTT 5 subscription options.
+ *
+ * <p>Connections are served by a fixed number of NIO selector threads. Messages are routed
+ * on the thread of the publisher and queued in the sessions of the subscribers, whose
+ * threads write them in batches.</p>
+ *
+ * <p>The broker keeps its state in memory only. Sessions do not expire, authentication is
+ * not supported and the topic alias and flow control features of MQTT 5 are not offered to
+ * clients.</p>
+ *
+ * @since 3.0.0
+ */
+public final class EmbeddedMqttBroker implements AutoCloseable {
+
+    /**
+     * The default maximum number of unacknowledged QoS 1 and 2 messages sent to a client.
+     */
+    public static final int DEFAULT_MAX_INFLIGHT = 1000;
+
+    /**
+     * The default maximum number of messages queued for a session before QoS 0 messages are dropped.
+     */
+    public static final int DEFAULT_MAX_QUEUED = 100_000;
+
+    static final String ASSIGNED_CLIENT_ID_PREFIX = "embedded-";
+
+    private final int requestedPort;
+    private final IoLoop[] loops;
+    private final Map<String, BrokerSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, BrokerMessage> retained = new ConcurrentHashMap<>();
+    private final SubscriptionTree subscriptions = new SubscriptionTree();
+    private final AtomicLong clientIds = new AtomicLong();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger subscribePackets = new AtomicInteger();
+    private final AtomicInteger largestSubscribePacket = new AtomicInteger();
+    private volatile Predicate<String> rejectedFilters = filter -> false;
+    private volatile long subscribeAckDelayNanos;
+    private int maxInflight = DEFAULT_MAX_INFLIGHT;
+    private int maxQueued = DEFAULT_MAX_QUEUED;
+    private ServerSocketChannel server;
+    private Thread acceptor;
+    private volatile boolean running;
+
+    /**
+     * Creates a broker listening on a random port.
+     */
+    public EmbeddedMqttBroker() {
+        this(0);
+    }
+
+    /**
+     * @param port The port to listen on, 0 for a random port
+     */
+    public EmbeddedMqttBroker(int port) {
+        this(port, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param port The port to listen on, 0 for a random port
+     * @param ioThreads The number of threads serving the connections
+     */
+    public EmbeddedMqttBroker(int port, int ioThreads) {
+        this.requestedPort = port;
+        this.loops = new IoLoop[Math.max(1, ioThreads)];
+    }
+
+    /**
+     * @param maxInflight The maximum number of unacknowledged QoS 1 and 2 messages sent to a client
+     * @return This broker
+     */
+    public EmbeddedMqttBroker maxInflight(int maxInflight) {
+        this.maxInflight = maxInflight;
+        return this;
+    }
+
+    /**
+     * @param maxQueued The maximum number of messages queued for a session before QoS 0 messages are dropped
+     * @return This broker
+     */
+    public EmbeddedMqttBroker maxQueued(int maxQueued) {
+        this.maxQueued = maxQueued;
+        return this;
+    }
+
+    /**
+     * Rejects subscriptions to matching topic filters, as a broker enforcing access control would.
+     *
+     * @param rejectedFilters Tests whether a subscription to a topic filter is rejected
+     * @return This broker
+     */
+    public EmbeddedMqttBroker rejectSubscriptions(Predicate<String> rejectedFilters) {
+        this.rejectedFilters = rejectedFilters;
+        return this;
+    }
+
+    /**
+     * @param delay How long SUBSCRIBE packets wait for their acknowledgement
+     * @return This broker
+     */
+    public EmbeddedMqttBroker subscribeAckDelay(Duration delay) {
+        this.subscribeAckDelayNanos = delay.toNanos();
+        return this;
+    }
+
+    /**
+     * Starts accepting connections.
+     *
+     * @return This broker
+     * @throws IOException If the port cannot be bound
+     */
+    public synchronized EmbeddedMqttBroker start() throws IOException {
+        if (running) {
+            return this;
+        }
+        server = ServerSocketChannel.open();
+        server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), requestedPort), 1024);
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new IoLoop(this, "mqtt-broker-io-" + i);
+            loops[i].start();
+        }
+        running = true;
+        acceptor = new Thread(this::accept, "mqtt-broker-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return this;
+    }
+
+    /**
+     * @return The port the broker listens on
+     */
+    public int getPort() {
+        try {
+            return ((InetSocketAddress) server.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            throw new IllegalStateException("The broker is not running", e);
+        }
+    }
+
+    /**
+     * @return The URI clients connect to
+     */
+    public String getServerUri() {
+        return "tcp://localhost:" + getPort();
+    }
+
+    /**
+     * @return The number of open connections
+     */
+    public int getConnectionCount() {
+        return connections.get();
+    }
+
+    /**
+     * @return The number of SUBSCRIBE packets received since the broker was started or the statistics were reset
+     */
+    public int getSubscribePacketCount() {
+        return subscribePackets.get();
+    }
+
+    /**
+     * @return The size in bytes of the largest SUBSCRIBE packet received, including its fixed header
+     */
+    public int getLargestSubscribePacket() {
+        return largestSubscribePacket.get();
+    }
+
+    /**
+     * Resets the SUBSCRIBE packet statistics.
+     */
+    public void resetSubscribeStatistics() {
+        subscribePackets.set(0);
+        largestSubscribePacket.set(0);
+    }
+
+    /**
+     * @return The number of retained messages
+     */
+    public int getRetainedCount() {
+        return retained.size();
+    }
+
+    /**
+     * Stops the broker and closes all connections.
+     */
+    @Override
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            server.close();
+            acceptor.join();
+            for (IoLoop loop : loops) {
+                loop.shutdown();
+            }
+        } catch (IOException e) {
+            // ignore
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sessions.clear();
+        retained.clear();
+    }
+
+    /**
+     * Runs a broker until the JVM is stopped.
+     *
+     * @param args The port to listen on, 1883 by default
+     * @throws Exception If the broker cannot be started
+     */
+    public static void main(String[] args) throws Exception {
+        EmbeddedMqttBroker broker = new EmbeddedMqttBroker(args.length > 0 ? Integer.parseInt(args[0]) : 1883).start();
+        Runtime.getRuntime().addShutdownHook(new Thread(broker::close));
+        System.out.println("MQTT broker listening on " + broker.getServerUri());
+        Thread.currentThread().join();
+    }
+
+    int getMaxInflight() {
+        return maxInflight;
+    }
+
+    /**
+     * @param size The size of a received SUBSCRIBE packet, including its fixed header
+     */
+    void subscribeReceived(int size) {
+        subscribePackets.incrementAndGet();
+        largestSubscribePacket.accumulateAndGet(size, Math::max);
+    }
+
+    boolean isRejected(String filter) {
+        return rejectedFilters.test(filter);
+    }
+
+    long getSubscribeAckDelayNanos() {
+        return subscribeAckDelayNanos;
+    }
+
+    String nextClientId() {
+        return ASSIGNED_CLIENT_ID_PREFIX + clientIds.incrementAndGet();
+    }
+
+    BrokerSession getSession(String clientId) {
+        return sessions.get(clientId);
+    }
+
+    /**
+     * Attaches a connection to the session of its client identifier. The connection
+     * currently attached to the session is closed.
+     *
+     * @param connection The connection
+     * @param clientId The client identifier
+     * @param cleanStart True if an existing session is discarded
+     * @param persistent True if the session is kept after the connection is closed
+     * @return The session
+     */
+    BrokerSession connect(BrokerConnection connection, String clientId, boolean cleanStart, boolean persistent) {
+        synchronized (sessions) {
+            BrokerSession session = sessions.get(clientId);
+            if (session != null) {
+                BrokerConnection previous = session.getConnection();
+                if (previous != null) {
+                    previous.closeLater();
+                }
+                if (cleanStart) {
+                    discard(session);
+                    session = null;
+                }
+            }
+            if (session == null) {
+                session = new BrokerSession(clientId, maxQueued);
+                sessions.put(clientId, session);
+            }
+            session.setPersistent(persistent);
+            session.attach(connection);
+            return session;
+        }
+    }
+
+    /**
+     * @param connection A closed connection
+     * @param session The session of the connection, null if it was closed before connecting
+     * @param will The will message to publish, null if there is none
+     */
+    void disconnected(BrokerConnection connection, BrokerSession session, BrokerMessage will) {
+        connections.decrementAndGet();
+        if (session != null) {
+            synchronized (sessions) {
+                if (session.detach(connection) && !session.isPersistent()) {
+                    sessions.remove(session.clientId, session);
+                    discard(session);
+                }
+            }
+        }
+        if (will != null) {
+            publish(will);
+        }
+    }
+
+    /**
+     * @param subscription A new subscription
+     * @return True if it replaces a subscription of the session to the same filter
+     */
+    boolean subscribe(Subscription subscription) {
+        Subscription previous = subscription.session.getSubscriptions().put(subscription.filter, subscription);
+        if (previous != null) {
+            subscriptions.remove(previous);
+        }
+        subscriptions.add(subscription);
+        return previous != null;
+    }
+
+    /**
+     * @param session The session
+     * @param filter The topic filter to unsubscribe from
+     * @return True if the session was subscribed to the filter
+     */
+    boolean unsubscribe(BrokerSession session, String filter) {
+        Subscription subscription = session.getSubscriptions().remove(filter);
+        if (subscription != null) {
+            subscriptions.remove(subscription);
+        }
+        return subscription != null;
+    }
+
+    /**
+     * Routes a message to the sessions subscribed to its topic.
+     *
+     * @param message The message
+     */
+    void publish(BrokerMessage message) {
+        if (message.retain) {
+            if (message.payload.length == 0) {
+                retained.remove(message.topic);
+            } else {
+                retained.put(message.topic, message);
+            }
+        }
+        List<Subscription> matches = new ArrayList<>(4);
+        subscriptions.match(message.levels, matches);
+        if (matches.size() == 1) {
+            Subscription subscription = matches.get(0);
+            if (!subscription.noLocal || subscription.session != message.sender) {
+                subscription.session.deliver(new Delivery(message, Math.min(message.qos, subscription.qos),
+                        subscription.retainAsPublished && message.retain, identifiers(subscription)));
+            }
+        } else if (!matches.isEmpty()) {
+            route(message, matches);
+        }
+    }
+
+    /**
+     * Sends the retained messages matching a new subscription.
+     *
+     * @param subscription The subscription
+     */
+    void deliverRetained(Subscription subscription) {
+        for (BrokerMessage message : retained.values()) {
+            if (subscription.matches(message.levels)) {
+                subscription.session.deliver(new Delivery(message, Math.min(message.qos, subscription.qos), true, identifiers(subscription)));
+            }
+        }
+    }
+
+    private void route(BrokerMessage message, List<Subscription> matches) {
+        // a session subscribed with overlapping filters receives the message once, with the highest qos
+        List<Target> targets = new ArrayList<>(matches.size());
+        for (Subscription subscription : matches) {
+            if (subscription.noLocal && subscription.session == message.sender) {
+                continue;
+            }
+            Target target = null;
+            for (Target t : targets) {
+                if (t.session == subscription.session) {
+                    target = t;
+                    break;
+                }
+            }
+            if (target == null) {
+                target = new Target(subscription.session);
+                targets.add(target);
+            }
+            target.add(subscription, message);
+        }
+        for (Target target : targets) {
+            target.session.deliver(new Delivery(message, target.qos, target.retain, target.identifiers));
+        }
+    }
+
+    private void discard(BrokerSession session) {
+        for (Subscription subscription : session.getSubscriptions().values()) {
+            subscriptions.remove(subscription);
+        }
+        session.discard();
+    }
+
+    private void accept() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = server.accept();
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                connections.incrementAndGet();
+                loops[next++ % loops.length].register(channel);
+            } catch (IOException e) {
+                if (!server.isOpen()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static int[] identifiers(Subscription subscription) {
+        return subscription.identifier == 0 ? null : new int[] {subscription.identifier};
+    }
+
+    /**
+     * The delivery of a message to a session with several matching subscriptions.
+     */
+    private static final class Target {
+
+        private final BrokerSession session;
+        private int qos;
+        private boolean retain;
+        private int[] identifiers;
+
+        private Target(BrokerSession session) {
+            this.session = session;
+        }
+
+        private void add(Subscription subscription, BrokerMessage message) {
+            qos = Math.max(qos, Math.min(message.qos, subscription.qos));
+            retain |= subscription.retainAsPublished && message.retain;
+            if (subscription.identifier != 0) {
+                if (identifiers == null) {
+                    identifiers = new int[] {subscription.identifier};
+                } else {
+                    identifiers = Arrays.copyOf(identifiers, identifiers.length + 1);
+                    identifiers[identifiers.length - 1] = subscription.identifier;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.test.broker;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A thread owning a selector and the connections registered with it. Connections are only
+ * read from and written to by their loop. Messages published on other loops are queued in
+ * the sessions and the connections are scheduled to drain them, so the writes of many
+ * messages are flushed together.
+ */
+final class IoLoop implements Runnable {
+
+    private static final long KEEP_ALIVE_CHECK_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private final EmbeddedMqttBroker broker;
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Queue<BrokerConnection> scheduled = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeup = new AtomicBoolean();
+    private volatile boolean running = true;
+
+    /**
+     * @param broker The broker
+     * @param name The name of the thread
+     * @throws IOException If the selector cannot be opened
+     */
+    IoLoop(EmbeddedMqttBroker broker, String name) throws IOException {
+        this.broker = broker;
+        this.selector = Selector.open();
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts the thread of the loop.
+     */
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * @param channel An accepted channel to serve
+     */
+    void register(SocketChannel channel) {
+        execute(() -> {
+            try {
+                channel.configureBlocking(false);
+                BrokerConnection connection = new BrokerConnection(broker, this, channel);
+                connection.setKey(channel.register(selector, SelectionKey.OP_READ, connection));
+            } catch (IOException e) {
+                close(channel);
+            }
+        });
+    }
+
+    /**
+     * @param task A task to run on the loop
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        wakeup();
+    }
+
+    /**
+     * Schedules a connection to drain the messages queued in its session.
+     *
+     * @param connection The connection
+     */
+    void schedule(BrokerConnection connection) {
+        scheduled.add(connection);
+        if (Thread.currentThread() != thread) {
+            wakeup();
+        }
+    }
+
+    /**
+     * Closes all connections and stops the thread.
+     *
+     * @throws InterruptedException If interrupted while waiting for the thread to stop
+     */
+    void shutdown() throws InterruptedException {
+        running = false;
+        selector.wakeup();
+        thread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    @Override
+    public void run() {
+        long lastKeepAliveCheck = System.nanoTime();
+        try {
+            while (running) {
+                wakeup.set(false);
+                if (tasks.isEmpty() && scheduled.isEmpty()) {
+                    selector.select(TimeUnit.NANOSECONDS.toMillis(KEEP_ALIVE_CHECK_INTERVAL));
+                } else {
+                    selector.selectNow();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    BrokerConnection connection = (BrokerConnection) key.attachment();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isWritable()) {
+                        connection.onWritable();
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        connection.onReadable();
+                    }
+                }
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                BrokerConnection connection;
+                while ((connection = scheduled.poll()) != null) {
+                    connection.onScheduled();
+                }
+                long now = System.nanoTime();
+                if (now - lastKeepAliveCheck >= KEEP_ALIVE_CHECK_INTERVAL) {
+                    lastKeepAliveCheck = now;
+                    for (SelectionKey key : selector.keys()) {
+                        if (key.attachment() instanceof BrokerConnection c && c.isExpired(now)) {
+                            c.close(true);
+                        }
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            // the broker is shutting down
+        } finally {
+            if (selector.isOpen()) {
+                for (SelectionKey key : selector.keys()) {
+                    if (key.attachment() instanceof BrokerConnection c) {
+                        c.close(false);
+                    }
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    private void wakeup() {
+        if (wakeup.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    private static void close(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+}
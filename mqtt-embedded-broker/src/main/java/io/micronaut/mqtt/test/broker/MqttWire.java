@@ -0,0 +1,185 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.test.broker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes the data types of the MQTT wire protocol.
+ */
+final class MqttWire {
+
+    static final int CONNECT = 1;
+    static final int CONNACK = 2;
+    static final int PUBLISH = 3;
+    static final int PUBACK = 4;
+    static final int PUBREC = 5;
+    static final int PUBREL = 6;
+    static final int PUBCOMP = 7;
+    static final int SUBSCRIBE = 8;
+    static final int SUBACK = 9;
+    static final int UNSUBSCRIBE = 10;
+    static final int UNSUBACK = 11;
+    static final int PINGREQ = 12;
+    static final int PINGRESP = 13;
+    static final int DISCONNECT = 14;
+
+    static final int PROPERTY_MESSAGE_EXPIRY_INTERVAL = 0x02;
+    static final int PROPERTY_SUBSCRIPTION_IDENTIFIER = 0x0B;
+    static final int PROPERTY_SESSION_EXPIRY_INTERVAL = 0x11;
+    static final int PROPERTY_ASSIGNED_CLIENT_IDENTIFIER = 0x12;
+    static final int PROPERTY_RECEIVE_MAXIMUM = 0x21;
+    static final int PROPERTY_MAXIMUM_PACKET_SIZE = 0x27;
+
+    private MqttWire() {
+    }
+
+    /**
+     * @param buffer The buffer to read from
+     * @return A length prefixed UTF-8 string
+     */
+    static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    /**
+     * @param buffer The buffer to read from
+     * @return Length prefixed binary data
+     */
+    static byte[] readBinary(ByteBuffer buffer) {
+        byte[] value = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(value);
+        return value;
+    }
+
+    /**
+     * @param buffer The buffer to read from
+     * @return A variable byte integer
+     * @throws IOException If the integer is longer than four bytes
+     */
+    static int readVarInt(ByteBuffer buffer) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 28; shift += 7) {
+            int b = buffer.get() & 0xFF;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable byte integer");
+    }
+
+    /**
+     * @param value The value
+     * @return The number of bytes the value occupies as a variable byte integer
+     */
+    static int varIntSize(int value) {
+        if (value < 128) {
+            return 1;
+        } else if (value < 16_384) {
+            return 2;
+        } else if (value < 2_097_152) {
+            return 3;
+        }
+        return 4;
+    }
+
+    /**
+     * @param buffer The buffer to write to
+     * @param value The value to write as a variable byte integer
+     */
+    static void writeVarInt(ByteBuffer buffer, int value) {
+        do {
+            int b = value & 0x7F;
+            value >>>= 7;
+            buffer.put((byte) (value > 0 ? b | 0x80 : b));
+        } while (value > 0);
+    }
+
+    /**
+     * Skips the value of an MQTT 5 property.
+     *
+     * @param buffer The buffer positioned after the identifier of the property
+     * @param identifier The identifier of the property
+     * @throws IOException If the identifier is unknown
+     */
+    static void skipProperty(ByteBuffer buffer, int identifier) throws IOException {
+        switch (identifier) {
+            case 0x01, 0x17, 0x19, 0x24, 0x25, 0x28, 0x29, 0x2A -> buffer.position(buffer.position() + 1);
+            case 0x13, 0x21, 0x22, 0x23 -> buffer.position(buffer.position() + 2);
+            case 0x02, 0x11, 0x18, 0x27 -> buffer.position(buffer.position() + 4);
+            case 0x0B -> readVarInt(buffer);
+            case 0x03, 0x08, 0x09, 0x12, 0x15, 0x16, 0x1A, 0x1C, 0x1F -> buffer.position(buffer.position() + (buffer.getShort() & 0xFFFF));
+            case 0x26 -> {
+                buffer.position(buffer.position() + (buffer.getShort() & 0xFFFF));
+                buffer.position(buffer.position() + (buffer.getShort() & 0xFFFF));
+            }
+            default -> throw new IOException("Unknown property identifier " + identifier);
+        }
+    }
+
+    /**
+     * Reads the properties of a PUBLISH packet or a will message and keeps the ones that are
+     * forwarded to subscribers, dropping the topic alias, subscription identifiers and the
+     * will delay.
+     *
+     * @param buffer The buffer positioned at the length of the properties
+     * @return The encoded properties, null if there are none
+     * @throws IOException If the properties are malformed
+     */
+    static byte[] readPublishProperties(ByteBuffer buffer) throws IOException {
+        int length = readVarInt(buffer);
+        if (length == 0) {
+            return null;
+        }
+        int end = buffer.position() + length;
+        ByteArrayOutputStream forwarded = new ByteArrayOutputStream(length);
+        while (buffer.position() < end) {
+            int start = buffer.position();
+            int identifier = buffer.get() & 0xFF;
+            skipProperty(buffer, identifier);
+            if (identifier != 0x23 && identifier != PROPERTY_SUBSCRIPTION_IDENTIFIER && identifier != 0x18) {
+                forwarded.write(buffer.array(), buffer.arrayOffset() + start, buffer.position() - start);
+            }
+        }
+        return forwarded.size() == 0 ? null : forwarded.toByteArray();
+    }
+
+    /**
+     * Splits a topic name or filter into its levels.
+     *
+     * @param topic The topic
+     * @return The levels
+     */
+    static String[] levels(String topic) {
+        List<String> levels = new ArrayList<>(8);
+        int start = 0;
+        for (int i = topic.indexOf('/'); i != -1; i = topic.indexOf('/', start)) {
+            levels.add(topic.substring(start, i));
+            start = i + 1;
+        }
+        levels.add(topic.substring(start));
+        return levels.toArray(new String[0]);
+    }
+}
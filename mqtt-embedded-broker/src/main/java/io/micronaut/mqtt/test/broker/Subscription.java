@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.test.broker;
+
+/**
+ * A subscription of a session to a topic filter.
+ */
+final class Subscription {
+
+    private static final String SHARED_PREFIX = "$share/";
+
+    final BrokerSession session;
+    final String filter;
+    final String shareName;
+    final String[] levels;
+    final int qos;
+    final boolean noLocal;
+    final boolean retainAsPublished;
+    final int retainHandling;
+    final int identifier;
+
+    private Subscription(BrokerSession session, String filter, String shareName, String[] levels, int options, int identifier) {
+        this.session = session;
+        this.filter = filter;
+        this.shareName = shareName;
+        this.levels = levels;
+        this.qos = options & 0x03;
+        this.noLocal = (options & 0x04) != 0;
+        this.retainAsPublished = (options & 0x08) != 0;
+        this.retainHandling = (options >> 4) & 0x03;
+        this.identifier = identifier;
+    }
+
+    /**
+     * @param session The subscribing session
+     * @param filter The topic filter, optionally a shared subscription
+     * @param options The subscription options, only the qos bits are set by MQTT 3 clients
+     * @param identifier The MQTT 5 subscription identifier, 0 if there is none
+     * @return The subscription, null if the filter is invalid
+     */
+    static Subscription create(BrokerSession session, String filter, int options, int identifier) {
+        String shareName = null;
+        String topicFilter = filter;
+        if (filter.startsWith(SHARED_PREFIX)) {
+            int separator = filter.indexOf('/', SHARED_PREFIX.length());
+            if (separator == -1) {
+                return null;
+            }
+            shareName = filter.substring(SHARED_PREFIX.length(), separator);
+            topicFilter = filter.substring(separator + 1);
+            if (shareName.isEmpty() || shareName.indexOf('+') != -1 || shareName.indexOf('#') != -1) {
+                return null;
+            }
+        }
+        if (topicFilter.isEmpty() || (options & 0x03) == 3) {
+            return null;
+        }
+        String[] levels = MqttWire.levels(topicFilter);
+        for (int i = 0; i < levels.length; i++) {
+            String level = levels[i];
+            if (level.length() > 1 && (level.indexOf('+') != -1 || level.indexOf('#') != -1)) {
+                return null;
+            }
+            if (level.equals("#") && i != levels.length - 1) {
+                return null;
+            }
+        }
+        return new Subscription(session, filter, shareName, levels, options, identifier);
+    }
+
+    /**
+     * @return True if the subscription is shared by a group of sessions
+     */
+    boolean isShared() {
+        return shareName != null;
+    }
+
+    /**
+     * @param topic The levels of a topic name
+     * @return True if the topic matches the filter
+     */
+    boolean matches(String[] topic) {
+        // topics starting with $ are not matched by filters starting with a wildcard
+        if (topic[0].startsWith("$") && (levels[0].equals("+") || levels[0].equals("#"))) {
+            return false;
+        }
+        int i = 0;
+        for (; i < levels.length; i++) {
+            String level = levels[i];
+            if (level.equals("#")) {
+                return true;
+            }
+            if (i == topic.length || (!level.equals("+") && !level.equals(topic[i]))) {
+                return false;
+            }
+        }
+        return i == topic.length;
+    }
+}
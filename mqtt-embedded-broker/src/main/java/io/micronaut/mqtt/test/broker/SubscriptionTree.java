@@ -0,0 +1,180 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.test.broker;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The subscriptions of all sessions, organized as a tree of topic levels so a topic is
+ * matched by walking at most one exact and one single level wildcard branch per level.
+ * Subscriptions are changed and matched concurrently by the I/O loops.
+ */
+final class SubscriptionTree {
+
+    private final Node root = new Node();
+
+    /**
+     * @param subscription The subscription to add
+     */
+    void add(Subscription subscription) {
+        Node node = root;
+        for (String level : subscription.levels) {
+            node = node.children.computeIfAbsent(level, l -> new Node());
+        }
+        if (subscription.isShared()) {
+            node.groups.computeIfAbsent(subscription.shareName, name -> new SharedGroup()).add(subscription);
+        } else {
+            node.subscriptions.put(subscription.session, subscription);
+        }
+    }
+
+    /**
+     * @param subscription The subscription to remove
+     */
+    void remove(Subscription subscription) {
+        Node node = root;
+        for (String level : subscription.levels) {
+            node = node.children.get(level);
+            if (node == null) {
+                return;
+            }
+        }
+        if (subscription.isShared()) {
+            SharedGroup group = node.groups.get(subscription.shareName);
+            if (group != null) {
+                group.remove(subscription);
+            }
+        } else {
+            node.subscriptions.remove(subscription.session, subscription);
+        }
+    }
+
+    /**
+     * Finds the subscriptions matching a topic. A single member of each matching shared
+     * subscription group is chosen.
+     *
+     * @param topic The levels of the topic
+     * @param matches The list to add the subscriptions to
+     */
+    void match(String[] topic, List<Subscription> matches) {
+        // topics starting with $ are not matched by filters starting with a wildcard
+        match(root, topic, 0, !topic[0].startsWith("$"), matches);
+    }
+
+    private static void match(Node node, String[] topic, int index, boolean wildcards, List<Subscription> matches) {
+        if (wildcards) {
+            Node multiLevel = node.children.get("#");
+            if (multiLevel != null) {
+                multiLevel.collect(matches);
+            }
+        }
+        if (index == topic.length) {
+            node.collect(matches);
+            return;
+        }
+        Node exact = node.children.get(topic[index]);
+        if (exact != null) {
+            match(exact, topic, index + 1, true, matches);
+        }
+        if (wildcards) {
+            Node singleLevel = node.children.get("+");
+            if (singleLevel != null) {
+                match(singleLevel, topic, index + 1, true, matches);
+            }
+        }
+    }
+
+    /**
+     * A level of the tree.
+     */
+    private static final class Node {
+
+        private final Map<String, Node> children = new ConcurrentHashMap<>();
+        private final Map<BrokerSession, Subscription> subscriptions = new ConcurrentHashMap<>();
+        private final Map<String, SharedGroup> groups = new ConcurrentHashMap<>();
+
+        private void collect(List<Subscription> matches) {
+            if (!subscriptions.isEmpty()) {
+                matches.addAll(subscriptions.values());
+            }
+            if (!groups.isEmpty()) {
+                for (SharedGroup group : groups.values()) {
+                    Subscription member = group.pick();
+                    if (member != null) {
+                        matches.add(member);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The members of a shared subscription, messages are distributed among them round robin.
+     */
+    private static final class SharedGroup {
+
+        private final AtomicInteger next = new AtomicInteger();
+        private volatile Subscription[] members = new Subscription[0];
+
+        private synchronized void add(Subscription subscription) {
+            Subscription[] current = members;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i].session == subscription.session) {
+                    Subscription[] updated = current.clone();
+                    updated[i] = subscription;
+                    members = updated;
+                    return;
+                }
+            }
+            Subscription[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = subscription;
+            members = updated;
+        }
+
+        private synchronized void remove(Subscription subscription) {
+            Subscription[] current = members;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == subscription) {
+                    Subscription[] updated = new Subscription[current.length - 1];
+                    System.arraycopy(current, 0, updated, 0, i);
+                    System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                    members = updated;
+                    return;
+                }
+            }
+        }
+
+        private Subscription pick() {
+            Subscription[] current = members;
+            if (current.length == 0) {
+                return null;
+            }
+            int start = Math.floorMod(next.getAndIncrement(), current.length);
+            // prefer members that are connected, messages for the others are queued in their session
+            for (int i = 0; i < current.length; i++) {
+                Subscription member = current[(start + i) % current.length];
+                if (member.session.isConnected()) {
+                    return member;
+                }
+            }
+            return current[start];
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.load;
+
+import io.micronaut.context.annotation.Bean;
+import io.micronaut.context.annotation.Context;
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.util.StringUtils;
+import io.micronaut.mqtt.test.broker.EmbeddedMqttBroker;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Starts the embedded broker before the publisher connects, to measure without an external broker.
+ *
+ * @since 3.0.0
+ */
+@Factory
+@Requires(property = LoadConfiguration.PREFIX + ".embedded-broker", value = StringUtils.TRUE)
+@Requires(missingProperty = LoadConfiguration.PREFIX + ".subscriber")
+public class EmbeddedBrokerFactory {
+
+    /**
+     * @param serverUri The URI of the default client
+     * @return The broker listening on the port of the URI
+     * @throws IOException If the port cannot be bound
+     */
+    @Context
+    @Bean(preDestroy = "close")
+    EmbeddedMqttBroker embeddedBroker(@Value("${mqtt.client.server-uri}") String serverUri) throws IOException {
+        return new EmbeddedMqttBroker(URI.create(serverUri).getPort()).start();
+    }
+}
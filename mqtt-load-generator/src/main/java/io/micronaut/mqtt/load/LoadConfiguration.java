@@ -0,0 +1,246 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.load;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+import io.micronaut.core.annotation.Nullable;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Configuration of the generated load.
+ *
+ * @since 3.0.0
+ */
+@ConfigurationProperties(LoadConfiguration.PREFIX)
+public class LoadConfiguration {
+
+    public static final String PREFIX = "load";
+
+    /**
+     * The prefix of the topics the load is published to.
+     */
+    public static final String TOPIC_PREFIX = "load/";
+
+    private static final int DEFAULT_TOPICS = 1;
+    private static final int DEFAULT_FAN_OUT = 1;
+    private static final int DEFAULT_PUBLISHERS = 1;
+    private static final int DEFAULT_MAX_INFLIGHT = 1000;
+    private static final boolean DEFAULT_EMBEDDED_BROKER = false;
+
+    private int topics = DEFAULT_TOPICS;
+    private int fanOut = DEFAULT_FAN_OUT;
+    private List<Integer> payloadSizes = List.of(64);
+    private List<Integer> qosMix = List.of(0, 1, 0);
+    private int rate;
+    private int publishers = DEFAULT_PUBLISHERS;
+    private int maxInflight = DEFAULT_MAX_INFLIGHT;
+    private Duration warmup = Duration.ofSeconds(5);
+    private Duration duration = Duration.ofSeconds(30);
+    private Duration reportInterval = Duration.ofSeconds(5);
+    private Duration drainTimeout = Duration.ofSeconds(10);
+    private String reportFile;
+    private boolean embeddedBroker = DEFAULT_EMBEDDED_BROKER;
+
+    /**
+     * @return The number of topics the messages are spread over
+     */
+    public int getTopics() {
+        return topics;
+    }
+
+    /**
+     * @param topics The number of topics the messages are spread over. Default value {@value #DEFAULT_TOPICS}
+     */
+    public void setTopics(int topics) {
+        this.topics = topics;
+    }
+
+    /**
+     * @return The number of subscriber connections each message is delivered to
+     */
+    public int getFanOut() {
+        return fanOut;
+    }
+
+    /**
+     * @param fanOut The number of subscriber connections each message is delivered to. Default value {@value #DEFAULT_FAN_OUT}
+     */
+    public void setFanOut(int fanOut) {
+        this.fanOut = fanOut;
+    }
+
+    /**
+     * @return The payload sizes in bytes
+     */
+    public List<Integer> getPayloadSizes() {
+        return payloadSizes;
+    }
+
+    /**
+     * @param payloadSizes The payload sizes in bytes, used in turn. Payloads are at least 8 bytes
+     *                     long to hold the send time. Default value 64
+     */
+    public void setPayloadSizes(List<Integer> payloadSizes) {
+        this.payloadSizes = payloadSizes;
+    }
+
+    /**
+     * @return The weights of the quality of service levels 0, 1 and 2
+     */
+    public List<Integer> getQosMix() {
+        return qosMix;
+    }
+
+    /**
+     * @param qosMix The weights of the quality of service levels 0, 1 and 2 of the published
+     *               messages. Default value 0, 1, 0 to publish with QoS 1 only
+     */
+    public void setQosMix(List<Integer> qosMix) {
+        this.qosMix = qosMix;
+    }
+
+    /**
+     * @return The number of messages published per second
+     */
+    public int getRate() {
+        return rate;
+    }
+
+    /**
+     * @param rate The number of messages published per second by all publishers together, 0
+     *             to publish as fast as the in-flight limit allows. Default value 0
+     */
+    public void setRate(int rate) {
+        this.rate = rate;
+    }
+
+    /**
+     * @return The number of publishing threads
+     */
+    public int getPublishers() {
+        return publishers;
+    }
+
+    /**
+     * @param publishers The number of publishing threads. Default value {@value #DEFAULT_PUBLISHERS}
+     */
+    public void setPublishers(int publishers) {
+        this.publishers = publishers;
+    }
+
+    /**
+     * @return The number of unacknowledged messages per publishing thread
+     */
+    public int getMaxInflight() {
+        return maxInflight;
+    }
+
+    /**
+     * @param maxInflight The number of unacknowledged messages per publishing thread. Default value {@value #DEFAULT_MAX_INFLIGHT}
+     */
+    public void setMaxInflight(int maxInflight) {
+        this.maxInflight = maxInflight;
+    }
+
+    /**
+     * @return The time publishing before the measurement starts
+     */
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    /**
+     * @param warmup The time publishing before the measurement starts. Default value 5 seconds
+     */
+    public void setWarmup(Duration warmup) {
+        this.warmup = warmup;
+    }
+
+    /**
+     * @return The time measured
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * @param duration The time measured. Default value 30 seconds
+     */
+    public void setDuration(Duration duration) {
+        this.duration = duration;
+    }
+
+    /**
+     * @return The interval of the progress reports
+     */
+    public Duration getReportInterval() {
+        return reportInterval;
+    }
+
+    /**
+     * @param reportInterval The interval of the progress reports. Default value 5 seconds
+     */
+    public void setReportInterval(Duration reportInterval) {
+        this.reportInterval = reportInterval;
+    }
+
+    /**
+     * @return The time to wait for outstanding deliveries after publishing stopped
+     */
+    public Duration getDrainTimeout() {
+        return drainTimeout;
+    }
+
+    /**
+     * @param drainTimeout The time to wait for outstanding acknowledgements and deliveries after
+     *                     publishing stopped. Default value 10 seconds
+     */
+    public void setDrainTimeout(Duration drainTimeout) {
+        this.drainTimeout = drainTimeout;
+    }
+
+    /**
+     * @return The file the report is written to as JSON
+     */
+    @Nullable
+    public String getReportFile() {
+        return reportFile;
+    }
+
+    /**
+     * @param reportFile The file the report is written to as JSON, to compare runs
+     */
+    public void setReportFile(@Nullable String reportFile) {
+        this.reportFile = reportFile;
+    }
+
+    /**
+     * @return True if the embedded broker is started
+     */
+    public boolean isEmbeddedBroker() {
+        return embeddedBroker;
+    }
+
+    /**
+     * @param embeddedBroker Whether to start the embedded broker on the port of
+     *                       {@code mqtt.client.server-uri}. Default value {@value #DEFAULT_EMBEDDED_BROKER}
+     */
+    public void setEmbeddedBroker(boolean embeddedBroker) {
+        this.embeddedBroker = embeddedBroker;
+    }
+}
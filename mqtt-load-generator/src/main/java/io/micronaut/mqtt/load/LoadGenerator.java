@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.load;
+
+import io.micronaut.context.ApplicationContext;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Runs the load configured by the {@code load} properties, given as arguments such as
+ * {@code --load.rate=10000}, and prints the report.
+ *
+ * @since 3.0.0
+ */
+public final class LoadGenerator {
+
+    private LoadGenerator() {
+    }
+
+    /**
+     * @param args The configuration arguments
+     * @throws IOException If the report file cannot be written
+     * @throws InterruptedException If the run is interrupted
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        try (ApplicationContext context = ApplicationContext.builder().args(args).start()) {
+            LoadReport report = context.getBean(LoadRunner.class).run();
+            System.out.print(report);
+            String reportFile = context.getBean(LoadConfiguration.class).getReportFile();
+            if (reportFile != null) {
+                Files.writeString(Path.of(reportFile), report.toJson(), StandardCharsets.UTF_8);
+            }
+        }
+    }
+}
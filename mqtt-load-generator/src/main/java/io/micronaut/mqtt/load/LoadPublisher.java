@@ -0,0 +1,38 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.load;
+
+import io.micronaut.mqtt.annotation.Qos;
+import io.micronaut.mqtt.annotation.Topic;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Publishes the generated messages, implemented by the publisher of the protocol version the
+ * load generator is run with.
+ *
+ * @since 3.0.0
+ */
+public interface LoadPublisher {
+
+    /**
+     * @param topic The topic
+     * @param qos The quality of service
+     * @param payload The payload, starting with the send time
+     * @return A future completed when the message is acknowledged
+     */
+    CompletableFuture<Void> publish(@Topic String topic, @Qos int qos, byte[] payload);
+}
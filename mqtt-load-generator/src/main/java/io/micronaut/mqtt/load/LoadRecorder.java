@@ -0,0 +1,159 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.load;
+
+import io.micronaut.mqtt.latency.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the published and received messages and records their latency. Only messages stamped
+ * within the measurement window are counted, so the warm up and the messages still in flight
+ * when the window ends do not skew the results.
+ *
+ * <p>The publishers and subscribers run in the same JVM, so messages are stamped with
+ * {@link System#nanoTime()}.</p>
+ *
+ * @since 3.0.0
+ */
+public final class LoadRecorder {
+
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final LatencyHistogram histogram = new LatencyHistogram(HIGHEST_LATENCY_MICROS, SIGNIFICANT_DIGITS);
+    private final LongAdder published = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder totalPublished = new LongAdder();
+    private final LongAdder totalReceived = new LongAdder();
+    private volatile long windowStart;
+    private volatile long windowEnd;
+
+    /**
+     * Writes the send time to the start of a payload.
+     *
+     * @param payload The payload, at least 8 bytes long
+     * @param stamp The send time
+     */
+    public static void writeStamp(byte[] payload, long stamp) {
+        for (int i = 7; i >= 0; i--) {
+            payload[i] = (byte) stamp;
+            stamp >>>= 8;
+        }
+    }
+
+    /**
+     * @param payload The payload
+     * @return The send time written to the start of the payload
+     */
+    public static long readStamp(byte[] payload) {
+        long stamp = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            stamp = (stamp << 8) | (payload[i] & 0xFF);
+        }
+        return stamp;
+    }
+
+    /**
+     * Sets the measurement window, nothing is counted before it is set.
+     *
+     * @param start The start of the measurement window
+     * @param end The end of the measurement window
+     */
+    public void window(long start, long end) {
+        this.windowStart = start;
+        this.windowEnd = end;
+    }
+
+    /**
+     * @param stamp The send time of an acknowledged message
+     */
+    public void published(long stamp) {
+        totalPublished.increment();
+        if (inWindow(stamp)) {
+            published.increment();
+        }
+    }
+
+    /**
+     * @param stamp The send time of a message that failed to be published
+     */
+    public void failed(long stamp) {
+        if (inWindow(stamp)) {
+            failed.increment();
+        }
+    }
+
+    /**
+     * @param stamp The send time of a received message
+     * @param now The time the message was received
+     */
+    public void received(long stamp, long now) {
+        totalReceived.increment();
+        if (inWindow(stamp)) {
+            received.increment();
+            histogram.record(TimeUnit.NANOSECONDS.toMicros(now - stamp));
+        }
+    }
+
+    /**
+     * @return The number of messages stamped within the window and acknowledged
+     */
+    public long getPublished() {
+        return published.sum();
+    }
+
+    /**
+     * @return The number of messages stamped within the window that failed to be published
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * @return The number of deliveries of messages stamped within the window
+     */
+    public long getReceived() {
+        return received.sum();
+    }
+
+    /**
+     * @return The number of acknowledged messages, including those outside the window
+     */
+    public long getTotalPublished() {
+        return totalPublished.sum();
+    }
+
+    /**
+     * @return The number of deliveries, including those outside the window
+     */
+    public long getTotalReceived() {
+        return totalReceived.sum();
+    }
+
+    /**
+     * @return The latencies in microseconds of the deliveries of messages stamped within the window
+     */
+    public LatencyHistogram getLatency() {
+        return histogram;
+    }
+
+    private boolean inWindow(long stamp) {
+        return stamp - windowStart >= 0 && stamp - windowEnd < 0;
+    }
+}
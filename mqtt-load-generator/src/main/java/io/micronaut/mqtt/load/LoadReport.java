@@ -0,0 +1,127 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.load;
+
+import io.micronaut.mqtt.latency.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * The throughput and latency percentiles measured by a load run.
+ *
+ * @since 3.0.0
+ */
+public final class LoadReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p99.9", "p99.99"};
+
+    private final Duration duration;
+    private final int fanOut;
+    private final long published;
+    private final long failed;
+    private final long received;
+    private final Map<String, Long> latencies = new LinkedHashMap<>();
+
+    /**
+     * @param duration The measured time
+     * @param fanOut The number of subscriber connections
+     * @param recorder The recorder of the run
+     */
+    LoadReport(Duration duration, int fanOut, LoadRecorder recorder) {
+        this.duration = duration;
+        this.fanOut = fanOut;
+        this.published = recorder.getPublished();
+        this.failed = recorder.getFailed();
+        this.received = recorder.getReceived();
+        LatencyHistogram histogram = recorder.getLatency();
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            latencies.put(PERCENTILE_NAMES[i], histogram.getValueAtPercentile(PERCENTILES[i]));
+        }
+        latencies.put("max", histogram.getMaxValue());
+    }
+
+    /**
+     * @return The number of acknowledged messages published per second
+     */
+    public double getPublishRate() {
+        return published / seconds();
+    }
+
+    /**
+     * @return The number of deliveries per second, over all subscriber connections
+     */
+    public double getDeliveryRate() {
+        return received / seconds();
+    }
+
+    /**
+     * @return The number of deliveries expected but not received, QoS 0 messages may be dropped
+     */
+    public long getMissing() {
+        return Math.max(0, published * fanOut - received);
+    }
+
+    /**
+     * @return The latency percentiles and the highest latency in microseconds
+     */
+    public Map<String, Long> getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * @return The report as a JSON object
+     */
+    public String toJson() {
+        StringJoiner latency = new StringJoiner(", ", "{", "}");
+        latencies.forEach((name, value) -> latency.add('"' + name + "\": " + value));
+        return String.format(Locale.ROOT, """
+                {
+                  "durationMillis": %d,
+                  "fanOut": %d,
+                  "published": %d,
+                  "failed": %d,
+                  "received": %d,
+                  "missing": %d,
+                  "publishRate": %.1f,
+                  "deliveryRate": %.1f,
+                  "latencyMicros": %s
+                }
+                """, duration.toMillis(), fanOut, published, failed, received, getMissing(), getPublishRate(), getDeliveryRate(), latency);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder(String.format(Locale.ROOT, """
+                Measured %.1fs with a fan-out of %d
+                  published  %12d  %12.1f msg/s
+                  failed     %12d
+                  received   %12d  %12.1f msg/s
+                  missing    %12d
+                Latency (ms)
+                """, seconds(), fanOut, published, getPublishRate(), failed, received, getDeliveryRate(), getMissing()));
+        latencies.forEach((name, value) -> report.append(String.format(Locale.ROOT, "  %-9s  %12.3f%n", name, value / 1000.0)));
+        return report.toString();
+    }
+
+    private double seconds() {
+        return Math.max(1, duration.toMillis()) / 1000.0;
+    }
+}
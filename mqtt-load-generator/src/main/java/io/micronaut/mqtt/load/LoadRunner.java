@@ -0,0 +1,241 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.load;
+
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.env.Environment;
+import io.micronaut.context.exceptions.ConfigurationException;
+import io.micronaut.core.naming.conventions.StringConvention;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishes the configured load through the {@link LoadPublisher} and receives it with a
+ * {@link LoadSubscriber} in a separate application context for every fanned out connection.
+ *
+ * <p>Message {@code n} is published to topic {@code n % topics}, with the payload size and the
+ * quality of service taken in turn from the configuration, so every run publishes the same
+ * sequence of messages. When a rate is configured, messages are stamped with the time they were
+ * due instead of the time they were sent, so that a stalled publisher shows up in the latencies.</p>
+ *
+ * @since 3.0.0
+ */
+@Singleton
+@Requires(missingProperty = LoadConfiguration.PREFIX + ".subscriber")
+public class LoadRunner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoadRunner.class);
+    private static final long DRAIN_POLL_MILLIS = 10;
+
+    private final LoadConfiguration configuration;
+    private final LoadPublisher publisher;
+    private final Environment environment;
+
+    /**
+     * @param configuration The load configuration
+     * @param publisher The publisher
+     * @param environment The environment, whose MQTT configuration the subscriber contexts use
+     */
+    public LoadRunner(LoadConfiguration configuration, LoadPublisher publisher, Environment environment) {
+        this.configuration = configuration;
+        this.publisher = publisher;
+        this.environment = environment;
+    }
+
+    /**
+     * Runs the load until the warm up and the measured duration have passed and the
+     * outstanding messages are delivered.
+     *
+     * @return The report of the measured duration
+     * @throws InterruptedException If the thread is interrupted while waiting for the publishers
+     */
+    public LoadReport run() throws InterruptedException {
+        int[] payloadSizes = payloadSizes();
+        int[] qosLevels = qosLevels();
+        if (configuration.getTopics() < 1 || configuration.getFanOut() < 1 || configuration.getPublishers() < 1 || configuration.getMaxInflight() < 1) {
+            throw new ConfigurationException("The topics, fan-out, publishers and max in-flight messages of the load must be at least 1");
+        }
+        LoadRecorder recorder = new LoadRecorder();
+        List<ApplicationContext> subscribers = new ArrayList<>(configuration.getFanOut());
+        try {
+            for (int i = 0; i < configuration.getFanOut(); i++) {
+                subscribers.add(startSubscriber(i, recorder));
+            }
+            return measure(recorder, payloadSizes, qosLevels);
+        } finally {
+            subscribers.forEach(ApplicationContext::close);
+        }
+    }
+
+    private LoadReport measure(LoadRecorder recorder, int[] payloadSizes, int[] qosLevels) throws InterruptedException {
+        int publishers = configuration.getPublishers();
+        long start = System.nanoTime();
+        long windowStart = start + configuration.getWarmup().toNanos();
+        long windowEnd = windowStart + configuration.getDuration().toNanos();
+        recorder.window(windowStart, windowEnd);
+
+        CountDownLatch done = new CountDownLatch(publishers);
+        for (int i = 0; i < publishers; i++) {
+            int index = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    publish(index, recorder, payloadSizes, qosLevels, start, windowEnd);
+                } finally {
+                    done.countDown();
+                }
+            }, "load-publisher-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        long interval = configuration.getReportInterval().toNanos();
+        long lastReport = start;
+        long lastPublished = 0;
+        long lastReceived = 0;
+        while (!done.await(interval, TimeUnit.NANOSECONDS)) {
+            long now = System.nanoTime();
+            long published = recorder.getTotalPublished();
+            long received = recorder.getTotalReceived();
+            if (LOG.isInfoEnabled()) {
+                double seconds = (now - lastReport) / 1e9;
+                LOG.info("{}s: published {} msg/s, received {} msg/s", TimeUnit.NANOSECONDS.toSeconds(now - start),
+                        Math.round((published - lastPublished) / seconds), Math.round((received - lastReceived) / seconds));
+            }
+            lastReport = now;
+            lastPublished = published;
+            lastReceived = received;
+        }
+
+        long drainEnd = System.nanoTime() + configuration.getDrainTimeout().toNanos();
+        while (recorder.getReceived() < recorder.getPublished() * configuration.getFanOut() && System.nanoTime() - drainEnd < 0) {
+            Thread.sleep(DRAIN_POLL_MILLIS);
+        }
+        return new LoadReport(configuration.getDuration(), configuration.getFanOut(), recorder);
+    }
+
+    private void publish(int index, LoadRecorder recorder, int[] payloadSizes, int[] qosLevels, long start, long end) {
+        int publishers = configuration.getPublishers();
+        int maxInflight = configuration.getMaxInflight();
+        int topics = configuration.getTopics();
+        Semaphore inflight = new Semaphore(maxInflight);
+        long interval = configuration.getRate() > 0 ? TimeUnit.SECONDS.toNanos(publishers) / configuration.getRate() : 0;
+        long due = start;
+        for (long n = index; ; n += publishers) {
+            long stamp;
+            if (interval > 0) {
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                stamp = due;
+                due += interval;
+            } else {
+                stamp = System.nanoTime();
+            }
+            if (stamp - end >= 0) {
+                break;
+            }
+            inflight.acquireUninterruptibly();
+            byte[] payload = new byte[payloadSizes[(int) (n % payloadSizes.length)]];
+            LoadRecorder.writeStamp(payload, stamp);
+            try {
+                CompletableFuture<Void> future = publisher.publish(LoadConfiguration.TOPIC_PREFIX + (n % topics), qosLevels[(int) (n % qosLevels.length)], payload);
+                future.whenComplete((result, error) -> {
+                    inflight.release();
+                    if (error == null) {
+                        recorder.published(stamp);
+                    } else {
+                        recorder.failed(stamp);
+                    }
+                });
+            } catch (RuntimeException e) {
+                inflight.release();
+                recorder.failed(stamp);
+            }
+        }
+        try {
+            if (!inflight.tryAcquire(maxInflight, configuration.getDrainTimeout().toNanos(), TimeUnit.NANOSECONDS) && LOG.isWarnEnabled()) {
+                LOG.warn("Publisher {} stopped with {} unacknowledged messages", index, maxInflight - inflight.availablePermits());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ApplicationContext startSubscriber(int index, LoadRecorder recorder) {
+        Map<String, Object> properties = new HashMap<>();
+        environment.getProperties("mqtt", StringConvention.RAW).forEach((key, value) -> properties.put("mqtt." + key, value));
+        properties.put("mqtt.client.client-id", environment.getProperty("mqtt.client.client-id", String.class, "load-generator") + "-subscriber-" + index);
+        properties.put(LoadConfiguration.PREFIX + ".subscriber", true);
+        return ApplicationContext.builder()
+                .properties(properties)
+                .singletons(recorder)
+                .start();
+    }
+
+    private int[] payloadSizes() {
+        List<Integer> sizes = configuration.getPayloadSizes();
+        if (sizes == null || sizes.isEmpty()) {
+            throw new ConfigurationException("At least one payload size must be configured");
+        }
+        // the payload starts with the send time
+        return sizes.stream().mapToInt(size -> Math.max(Long.BYTES, size)).toArray();
+    }
+
+    // spreads the quality of service levels evenly over a cycle, 1, 2, 1 for weights of 0, 2 and 1
+    private int[] qosLevels() {
+        List<Integer> weights = configuration.getQosMix();
+        if (weights == null || weights.size() > 3 || weights.stream().anyMatch(weight -> weight < 0) || weights.stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new ConfigurationException("The QoS mix must be up to 3 non-negative weights of QoS 0, 1 and 2: " + weights);
+        }
+        int divisor = weights.stream().mapToInt(Integer::intValue).reduce(0, LoadRunner::gcd);
+        weights = weights.stream().map(weight -> weight / divisor).toList();
+        int total = weights.stream().mapToInt(Integer::intValue).sum();
+        int[] levels = new int[total];
+        int[] assigned = new int[weights.size()];
+        for (int i = 0; i < total; i++) {
+            // pick the level furthest behind its share of the cycle so far
+            int level = 0;
+            double deficit = Double.NEGATIVE_INFINITY;
+            for (int qos = 0; qos < weights.size(); qos++) {
+                double behind = (double) weights.get(qos) * (i + 1) / total - assigned[qos];
+                if (weights.get(qos) > 0 && behind > deficit) {
+                    deficit = behind;
+                    level = qos;
+                }
+            }
+            assigned[level]++;
+            levels[i] = level;
+        }
+        return levels;
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.load;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.core.util.StringUtils;
+import io.micronaut.mqtt.annotation.MqttSubscriber;
+import io.micronaut.mqtt.annotation.Topic;
+
+/**
+ * Receives the generated messages in the subscriber contexts, one per fanned out connection.
+ *
+ * @since 3.0.0
+ */
+@Requires(property = LoadConfiguration.PREFIX + ".subscriber", value = StringUtils.TRUE)
+@MqttSubscriber
+public class LoadSubscriber {
+
+    private final LoadRecorder recorder;
+
+    /**
+     * @param recorder The recorder shared with the publishing context
+     */
+    public LoadSubscriber(LoadRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * @param payload The payload, starting with the send time
+     */
+    @Topic(value = LoadConfiguration.TOPIC_PREFIX + "#", qos = 2)
+    public void receive(byte[] payload) {
+        long now = System.nanoTime();
+        recorder.received(LoadRecorder.readStamp(payload), now);
+    }
+}
@@ -0,0 +1,64 @@
+package io.micronaut.mqtt.load
+
+import io.micronaut.context.ApplicationContext
+import io.micronaut.mqtt.test.broker.EmbeddedMqttBroker
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+class LoadRunnerSpec extends Specification {
+
+    @AutoCleanup
+    EmbeddedMqttBroker broker = new EmbeddedMqttBroker().start()
+
+    @TempDir
+    Path directory
+
+    void "a short run against the embedded broker delivers every message to every subscriber"() {
+        given:
+        ApplicationContext ctx = ApplicationContext.run(properties())
+
+        when:
+        LoadReport report = ctx.getBean(LoadRunner).run()
+
+        then:
+        report.publishRate > 0
+        report.missing == 0
+        report.latencies.keySet() == ["p50", "p90", "p99", "p99.9", "p99.99", "max"] as Set
+        report.latencies["max"] > 0
+
+        cleanup:
+        ctx.close()
+    }
+
+    void "the generator writes the report file"() {
+        given:
+        Path reportFile = directory.resolve("report.json")
+        String[] args = properties().collect { key, value -> "--$key=$value".toString() } + "--load.report-file=$reportFile".toString()
+
+        when:
+        LoadGenerator.main(args)
+
+        then:
+        String json = Files.readString(reportFile)
+        json.contains('"fanOut": 2')
+        json.contains('"missing": 0')
+    }
+
+    private Map<String, Object> properties() {
+        [
+                "mqtt.client.server-uri"     : broker.serverUri,
+                "mqtt.client.client-id"      : "load-runner-spec",
+                "load.rate"                  : 500,
+                "load.topics"                : 4,
+                "load.fan-out"               : 2,
+                "load.warmup"                : "200ms",
+                "load.duration"              : "1s",
+                "load.report-interval"       : "500ms",
+                "load.drain-timeout"         : "5s"
+        ]
+    }
+}
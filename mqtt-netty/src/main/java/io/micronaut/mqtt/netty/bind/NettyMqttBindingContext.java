@@ -0,0 +1,159 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.netty.bind;
+
+import io.micronaut.core.annotation.Internal;
+import io.micronaut.mqtt.bind.MqttBindingContext;
+import io.micronaut.mqtt.netty.client.NettyMqttClient;
+import io.micronaut.mqtt.topic.TopicVariables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A binding context for messages of the Netty MQTT client.
+ *
+ * @since 3.0.0
+ */
+@Internal
+public final class NettyMqttBindingContext implements MqttBindingContext<NettyMqttMessage> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NettyMqttBindingContext.class);
+
+    private final NettyMqttClient client;
+    private final NettyMqttMessage message;
+    private String topic;
+    private TopicVariables topicVariables;
+    private Runnable acknowledged;
+    private byte[] receivedPayload;
+
+    /**
+     * @param client The client, null for messages delivered in process
+     * @param message The message
+     */
+    public NettyMqttBindingContext(NettyMqttClient client, NettyMqttMessage message) {
+        this.client = client;
+        this.message = message;
+    }
+
+    @Override
+    public byte[] getPayload() {
+        return receivedPayload != null ? receivedPayload : message.getPayload();
+    }
+
+    @Override
+    public ByteBuffer getPayloadBuffer() {
+        return receivedPayload != null ? ByteBuffer.wrap(receivedPayload) : message.getPayloadBuffer();
+    }
+
+    @Override
+    public void retainPayload() {
+        message.retainPayload();
+    }
+
+    @Override
+    public void setPayload(byte[] payload) {
+        receivedPayload = null;
+        message.setPayload(payload);
+    }
+
+    /**
+     * Replaces the payload of a received message for this context only, the message itself
+     * is shared by all subscriptions matching its topic.
+     *
+     * @param payload The payload
+     */
+    public void setReceivedPayload(byte[] payload) {
+        this.receivedPayload = payload;
+    }
+
+    @Override
+    public boolean isRetained() {
+        return message.isRetained();
+    }
+
+    @Override
+    public void setRetained(boolean retained) {
+        message.setRetained(retained);
+    }
+
+    @Override
+    public int getQos() {
+        return message.getQos();
+    }
+
+    @Override
+    public void setQos(int qos) {
+        message.setQos(qos);
+    }
+
+    @Override
+    public String getTopic() {
+        return topic;
+    }
+
+    @Override
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+
+    @Override
+    public TopicVariables getTopicVariables() {
+        return topicVariables;
+    }
+
+    @Override
+    public void setTopicVariables(TopicVariables topicVariables) {
+        this.topicVariables = topicVariables;
+    }
+
+    @Override
+    public int getId() {
+        return message.getId();
+    }
+
+    @Override
+    public void acknowlege() {
+        acknowledgeMessage();
+        Runnable callback = acknowledged;
+        if (callback != null) {
+            acknowledged = null;
+            callback.run();
+        }
+    }
+
+    @Override
+    public void onAcknowledged(Runnable callback) {
+        this.acknowledged = callback;
+    }
+
+    private void acknowledgeMessage() {
+        if (client == null) {
+            // the message was delivered in process
+            return;
+        }
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("Acknowledging message id {} with qos {}", message.getId(), message.getQos());
+        }
+        client.acknowledge(message.getId(), message.getQos());
+    }
+
+    @Override
+    public NettyMqttMessage getNativeMessage() {
+        return message;
+    }
+}
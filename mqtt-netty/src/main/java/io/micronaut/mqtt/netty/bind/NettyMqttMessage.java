@@ -0,0 +1,182 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.netty.bind;
+
+import io.micronaut.core.annotation.Nullable;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.handler.codec.mqtt.MqttProperties;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A message published or received by the Netty MQTT client. The payload of a received message
+ * is lent from the pooled buffer it was decoded into, and only copied into an array if the
+ * array is requested or the message outlives its delivery.
+ *
+ * @since 3.0.0
+ */
+public final class NettyMqttMessage {
+
+    private ByteBuf payloadBuffer;
+    private byte[] payload;
+    private int qos = 1;
+    private boolean retained;
+    private boolean duplicate;
+    private int id;
+    private MqttProperties properties;
+
+    /**
+     * Creates an empty message to publish.
+     */
+    public NettyMqttMessage() {
+    }
+
+    /**
+     * @param payload The payload
+     * @param qos The quality of service
+     * @param retained Whether the message is retained
+     * @param duplicate Whether the message is a redelivery
+     * @param id The packet identifier
+     * @param properties The MQTT 5 properties
+     */
+    public NettyMqttMessage(byte[] payload, int qos, boolean retained, boolean duplicate, int id, @Nullable MqttProperties properties) {
+        this.payload = payload;
+        this.qos = qos;
+        this.retained = retained;
+        this.duplicate = duplicate;
+        this.id = id;
+        this.properties = properties;
+    }
+
+    /**
+     * @param payload The payload, lent from a pooled buffer until {@link #release()} is called
+     * @param qos The quality of service
+     * @param retained Whether the message is retained
+     * @param duplicate Whether the message is a redelivery
+     * @param id The packet identifier
+     * @param properties The MQTT 5 properties
+     */
+    public NettyMqttMessage(ByteBuf payload, int qos, boolean retained, boolean duplicate, int id, @Nullable MqttProperties properties) {
+        this((byte[]) null, qos, retained, duplicate, id, properties);
+        this.payloadBuffer = payload;
+    }
+
+    /**
+     * @return The payload, copied out of the pooled buffer the first time it is requested
+     */
+    public synchronized byte[] getPayload() {
+        if (payload == null && payloadBuffer != null) {
+            payload = ByteBufUtil.getBytes(payloadBuffer);
+        }
+        return payload;
+    }
+
+    /**
+     * @return A view of the payload, without copying it out of the pooled buffer
+     */
+    @Nullable
+    public synchronized ByteBuffer getPayloadBuffer() {
+        if (payload != null) {
+            return ByteBuffer.wrap(payload);
+        }
+        return payloadBuffer == null ? null : payloadBuffer.nioBuffer();
+    }
+
+    /**
+     * Copies the payload out of the pooled buffer, so it stays readable after {@link #release()}.
+     */
+    public void retainPayload() {
+        getPayload();
+    }
+
+    /**
+     * Returns the pooled buffer of a received payload once the message has been delivered.
+     */
+    public synchronized void release() {
+        if (payloadBuffer != null) {
+            payloadBuffer.release();
+            payloadBuffer = null;
+        }
+    }
+
+    /**
+     * @param payload The payload
+     */
+    public synchronized void setPayload(byte[] payload) {
+        this.payload = payload;
+    }
+
+    /**
+     * @return The quality of service
+     */
+    public int getQos() {
+        return qos;
+    }
+
+    /**
+     * @param qos The quality of service
+     */
+    public void setQos(int qos) {
+        this.qos = qos;
+    }
+
+    /**
+     * @return True if the message is retained
+     */
+    public boolean isRetained() {
+        return retained;
+    }
+
+    /**
+     * @param retained Whether the message is retained
+     */
+    public void setRetained(boolean retained) {
+        this.retained = retained;
+    }
+
+    /**
+     * @return True if the broker redelivered the message
+     */
+    public boolean isDuplicate() {
+        return duplicate;
+    }
+
+    /**
+     * @return The packet identifier of a received message
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return The MQTT 5 properties, created when first requested
+     */
+    public MqttProperties getProperties() {
+        if (properties == null) {
+            properties = new MqttProperties();
+        }
+        return properties;
+    }
+
+    /**
+     * @return The MQTT 5 properties, or null if there are none
+     */
+    @Nullable
+    public MqttProperties getPropertiesIfPresent() {
+        return properties;
+    }
+}
@@ -0,0 +1,767 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.netty.client;
+
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.mqtt.client.MqttConnectionLifecycle;
+import io.micronaut.mqtt.exception.MqttClientException;
+import io.micronaut.mqtt.netty.bind.NettyMqttMessage;
+import io.micronaut.mqtt.netty.config.AbstractNettyMqttClientConfiguration;
+import io.micronaut.mqtt.topic.TopicTemplate;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.mqtt.MqttConnAckMessage;
+import io.netty.handler.codec.mqtt.MqttConnectMessage;
+import io.netty.handler.codec.mqtt.MqttConnectReturnCode;
+import io.netty.handler.codec.mqtt.MqttDecoder;
+import io.netty.handler.codec.mqtt.MqttEncoder;
+import io.netty.handler.codec.mqtt.MqttFixedHeader;
+import io.netty.handler.codec.mqtt.MqttMessage;
+import io.netty.handler.codec.mqtt.MqttMessageBuilders;
+import io.netty.handler.codec.mqtt.MqttMessageIdAndPropertiesVariableHeader;
+import io.netty.handler.codec.mqtt.MqttMessageIdVariableHeader;
+import io.netty.handler.codec.mqtt.MqttMessageType;
+import io.netty.handler.codec.mqtt.MqttProperties;
+import io.netty.handler.codec.mqtt.MqttPublishMessage;
+import io.netty.handler.codec.mqtt.MqttPublishVariableHeader;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.netty.handler.codec.mqtt.MqttSubAckMessage;
+import io.netty.handler.codec.mqtt.MqttSubscribeMessage;
+import io.netty.handler.codec.mqtt.MqttSubscribePayload;
+import io.netty.handler.codec.mqtt.MqttTopicSubscription;
+import io.netty.handler.codec.mqtt.MqttUnsubscribeMessage;
+import io.netty.handler.codec.mqtt.MqttUnsubscribePayload;
+import io.netty.handler.codec.mqtt.MqttVersion;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A single MQTT 3.1.1 or 5 connection running on a Netty event loop.
+ *
+ * <p>All protocol state of a connection is confined to the event loop the connection is
+ * registered with, so a connection occupies no thread of its own and many connections share
+ * the event loops of the application. Frames are encoded into pooled buffers, and received
+ * payloads stay in the pooled buffer they were decoded into until the listeners returned.
+ * Received messages are handed to the listeners on the consumer executor, one at a time per
+ * connection to keep their order.</p>
+ *
+ * @since 3.0.0
+ */
+public final class NettyMqttClient implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NettyMqttClient.class);
+    private static final int DEFAULT_PORT = 1883;
+    private static final int DEFAULT_SSL_PORT = 8883;
+    private static final int MAX_PACKET_ID = 0xFFFF;
+    private static final int FLUSH_CONSOLIDATION_LIMIT = 256;
+    private static final long INITIAL_RECONNECT_DELAY = 1000;
+
+    private final AbstractNettyMqttClientConfiguration configuration;
+    private final String clientId;
+    private final int connection;
+    private final EventLoop eventLoop;
+    private final Class<? extends Channel> channelClass;
+    private final SslContext sslContext;
+    private final Executor deliveryExecutor;
+    private final MqttConnectionLifecycle connectionLifecycle;
+    private final MqttVersion version;
+    private final String host;
+    private final int port;
+    private final boolean manualAcks;
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private final CompletableFuture<Void> firstConnect = new CompletableFuture<>();
+
+    // confined to the event loop
+    private final Map<Integer, Pending> inflight = new LinkedHashMap<>();
+    private final Queue<Pending> queued = new ArrayDeque<>();
+    private final Map<Integer, CompletableFuture<List<Integer>>> acks = new HashMap<>();
+    private final Set<Integer> receivedQos2 = new HashSet<>();
+    private Channel channel;
+    private int lastPacketId;
+    private long reconnectDelay = INITIAL_RECONNECT_DELAY;
+    private boolean everConnected;
+    private ScheduledFuture<?> connectTimeout;
+    private Throwable closeCause;
+
+    private volatile boolean connected;
+    private volatile boolean closed;
+
+    /**
+     * @param configuration The client configuration
+     * @param connection The index of the connection within its pool
+     * @param group The event loops to register the connection with
+     * @param channelClass The socket channel type matching the event loops
+     * @param sslContext The SSL context for {@code ssl://} server URIs, null otherwise
+     * @param consumerExecutor The executor received messages are delivered on
+     * @param connectionLifecycle The lifecycle notified when the connection is established or lost
+     */
+    public NettyMqttClient(@NonNull AbstractNettyMqttClientConfiguration configuration,
+                           int connection,
+                           @NonNull EventLoopGroup group,
+                           @NonNull Class<? extends Channel> channelClass,
+                           @Nullable SslContext sslContext,
+                           @NonNull Executor consumerExecutor,
+                           @NonNull MqttConnectionLifecycle connectionLifecycle) {
+        this.configuration = configuration;
+        this.clientId = connection == 0 ? configuration.getClientId() : configuration.getClientId() + "-" + connection;
+        this.connection = connection;
+        this.eventLoop = group.next();
+        this.channelClass = channelClass;
+        this.sslContext = sslContext;
+        this.deliveryExecutor = new SerialExecutor(consumerExecutor);
+        this.connectionLifecycle = connectionLifecycle;
+        this.version = configuration.getProtocolVersion() == 3 ? MqttVersion.MQTT_3_1_1 : MqttVersion.MQTT_5;
+        this.manualAcks = configuration.getManualAcks().orElse(false);
+        URI uri = URI.create(configuration.getServerUri());
+        this.host = uri.getHost();
+        this.port = uri.getPort() != -1 ? uri.getPort() : sslContext != null ? DEFAULT_SSL_PORT : DEFAULT_PORT;
+    }
+
+    /**
+     * @return The client id sent to the broker
+     */
+    @NonNull
+    public String getClientId() {
+        return clientId;
+    }
+
+    /**
+     * @return True if the protocol version is MQTT 5
+     */
+    public boolean isMqtt5() {
+        return version == MqttVersion.MQTT_5;
+    }
+
+    /**
+     * @return True if the connection is established
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Opens the connection. With {@code async-connect} enabled, failed attempts are retried
+     * until the connection is established.
+     *
+     * @return A future completed once the connection has been established for the first time
+     */
+    @NonNull
+    public CompletableFuture<Void> connect() {
+        eventLoop.execute(this::openChannel);
+        return firstConnect;
+    }
+
+    /**
+     * Publishes a message. The returned future completes once the message has been written for
+     * QoS 0, acknowledged for QoS 1 and completed for QoS 2.
+     *
+     * @param topic The topic
+     * @param payload The payload
+     * @param qos The quality of service
+     * @param retained Whether the broker retains the message
+     * @param properties The MQTT 5 properties, null if none
+     * @return A future completed when the message is delivered to the broker
+     */
+    @NonNull
+    public CompletableFuture<Void> publish(@NonNull String topic, @NonNull byte[] payload, int qos, boolean retained, @Nullable MqttProperties properties) {
+        Pending pending = new Pending(topic, payload, qos, retained, properties);
+        eventLoop.execute(() -> send(pending));
+        return pending.future;
+    }
+
+    /**
+     * Subscribes to the given topic filters. The listeners are registered before the
+     * subscription is sent, so messages arriving before the acknowledgement are delivered.
+     *
+     * @param topics The topic filters and their subscription options
+     * @param listeners The listener of each topic filter
+     * @return A future completed with the quality of service granted for each filter, where
+     * {@code 0x80} or higher marks a rejected filter
+     */
+    @NonNull
+    public CompletableFuture<List<Integer>> subscribe(@NonNull List<MqttTopicSubscription> topics, @NonNull List<MessageListener> listeners) {
+        for (int i = 0; i < topics.size(); i++) {
+            String filter = topics.get(i).topicName();
+            subscriptions.put(filter, new Subscription(TopicTemplate.compile(filter), listeners.get(i)));
+        }
+        CompletableFuture<List<Integer>> future = new CompletableFuture<>();
+        eventLoop.execute(() -> {
+            if (!connected) {
+                future.completeExceptionally(new MqttClientException("The client " + clientId + " is not connected"));
+                return;
+            }
+            int id = nextPacketId();
+            acks.put(id, future);
+            channel.writeAndFlush(new MqttSubscribeMessage(
+                    new MqttFixedHeader(MqttMessageType.SUBSCRIBE, false, MqttQoS.AT_LEAST_ONCE, false, 0),
+                    new MqttMessageIdAndPropertiesVariableHeader(id, MqttProperties.NO_PROPERTIES),
+                    new MqttSubscribePayload(topics)));
+        });
+        return future;
+    }
+
+    /**
+     * Unsubscribes from the given topic filters.
+     *
+     * @param filters The topic filters
+     * @return A future completed once the broker acknowledged the request
+     */
+    @NonNull
+    public CompletableFuture<Void> unsubscribe(@NonNull List<String> filters) {
+        filters.forEach(subscriptions::remove);
+        CompletableFuture<List<Integer>> future = new CompletableFuture<>();
+        eventLoop.execute(() -> {
+            if (!connected) {
+                future.completeExceptionally(new MqttClientException("The client " + clientId + " is not connected"));
+                return;
+            }
+            int id = nextPacketId();
+            acks.put(id, future);
+            channel.writeAndFlush(new MqttUnsubscribeMessage(
+                    new MqttFixedHeader(MqttMessageType.UNSUBSCRIBE, false, MqttQoS.AT_LEAST_ONCE, false, 0),
+                    new MqttMessageIdAndPropertiesVariableHeader(id, MqttProperties.NO_PROPERTIES),
+                    new MqttUnsubscribePayload(filters)));
+        });
+        return future.thenApply(granted -> null);
+    }
+
+    /**
+     * Acknowledges a received message when manual acknowledgements are enabled.
+     *
+     * @param id The packet id of the message
+     * @param qos The quality of service of the message
+     */
+    public void acknowledge(int id, int qos) {
+        if (qos > 0) {
+            eventLoop.execute(() -> sendAck(id, qos));
+        }
+    }
+
+    /**
+     * Disconnects from the broker and fails all messages that are not yet delivered.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (eventLoop.isShuttingDown()) {
+            return;
+        }
+        eventLoop.submit(() -> {
+            if (channel != null && channel.isActive()) {
+                channel.writeAndFlush(new MqttMessage(fixedHeader(MqttMessageType.DISCONNECT, MqttQoS.AT_MOST_ONCE)))
+                        .addListener(ChannelFutureListener.CLOSE);
+            }
+            failAll(new MqttClientException("The client " + clientId + " has been closed"));
+        }).awaitUninterruptibly(configuration.getConnectionTimeout().toMillis());
+    }
+
+    private void openChannel() {
+        if (closed || channel != null) {
+            return;
+        }
+        Bootstrap bootstrap = new Bootstrap()
+                .group(eventLoop)
+                .channel(channelClass)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) configuration.getConnectionTimeout().toMillis())
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ChannelPipeline pipeline = ch.pipeline();
+                        if (sslContext != null) {
+                            pipeline.addLast(sslContext.newHandler(ch.alloc(), host, port));
+                        }
+                        // publishes written in one event loop turn share a single flush
+                        pipeline.addLast(new FlushConsolidationHandler(FLUSH_CONSOLIDATION_LIMIT, true));
+                        pipeline.addLast(new MqttDecoder(configuration.getMaxMessageSize()));
+                        pipeline.addLast(MqttEncoder.INSTANCE);
+                        long keepAlive = configuration.getKeepAliveInterval().toMillis();
+                        if (keepAlive > 0) {
+                            pipeline.addLast(new IdleStateHandler(keepAlive + keepAlive / 2, keepAlive, 0, TimeUnit.MILLISECONDS));
+                        }
+                        pipeline.addLast(new Handler());
+                    }
+                });
+        ChannelFuture future = bootstrap.connect(host, port);
+        channel = future.channel();
+        future.addListener((ChannelFutureListener) f -> {
+            if (!f.isSuccess()) {
+                connectFailed(f.cause());
+            }
+        });
+    }
+
+    private MqttConnectMessage connectMessage() {
+        MqttMessageBuilders.ConnectBuilder builder = MqttMessageBuilders.connect()
+                .protocolVersion(version)
+                .clientId(clientId)
+                .cleanSession(configuration.isCleanStart())
+                .keepAlive((int) configuration.getKeepAliveInterval().getSeconds());
+        if (configuration.getUserName() != null) {
+            builder.hasUser(true).username(configuration.getUserName());
+        }
+        if (configuration.getPassword() != null) {
+            builder.hasPassword(true).password(configuration.getPassword().getBytes(StandardCharsets.UTF_8));
+        }
+        if (configuration.getWillTopic() != null) {
+            byte[] willPayload = configuration.getWillPayload();
+            builder.willFlag(true)
+                    .willTopic(configuration.getWillTopic())
+                    .willMessage(willPayload == null ? new byte[0] : willPayload)
+                    .willQoS(MqttQoS.valueOf(configuration.getWillQos()))
+                    .willRetain(configuration.isWillRetained());
+        }
+        if (isMqtt5() && !configuration.getSessionExpiryInterval().isZero()) {
+            MqttProperties properties = new MqttProperties();
+            properties.add(new MqttProperties.IntegerProperty(MqttProperties.MqttPropertyType.SESSION_EXPIRY_INTERVAL.value(),
+                    (int) configuration.getSessionExpiryInterval().getSeconds()));
+            builder.properties(properties);
+        }
+        return builder.build();
+    }
+
+    private void connectFailed(Throwable cause) {
+        channel = null;
+        boolean retry = everConnected ? configuration.isAutomaticReconnect() : configuration.isAsyncConnect();
+        if (!retry) {
+            firstConnect.completeExceptionally(new MqttClientException("Failed to connect to " + configuration.getServerUri(), cause));
+            if (everConnected) {
+                failAll(new MqttClientException("The connection of the client " + clientId + " has been lost", cause));
+            }
+            return;
+        }
+        if (closed) {
+            return;
+        }
+        if (LOG.isWarnEnabled()) {
+            LOG.warn("Failed to connect to {}, retrying in {}ms", configuration.getServerUri(), reconnectDelay, cause);
+        }
+        eventLoop.schedule(this::openChannel, reconnectDelay, TimeUnit.MILLISECONDS);
+        reconnectDelay = Math.min(reconnectDelay * 2, configuration.getMaxReconnectDelay().toMillis());
+    }
+
+    private void connectionEstablished() {
+        connected = true;
+        reconnectDelay = INITIAL_RECONNECT_DELAY;
+        boolean reconnect = everConnected;
+        everConnected = true;
+        // messages that were not acknowledged before the connection was lost are sent again
+        for (Pending pending : inflight.values()) {
+            if (pending.released) {
+                channel.write(pubRel(pending.id));
+            } else {
+                channel.write(pending.toMessage(true));
+            }
+        }
+        channel.flush();
+        sendQueued();
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Client {} connected to {}", clientId, configuration.getServerUri());
+        }
+        deliveryExecutor.execute(() -> {
+            connectionLifecycle.connected(connection, reconnect);
+            firstConnect.complete(null);
+        });
+    }
+
+    private void connectionLost(Throwable cause) {
+        boolean wasConnected = connected;
+        connected = false;
+        channel = null;
+        if (connectTimeout != null) {
+            connectTimeout.cancel(false);
+            connectTimeout = null;
+        }
+        MqttClientException exception = new MqttClientException("The connection of the client " + clientId + " has been lost", cause);
+        acks.values().forEach(future -> future.completeExceptionally(exception));
+        acks.clear();
+        if (!wasConnected) {
+            connectFailed(cause);
+            return;
+        }
+        if (LOG.isWarnEnabled() && !closed) {
+            LOG.warn("Client {} lost the connection to {}", clientId, configuration.getServerUri(), cause);
+        }
+        deliveryExecutor.execute(() -> connectionLifecycle.disconnected(connection));
+        if (closed) {
+            return;
+        }
+        if (configuration.isAutomaticReconnect()) {
+            eventLoop.schedule(this::openChannel, reconnectDelay, TimeUnit.MILLISECONDS);
+            reconnectDelay = Math.min(reconnectDelay * 2, configuration.getMaxReconnectDelay().toMillis());
+        } else {
+            failAll(exception);
+        }
+    }
+
+    private void send(Pending pending) {
+        if (!connected) {
+            pending.future.completeExceptionally(new MqttClientException("The client " + clientId + " is not connected"));
+            return;
+        }
+        if (pending.qos == 0) {
+            channel.writeAndFlush(pending.toMessage(false)).addListener((ChannelFutureListener) f -> {
+                if (f.isSuccess()) {
+                    pending.future.complete(null);
+                } else {
+                    pending.future.completeExceptionally(new MqttClientException("Failed to publish the message", f.cause()));
+                }
+            });
+        } else if (inflight.size() >= configuration.getMaxInflight()) {
+            queued.add(pending);
+        } else {
+            pending.id = nextPacketId();
+            inflight.put(pending.id, pending);
+            channel.writeAndFlush(pending.toMessage(false));
+        }
+    }
+
+    private void sendQueued() {
+        while (connected && !queued.isEmpty() && inflight.size() < configuration.getMaxInflight()) {
+            send(queued.poll());
+        }
+    }
+
+    private void delivered(int id) {
+        Pending pending = inflight.remove(id);
+        if (pending != null) {
+            pending.future.complete(null);
+            sendQueued();
+        }
+    }
+
+    private void failAll(Throwable cause) {
+        for (Pending pending : inflight.values()) {
+            pending.future.completeExceptionally(cause);
+        }
+        inflight.clear();
+        for (Pending pending : queued) {
+            pending.future.completeExceptionally(cause);
+        }
+        queued.clear();
+    }
+
+    private int nextPacketId() {
+        do {
+            lastPacketId = lastPacketId == MAX_PACKET_ID ? 1 : lastPacketId + 1;
+        } while (inflight.containsKey(lastPacketId) || acks.containsKey(lastPacketId));
+        return lastPacketId;
+    }
+
+    private void received(MqttPublishMessage publish) {
+        MqttPublishVariableHeader header = publish.variableHeader();
+        int qos = publish.fixedHeader().qosLevel().value();
+        int id = header.packetId();
+        if (qos == 2 && !receivedQos2.add(id)) {
+            // redelivered before the release, the message has already been handed to the listeners
+            if (!manualAcks) {
+                sendAck(id, qos);
+            }
+            return;
+        }
+        String topic = header.topicName();
+        // the payload is lent to the listeners, the publish itself is released when this method returns
+        NettyMqttMessage message = new NettyMqttMessage(
+                publish.payload().retainedDuplicate(),
+                qos,
+                publish.fixedHeader().isRetain(),
+                publish.fixedHeader().isDup(),
+                id,
+                isMqtt5() ? header.properties() : null);
+        deliveryExecutor.execute(() -> {
+            try {
+                for (Subscription subscription : subscriptions.values()) {
+                    if (subscription.template.matches(topic)) {
+                        try {
+                            subscription.listener.messageArrived(topic, message);
+                        } catch (Exception e) {
+                            if (LOG.isErrorEnabled()) {
+                                LOG.error("Failed to deliver the message received on {}", topic, e);
+                            }
+                        }
+                    }
+                }
+            } finally {
+                message.release();
+            }
+            if (qos > 0 && !manualAcks) {
+                // acknowledged once the listeners returned, so a crash before redelivers the message
+                eventLoop.execute(() -> sendAck(id, qos));
+            }
+        });
+    }
+
+    private void sendAck(int id, int qos) {
+        if (channel == null || !channel.isActive()) {
+            return;
+        }
+        MqttMessageType type = qos == 1 ? MqttMessageType.PUBACK : MqttMessageType.PUBREC;
+        channel.writeAndFlush(new MqttMessage(fixedHeader(type, MqttQoS.AT_MOST_ONCE), MqttMessageIdVariableHeader.from(id)));
+    }
+
+    private static MqttMessage pubRel(int id) {
+        return new MqttMessage(fixedHeader(MqttMessageType.PUBREL, MqttQoS.AT_LEAST_ONCE), MqttMessageIdVariableHeader.from(id));
+    }
+
+    private static MqttFixedHeader fixedHeader(MqttMessageType type, MqttQoS qos) {
+        return new MqttFixedHeader(type, false, qos, false, 0);
+    }
+
+    private static int messageId(MqttMessage message) {
+        return ((MqttMessageIdVariableHeader) message.variableHeader()).messageId();
+    }
+
+    /**
+     * Receives the messages of a subscription.
+     */
+    @FunctionalInterface
+    public interface MessageListener {
+
+        /**
+         * @param topic The topic the message was published to
+         * @param message The message
+         * @throws Exception If the message could not be handled
+         */
+        void messageArrived(String topic, NettyMqttMessage message) throws Exception;
+    }
+
+    /**
+     * Handles the frames received by a connection.
+     */
+    private final class Handler extends SimpleChannelInboundHandler<MqttMessage> {
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            ctx.writeAndFlush(connectMessage());
+            connectTimeout = eventLoop.schedule(() -> {
+                if (!connected) {
+                    ctx.close();
+                }
+            }, configuration.getConnectionTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            if (ctx.channel() == channel) {
+                Throwable cause = closeCause;
+                closeCause = null;
+                connectionLost(cause);
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Closing the connection of the client {}", clientId, cause);
+            }
+            closeCause = cause;
+            ctx.close();
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+            if (evt instanceof IdleStateEvent idle) {
+                if (idle.state() == IdleState.WRITER_IDLE) {
+                    ctx.writeAndFlush(new MqttMessage(fixedHeader(MqttMessageType.PINGREQ, MqttQoS.AT_MOST_ONCE)));
+                } else if (idle.state() == IdleState.READER_IDLE) {
+                    // nothing, not even a ping response, was received within one and a half keep alive intervals
+                    ctx.close();
+                }
+            } else {
+                super.userEventTriggered(ctx, evt);
+            }
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, MqttMessage msg) {
+            if (msg.decoderResult().isFailure()) {
+                exceptionCaught(ctx, msg.decoderResult().cause());
+                return;
+            }
+            switch (msg.fixedHeader().messageType()) {
+                case CONNACK -> {
+                    MqttConnectReturnCode code = ((MqttConnAckMessage) msg).variableHeader().connectReturnCode();
+                    if (connectTimeout != null) {
+                        connectTimeout.cancel(false);
+                        connectTimeout = null;
+                    }
+                    if (code == MqttConnectReturnCode.CONNECTION_ACCEPTED) {
+                        connectionEstablished();
+                    } else {
+                        exceptionCaught(ctx, new MqttClientException("The broker refused the connection: " + code));
+                    }
+                }
+                case PUBLISH -> received((MqttPublishMessage) msg);
+                case PUBACK, PUBCOMP -> delivered(messageId(msg));
+                case PUBREC -> {
+                    int id = messageId(msg);
+                    Pending pending = inflight.get(id);
+                    if (pending != null) {
+                        pending.released = true;
+                    }
+                    ctx.writeAndFlush(pubRel(id));
+                }
+                case PUBREL -> {
+                    int id = messageId(msg);
+                    receivedQos2.remove(id);
+                    ctx.writeAndFlush(new MqttMessage(fixedHeader(MqttMessageType.PUBCOMP, MqttQoS.AT_MOST_ONCE), MqttMessageIdVariableHeader.from(id)));
+                }
+                case SUBACK -> {
+                    MqttSubAckMessage subAck = (MqttSubAckMessage) msg;
+                    CompletableFuture<List<Integer>> future = acks.remove(subAck.variableHeader().messageId());
+                    if (future != null) {
+                        future.complete(subAck.payload().grantedQoSLevels());
+                    }
+                }
+                case UNSUBACK -> {
+                    CompletableFuture<List<Integer>> future = acks.remove(messageId(msg));
+                    if (future != null) {
+                        future.complete(List.of());
+                    }
+                }
+                case DISCONNECT -> ctx.close();
+                default -> {
+                    // PINGRESP only proves the connection is alive, which the idle handler already noticed
+                }
+            }
+        }
+    }
+
+    /**
+     * A message published with this client, kept until it is delivered.
+     */
+    private static final class Pending {
+
+        private final String topic;
+        private final byte[] payload;
+        private final int qos;
+        private final boolean retained;
+        private final MqttProperties properties;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private int id;
+        private boolean released;
+
+        Pending(String topic, byte[] payload, int qos, boolean retained, MqttProperties properties) {
+            this.topic = topic;
+            this.payload = payload;
+            this.qos = qos;
+            this.retained = retained;
+            this.properties = properties;
+        }
+
+        MqttPublishMessage toMessage(boolean duplicate) {
+            // the payload is wrapped rather than copied, the encoder writes it into a pooled buffer
+            return new MqttPublishMessage(
+                    new MqttFixedHeader(MqttMessageType.PUBLISH, duplicate, MqttQoS.valueOf(qos), retained, 0),
+                    new MqttPublishVariableHeader(topic, id, properties == null ? MqttProperties.NO_PROPERTIES : properties),
+                    Unpooled.wrappedBuffer(payload));
+        }
+    }
+
+    /**
+     * A topic filter and the listener of its messages.
+     */
+    private record Subscription(TopicTemplate template, MessageListener listener) {
+    }
+
+    /**
+     * Runs tasks one at a time, in the order they were submitted, on a shared executor.
+     */
+    private static final class SerialExecutor implements Executor {
+
+        private final Executor executor;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        SerialExecutor(Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+            schedule();
+        }
+
+        private void schedule() {
+            if (!tasks.isEmpty() && running.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // the executor of a named client is shut down once its connections are closed
+                    running.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        if (LOG.isErrorEnabled()) {
+                            LOG.error("Failed to run a delivery task", e);
+                        }
+                    }
+                }
+            } finally {
+                running.set(false);
+                // a task added between the last poll and resetting the flag must not be stranded
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.netty.client;
+
+import io.micronaut.context.annotation.Bean;
+import io.micronaut.context.annotation.EachBean;
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Parameter;
+import io.micronaut.context.annotation.Primary;
+import io.micronaut.http.netty.channel.EventLoopGroupFactory;
+import io.micronaut.http.netty.channel.EventLoopGroupRegistry;
+import io.micronaut.http.netty.channel.NettyChannelType;
+import io.micronaut.mqtt.client.MqttClientPool;
+import io.micronaut.mqtt.client.MqttConnectionLifecycle;
+import io.micronaut.mqtt.exception.MqttClientException;
+import io.micronaut.mqtt.netty.config.AbstractNettyMqttClientConfiguration;
+import io.micronaut.mqtt.netty.config.NamedNettyMqttClientConfigurationProperties;
+import io.micronaut.mqtt.netty.config.NettyMqttClientConfigurationProperties;
+import io.micronaut.mqtt.observer.MqttObservers;
+import io.micronaut.scheduling.NamedThreadFactory;
+import io.micronaut.scheduling.TaskExecutors;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+
+import javax.net.ssl.SSLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A factory to create the default and the named Netty MQTT clients. The connections are
+ * registered with the default event loop group of the application.
+ *
+ * @since 3.0.0
+ */
+@Factory
+public final class NettyMqttClientFactory {
+
+    private static final String SSL_SCHEME = "ssl://";
+
+    @Singleton
+    @Primary
+    MqttConnectionLifecycle connectionLifecycle(NettyMqttClientConfigurationProperties configuration, MqttObservers observers) {
+        return createLifecycle(configuration, observers, "");
+    }
+
+    @Singleton
+    @Primary
+    @Bean(preDestroy = "close")
+    MqttClientPool<NettyMqttClient> mqttClientPool(NettyMqttClientConfigurationProperties configuration,
+                                                   EventLoopGroupRegistry eventLoopGroupRegistry,
+                                                   EventLoopGroupFactory eventLoopGroupFactory,
+                                                   @Named(TaskExecutors.MESSAGE_CONSUMER) ExecutorService executorService,
+                                                   MqttConnectionLifecycle connectionLifecycle) {
+        List<NettyMqttClient> clients = createClients(configuration, eventLoopGroupRegistry, eventLoopGroupFactory, executorService, connectionLifecycle);
+        return new MqttClientPool<>(clients, NettyMqttClient::close, true, null);
+    }
+
+    @EachBean(NamedNettyMqttClientConfigurationProperties.class)
+    MqttConnectionLifecycle namedConnectionLifecycle(NamedNettyMqttClientConfigurationProperties configuration, MqttObservers observers) {
+        return createLifecycle(configuration, observers, configuration.getName());
+    }
+
+    @EachBean(NamedNettyMqttClientConfigurationProperties.class)
+    @Bean(preDestroy = "close")
+    MqttClientPool<NettyMqttClient> namedClientPool(NamedNettyMqttClientConfigurationProperties configuration,
+                                                    EventLoopGroupRegistry eventLoopGroupRegistry,
+                                                    EventLoopGroupFactory eventLoopGroupFactory,
+                                                    @Parameter MqttConnectionLifecycle connectionLifecycle) {
+        // the connections run on the shared event loops, the executor only delivers the received messages
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, configuration.getExecutorThreads()), new NamedThreadFactory("mqtt-" + configuration.getName()));
+        List<NettyMqttClient> clients;
+        try {
+            clients = createClients(configuration, eventLoopGroupRegistry, eventLoopGroupFactory, executor, connectionLifecycle);
+        } catch (RuntimeException e) {
+            executor.shutdownNow();
+            throw e;
+        }
+        return new MqttClientPool<>(clients, NettyMqttClient::close, true, executor::shutdown);
+    }
+
+    private static MqttConnectionLifecycle createLifecycle(AbstractNettyMqttClientConfiguration configuration, MqttObservers observers, String name) {
+        MqttConnectionLifecycle connectionLifecycle = new MqttConnectionLifecycle(configuration.getEarlyPublishBufferSize(), configuration.isCleanStart(), Math.max(1, configuration.getPoolSize()));
+        if (!observers.isEmpty()) {
+            connectionLifecycle.addConnectionListener(observers.connectionListener(name));
+        }
+        return connectionLifecycle;
+    }
+
+    private static List<NettyMqttClient> createClients(AbstractNettyMqttClientConfiguration configuration,
+                                                       EventLoopGroupRegistry eventLoopGroupRegistry,
+                                                       EventLoopGroupFactory eventLoopGroupFactory,
+                                                       Executor executor,
+                                                       MqttConnectionLifecycle connectionLifecycle) {
+        EventLoopGroup group = eventLoopGroupRegistry.getDefaultEventLoopGroup();
+        Class<? extends Channel> channelClass = eventLoopGroupFactory.channelClass(NettyChannelType.CLIENT_SOCKET);
+        SslContext sslContext = sslContext(configuration);
+        int poolSize = Math.max(1, configuration.getPoolSize());
+        List<NettyMqttClient> clients = new ArrayList<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            clients.add(new NettyMqttClient(configuration, i, group, channelClass, sslContext, executor, connectionLifecycle));
+        }
+        try {
+            for (NettyMqttClient client : clients) {
+                connect(client, configuration);
+            }
+        } catch (RuntimeException e) {
+            clients.forEach(NettyMqttClient::close);
+            throw e;
+        }
+        return clients;
+    }
+
+    private static SslContext sslContext(AbstractNettyMqttClientConfiguration configuration) {
+        if (!configuration.getServerUri().startsWith(SSL_SCHEME)) {
+            return null;
+        }
+        try {
+            return SslContextBuilder.forClient().build();
+        } catch (SSLException e) {
+            throw new MqttClientException("Failed to create the SSL context", e);
+        }
+    }
+
+    private static void connect(NettyMqttClient client, AbstractNettyMqttClientConfiguration configuration) {
+        if (configuration.isAsyncConnect()) {
+            client.connect();
+            return;
+        }
+        try {
+            // the connect future completes after the connection lifecycle has been notified
+            client.connect().get(configuration.getConnectionTimeout().toMillis() * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MqttClientException("Interrupted while connecting to " + configuration.getServerUri(), e);
+        } catch (ExecutionException e) {
+            throw new MqttClientException("Failed to connect to " + configuration.getServerUri(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new MqttClientException("Timed out connecting to " + configuration.getServerUri(), e);
+        }
+    }
+}
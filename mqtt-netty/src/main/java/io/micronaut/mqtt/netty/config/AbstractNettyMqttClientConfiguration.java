@@ -0,0 +1,361 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.netty.config;
+
+import io.micronaut.core.annotation.Nullable;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * The configuration shared by the default and the named Netty MQTT clients.
+ *
+ * @since 3.0.0
+ */
+public abstract class AbstractNettyMqttClientConfiguration {
+
+    private static final int DEFAULT_PROTOCOL_VERSION = 5;
+    private static final boolean DEFAULT_CLEAN_START = true;
+    private static final boolean DEFAULT_AUTOMATIC_RECONNECT = false;
+    private static final int DEFAULT_MAX_INFLIGHT = 1000;
+    private static final int DEFAULT_MAX_MESSAGE_SIZE = 268_435_455;
+    private static final int DEFAULT_EARLY_PUBLISH_BUFFER_SIZE = 10_000;
+
+    private String serverUri;
+    private String clientId;
+    private int protocolVersion = DEFAULT_PROTOCOL_VERSION;
+    private Duration connectionTimeout = Duration.ofSeconds(3);
+    private Duration keepAliveInterval = Duration.ofSeconds(60);
+    private boolean cleanStart = DEFAULT_CLEAN_START;
+    private Duration sessionExpiryInterval = Duration.ZERO;
+    private String userName;
+    private String password;
+    private boolean automaticReconnect = DEFAULT_AUTOMATIC_RECONNECT;
+    private Duration maxReconnectDelay = Duration.ofMinutes(2);
+    private int maxInflight = DEFAULT_MAX_INFLIGHT;
+    private int maxMessageSize = DEFAULT_MAX_MESSAGE_SIZE;
+    private boolean asyncConnect;
+    private int earlyPublishBufferSize = DEFAULT_EARLY_PUBLISH_BUFFER_SIZE;
+    private int poolSize = 1;
+    private Boolean manualAcks;
+    private String willTopic;
+    private byte[] willPayload;
+    private int willQos;
+    private boolean willRetained;
+
+    /**
+     * @return The URI of the broker, {@code tcp://} or {@code ssl://}
+     */
+    @NotNull
+    public String getServerUri() {
+        return serverUri;
+    }
+
+    /**
+     * @param serverUri The URI of the broker, {@code tcp://} or {@code ssl://}
+     */
+    public void setServerUri(String serverUri) {
+        this.serverUri = serverUri;
+    }
+
+    /**
+     * @return The client id
+     */
+    @NotNull
+    public String getClientId() {
+        return clientId;
+    }
+
+    /**
+     * @param clientId The client id, connections of a pool append their index
+     */
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    /**
+     * @return The MQTT version, 3 for 3.1.1 or 5
+     */
+    public int getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    /**
+     * @param protocolVersion The MQTT version, 3 for 3.1.1 or 5. Default value {@value #DEFAULT_PROTOCOL_VERSION}
+     */
+    public void setProtocolVersion(int protocolVersion) {
+        this.protocolVersion = protocolVersion;
+    }
+
+    /**
+     * @return The time to wait for the broker to accept a connection
+     */
+    public Duration getConnectionTimeout() {
+        return connectionTimeout;
+    }
+
+    /**
+     * @param connectionTimeout The time to wait for the broker to accept a connection. Default value 3 seconds
+     */
+    public void setConnectionTimeout(Duration connectionTimeout) {
+        this.connectionTimeout = connectionTimeout;
+    }
+
+    /**
+     * @return The keep alive interval
+     */
+    public Duration getKeepAliveInterval() {
+        return keepAliveInterval;
+    }
+
+    /**
+     * @param keepAliveInterval The interval of the pings sent while the connection is idle. The
+     *                          connection is considered lost if nothing is received for one and
+     *                          a half times the interval. Default value 60 seconds
+     */
+    public void setKeepAliveInterval(Duration keepAliveInterval) {
+        this.keepAliveInterval = keepAliveInterval;
+    }
+
+    /**
+     * @return True if the broker discards the session when connecting
+     */
+    public boolean isCleanStart() {
+        return cleanStart;
+    }
+
+    /**
+     * @param cleanStart Whether the broker discards the session when connecting, the clean
+     *                   session flag of MQTT 3.1.1. Default value {@value #DEFAULT_CLEAN_START}
+     */
+    public void setCleanStart(boolean cleanStart) {
+        this.cleanStart = cleanStart;
+    }
+
+    /**
+     * @param cleanSession The MQTT 3.1.1 name of {@link #setCleanStart(boolean)}
+     */
+    public void setCleanSession(boolean cleanSession) {
+        this.cleanStart = cleanSession;
+    }
+
+    /**
+     * @return The time the broker keeps the session after the connection is closed, MQTT 5 only
+     */
+    public Duration getSessionExpiryInterval() {
+        return sessionExpiryInterval;
+    }
+
+    /**
+     * @param sessionExpiryInterval The time the broker keeps the session after the connection
+     *                              is closed, MQTT 5 only. Default value 0
+     */
+    public void setSessionExpiryInterval(Duration sessionExpiryInterval) {
+        this.sessionExpiryInterval = sessionExpiryInterval;
+    }
+
+    /**
+     * @return The user name
+     */
+    @Nullable
+    public String getUserName() {
+        return userName;
+    }
+
+    /**
+     * @param userName The user name
+     */
+    public void setUserName(@Nullable String userName) {
+        this.userName = userName;
+    }
+
+    /**
+     * @return The password
+     */
+    @Nullable
+    public String getPassword() {
+        return password;
+    }
+
+    /**
+     * @param password The password
+     */
+    public void setPassword(@Nullable String password) {
+        this.password = password;
+    }
+
+    /**
+     * @return True if lost connections are re-established
+     */
+    public boolean isAutomaticReconnect() {
+        return automaticReconnect;
+    }
+
+    /**
+     * @param automaticReconnect Whether lost connections are re-established, with a delay
+     *                           starting at one second and doubling up to the maximum. Default value {@value #DEFAULT_AUTOMATIC_RECONNECT}
+     */
+    public void setAutomaticReconnect(boolean automaticReconnect) {
+        this.automaticReconnect = automaticReconnect;
+    }
+
+    /**
+     * @return The maximum delay between connection attempts
+     */
+    public Duration getMaxReconnectDelay() {
+        return maxReconnectDelay;
+    }
+
+    /**
+     * @param maxReconnectDelay The maximum delay between connection attempts. Default value 2 minutes
+     */
+    public void setMaxReconnectDelay(Duration maxReconnectDelay) {
+        this.maxReconnectDelay = maxReconnectDelay;
+    }
+
+    /**
+     * @return The maximum number of unacknowledged QoS 1 and 2 messages per connection
+     */
+    public int getMaxInflight() {
+        return maxInflight;
+    }
+
+    /**
+     * @param maxInflight The maximum number of unacknowledged QoS 1 and 2 messages per
+     *                    connection, further messages are queued. Default value {@value #DEFAULT_MAX_INFLIGHT}
+     */
+    public void setMaxInflight(int maxInflight) {
+        this.maxInflight = maxInflight;
+    }
+
+    /**
+     * @return The maximum size of a received packet in bytes
+     */
+    public int getMaxMessageSize() {
+        return maxMessageSize;
+    }
+
+    /**
+     * @param maxMessageSize The maximum size of a received packet in bytes. Default value {@value #DEFAULT_MAX_MESSAGE_SIZE}
+     */
+    public void setMaxMessageSize(int maxMessageSize) {
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    /**
+     * @return True if the client connects in the background
+     */
+    public boolean isAsyncConnect() {
+        return asyncConnect;
+    }
+
+    /**
+     * @param asyncConnect Whether the client connects in the background instead of blocking
+     *                     the startup. Default value false
+     */
+    public void setAsyncConnect(boolean asyncConnect) {
+        this.asyncConnect = asyncConnect;
+    }
+
+    /**
+     * @return The maximum number of messages held until the first connection is established
+     */
+    public int getEarlyPublishBufferSize() {
+        return earlyPublishBufferSize;
+    }
+
+    /**
+     * @param earlyPublishBufferSize The maximum number of messages held until the first
+     *                               connection is established. Default value {@value #DEFAULT_EARLY_PUBLISH_BUFFER_SIZE}
+     */
+    public void setEarlyPublishBufferSize(int earlyPublishBufferSize) {
+        this.earlyPublishBufferSize = earlyPublishBufferSize;
+    }
+
+    /**
+     * @return The number of connections
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * @param poolSize The number of connections, messages are spread over them by topic. Default value 1
+     */
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    /**
+     * @return Whether received messages are acknowledged manually
+     */
+    public Optional<Boolean> getManualAcks() {
+        return Optional.ofNullable(manualAcks);
+    }
+
+    /**
+     * @param manualAcks Whether received messages are acknowledged manually
+     */
+    public void setManualAcks(Boolean manualAcks) {
+        this.manualAcks = manualAcks;
+    }
+
+    /**
+     * @return The topic of the will message, null if there is none
+     */
+    @Nullable
+    public String getWillTopic() {
+        return willTopic;
+    }
+
+    /**
+     * @return The payload of the will message
+     */
+    @Nullable
+    public byte[] getWillPayload() {
+        return willPayload;
+    }
+
+    /**
+     * @return The quality of service of the will message
+     */
+    public int getWillQos() {
+        return willQos;
+    }
+
+    /**
+     * @return True if the broker retains the will message
+     */
+    public boolean isWillRetained() {
+        return willRetained;
+    }
+
+    /**
+     * Sets the message the broker publishes when the connection is lost without a disconnect.
+     *
+     * @param topic The topic of the will message
+     * @param payload The payload of the will message
+     * @param qos The quality of service of the will message
+     * @param retained Whether the broker retains the will message
+     */
+    public void setWill(String topic, @Nullable byte[] payload, int qos, boolean retained) {
+        this.willTopic = topic;
+        this.willPayload = payload;
+        this.willQos = qos;
+        this.willRetained = retained;
+    }
+}
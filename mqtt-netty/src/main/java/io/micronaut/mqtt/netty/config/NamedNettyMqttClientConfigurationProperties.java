@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.netty.config;
+
+import io.micronaut.context.annotation.EachProperty;
+import io.micronaut.context.annotation.Parameter;
+
+/**
+ * Configuration for an additional Netty MQTT client, for example to connect to a second broker.
+ * Publishers and subscribers select the client by its name.
+ *
+ * @since 3.0.0
+ */
+@EachProperty(NamedNettyMqttClientConfigurationProperties.PREFIX)
+public class NamedNettyMqttClientConfigurationProperties extends AbstractNettyMqttClientConfiguration {
+
+    public static final String PREFIX = "mqtt.clients";
+
+    private final String name;
+    private int executorThreads = Runtime.getRuntime().availableProcessors() * 2;
+
+    /**
+     * @param name The name of the client
+     */
+    public NamedNettyMqttClientConfigurationProperties(@Parameter String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return The name of the client
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The number of threads the messages received by the client are delivered on
+     */
+    public int getExecutorThreads() {
+        return executorThreads;
+    }
+
+    /**
+     * Each named client delivers the messages it receives on an executor of its own. The
+     * connections themselves run on the shared event loops and occupy none of its threads.
+     *
+     * @param executorThreads The number of threads the messages received by the client are delivered on. Default value 2 times the number of available processors
+     */
+    public void setExecutorThreads(int executorThreads) {
+        this.executorThreads = executorThreads;
+    }
+}
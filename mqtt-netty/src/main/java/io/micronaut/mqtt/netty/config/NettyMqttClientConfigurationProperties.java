@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.netty.config;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+/**
+ * Configuration for the Netty MQTT client. It shares the {@code mqtt.client} prefix with the
+ * Paho based implementations, so an application switches between them without changing its
+ * configuration.
+ *
+ * @since 3.0.0
+ */
+@ConfigurationProperties("mqtt.client")
+public class NettyMqttClientConfigurationProperties extends AbstractNettyMqttClientConfiguration {
+
+    /**
+     * @param willMessage The message the broker publishes when the connection is lost
+     */
+    public NettyMqttClientConfigurationProperties(WillMessage willMessage) {
+        if (willMessage.getTopic() != null) {
+            setWill(willMessage.getTopic(), willMessage.getPayload(), willMessage.getQos(), willMessage.isRetained());
+        }
+    }
+
+    @ConfigurationProperties("will-message")
+    static class WillMessage {
+
+        private String topic;
+        private byte[] payload;
+        private int qos;
+        private boolean retained;
+
+        /**
+         * @return The topic to publish to
+         */
+        public String getTopic() {
+            return topic;
+        }
+
+        /**
+         * @param topic The topic to publish to
+         */
+        public void setTopic(String topic) {
+            this.topic = topic;
+        }
+
+        /**
+         * @return The message payload
+         */
+        public byte[] getPayload() {
+            return payload;
+        }
+
+        /**
+         * @param payload The message payload
+         */
+        public void setPayload(byte[] payload) {
+            this.payload = payload;
+        }
+
+        /**
+         * @return The message qos
+         */
+        public int getQos() {
+            return qos;
+        }
+
+        /**
+         * @param qos The message qos
+         */
+        public void setQos(int qos) {
+            this.qos = qos;
+        }
+
+        /**
+         * @return True if the message should be retained
+         */
+        public boolean isRetained() {
+            return retained;
+        }
+
+        /**
+         * @param retained If the message should be retained
+         */
+        public void setRetained(boolean retained) {
+            this.retained = retained;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.netty.intercept;
+
+import io.micronaut.mqtt.exception.MqttClientException;
+import io.netty.handler.codec.mqtt.MqttProperties;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Encodes the properties of a message held in the offline buffer. Netty only encodes
+ * properties as part of a packet, so each property is written as its type, its identifier
+ * and its value.
+ *
+ * @since 3.0.0
+ */
+final class MqttPropertiesCodec {
+
+    private static final int INTEGER = 0;
+    private static final int STRING = 1;
+    private static final int BINARY = 2;
+    private static final int USER = 3;
+
+    private MqttPropertiesCodec() {
+    }
+
+    /**
+     * @param properties The properties
+     * @return The encoded properties or null if there are none
+     */
+    static byte[] encode(MqttProperties properties) {
+        if (properties == null || properties.listAll().isEmpty()) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (MqttProperties.MqttProperty<?> property : properties.listAll()) {
+                if (property instanceof MqttProperties.UserProperties userProperties) {
+                    for (MqttProperties.StringPair pair : userProperties.value()) {
+                        out.writeByte(USER);
+                        out.writeUTF(pair.key);
+                        out.writeUTF(pair.value);
+                    }
+                } else if (property instanceof MqttProperties.UserProperty userProperty) {
+                    out.writeByte(USER);
+                    out.writeUTF(userProperty.value().key);
+                    out.writeUTF(userProperty.value().value);
+                } else if (property instanceof MqttProperties.IntegerProperty integerProperty) {
+                    out.writeByte(INTEGER);
+                    out.writeByte(property.propertyId());
+                    out.writeInt(integerProperty.value());
+                } else if (property instanceof MqttProperties.StringProperty stringProperty) {
+                    out.writeByte(STRING);
+                    out.writeByte(property.propertyId());
+                    out.writeUTF(stringProperty.value());
+                } else if (property instanceof MqttProperties.BinaryProperty binaryProperty) {
+                    out.writeByte(BINARY);
+                    out.writeByte(property.propertyId());
+                    out.writeInt(binaryProperty.value().length);
+                    out.write(binaryProperty.value());
+                } else {
+                    throw new MqttClientException("Unsupported message property " + property.propertyId());
+                }
+            }
+        } catch (IOException e) {
+            throw new MqttClientException("Failed to encode the message properties", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param encoded The properties returned by {@link #encode(MqttProperties)}
+     * @return The properties
+     */
+    static MqttProperties decode(byte[] encoded) {
+        MqttProperties properties = new MqttProperties();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+            while (in.available() > 0) {
+                int type = in.readByte();
+                switch (type) {
+                    case USER:
+                        properties.add(new MqttProperties.UserProperty(in.readUTF(), in.readUTF()));
+                        break;
+                    case INTEGER:
+                        properties.add(new MqttProperties.IntegerProperty(in.readByte(), in.readInt()));
+                        break;
+                    case STRING:
+                        properties.add(new MqttProperties.StringProperty(in.readByte(), in.readUTF()));
+                        break;
+                    case BINARY:
+                        int id = in.readByte();
+                        byte[] value = new byte[in.readInt()];
+                        in.readFully(value);
+                        properties.add(new MqttProperties.BinaryProperty(id, value));
+                        break;
+                    default:
+                        throw new MqttClientException("Unsupported message property type " + type);
+                }
+            }
+        } catch (IOException e) {
+            throw new MqttClientException("Failed to decode the message properties", e);
+        }
+        return properties;
+    }
+}
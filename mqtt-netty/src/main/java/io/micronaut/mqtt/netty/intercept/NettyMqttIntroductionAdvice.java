@@ -0,0 +1,197 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.netty.intercept;
+
+import io.micronaut.aop.InterceptorBean;
+import io.micronaut.aop.MethodInvocationContext;
+import io.micronaut.context.BeanContext;
+import io.micronaut.context.exceptions.NoSuchBeanException;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.core.type.Argument;
+import io.micronaut.inject.qualifiers.Qualifiers;
+import io.micronaut.mqtt.annotation.MqttPublisher;
+import io.micronaut.mqtt.bind.MqttBinderRegistry;
+import io.micronaut.mqtt.bind.MqttBindingContext;
+import io.micronaut.mqtt.buffer.BufferedMessage;
+import io.micronaut.mqtt.buffer.OfflinePublishBuffer;
+import io.micronaut.mqtt.client.MqttClientPool;
+import io.micronaut.mqtt.client.MqttConnectionLifecycle;
+import io.micronaut.mqtt.exception.MqttClientException;
+import io.micronaut.mqtt.intercept.AbstractMqttIntroductionAdvice;
+import io.micronaut.mqtt.intercept.MqttAdviceCollaborators;
+import io.micronaut.mqtt.latency.LatencyRegistry;
+import io.micronaut.mqtt.latency.LatencyTrailer;
+import io.micronaut.mqtt.netty.bind.NettyMqttBindingContext;
+import io.micronaut.mqtt.netty.bind.NettyMqttMessage;
+import io.micronaut.mqtt.netty.client.NettyMqttClient;
+import io.netty.handler.codec.mqtt.MqttProperties;
+import jakarta.inject.Singleton;
+
+import java.lang.annotation.Annotation;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * The Netty implementation of {@link AbstractMqttIntroductionAdvice}, publishing the messages of
+ * interfaces annotated with {@link MqttPublisher}.
+ *
+ * @since 3.0.0
+ */
+@Singleton
+@InterceptorBean(MqttPublisher.class)
+public class NettyMqttIntroductionAdvice extends AbstractMqttIntroductionAdvice<BiConsumer<Void, Throwable>, NettyMqttMessage> {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final MqttClientPool<NettyMqttClient> clientPool;
+    private final MqttConnectionLifecycle connectionLifecycle;
+    private final OfflinePublishBuffer offlineBuffer;
+    private final BeanContext beanContext;
+    private final ConcurrentMap<String, NamedClient> namedClients = new ConcurrentHashMap<>();
+
+    public NettyMqttIntroductionAdvice(MqttClientPool<NettyMqttClient> clientPool,
+                                       MqttBinderRegistry binderRegistry,
+                                       MqttConnectionLifecycle connectionLifecycle,
+                                       @Nullable OfflinePublishBuffer offlineBuffer,
+                                       MqttAdviceCollaborators collaborators,
+                                       BeanContext beanContext) {
+        super(binderRegistry, collaborators);
+        this.clientPool = clientPool;
+        this.connectionLifecycle = connectionLifecycle;
+        this.offlineBuffer = offlineBuffer;
+        this.beanContext = beanContext;
+        if (offlineBuffer != null) {
+            connectionLifecycle.addConnectionListener((connection, reconnect) -> {
+                if (connectionLifecycle.isConnected()) {
+                    offlineBuffer.replay(this::publishReplayed);
+                }
+            });
+        }
+    }
+
+    @Override
+    public MqttBindingContext<NettyMqttMessage> createBindingContext(MethodInvocationContext<Object, Object> context) {
+        return new NettyMqttBindingContext(clientPool.getPrimary(), new NettyMqttMessage());
+    }
+
+    @Override
+    protected void stampSendTime(MqttBindingContext<NettyMqttMessage> context, long sentMicros) {
+        if (clientPool.getPrimary().isMqtt5()) {
+            context.getNativeMessage().getProperties().add(new MqttProperties.UserProperty(LatencyRegistry.SENT_AT_PROPERTY, Long.toString(sentMicros)));
+        } else {
+            byte[] payload = context.getPayload();
+            context.setPayload(LatencyTrailer.append(payload == null ? EMPTY : payload, sentMicros));
+        }
+    }
+
+    @Override
+    public Object publish(String topic, NettyMqttMessage message, BiConsumer<Void, Throwable> listener) {
+        if (connectionLifecycle.defer(() -> send(topic, message, listener), e -> listener.accept(null, e))) {
+            return null;
+        }
+        if (offlineBuffer != null && offlineBuffer.isBuffering()) {
+            BufferedMessage buffered = new BufferedMessage(topic, message.getPayload(), message.getQos(), message.isRetained(),
+                    MqttPropertiesCodec.encode(message.getPropertiesIfPresent()), error -> listener.accept(null, error));
+            switch (offlineBuffer.offer(buffered)) {
+                case BUFFERED:
+                    return null;
+                case DROPPED:
+                    listener.accept(null, new MqttClientException("The client is disconnected and the offline buffer is full"));
+                    return null;
+                default:
+                    break;
+            }
+        }
+        return send(topic, message, listener);
+    }
+
+    @Override
+    public Object publish(String client, String topic, NettyMqttMessage message, BiConsumer<Void, Throwable> listener) {
+        if (client.isEmpty()) {
+            return publish(topic, message, listener);
+        }
+        NamedClient namedClient = namedClients.computeIfAbsent(client, this::findClient);
+        if (namedClient.lifecycle.defer(() -> send(namedClient.pool, topic, message, listener), e -> listener.accept(null, e))) {
+            return null;
+        }
+        return send(namedClient.pool, topic, message, listener);
+    }
+
+    private NamedClient findClient(String name) {
+        try {
+            return new NamedClient(
+                    beanContext.getBean(Argument.of(MqttClientPool.class, NettyMqttClient.class), Qualifiers.byName(name)),
+                    beanContext.getBean(MqttConnectionLifecycle.class, Qualifiers.byName(name)));
+        } catch (NoSuchBeanException e) {
+            throw new MqttClientException("No MQTT client named [" + name + "] is configured under mqtt.clients", e);
+        }
+    }
+
+    private Object send(String topic, NettyMqttMessage message, BiConsumer<Void, Throwable> listener) {
+        return send(clientPool, topic, message, listener);
+    }
+
+    private Object send(MqttClientPool<NettyMqttClient> pool, String topic, NettyMqttMessage message, BiConsumer<Void, Throwable> listener) {
+        byte[] payload = message.getPayload();
+        return pool.getClient(topic)
+                .publish(topic, payload == null ? EMPTY : payload, message.getQos(), message.isRetained(), message.getPropertiesIfPresent())
+                .whenComplete(listener);
+    }
+
+    private void publishReplayed(BufferedMessage buffered) {
+        MqttProperties properties;
+        try {
+            properties = buffered.getProperties().length == 0 ? null : MqttPropertiesCodec.decode(buffered.getProperties());
+        } catch (MqttClientException e) {
+            buffered.complete(e);
+            return;
+        }
+        clientPool.getClient(buffered.getTopic()).publish(buffered.getTopic(), buffered.getPayload(), buffered.getQos(), buffered.isRetained(), properties)
+                .whenComplete((result, error) -> buffered.complete(error));
+    }
+
+    @Override
+    public BiConsumer<Void, Throwable> createListener(Runnable onSuccess, Consumer<Throwable> onError) {
+        return (result, throwable) -> {
+            if (throwable == null) {
+                onSuccess.run();
+            } else {
+                onError.accept(throwable);
+            }
+        };
+    }
+
+    @Override
+    public Class<? extends Annotation> getRequiredAnnotation() {
+        return MqttPublisher.class;
+    }
+
+    /**
+     * The client pool and lifecycle of a named client.
+     */
+    private static final class NamedClient {
+
+        private final MqttClientPool<NettyMqttClient> pool;
+        private final MqttConnectionLifecycle lifecycle;
+
+        NamedClient(MqttClientPool<NettyMqttClient> pool, MqttConnectionLifecycle lifecycle) {
+            this.pool = pool;
+            this.lifecycle = lifecycle;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.netty.intercept;
+
+import io.micronaut.context.BeanContext;
+import io.micronaut.context.annotation.Primary;
+import io.micronaut.context.exceptions.NoSuchBeanException;
+import io.micronaut.inject.qualifiers.Qualifiers;
+import io.micronaut.mqtt.bind.MqttBinderRegistry;
+import io.micronaut.mqtt.bind.MqttBindingContext;
+import io.micronaut.mqtt.client.MqttClientPool;
+import io.micronaut.mqtt.client.MqttConnectionLifecycle;
+import io.micronaut.mqtt.exception.MqttSubscriberException;
+import io.micronaut.mqtt.exception.MqttSubscriberExceptionHandler;
+import io.micronaut.mqtt.exception.MqttSubscriptionRejectedException;
+import io.micronaut.mqtt.intercept.AbstractMqttSubscriberAdvice;
+import io.micronaut.mqtt.intercept.MqttAdviceCollaborators;
+import io.micronaut.mqtt.intercept.TopicSubscription;
+import io.micronaut.mqtt.latency.LatencyRegistry;
+import io.micronaut.mqtt.latency.LatencyTrailer;
+import io.micronaut.mqtt.netty.bind.NettyMqttBindingContext;
+import io.micronaut.mqtt.netty.bind.NettyMqttMessage;
+import io.micronaut.mqtt.netty.client.NettyMqttClient;
+import io.micronaut.mqtt.netty.config.AbstractNettyMqttClientConfiguration;
+import io.micronaut.mqtt.netty.config.NettyMqttClientConfigurationProperties;
+import io.netty.handler.codec.mqtt.MqttProperties;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.netty.handler.codec.mqtt.MqttSubscriptionOption;
+import io.netty.handler.codec.mqtt.MqttTopicSubscription;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * The Netty implementation of {@link AbstractMqttSubscriberAdvice}.
+ *
+ * @since 3.0.0
+ */
+@Singleton
+@Primary
+public class NettyMqttSubscriberAdvice extends AbstractMqttSubscriberAdvice<NettyMqttMessage> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NettyMqttSubscriberAdvice.class);
+    private static final int SUBSCRIPTION_FAILURE = 0x80;
+
+    private final BeanContext beanContext;
+    private final MqttClientPool<NettyMqttClient> clientPool;
+    private final boolean manualAcks;
+    private final String clientName;
+
+    @Inject
+    public NettyMqttSubscriberAdvice(BeanContext beanContext,
+                                     MqttBinderRegistry binderRegistry,
+                                     MqttSubscriberExceptionHandler exceptionHandler,
+                                     MqttClientPool<NettyMqttClient> clientPool,
+                                     NettyMqttClientConfigurationProperties configuration,
+                                     MqttAdviceCollaborators collaborators,
+                                     MqttConnectionLifecycle connectionLifecycle) {
+        this(beanContext, binderRegistry, exceptionHandler, clientPool, configuration, collaborators, connectionLifecycle, "");
+    }
+
+    /**
+     * @param beanContext The bean context
+     * @param binderRegistry The binder registry
+     * @param exceptionHandler The default exception handler
+     * @param clientPool The clients to subscribe with
+     * @param configuration The configuration of the clients
+     * @param collaborators The subscriber configuration and the optional features applied to every message
+     * @param connectionLifecycle The connection of the clients
+     * @param clientName The name of the client under {@code mqtt.clients}, empty for the default client
+     */
+    public NettyMqttSubscriberAdvice(BeanContext beanContext,
+                                     MqttBinderRegistry binderRegistry,
+                                     MqttSubscriberExceptionHandler exceptionHandler,
+                                     MqttClientPool<NettyMqttClient> clientPool,
+                                     AbstractNettyMqttClientConfiguration configuration,
+                                     MqttAdviceCollaborators collaborators,
+                                     MqttConnectionLifecycle connectionLifecycle,
+                                     String clientName) {
+        super(beanContext, binderRegistry, exceptionHandler, collaborators, connectionLifecycle);
+        this.beanContext = beanContext;
+        this.clientPool = clientPool;
+        this.manualAcks = configuration.getManualAcks().orElse(false);
+        this.clientName = clientName;
+    }
+
+    @Override
+    public CompletableFuture<Void> subscribe(int connection, List<TopicSubscription<NettyMqttMessage>> subscriptions) {
+        NettyMqttClient client = clientPool.getClient(connection);
+        List<String> filters = new ArrayList<>(subscriptions.size());
+        List<MqttTopicSubscription> topics = new ArrayList<>(subscriptions.size());
+        List<NettyMqttClient.MessageListener> listeners = new ArrayList<>(subscriptions.size());
+        for (TopicSubscription<NettyMqttMessage> subscription : subscriptions) {
+            Consumer<MqttBindingContext<NettyMqttMessage>> callback = subscription.getCallback();
+            filters.add(subscription.getFilter());
+            topics.add(new MqttTopicSubscription(subscription.getFilter(), new MqttSubscriptionOption(
+                    MqttQoS.valueOf(subscription.getQos()),
+                    subscription.isNoLocal(),
+                    subscription.isRetainAsPublished(),
+                    MqttSubscriptionOption.RetainedHandlingPolicy.valueOf(subscription.getRetainHandling()))));
+            listeners.add((actualTopic, message) -> {
+                NettyMqttBindingContext context = new NettyMqttBindingContext(client, message);
+                context.setTopic(actualTopic);
+                callback.accept(context);
+            });
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        client.subscribe(topics, listeners).whenComplete((granted, throwable) -> {
+            if (throwable != null) {
+                future.completeExceptionally(new MqttSubscriberException(String.format("Failed to subscribe to the topics: %s", filters), throwable));
+                return;
+            }
+            List<String> rejected = new ArrayList<>(0);
+            for (int i = 0; i < granted.size() && i < filters.size(); i++) {
+                if (granted.get(i) >= SUBSCRIPTION_FAILURE) {
+                    rejected.add(filters.get(i));
+                }
+            }
+            if (rejected.isEmpty()) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(new MqttSubscriptionRejectedException(rejected));
+            }
+        });
+        return future;
+    }
+
+    @Override
+    protected boolean supportsNoLocal() {
+        return clientPool.getPrimary().isMqtt5();
+    }
+
+    @Override
+    protected MqttBindingContext<NettyMqttMessage> createLocalContext(String topic, byte[] payload, int qos) {
+        // delivered in process, there is nothing to acknowledge to the broker
+        NettyMqttBindingContext context = new NettyMqttBindingContext(null, new NettyMqttMessage(payload, qos, false, false, 0, null));
+        context.setTopic(topic);
+        return context;
+    }
+
+    @Override
+    protected long readSendTime(MqttBindingContext<NettyMqttMessage> context) {
+        NettyMqttMessage message = context.getNativeMessage();
+        MqttProperties properties = message.getPropertiesIfPresent();
+        if (properties != null) {
+            for (MqttProperties.MqttProperty<?> property : properties.getProperties(MqttProperties.MqttPropertyType.USER_PROPERTY.value())) {
+                if (property.value() instanceof MqttProperties.StringPair pair && LatencyRegistry.SENT_AT_PROPERTY.equals(pair.key)) {
+                    try {
+                        return Long.parseLong(pair.value);
+                    } catch (NumberFormatException e) {
+                        return -1;
+                    }
+                }
+            }
+            return -1;
+        }
+        byte[] payload = context.getPayload();
+        long sentMicros = LatencyTrailer.read(payload);
+        if (sentMicros != -1) {
+            // the message is shared by all subscriptions matching the topic, only the payload of this context is stripped
+            ((NettyMqttBindingContext) context).setReceivedPayload(LatencyTrailer.strip(payload));
+        }
+        return sentMicros;
+    }
+
+    @Override
+    protected boolean isManualAcks() {
+        return manualAcks;
+    }
+
+    @Override
+    protected String getClientName() {
+        return clientName;
+    }
+
+    @Override
+    protected AbstractMqttSubscriberAdvice<NettyMqttMessage> getNamedAdvice(String client) {
+        try {
+            return beanContext.getBean(NettyMqttSubscriberAdvice.class, Qualifiers.byName(client));
+        } catch (NoSuchBeanException e) {
+            throw new MqttSubscriberException(String.format("No MQTT client named [%s] is configured under mqtt.clients", client), e);
+        }
+    }
+
+    @Override
+    public void unsubscribe(Set<String> topics) {
+        unsubscribe(0, topics);
+    }
+
+    @Override
+    public void unsubscribe(int connection, Set<String> topics) {
+        try {
+            clientPool.getClient(connection).unsubscribe(new ArrayList<>(topics)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (LOG.isWarnEnabled()) {
+                LOG.warn("Failed to unsubscribe from the subscribed topics", e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * MQTT 3.1.1 and 5 client implementation on Netty. Active if {@code mqtt.client.transport} is {@code netty}.
+ */
+@Configuration
+@Requires(property = MqttConfigurationProperties.TRANSPORT, value = MqttConfigurationProperties.TRANSPORT_NETTY)
+package io.micronaut.mqtt.netty;
+
+import io.micronaut.context.annotation.Configuration;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.mqtt.config.MqttConfigurationProperties;
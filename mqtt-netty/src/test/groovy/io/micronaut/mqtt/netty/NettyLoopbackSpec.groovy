@@ -0,0 +1,18 @@
+package io.micronaut.mqtt.netty
+
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.annotation.MqttPublisher
+import io.micronaut.mqtt.test.loopback.LoopbackClient
+import io.micronaut.mqtt.test.loopback.LoopbackSpec
+
+class NettyLoopbackSpec extends LoopbackSpec {
+
+    @Override
+    Class<? extends LoopbackClient> getClient() {
+        return MyClient.class
+    }
+
+    @Requires(property = "spec.name", value = "NettyLoopbackSpec")
+    @MqttPublisher
+    static interface MyClient extends LoopbackClient {}
+}
@@ -0,0 +1,18 @@
+package io.micronaut.mqtt.netty
+
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.annotation.MqttPublisher
+import io.micronaut.mqtt.test.connect.NamedClientClient
+import io.micronaut.mqtt.test.connect.NamedClientSpec
+
+class NettyNamedClientSpec extends NamedClientSpec {
+
+    @Override
+    Class<? extends NamedClientClient> getClient() {
+        return MyClient.class
+    }
+
+    @Requires(property = "spec.name", value = "NettyNamedClientSpec")
+    @MqttPublisher(client = "secondary")
+    static interface MyClient extends NamedClientClient {}
+}
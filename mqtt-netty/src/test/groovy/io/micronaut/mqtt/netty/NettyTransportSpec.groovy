@@ -0,0 +1,113 @@
+package io.micronaut.mqtt.netty
+
+import io.micronaut.context.ApplicationContext
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.annotation.MqttPublisher
+import io.micronaut.mqtt.annotation.MqttSubscriber
+import io.micronaut.mqtt.annotation.Topic
+import io.micronaut.mqtt.client.MqttClientPool
+import io.micronaut.mqtt.netty.client.NettyMqttClient
+import io.micronaut.mqtt.test.broker.EmbeddedMqttBroker
+import io.micronaut.mqtt.test.chaos.ChaosProxy
+import org.eclipse.paho.mqttv5.client.MqttAsyncClient
+import spock.lang.AutoCleanup
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+class NettyTransportSpec extends Specification {
+
+    @Shared
+    @AutoCleanup
+    EmbeddedMqttBroker broker = new EmbeddedMqttBroker().start()
+
+    void "the transport of a client interface is selected by configuration"() {
+        ApplicationContext ctx = startContext("mqtt.client.transport": transport, "nettytransportspec": true)
+        def client = ctx.getBean(MyClient)
+        def sub = ctx.getBean(MySubscriber)
+
+        expect:
+        clientType.isInstance(ctx.getBean(MqttClientPool).primary)
+
+        when:
+        client.send("abc")
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert sub.messages == ["abc"]
+        }
+
+        cleanup:
+        ctx.close()
+
+        where:
+        transport | clientType
+        "netty"   | NettyMqttClient
+        "paho"    | MqttAsyncClient
+    }
+
+    void "the will message is published when the connection is lost"() {
+        ChaosProxy proxy = new ChaosProxy("localhost", broker.port).start()
+        ApplicationContext subscriber = startContext("nettytransportspec.will": true)
+        ApplicationContext ctx = startContext(
+                "mqtt.client.server-uri": proxy.serverUri,
+                "mqtt.client.will-message.topic": "transport/will",
+                "mqtt.client.will-message.payload": "gone".bytes,
+                "mqtt.client.will-message.qos": 1)
+        def sub = subscriber.getBean(WillSubscriber)
+
+        when:
+        proxy.resetConnections()
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert sub.messages == ["gone"]
+        }
+
+        cleanup:
+        ctx.close()
+        subscriber.close()
+        proxy.close()
+    }
+
+    private ApplicationContext startContext(Map additionalConfig) {
+        ApplicationContext.run(
+                ["mqtt.client.server-uri": broker.serverUri,
+                 "mqtt.client.client-id": UUID.randomUUID().toString(),
+                 "spec.name": "NettyTransportSpec"] << additionalConfig, "test")
+    }
+
+    @Requires(property = "spec.name", value = "NettyTransportSpec")
+    @MqttPublisher
+    static interface MyClient {
+
+        @Topic("transport/test")
+        void send(String data)
+    }
+
+    @Requires(property = "nettytransportspec", value = "true")
+    @MqttSubscriber
+    static class MySubscriber {
+
+        List<String> messages = new CopyOnWriteArrayList<>()
+
+        @Topic("transport/test")
+        void receive(String data) {
+            messages << data
+        }
+    }
+
+    @Requires(property = "nettytransportspec.will", value = "true")
+    @MqttSubscriber
+    static class WillSubscriber {
+
+        List<String> messages = new CopyOnWriteArrayList<>()
+
+        @Topic("transport/will")
+        void receive(String data) {
+            messages << data
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package io.micronaut.mqtt.netty
+
+import io.micronaut.context.ApplicationContext
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.annotation.MqttPublisher
+import io.micronaut.mqtt.test.broker.EmbeddedBrokerClient
+import io.micronaut.mqtt.test.broker.EmbeddedBrokerSpec
+
+class NettyV5EmbeddedBrokerSpec extends EmbeddedBrokerSpec {
+
+    @Override
+    protected ApplicationContext startContext(Map additionalConfig) {
+        super.startContext(["mqtt.client.protocol-version": 5] << additionalConfig)
+    }
+
+    @Override
+    Class<? extends EmbeddedBrokerClient> getClient() {
+        return MyClient.class
+    }
+
+    @Requires(property = "spec.name", value = "NettyV5EmbeddedBrokerSpec")
+    @MqttPublisher
+    static interface MyClient extends EmbeddedBrokerClient {}
+}
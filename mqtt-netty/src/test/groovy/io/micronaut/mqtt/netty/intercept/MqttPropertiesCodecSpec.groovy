@@ -0,0 +1,40 @@
+package io.micronaut.mqtt.netty.intercept
+
+import io.netty.handler.codec.mqtt.MqttProperties
+import spock.lang.Specification
+
+import static io.netty.handler.codec.mqtt.MqttProperties.MqttPropertyType.CONTENT_TYPE
+import static io.netty.handler.codec.mqtt.MqttProperties.MqttPropertyType.CORRELATION_DATA
+import static io.netty.handler.codec.mqtt.MqttProperties.MqttPropertyType.MESSAGE_EXPIRY_INTERVAL
+import static io.netty.handler.codec.mqtt.MqttProperties.MqttPropertyType.RESPONSE_TOPIC
+import static io.netty.handler.codec.mqtt.MqttProperties.MqttPropertyType.USER_PROPERTY
+
+class MqttPropertiesCodecSpec extends Specification {
+
+    void "properties survive encoding"() {
+        given:
+        MqttProperties properties = new MqttProperties()
+        properties.add(new MqttProperties.StringProperty(RESPONSE_TOPIC.value(), "test/response"))
+        properties.add(new MqttProperties.StringProperty(CONTENT_TYPE.value(), "text/plain"))
+        properties.add(new MqttProperties.BinaryProperty(CORRELATION_DATA.value(), [1, 2, 3] as byte[]))
+        properties.add(new MqttProperties.IntegerProperty(MESSAGE_EXPIRY_INTERVAL.value(), 60))
+        properties.add(new MqttProperties.UserProperty("a", "1"))
+        properties.add(new MqttProperties.UserProperty("b", "2"))
+
+        when:
+        MqttProperties decoded = MqttPropertiesCodec.decode(MqttPropertiesCodec.encode(properties))
+
+        then:
+        decoded.getProperty(RESPONSE_TOPIC.value()).value() == "test/response"
+        decoded.getProperty(CONTENT_TYPE.value()).value() == "text/plain"
+        decoded.getProperty(CORRELATION_DATA.value()).value() == [1, 2, 3] as byte[]
+        decoded.getProperty(MESSAGE_EXPIRY_INTERVAL.value()).value() == 60
+        decoded.getProperties(USER_PROPERTY.value())*.value().collect { [it.key, it.value] } == [["a", "1"], ["b", "2"]]
+    }
+
+    void "no properties are encoded as null"() {
+        expect:
+        MqttPropertiesCodec.encode(null) == null
+        MqttPropertiesCodec.encode(new MqttProperties()) == null
+    }
+}
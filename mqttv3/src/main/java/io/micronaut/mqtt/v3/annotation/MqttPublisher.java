@@ -51,4 +51,10 @@ public @interface MqttPublisher {
      */
     String value() default "";
 
+    /**
+     * @return The name of the client under {@code mqtt.clients} to publish with, the default client if not set
+     * @since 3.0.0
+     */
+    String client() default "";
+
 }
@@ -18,6 +18,7 @@ package io.micronaut.mqtt.v3.bind;
 import io.micronaut.core.annotation.Internal;
 import io.micronaut.mqtt.bind.MqttBindingContext;
 import io.micronaut.mqtt.exception.MqttSubscriberException;
+import io.micronaut.mqtt.topic.TopicVariables;
 import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
 import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
@@ -38,6 +39,9 @@ public final class MqttV3BindingContext implements MqttBindingContext<MqttMessag
     private final MqttAsyncClient client;
     private final MqttMessage message;
     private String topic;
+    private TopicVariables topicVariables;
+    private Runnable acknowledged;
+    private byte[] receivedPayload;
 
     /**
      * @param client The client
@@ -50,14 +54,26 @@ public final class MqttV3BindingContext implements MqttBindingContext<MqttMessag
 
     @Override
     public byte[] getPayload() {
-        return message.getPayload();
+        return receivedPayload != null ? receivedPayload : message.getPayload();
     }
 
     @Override
     public void setPayload(byte[] payload) {
+        receivedPayload = null;
         message.setPayload(payload);
     }
 
+    /**
+     * Replaces the payload of a received message for this context only, the message itself
+     * is shared by all subscriptions matching its topic.
+     *
+     * @param payload The payload
+     * @since 3.0.0
+     */
+    public void setReceivedPayload(byte[] payload) {
+        this.receivedPayload = payload;
+    }
+
     @Override
     public boolean isRetained() {
         return message.isRetained();
@@ -88,6 +104,16 @@ public final class MqttV3BindingContext implements MqttBindingContext<MqttMessag
         this.topic = topic;
     }
 
+    @Override
+    public TopicVariables getTopicVariables() {
+        return topicVariables;
+    }
+
+    @Override
+    public void setTopicVariables(TopicVariables topicVariables) {
+        this.topicVariables = topicVariables;
+    }
+
     @Override
     public int getId() {
         return message.getId();
@@ -95,6 +121,20 @@ public final class MqttV3BindingContext implements MqttBindingContext<MqttMessag
 
     @Override
     public void acknowlege() {
+        acknowledgeMessage();
+        Runnable callback = acknowledged;
+        if (callback != null) {
+            acknowledged = null;
+            callback.run();
+        }
+    }
+
+    @Override
+    public void onAcknowledged(Runnable callback) {
+        this.acknowledged = callback;
+    }
+
+    private void acknowledgeMessage() {
         try {
             if (LOG.isTraceEnabled()) {
                 LOG.trace("Acknowledging message id {} with qos {}", message.getId(), message.getQos());
@@ -109,4 +149,12 @@ public final class MqttV3BindingContext implements MqttBindingContext<MqttMessag
     public MqttMessage getNativeMessage() {
         return message;
     }
+
+    /**
+     * @return The client the message was received with
+     * @since 3.0.0
+     */
+    public MqttAsyncClient getClient() {
+        return client;
+    }
 }
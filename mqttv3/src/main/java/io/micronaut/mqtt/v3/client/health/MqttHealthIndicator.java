@@ -15,8 +15,12 @@
  */
 package io.micronaut.mqtt.v3.client.health;
 
+import io.micronaut.core.annotation.Nullable;
 import io.micronaut.core.async.publisher.Publishers;
 import io.micronaut.core.util.StringUtils;
+import io.micronaut.mqtt.client.MqttClientPool;
+import io.micronaut.mqtt.latency.LatencyRegistry;
+import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
 import org.reactivestreams.Publisher;
@@ -27,7 +31,9 @@ import io.micronaut.management.endpoint.health.HealthEndpoint;
 import io.micronaut.management.health.indicator.HealthIndicator;
 import io.micronaut.management.health.indicator.HealthResult;
 
-import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * A {@link HealthIndicator} for Mqtt Client.
@@ -39,21 +45,58 @@ import java.util.Collections;
 @Singleton
 public class MqttHealthIndicator implements HealthIndicator {
     public static final String NAME = "mqtt-client";
-    private MqttAsyncClient client;
+    private final MqttClientPool<MqttAsyncClient> clientPool;
+    private final LatencyRegistry latency;
 
     /**
      * Constructor.
      *
      * @param client MqttAsyncClient.
+     * @deprecated Use {@link #MqttHealthIndicator(MqttClientPool)} instead
      */
+    @Deprecated
     public MqttHealthIndicator(MqttAsyncClient client) {
-        this.client = client;
+        this(new MqttClientPool<>(List.of(client), c -> { }), null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param clientPool The pool of clients, the status is UP if all of them are connected
+     */
+    public MqttHealthIndicator(MqttClientPool<MqttAsyncClient> clientPool) {
+        this(clientPool, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param clientPool The pool of clients, the status is UP if all of them are connected
+     * @param latency The end-to-end latency of the subscriber methods, reported if enabled
+     * @since 3.0.0
+     */
+    @Inject
+    public MqttHealthIndicator(MqttClientPool<MqttAsyncClient> clientPool, @Nullable LatencyRegistry latency) {
+        this.clientPool = clientPool;
+        this.latency = latency;
     }
 
     @Override
     public Publisher<HealthResult> getResult() {
-        HealthStatus status = client.isConnected() ? HealthStatus.UP : HealthStatus.DOWN;
-        HealthResult.Builder builder = HealthResult.builder(NAME, status).details(Collections.singletonMap("clientId", client.getClientId()));
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("clientId", clientPool.getPrimary().getClientId());
+        Map<String, HealthStatus> connections = new LinkedHashMap<>();
+        for (MqttAsyncClient client : clientPool.getClients()) {
+            connections.put(client.getClientId(), client.isConnected() ? HealthStatus.UP : HealthStatus.DOWN);
+        }
+        if (clientPool.size() > 1) {
+            details.put("connections", connections);
+        }
+        if (latency != null) {
+            details.put("latency", latency.getSummary());
+        }
+        HealthStatus status = connections.containsValue(HealthStatus.DOWN) ? HealthStatus.DOWN : HealthStatus.UP;
+        HealthResult.Builder builder = HealthResult.builder(NAME, status).details(details);
         return Publishers.just(builder.build());
     }
 }
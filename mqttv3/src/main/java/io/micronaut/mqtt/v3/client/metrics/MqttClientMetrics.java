@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.v3.client.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micronaut.context.BeanContext;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.core.type.Argument;
+import io.micronaut.inject.qualifiers.Qualifiers;
+import io.micronaut.mqtt.client.MqttClientPool;
+import io.micronaut.mqtt.v3.config.NamedMqttClientConfigurationProperties;
+import jakarta.inject.Singleton;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+
+import java.util.List;
+
+/**
+ * Exports the number of in-flight and buffered messages of every connection of the default
+ * and the named clients, tagged with the name of the client and the index of the connection.
+ *
+ * @since 3.0.0
+ */
+@Singleton
+@Requires(classes = MeterBinder.class)
+@Requires(beans = MeterRegistry.class)
+public class MqttClientMetrics implements MeterBinder {
+
+    private final MqttClientPool<MqttAsyncClient> clientPool;
+    private final List<NamedMqttClientConfigurationProperties> namedClients;
+    private final BeanContext beanContext;
+
+    /**
+     * @param clientPool   The pool of the default client
+     * @param namedClients The configurations of the named clients
+     * @param beanContext  The bean context to look up the pools of the named clients
+     */
+    public MqttClientMetrics(MqttClientPool<MqttAsyncClient> clientPool,
+                             List<NamedMqttClientConfigurationProperties> namedClients,
+                             BeanContext beanContext) {
+        this.clientPool = clientPool;
+        this.namedClients = namedClients;
+        this.beanContext = beanContext;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindTo(registry, "default", clientPool);
+        for (NamedMqttClientConfigurationProperties namedClient : namedClients) {
+            bindTo(registry, namedClient.getName(), beanContext.getBean(Argument.of(MqttClientPool.class, MqttAsyncClient.class), Qualifiers.byName(namedClient.getName())));
+        }
+    }
+
+    private void bindTo(MeterRegistry registry, String name, MqttClientPool<MqttAsyncClient> pool) {
+        for (int i = 0; i < pool.size(); i++) {
+            Tags tags = Tags.of("client", name, "connection", String.valueOf(i));
+            MqttAsyncClient client = pool.getClient(i);
+            Gauge.builder("mqtt.client.inflight", client, MqttAsyncClient::getInFlightMessageCount)
+                    .description("The number of messages sent but not yet acknowledged by the broker")
+                    .baseUnit(BaseUnits.MESSAGES)
+                    .tags(tags)
+                    .register(registry);
+            Gauge.builder("mqtt.client.buffered", client, MqttAsyncClient::getBufferedMessageCount)
+                    .description("The number of messages buffered while the client is disconnected")
+                    .baseUnit(BaseUnits.MESSAGES)
+                    .tags(tags)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.v3.config;
+
+import io.micronaut.context.annotation.ConfigurationBuilder;
+import io.micronaut.mqtt.config.MqttSSLConfiguration;
+import jakarta.validation.constraints.NotNull;
+import org.eclipse.paho.client.mqttv3.DisconnectedBufferOptions;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+
+import javax.net.SocketFactory;
+import javax.net.ssl.HostnameVerifier;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * Configuration shared by the default MQTT client and the named clients.
+ *
+ * @since 3.0.0
+ */
+public abstract class AbstractMqttClientConfiguration implements MqttSSLConfiguration {
+
+    private static final int DEFAULT_EARLY_PUBLISH_BUFFER_SIZE = 10_000;
+
+    private String serverUri;
+    private String clientId;
+    private Duration connectionTimeout = Duration.ofSeconds(3);
+    private boolean asyncConnect;
+    private int earlyPublishBufferSize = DEFAULT_EARLY_PUBLISH_BUFFER_SIZE;
+    private int poolSize = 1;
+    private Boolean manualAcks;
+
+    @ConfigurationBuilder(excludes = {"socketFactory", "SSLProperties", "httpsHostnameVerificationEnabled", "SSLHostnameVerifier"})
+    private final MqttConnectOptions connectOptions = new MqttConnectOptions();
+
+    @ConfigurationBuilder(configurationPrefix = "disconnected-buffer")
+    private final DisconnectedBufferOptions disconnectedBufferOptions = new DisconnectedBufferOptions();
+
+    /**
+     * @return The connection options
+     */
+    public MqttConnectOptions getConnectOptions() {
+        return connectOptions;
+    }
+
+    /**
+     * @return The server URI
+     */
+    @NotNull
+    public String getServerUri() {
+        return serverUri;
+    }
+
+    /**
+     * @param serverUri The server URI
+     */
+    public void setServerUri(String serverUri) {
+        this.serverUri = serverUri;
+    }
+
+    /**
+     * @return The client id
+     */
+    @NotNull
+    public String getClientId() {
+        return clientId;
+    }
+
+    /**
+     * @param clientId The client ID
+     */
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    /**
+     * @return The connection timeout
+     */
+    public Duration getConnectionTimeout() {
+        return connectionTimeout;
+    }
+
+    /**
+     * @param connectionTimeout How long to wait for a connection
+     */
+    public void setConnectionTimeout(Duration connectionTimeout) {
+        this.connectionTimeout = connectionTimeout;
+    }
+
+    /**
+     * @return An optional boolean to set the client in manual acknowledge mode
+     */
+    public Optional<Boolean> getManualAcks() {
+        return Optional.ofNullable(manualAcks);
+    }
+
+    /**
+     * @param manualAcks Set to true if you wish to manually acknowledge messages
+     */
+    public void setManualAcks(Boolean manualAcks) {
+        this.manualAcks = manualAcks;
+    }
+
+    /**
+     * @return The options of the buffer holding messages published while the connection is lost
+     * @since 3.0.0
+     */
+    public DisconnectedBufferOptions getDisconnectedBufferOptions() {
+        return disconnectedBufferOptions;
+    }
+
+    /**
+     * @return True if the client connects in the background instead of blocking startup
+     * @since 3.0.0
+     */
+    public boolean isAsyncConnect() {
+        return asyncConnect;
+    }
+
+    /**
+     * @param asyncConnect Set to true to connect in the background instead of blocking startup. Default value false
+     */
+    public void setAsyncConnect(boolean asyncConnect) {
+        this.asyncConnect = asyncConnect;
+    }
+
+    /**
+     * @return The maximum number of messages buffered until the first connection is established
+     * @since 3.0.0
+     */
+    public int getEarlyPublishBufferSize() {
+        return earlyPublishBufferSize;
+    }
+
+    /**
+     * @param earlyPublishBufferSize The maximum number of messages buffered until the first connection is established. Default value {@value #DEFAULT_EARLY_PUBLISH_BUFFER_SIZE}
+     */
+    public void setEarlyPublishBufferSize(int earlyPublishBufferSize) {
+        this.earlyPublishBufferSize = earlyPublishBufferSize;
+    }
+
+    /**
+     * @return The number of connections publishes are spread across
+     * @since 3.0.0
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * Publishes are assigned to a connection by the hash of their topic, so messages to the
+     * same topic keep their order. The additional connections use the client id followed by
+     * {@code -1}, {@code -2} and so on.
+     *
+     * @param poolSize The number of connections publishes are spread across. Default value 1
+     */
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    @Override
+    public SocketFactory getSocketFactory() {
+        return connectOptions.getSocketFactory();
+    }
+
+    @Override
+    public void setSocketFactory(SocketFactory socketFactory) {
+        connectOptions.setSocketFactory(socketFactory);
+    }
+
+    @Override
+    public Properties getSSLProperties() {
+        return connectOptions.getSSLProperties();
+    }
+
+    @Override
+    public void setSSLProperties(Properties props) {
+        connectOptions.setSSLProperties(props);
+    }
+
+    @Override
+    public boolean isHttpsHostnameVerificationEnabled() {
+        return connectOptions.isHttpsHostnameVerificationEnabled();
+    }
+
+    @Override
+    public void setHttpsHostnameVerificationEnabled(boolean httpsHostnameVerificationEnabled) {
+        connectOptions.setHttpsHostnameVerificationEnabled(httpsHostnameVerificationEnabled);
+    }
+
+    @Override
+    public HostnameVerifier getSSLHostnameVerifier() {
+        return connectOptions.getSSLHostnameVerifier();
+    }
+
+    @Override
+    public void setSSLHostnameVerifier(HostnameVerifier hostnameVerifier) {
+        connectOptions.setSSLHostnameVerifier(hostnameVerifier);
+    }
+}
@@ -15,17 +15,7 @@
  */
 package io.micronaut.mqtt.v3.config;
 
-import io.micronaut.context.annotation.ConfigurationBuilder;
 import io.micronaut.context.annotation.ConfigurationProperties;
-import io.micronaut.mqtt.config.MqttSSLConfiguration;
-import jakarta.validation.constraints.NotNull;
-import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
-
-import javax.net.SocketFactory;
-import javax.net.ssl.HostnameVerifier;
-import java.time.Duration;
-import java.util.Optional;
-import java.util.Properties;
 
 /**
  * Configuration for the MQTT client.
@@ -34,127 +24,14 @@ import java.util.Properties;
  * @since 1.0.0
  */
 @ConfigurationProperties("mqtt.client")
-public class MqttClientConfigurationProperties implements MqttSSLConfiguration {
-
-    private String serverUri;
-    private String clientId;
-    private Duration connectionTimeout = Duration.ofSeconds(3);
-    private Boolean manualAcks;
-
-    @ConfigurationBuilder(excludes = {"socketFactory", "SSLProperties", "httpsHostnameVerificationEnabled", "SSLHostnameVerifier"})
-    private final MqttConnectOptions connectOptions = new MqttConnectOptions();
+public class MqttClientConfigurationProperties extends AbstractMqttClientConfiguration {
 
     public MqttClientConfigurationProperties(WillMessage willMessage) {
         if (willMessage.getTopic() != null) {
-            connectOptions.setWill(willMessage.getTopic(), willMessage.getPayload(), willMessage.getQos(), willMessage.isRetained());
+            getConnectOptions().setWill(willMessage.getTopic(), willMessage.getPayload(), willMessage.getQos(), willMessage.isRetained());
         }
     }
 
-    /**
-     * @return The connection options
-     */
-    public MqttConnectOptions getConnectOptions() {
-        return connectOptions;
-    }
-
-    /**
-     * @return The server URI
-     */
-    @NotNull
-    public String getServerUri() {
-        return serverUri;
-    }
-
-    /**
-     * @param serverUri The server URI
-     */
-    public void setServerUri(String serverUri) {
-        this.serverUri = serverUri;
-    }
-
-    /**
-     * @return The client id
-     */
-    @NotNull
-    public String getClientId() {
-        return clientId;
-    }
-
-    /**
-     * @param clientId The client ID
-     */
-    public void setClientId(String clientId) {
-        this.clientId = clientId;
-    }
-
-    /**
-     * @return The connection timeout
-     */
-    public Duration getConnectionTimeout() {
-        return connectionTimeout;
-    }
-
-    /**
-     * @param connectionTimeout How long to wait for a connection
-     */
-    public void setConnectionTimeout(Duration connectionTimeout) {
-        this.connectionTimeout = connectionTimeout;
-    }
-
-    /**
-     * @return An optional boolean to set the client in manual acknowledge mode
-     */
-    public Optional<Boolean> getManualAcks() {
-        return Optional.ofNullable(manualAcks);
-    }
-
-    /**
-     * @param manualAcks Set to true if you wish to manually acknowledge messages
-     */
-    public void setManualAcks(Boolean manualAcks) {
-        this.manualAcks = manualAcks;
-    }
-
-    @Override
-    public SocketFactory getSocketFactory() {
-        return connectOptions.getSocketFactory();
-    }
-
-    @Override
-    public void setSocketFactory(SocketFactory socketFactory) {
-        connectOptions.setSocketFactory(socketFactory);
-    }
-
-    @Override
-    public Properties getSSLProperties() {
-        return connectOptions.getSSLProperties();
-    }
-
-    @Override
-    public void setSSLProperties(Properties props) {
-        connectOptions.setSSLProperties(props);
-    }
-
-    @Override
-    public boolean isHttpsHostnameVerificationEnabled() {
-        return connectOptions.isHttpsHostnameVerificationEnabled();
-    }
-
-    @Override
-    public void setHttpsHostnameVerificationEnabled(boolean httpsHostnameVerificationEnabled) {
-        connectOptions.setHttpsHostnameVerificationEnabled(httpsHostnameVerificationEnabled);
-    }
-
-    @Override
-    public HostnameVerifier getSSLHostnameVerifier() {
-        return connectOptions.getSSLHostnameVerifier();
-    }
-
-    @Override
-    public void setSSLHostnameVerifier(HostnameVerifier hostnameVerifier) {
-        connectOptions.setSSLHostnameVerifier(hostnameVerifier);
-    }
-
     @ConfigurationProperties("will-message")
     static class WillMessage {
 
@@ -15,13 +15,28 @@
  */
 package io.micronaut.mqtt.v3.intercept;
 
+import io.micronaut.aop.InterceptorBean;
 import io.micronaut.aop.MethodInvocationContext;
+import io.micronaut.context.BeanContext;
+import io.micronaut.context.exceptions.NoSuchBeanException;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.core.type.Argument;
+import io.micronaut.inject.qualifiers.Qualifiers;
 import io.micronaut.mqtt.bind.MqttBinderRegistry;
 import io.micronaut.mqtt.bind.MqttBindingContext;
+import io.micronaut.mqtt.buffer.BufferedMessage;
+import io.micronaut.mqtt.buffer.OfflinePublishBuffer;
+import io.micronaut.mqtt.client.MqttClientPool;
+import io.micronaut.mqtt.client.MqttConnectionLifecycle;
 import io.micronaut.mqtt.exception.MqttClientException;
 import io.micronaut.mqtt.intercept.AbstractMqttIntroductionAdvice;
+import io.micronaut.mqtt.intercept.MqttAdviceCollaborators;
+import io.micronaut.mqtt.latency.LatencyTrailer;
 import io.micronaut.mqtt.v3.annotation.MqttPublisher;
 import io.micronaut.mqtt.v3.bind.MqttV3BindingContext;
+import io.micronaut.mqtt.v3.config.AbstractMqttClientConfiguration;
+import io.micronaut.mqtt.v3.config.MqttClientConfigurationProperties;
+import io.micronaut.mqtt.v3.config.NamedMqttClientConfigurationProperties;
 import jakarta.inject.Singleton;
 import org.eclipse.paho.client.mqttv3.IMqttActionListener;
 import org.eclipse.paho.client.mqttv3.IMqttToken;
@@ -30,6 +45,8 @@ import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 
 import java.lang.annotation.Annotation;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Consumer;
 
 /**
@@ -39,30 +56,126 @@ import java.util.function.Consumer;
  * @since 1.0.0
  */
 @Singleton
+@InterceptorBean(io.micronaut.mqtt.annotation.MqttPublisher.class)
 public class MqttIntroductionAdvice extends AbstractMqttIntroductionAdvice<IMqttActionListener, MqttMessage> {
 
-    private final MqttAsyncClient mqttAsyncClient;
+    private final MqttClientPool<MqttAsyncClient> clientPool;
+    private final MqttConnectionLifecycle connectionLifecycle;
+    private final OfflinePublishBuffer offlineBuffer;
+    private final BeanContext beanContext;
+    private final ConcurrentMap<String, NamedClient> namedClients = new ConcurrentHashMap<>();
 
-    public MqttIntroductionAdvice(MqttAsyncClient mqttAsyncClient,
-                                  MqttBinderRegistry binderRegistry) {
-        super(binderRegistry);
-        this.mqttAsyncClient = mqttAsyncClient;
+    public MqttIntroductionAdvice(MqttClientPool<MqttAsyncClient> clientPool,
+                                  MqttBinderRegistry binderRegistry,
+                                  MqttConnectionLifecycle connectionLifecycle,
+                                  @Nullable OfflinePublishBuffer offlineBuffer,
+                                  MqttAdviceCollaborators collaborators,
+                                  BeanContext beanContext) {
+        super(binderRegistry, collaborators);
+        this.clientPool = clientPool;
+        this.connectionLifecycle = connectionLifecycle;
+        this.offlineBuffer = offlineBuffer;
+        this.beanContext = beanContext;
+        if (offlineBuffer != null) {
+            connectionLifecycle.addConnectionListener((connection, reconnect) -> {
+                if (connectionLifecycle.isConnected()) {
+                    offlineBuffer.replay(this::publishReplayed);
+                }
+            });
+        }
     }
 
     @Override
     public MqttBindingContext<MqttMessage> createBindingContext(MethodInvocationContext<Object, Object> context) {
-        return new MqttV3BindingContext(mqttAsyncClient, new MqttMessage());
+        return new MqttV3BindingContext(clientPool.getPrimary(), new MqttMessage());
+    }
+
+    @Override
+    protected void stampSendTime(MqttBindingContext<MqttMessage> context, long sentMicros) {
+        byte[] payload = context.getPayload();
+        context.setPayload(LatencyTrailer.append(payload == null ? new byte[0] : payload, sentMicros));
+    }
+
+    @Override
+    protected int getMaxInflight(String client) {
+        AbstractMqttClientConfiguration configuration = client.isEmpty()
+                ? beanContext.getBean(MqttClientConfigurationProperties.class)
+                : beanContext.getBean(NamedMqttClientConfigurationProperties.class, Qualifiers.byName(client));
+        return configuration.getConnectOptions().getMaxInflight() * Math.max(1, configuration.getPoolSize());
     }
 
     @Override
     public Object publish(String topic, MqttMessage message, IMqttActionListener listener) {
+        if (connectionLifecycle.defer(() -> publishBuffered(clientPool, topic, message, listener), e -> listener.onFailure(null, e))) {
+            return null;
+        }
+        if (offlineBuffer != null && offlineBuffer.isBuffering()) {
+            BufferedMessage buffered = new BufferedMessage(topic, message.getPayload(), message.getQos(), message.isRetained(), error -> {
+                if (error == null) {
+                    listener.onSuccess(null);
+                } else {
+                    listener.onFailure(null, error);
+                }
+            });
+            switch (offlineBuffer.offer(buffered)) {
+                case BUFFERED:
+                    return null;
+                case DROPPED:
+                    listener.onFailure(null, new MqttClientException("The client is disconnected and the offline buffer is full"));
+                    return null;
+                default:
+                    break;
+            }
+        }
+        try {
+            return clientPool.getClient(topic).publish(topic, message, null, listener);
+        } catch (MqttException e) {
+            throw new MqttClientException("Failed to publish the message", e);
+        }
+    }
+
+    @Override
+    public Object publish(String client, String topic, MqttMessage message, IMqttActionListener listener) {
+        if (client.isEmpty()) {
+            return publish(topic, message, listener);
+        }
+        NamedClient namedClient = namedClients.computeIfAbsent(client, this::findClient);
+        if (namedClient.lifecycle.defer(() -> publishBuffered(namedClient.pool, topic, message, listener), e -> listener.onFailure(null, e))) {
+            return null;
+        }
         try {
-            return mqttAsyncClient.publish(topic, message, null, listener);
+            return namedClient.pool.getClient(topic).publish(topic, message, null, listener);
         } catch (MqttException e) {
             throw new MqttClientException("Failed to publish the message", e);
         }
     }
 
+    private NamedClient findClient(String name) {
+        try {
+            return new NamedClient(
+                    beanContext.getBean(Argument.of(MqttClientPool.class, MqttAsyncClient.class), Qualifiers.byName(name)),
+                    beanContext.getBean(MqttConnectionLifecycle.class, Qualifiers.byName(name)));
+        } catch (NoSuchBeanException e) {
+            throw new MqttClientException("No MQTT client named [" + name + "] is configured under mqtt.clients", e);
+        }
+    }
+
+    private void publishBuffered(MqttClientPool<MqttAsyncClient> pool, String topic, MqttMessage message, IMqttActionListener listener) {
+        try {
+            pool.getClient(topic).publish(topic, message, null, listener);
+        } catch (MqttException e) {
+            listener.onFailure(null, new MqttClientException("Failed to publish the message", e));
+        }
+    }
+
+    private void publishReplayed(BufferedMessage buffered) throws MqttException {
+        MqttMessage message = new MqttMessage(buffered.getPayload());
+        message.setQos(buffered.getQos());
+        message.setRetained(buffered.isRetained());
+        clientPool.getClient(buffered.getTopic()).publish(buffered.getTopic(), message, null,
+                createListener(() -> buffered.complete(null), buffered::complete));
+    }
+
     @Override
     public IMqttActionListener createListener(Runnable onSuccess, Consumer<Throwable> onError) {
         return new IMqttActionListener() {
@@ -83,4 +196,17 @@ public class MqttIntroductionAdvice extends AbstractMqttIntroductionAdvice<IMqtt
         return MqttPublisher.class;
     }
 
+    /**
+     * The client pool and lifecycle of a named client.
+     */
+    private static final class NamedClient {
+
+        private final MqttClientPool<MqttAsyncClient> pool;
+        private final MqttConnectionLifecycle lifecycle;
+
+        NamedClient(MqttClientPool<MqttAsyncClient> pool, MqttConnectionLifecycle lifecycle) {
+            this.pool = pool;
+            this.lifecycle = lifecycle;
+        }
+    }
 }
@@ -16,13 +16,26 @@
 package io.micronaut.mqtt.v3.intercept;
 
 import io.micronaut.context.BeanContext;
+import io.micronaut.context.annotation.Primary;
+import io.micronaut.context.exceptions.NoSuchBeanException;
+import io.micronaut.inject.qualifiers.Qualifiers;
 import io.micronaut.mqtt.bind.MqttBinderRegistry;
 import io.micronaut.mqtt.bind.MqttBindingContext;
+import io.micronaut.mqtt.client.MqttClientPool;
+import io.micronaut.mqtt.client.MqttConnectionLifecycle;
 import io.micronaut.mqtt.exception.MqttSubscriberException;
 import io.micronaut.mqtt.exception.MqttSubscriberExceptionHandler;
+import io.micronaut.mqtt.exception.MqttSubscriptionRejectedException;
 import io.micronaut.mqtt.intercept.AbstractMqttSubscriberAdvice;
+import io.micronaut.mqtt.intercept.MqttAdviceCollaborators;
+import io.micronaut.mqtt.intercept.TopicSubscription;
+import io.micronaut.mqtt.latency.LatencyTrailer;
 import io.micronaut.mqtt.v3.bind.MqttV3BindingContext;
+import io.micronaut.mqtt.v3.config.AbstractMqttClientConfiguration;
+import io.micronaut.mqtt.v3.config.MqttClientConfigurationProperties;
+import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
 import org.eclipse.paho.client.mqttv3.IMqttMessageListener;
 import org.eclipse.paho.client.mqttv3.IMqttToken;
 import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
@@ -31,8 +44,11 @@ import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 /**
@@ -42,39 +58,140 @@ import java.util.function.Consumer;
  * @since 1.0.0
  */
 @Singleton
+@Primary
 public class MqttSubscriberAdvice extends AbstractMqttSubscriberAdvice<MqttMessage> {
 
     private static final Logger LOG = LoggerFactory.getLogger(MqttSubscriberAdvice.class);
-    private final MqttAsyncClient mqttAsyncClient;
+    private static final int SUBSCRIPTION_FAILURE = 0x80;
 
+    private final BeanContext beanContext;
+    private final MqttClientPool<MqttAsyncClient> clientPool;
+    private final boolean manualAcks;
+    private final String clientName;
+
+    @Inject
     public MqttSubscriberAdvice(BeanContext beanContext,
                                 MqttBinderRegistry binderRegistry,
                                 MqttSubscriberExceptionHandler exceptionHandler,
-                                MqttAsyncClient mqttAsyncClient) {
-        super(beanContext, binderRegistry, exceptionHandler);
-        this.mqttAsyncClient = mqttAsyncClient;
+                                MqttClientPool<MqttAsyncClient> clientPool,
+                                MqttClientConfigurationProperties configuration,
+                                MqttAdviceCollaborators collaborators,
+                                MqttConnectionLifecycle connectionLifecycle) {
+        this(beanContext, binderRegistry, exceptionHandler, clientPool, configuration, collaborators, connectionLifecycle, "");
+    }
+
+    /**
+     * @param beanContext The bean context
+     * @param binderRegistry The binder registry
+     * @param exceptionHandler The default exception handler
+     * @param clientPool The clients to subscribe with
+     * @param configuration The configuration of the clients
+     * @param collaborators The subscriber configuration and the optional features applied to every message
+     * @param connectionLifecycle The connection of the clients
+     * @param clientName The name of the client under {@code mqtt.clients}, empty for the default client
+     * @since 3.0.0
+     */
+    public MqttSubscriberAdvice(BeanContext beanContext,
+                                MqttBinderRegistry binderRegistry,
+                                MqttSubscriberExceptionHandler exceptionHandler,
+                                MqttClientPool<MqttAsyncClient> clientPool,
+                                AbstractMqttClientConfiguration configuration,
+                                MqttAdviceCollaborators collaborators,
+                                MqttConnectionLifecycle connectionLifecycle,
+                                String clientName) {
+        super(beanContext, binderRegistry, exceptionHandler, collaborators, connectionLifecycle);
+        this.beanContext = beanContext;
+        this.clientPool = clientPool;
+        this.manualAcks = configuration.getManualAcks().orElse(false);
+        this.clientName = clientName;
     }
 
     @Override
-    public void subscribe(String[] topics, int[] qos, Consumer<MqttBindingContext<MqttMessage>> callback) {
-        try {
-            IMqttMessageListener messageListener = (actualTopic, message) -> {
+    public CompletableFuture<Void> subscribe(int connection, List<TopicSubscription<MqttMessage>> subscriptions) {
+        MqttAsyncClient mqttAsyncClient = clientPool.getClient(connection);
+        String[] topics = new String[subscriptions.size()];
+        int[] qos = new int[subscriptions.size()];
+        IMqttMessageListener[] listeners = new IMqttMessageListener[subscriptions.size()];
+        for (int i = 0; i < subscriptions.size(); i++) {
+            TopicSubscription<MqttMessage> subscription = subscriptions.get(i);
+            Consumer<MqttBindingContext<MqttMessage>> callback = subscription.getCallback();
+            topics[i] = subscription.getFilter();
+            qos[i] = subscription.getQos();
+            listeners[i] = (actualTopic, message) -> {
                 MqttV3BindingContext context = new MqttV3BindingContext(mqttAsyncClient, message);
                 context.setTopic(actualTopic);
                 callback.accept(context);
             };
-            IMqttMessageListener[] listeners = new IMqttMessageListener[topics.length];
-            Arrays.fill(listeners, messageListener);
-            mqttAsyncClient.subscribe(topics, qos, listeners);
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            mqttAsyncClient.subscribe(topics, qos, null, new IMqttActionListener() {
+                @Override
+                public void onSuccess(IMqttToken asyncActionToken) {
+                    int[] grantedQos = asyncActionToken.getGrantedQos();
+                    List<String> rejected = new ArrayList<>(0);
+                    for (int i = 0; grantedQos != null && i < grantedQos.length && i < topics.length; i++) {
+                        if (grantedQos[i] == SUBSCRIPTION_FAILURE) {
+                            rejected.add(topics[i]);
+                        }
+                    }
+                    if (rejected.isEmpty()) {
+                        future.complete(null);
+                    } else {
+                        future.completeExceptionally(new MqttSubscriptionRejectedException(rejected));
+                    }
+                }
+
+                @Override
+                public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+                    future.completeExceptionally(new MqttSubscriberException(String.format("Failed to subscribe to the topics: %s", Arrays.toString(topics)), exception));
+                }
+            }, listeners);
         } catch (MqttException e) {
-            throw new MqttSubscriberException(String.format("Failed to subscribe to the topics: %s", (Object) topics), e);
+            future.completeExceptionally(new MqttSubscriberException(String.format("Failed to subscribe to the topics: %s", Arrays.toString(topics)), e));
+        }
+        return future;
+    }
+
+    @Override
+    protected long readSendTime(MqttBindingContext<MqttMessage> context) {
+        byte[] payload = context.getPayload();
+        long sentMicros = LatencyTrailer.read(payload);
+        if (sentMicros != -1) {
+            // the message is shared by all subscriptions matching the topic, only the payload of this context is stripped
+            ((MqttV3BindingContext) context).setReceivedPayload(LatencyTrailer.strip(payload));
+        }
+        return sentMicros;
+    }
+
+    @Override
+    protected boolean isManualAcks() {
+        return manualAcks;
+    }
+
+    @Override
+    protected String getClientName() {
+        return clientName;
+    }
+
+    @Override
+    protected AbstractMqttSubscriberAdvice<MqttMessage> getNamedAdvice(String client) {
+        try {
+            return beanContext.getBean(MqttSubscriberAdvice.class, Qualifiers.byName(client));
+        } catch (NoSuchBeanException e) {
+            throw new MqttSubscriberException(String.format("No MQTT client named [%s] is configured under mqtt.clients", client), e);
         }
     }
 
     @Override
     public void unsubscribe(Set<String> topics) {
+        unsubscribe(0, topics);
+    }
+
+    @Override
+    public void unsubscribe(int connection, Set<String> topics) {
         try {
-            IMqttToken token = mqttAsyncClient.unsubscribe(topics.toArray(new String[]{}));
+            IMqttToken token = clientPool.getClient(connection).unsubscribe(topics.toArray(new String[]{}));
             token.waitForCompletion();
         } catch (MqttException e) {
             if (LOG.isWarnEnabled()) {
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.v3.intercept;
+
+import io.micronaut.context.BeanContext;
+import io.micronaut.context.annotation.Bean;
+import io.micronaut.context.annotation.EachBean;
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Parameter;
+import io.micronaut.mqtt.bind.MqttBinderRegistry;
+import io.micronaut.mqtt.client.MqttClientPool;
+import io.micronaut.mqtt.client.MqttConnectionLifecycle;
+import io.micronaut.mqtt.exception.MqttSubscriberExceptionHandler;
+import io.micronaut.mqtt.intercept.MqttAdviceCollaborators;
+import io.micronaut.mqtt.v3.config.NamedMqttClientConfigurationProperties;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+
+/**
+ * Creates the subscriber advice of each named client.
+ *
+ * @since 3.0.0
+ */
+@Factory
+public final class MqttSubscriberAdviceFactory {
+
+    @EachBean(NamedMqttClientConfigurationProperties.class)
+    @Bean(preDestroy = "close")
+    MqttSubscriberAdvice namedSubscriberAdvice(NamedMqttClientConfigurationProperties configuration,
+                                               BeanContext beanContext,
+                                               MqttBinderRegistry binderRegistry,
+                                               MqttSubscriberExceptionHandler exceptionHandler,
+                                               MqttAdviceCollaborators collaborators,
+                                               @Parameter MqttClientPool<MqttAsyncClient> clientPool,
+                                               @Parameter MqttConnectionLifecycle connectionLifecycle) {
+        return new MqttSubscriberAdvice(beanContext, binderRegistry, exceptionHandler, clientPool,
+                configuration, collaborators, connectionLifecycle, configuration.getName());
+    }
+}
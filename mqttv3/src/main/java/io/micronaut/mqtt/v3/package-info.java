@@ -14,6 +14,12 @@
  * limitations under the License.
  */
 /**
- * MQTT V3 implementation.
+ * MQTT V3 implementation. Disabled if {@code mqtt.client.transport} is {@code netty}.
  */
+@Configuration
+@Requires(property = MqttConfigurationProperties.TRANSPORT, notEquals = MqttConfigurationProperties.TRANSPORT_NETTY)
 package io.micronaut.mqtt.v3;
+
+import io.micronaut.context.annotation.Configuration;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.mqtt.config.MqttConfigurationProperties;
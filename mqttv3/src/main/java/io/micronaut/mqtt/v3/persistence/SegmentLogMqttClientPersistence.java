@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.v3.persistence;
+
+import io.micronaut.context.annotation.Prototype;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.mqtt.persistence.MqttPersistenceConfigurationProperties;
+import io.micronaut.mqtt.persistence.SegmentLogStore;
+import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
+import org.eclipse.paho.client.mqttv3.MqttPersistable;
+import org.eclipse.paho.client.mqttv3.MqttPersistenceException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Enumeration;
+
+/**
+ * A {@link MqttClientPersistence} that stores in-flight messages in a {@link SegmentLogStore}.
+ * Each client of a pool gets an instance of its own.
+ *
+ * @since 3.0.0
+ */
+@Prototype
+@Requires(property = MqttPersistenceConfigurationProperties.PREFIX + ".type", value = MqttPersistenceConfigurationProperties.TYPE_SEGMENT_LOG)
+public class SegmentLogMqttClientPersistence implements MqttClientPersistence {
+
+    private final MqttPersistenceConfigurationProperties configuration;
+    private SegmentLogStore store;
+
+    /**
+     * @param configuration The persistence configuration
+     */
+    public SegmentLogMqttClientPersistence(MqttPersistenceConfigurationProperties configuration) {
+        this.configuration = configuration;
+    }
+
+    @Override
+    public void open(String clientId, String serverURI) throws MqttPersistenceException {
+        SegmentLogStore store = new SegmentLogStore(configuration.getDirectory().resolve(SegmentLogStore.directoryName(clientId, serverURI)), configuration);
+        try {
+            store.open();
+        } catch (IOException | UncheckedIOException e) {
+            throw new MqttPersistenceException(e);
+        }
+        this.store = store;
+    }
+
+    @Override
+    public void close() throws MqttPersistenceException {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Override
+    public void put(String key, MqttPersistable persistable) throws MqttPersistenceException {
+        try {
+            getStore().put(key,
+                    persistable.getHeaderBytes(), persistable.getHeaderOffset(), persistable.getHeaderLength(),
+                    persistable.getPayloadBytes(), persistable.getPayloadOffset(), persistable.getPayloadLength());
+        } catch (UncheckedIOException e) {
+            throw new MqttPersistenceException(e);
+        }
+    }
+
+    @Override
+    public MqttPersistable get(String key) throws MqttPersistenceException {
+        byte[] data = getStore().get(key);
+        return data == null ? null : new StoredPersistable(data);
+    }
+
+    @Override
+    public void remove(String key) throws MqttPersistenceException {
+        try {
+            getStore().remove(key);
+        } catch (UncheckedIOException e) {
+            throw new MqttPersistenceException(e);
+        }
+    }
+
+    @Override
+    public Enumeration<String> keys() throws MqttPersistenceException {
+        return Collections.enumeration(getStore().keys());
+    }
+
+    @Override
+    public void clear() throws MqttPersistenceException {
+        try {
+            getStore().clear();
+        } catch (UncheckedIOException e) {
+            throw new MqttPersistenceException(e);
+        }
+    }
+
+    @Override
+    public boolean containsKey(String key) throws MqttPersistenceException {
+        return getStore().containsKey(key);
+    }
+
+    private SegmentLogStore getStore() throws MqttPersistenceException {
+        if (store == null) {
+            throw new MqttPersistenceException(new IllegalStateException("The persistence has not been opened"));
+        }
+        return store;
+    }
+}
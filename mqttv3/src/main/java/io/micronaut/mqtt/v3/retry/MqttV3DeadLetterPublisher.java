@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.v3.retry;
+
+import io.micronaut.mqtt.bind.MqttBindingContext;
+import io.micronaut.mqtt.exception.MqttClientException;
+import io.micronaut.mqtt.exception.MqttSubscriberException;
+import io.micronaut.mqtt.retry.DeadLetterEnvelopeEncoder;
+import io.micronaut.mqtt.retry.MqttDeadLetterPublisher;
+import io.micronaut.mqtt.v3.bind.MqttV3BindingContext;
+import jakarta.inject.Singleton;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+
+/**
+ * The MQTT v3 implementation of {@link MqttDeadLetterPublisher}. MQTT v3 messages cannot
+ * carry properties, so the original payload is wrapped in a JSON envelope created by the
+ * {@link DeadLetterEnvelopeEncoder}. The message is published with the client the failed
+ * message was received with, so failures of subscribers of named clients stay on their broker.
+ *
+ * @since 3.0.0
+ */
+@Singleton
+public class MqttV3DeadLetterPublisher implements MqttDeadLetterPublisher {
+
+    private final MqttAsyncClient mqttAsyncClient;
+    private final DeadLetterEnvelopeEncoder envelopeEncoder;
+
+    /**
+     * @param mqttAsyncClient The default client, used if the client of a message is unknown
+     * @param envelopeEncoder The envelope encoder
+     */
+    public MqttV3DeadLetterPublisher(MqttAsyncClient mqttAsyncClient, DeadLetterEnvelopeEncoder envelopeEncoder) {
+        this.mqttAsyncClient = mqttAsyncClient;
+        this.envelopeEncoder = envelopeEncoder;
+    }
+
+    @Override
+    public void publish(String topic, int qos, MqttBindingContext<?> context, MqttSubscriberException exception, int attempts) {
+        MqttMessage message = new MqttMessage(envelopeEncoder.encode(context, exception, attempts));
+        message.setQos(qos);
+        MqttAsyncClient client = context instanceof MqttV3BindingContext v3Context ? v3Context.getClient() : mqttAsyncClient;
+        try {
+            client.publish(topic, message);
+        } catch (MqttException e) {
+            throw new MqttClientException("Failed to publish the message to the dead letter topic", e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package io.micronaut.mqtt.bind.variable
+
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.test.bind.variable.TopicVariableBindingClient
+import io.micronaut.mqtt.test.bind.variable.TopicVariableBindingSpec
+import io.micronaut.mqtt.v3.annotation.MqttPublisher
+
+class V3TopicVariableBindingSpec extends TopicVariableBindingSpec {
+
+    @Override
+    Class<? extends TopicVariableBindingClient> getClient() {
+        return MyClient.class
+    }
+
+    @Requires(property = "spec.name", value = "V3TopicVariableBindingSpec")
+    @MqttPublisher
+    static interface MyClient extends TopicVariableBindingClient {}
+}
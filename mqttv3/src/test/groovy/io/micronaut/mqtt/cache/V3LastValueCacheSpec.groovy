@@ -0,0 +1,18 @@
+package io.micronaut.mqtt.cache
+
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.test.cache.LastValueCacheClient
+import io.micronaut.mqtt.test.cache.LastValueCacheSpec
+import io.micronaut.mqtt.v3.annotation.MqttPublisher
+
+class V3LastValueCacheSpec extends LastValueCacheSpec {
+
+    @Override
+    Class<? extends LastValueCacheClient> getClient() {
+        return MyClient.class
+    }
+
+    @Requires(property = "spec.name", value = "V3LastValueCacheSpec")
+    @MqttPublisher
+    static interface MyClient extends LastValueCacheClient {}
+}
@@ -0,0 +1,23 @@
+package io.micronaut.mqtt.chaos
+
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.test.chaos.ChaosClient
+import io.micronaut.mqtt.test.chaos.ChaosSpec
+import io.micronaut.mqtt.v3.annotation.MqttPublisher
+
+class V3ChaosSpec extends ChaosSpec {
+
+    @Override
+    Class<? extends ChaosClient> getClient() {
+        return MyClient.class
+    }
+
+    @Override
+    Map<String, Object> getPersistentSessionConfig() {
+        return ["mqtt.client.clean-session": false]
+    }
+
+    @Requires(property = "spec.name", value = "V3ChaosSpec")
+    @MqttPublisher
+    static interface MyClient extends ChaosClient {}
+}
@@ -0,0 +1,18 @@
+package io.micronaut.mqtt.connect
+
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.test.connect.AsyncConnectClient
+import io.micronaut.mqtt.test.connect.AsyncConnectSpec
+import io.micronaut.mqtt.v3.annotation.MqttPublisher
+
+class V3AsyncConnectSpec extends AsyncConnectSpec {
+
+    @Override
+    Class<? extends AsyncConnectClient> getClient() {
+        return MyClient.class
+    }
+
+    @Requires(property = "spec.name", value = "V3AsyncConnectSpec")
+    @MqttPublisher
+    static interface MyClient extends AsyncConnectClient {}
+}
@@ -0,0 +1,18 @@
+package io.micronaut.mqtt.connect
+
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.test.connect.ClientPoolClient
+import io.micronaut.mqtt.test.connect.ClientPoolSpec
+import io.micronaut.mqtt.v3.annotation.MqttPublisher
+
+class V3ClientPoolSpec extends ClientPoolSpec {
+
+    @Override
+    Class<? extends ClientPoolClient> getClient() {
+        return MyClient.class
+    }
+
+    @Requires(property = "spec.name", value = "V3ClientPoolSpec")
+    @MqttPublisher
+    static interface MyClient extends ClientPoolClient {}
+}
@@ -0,0 +1,18 @@
+package io.micronaut.mqtt.connect
+
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.test.connect.NamedClientClient
+import io.micronaut.mqtt.test.connect.NamedClientSpec
+import io.micronaut.mqtt.v3.annotation.MqttPublisher
+
+class V3NamedClientSpec extends NamedClientSpec {
+
+    @Override
+    Class<? extends NamedClientClient> getClient() {
+        return MyClient.class
+    }
+
+    @Requires(property = "spec.name", value = "V3NamedClientSpec")
+    @MqttPublisher(client = "secondary")
+    static interface MyClient extends NamedClientClient {}
+}
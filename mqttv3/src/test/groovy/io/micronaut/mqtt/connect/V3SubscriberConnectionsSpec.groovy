@@ -0,0 +1,18 @@
+package io.micronaut.mqtt.connect
+
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.test.connect.ClientPoolClient
+import io.micronaut.mqtt.test.connect.SubscriberConnectionsSpec
+import io.micronaut.mqtt.v3.annotation.MqttPublisher
+
+class V3SubscriberConnectionsSpec extends SubscriberConnectionsSpec {
+
+    @Override
+    Class<? extends ClientPoolClient> getClient() {
+        return MyClient.class
+    }
+
+    @Requires(property = "spec.name", value = "V3SubscriberConnectionsSpec")
+    @MqttPublisher
+    static interface MyClient extends ClientPoolClient {}
+}
@@ -0,0 +1,45 @@
+package io.micronaut.mqtt.flow
+
+import io.micronaut.context.ApplicationContext
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.annotation.Topic
+import io.micronaut.mqtt.test.AbstractMQTTTest
+import io.micronaut.mqtt.v3.annotation.MqttPublisher
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.TimeUnit
+
+class V3InflightWindowSpec extends AbstractMQTTTest {
+
+    void "the window does not exceed the max-inflight limit of Paho"() {
+        ApplicationContext ctx = startContext(
+                "mqtt.publisher.inflight-window.enabled": true,
+                "mqtt.publisher.inflight-window.latency-tolerance": 1_000_000)
+        MyClient client = ctx.getBean(MyClient)
+        InflightWindowRegistry windows = ctx.getBean(InflightWindowRegistry)
+
+        when: "more messages than the default max-inflight of 10 are published at once"
+        List<CompletableFuture<Void>> sent = []
+        20.times { round ->
+            sent.addAll((1..50).collect { client.send("m-$round-$it".bytes) })
+        }
+        CompletableFuture.allOf(sent as CompletableFuture[]).get(30, TimeUnit.SECONDS)
+
+        then: "none is rejected by Paho"
+        sent.every { it.done && !it.completedExceptionally }
+
+        and: "the window grew up to the limit only"
+        windows.getWindow("").window == 10
+
+        cleanup:
+        ctx.close()
+    }
+
+    @Requires(property = "spec.name", value = "V3InflightWindowSpec")
+    @MqttPublisher
+    static interface MyClient {
+
+        @Topic(value = "test/inflight", qos = 1)
+        CompletableFuture<Void> send(byte[] data)
+    }
+}
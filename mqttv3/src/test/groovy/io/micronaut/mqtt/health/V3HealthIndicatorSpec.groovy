@@ -3,6 +3,7 @@ package io.micronaut.mqtt.health
 import io.micronaut.context.ApplicationContext
 import io.micronaut.health.HealthStatus
 import io.micronaut.management.health.indicator.HealthResult
+import io.micronaut.mqtt.client.MqttClientPool
 import io.micronaut.mqtt.test.AbstractMQTTTest
 import io.micronaut.mqtt.v3.client.health.MqttHealthIndicator
 import org.eclipse.paho.client.mqttv3.MqttAsyncClient
@@ -29,4 +30,28 @@ class V3HealthIndicatorSpec extends AbstractMQTTTest {
         then:
         result.status == HealthStatus.DOWN
     }
+
+    void "mqtt v3 client pool health indicator"() {
+        ApplicationContext ctx = startContext("mqtt.client.pool-size": 2)
+        def pool = ctx.getBean(MqttClientPool.class)
+
+        when:
+        def indicator = ctx.getBean(MqttHealthIndicator.class)
+        HealthResult result = Flux.from(indicator.getResult()).blockFirst()
+
+        then:
+        result.status == HealthStatus.UP
+        (result.details['connections'] as Map).size() == 2
+
+        when:
+        pool.getClient(1).disconnect().waitForCompletion()
+        result = Flux.from(indicator.getResult()).blockFirst()
+
+        then:
+        result.status == HealthStatus.DOWN
+        (result.details['connections'] as Map).containsValue(HealthStatus.DOWN)
+
+        cleanup:
+        ctx.close()
+    }
 }
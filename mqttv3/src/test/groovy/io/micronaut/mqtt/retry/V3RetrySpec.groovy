@@ -0,0 +1,28 @@
+package io.micronaut.mqtt.retry
+
+import io.micronaut.context.annotation.Requires
+import io.micronaut.json.JsonMapper
+import io.micronaut.mqtt.test.retry.RetryClient
+import io.micronaut.mqtt.test.retry.RetrySpec
+import io.micronaut.mqtt.v3.annotation.MqttPublisher
+
+class V3RetrySpec extends RetrySpec {
+
+    @Override
+    Class<? extends RetryClient> getClient() {
+        return MyClient.class
+    }
+
+    @Override
+    void verifyDeadLetter(byte[] deadLetter) {
+        Map envelope = JsonMapper.createDefault().readValue(deadLetter, Map)
+        assert envelope.originalTopic == "test/retry/poison"
+        assert envelope.exception == IllegalStateException.name
+        assert envelope.attempts == 3
+        assert new String(Base64.decoder.decode(envelope.payload as String)) == "xyz"
+    }
+
+    @Requires(property = "spec.name", value = "V3RetrySpec")
+    @MqttPublisher
+    static interface MyClient extends RetryClient {}
+}
@@ -46,4 +46,9 @@ import static java.lang.annotation.RetentionPolicy.RUNTIME;
 @Singleton
 public @interface MqttPublisher {
 
+    /**
+     * @return The name of the client under {@code mqtt.clients} to publish with, the default client if not set
+     * @since 3.0.0
+     */
+    String client() default "";
 }
@@ -18,6 +18,7 @@ package io.micronaut.mqtt.v5.bind;
 import io.micronaut.core.annotation.Internal;
 import io.micronaut.mqtt.bind.MqttBindingContext;
 import io.micronaut.mqtt.exception.MqttSubscriberException;
+import io.micronaut.mqtt.topic.TopicVariables;
 import org.eclipse.paho.mqttv5.client.MqttAsyncClient;
 import org.eclipse.paho.mqttv5.common.MqttException;
 import org.eclipse.paho.mqttv5.common.MqttMessage;
@@ -39,9 +40,11 @@ public final class MqttV5BindingContext implements MqttBindingContext<MqttMessag
     private final MqttAsyncClient client;
     private final MqttMessage message;
     private String topic;
+    private TopicVariables topicVariables;
+    private Runnable acknowledged;
 
     /**
-     * @param client The client
+     * @param client The client, null for messages delivered in process
      * @param message The message
      */
     public MqttV5BindingContext(MqttAsyncClient client, MqttMessage message) {
@@ -97,6 +100,16 @@ public final class MqttV5BindingContext implements MqttBindingContext<MqttMessag
         message.setProperties(properties);
     }
 
+    @Override
+    public TopicVariables getTopicVariables() {
+        return topicVariables;
+    }
+
+    @Override
+    public void setTopicVariables(TopicVariables topicVariables) {
+        this.topicVariables = topicVariables;
+    }
+
     @Override
     public int getId() {
         return message.getId();
@@ -104,6 +117,24 @@ public final class MqttV5BindingContext implements MqttBindingContext<MqttMessag
 
     @Override
     public void acknowlege() {
+        acknowledgeMessage();
+        Runnable callback = acknowledged;
+        if (callback != null) {
+            acknowledged = null;
+            callback.run();
+        }
+    }
+
+    @Override
+    public void onAcknowledged(Runnable callback) {
+        this.acknowledged = callback;
+    }
+
+    private void acknowledgeMessage() {
+        if (client == null) {
+            // the message was delivered in process
+            return;
+        }
         try {
             if (LOG.isTraceEnabled()) {
                 LOG.trace("Acknowledging message id {} with qos {}", message.getId(), message.getQos());
@@ -118,4 +149,12 @@ public final class MqttV5BindingContext implements MqttBindingContext<MqttMessag
     public MqttMessage getNativeMessage() {
         return message;
     }
+
+    /**
+     * @return The client the message was received with, null for messages delivered in process
+     * @since 3.0.0
+     */
+    public MqttAsyncClient getClient() {
+        return client;
+    }
 }
@@ -15,20 +15,42 @@
  */
 package io.micronaut.mqtt.v5.client;
 
+import io.micronaut.context.BeanProvider;
 import io.micronaut.context.annotation.Bean;
+import io.micronaut.context.annotation.EachBean;
 import io.micronaut.context.annotation.Factory;
-import io.micronaut.core.annotation.Nullable;
+import io.micronaut.context.annotation.Parameter;
+import io.micronaut.context.annotation.Primary;
+import io.micronaut.mqtt.client.MqttClientPool;
+import io.micronaut.mqtt.client.MqttConnectionLifecycle;
+import io.micronaut.mqtt.observer.MqttObservers;
+import io.micronaut.mqtt.v5.config.AbstractMqttClientConfiguration;
 import io.micronaut.mqtt.v5.config.MqttClientConfigurationProperties;
+import io.micronaut.mqtt.v5.config.NamedMqttClientConfigurationProperties;
+import io.micronaut.scheduling.NamedThreadFactory;
 import io.micronaut.scheduling.TaskExecutors;
 import jakarta.inject.Named;
 import jakarta.inject.Singleton;
+import org.eclipse.paho.mqttv5.client.IMqttToken;
+import org.eclipse.paho.mqttv5.client.MqttActionListener;
 import org.eclipse.paho.mqttv5.client.MqttAsyncClient;
+import org.eclipse.paho.mqttv5.client.MqttCallback;
 import org.eclipse.paho.mqttv5.client.MqttClientPersistence;
+import org.eclipse.paho.mqttv5.client.MqttDisconnectResponse;
 import org.eclipse.paho.mqttv5.client.TimerPingSender;
 import org.eclipse.paho.mqttv5.common.MqttException;
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+import org.eclipse.paho.mqttv5.common.packet.MqttProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A factory to create an MQTT client.
@@ -39,15 +61,174 @@ import java.util.concurrent.ScheduledExecutorService;
 @Factory
 public final class MqttClientFactory {
 
+    private static final Logger LOG = LoggerFactory.getLogger(MqttClientFactory.class);
+    // the receiver, sender and callback of a connection each occupy a thread
+    private static final int THREADS_PER_CONNECTION = 3;
+
+    @Singleton
+    @Primary
+    MqttConnectionLifecycle connectionLifecycle(MqttClientConfigurationProperties configuration, MqttObservers observers) {
+        return createLifecycle(configuration, observers, "");
+    }
+
     @Singleton
+    @Primary
     @Bean(preDestroy = "disconnect")
     MqttAsyncClient mqttClient(MqttClientConfigurationProperties configuration,
-                               @Nullable MqttClientPersistence clientPersistence,
-                               @Named(TaskExecutors.MESSAGE_CONSUMER) ExecutorService executorService) throws MqttException {
-        ScheduledExecutorService consumerExecutor = (ScheduledExecutorService) executorService;
-        MqttAsyncClient client = new MqttAsyncClient(configuration.getServerUri(), configuration.getClientId(), clientPersistence, new TimerPingSender(consumerExecutor), consumerExecutor);
-        client.connect(configuration.getConnectOptions())
-                .waitForCompletion(configuration.getConnectionTimeout().toMillis());
+                               BeanProvider<MqttClientPersistence> clientPersistence,
+                               @Named(TaskExecutors.MESSAGE_CONSUMER) ExecutorService executorService,
+                               MqttConnectionLifecycle connectionLifecycle) throws MqttException {
+        return createClient(configuration, 0, clientPersistence, (ScheduledExecutorService) executorService, connectionLifecycle);
+    }
+
+    @Singleton
+    @Primary
+    @Bean(preDestroy = "close")
+    MqttClientPool<MqttAsyncClient> mqttClientPool(MqttAsyncClient mqttClient,
+                                                   MqttClientConfigurationProperties configuration,
+                                                   BeanProvider<MqttClientPersistence> clientPersistence,
+                                                   @Named(TaskExecutors.MESSAGE_CONSUMER) ExecutorService executorService,
+                                                   MqttConnectionLifecycle connectionLifecycle) throws MqttException {
+        List<MqttAsyncClient> clients = new ArrayList<>(Math.max(1, configuration.getPoolSize()));
+        clients.add(mqttClient);
+        for (int i = 1; i < configuration.getPoolSize(); i++) {
+            clients.add(createClient(configuration, i, clientPersistence, (ScheduledExecutorService) executorService, connectionLifecycle));
+        }
+        return new MqttClientPool<>(clients, MqttClientFactory::disconnect);
+    }
+
+    @EachBean(NamedMqttClientConfigurationProperties.class)
+    MqttConnectionLifecycle namedConnectionLifecycle(NamedMqttClientConfigurationProperties configuration, MqttObservers observers) {
+        return createLifecycle(configuration, observers, configuration.getName());
+    }
+
+    @EachBean(NamedMqttClientConfigurationProperties.class)
+    @Bean(preDestroy = "close")
+    MqttClientPool<MqttAsyncClient> namedClientPool(NamedMqttClientConfigurationProperties configuration,
+                                                    BeanProvider<MqttClientPersistence> clientPersistence,
+                                                    @Parameter MqttConnectionLifecycle connectionLifecycle) throws MqttException {
+        int poolSize = Math.max(1, configuration.getPoolSize());
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(configuration.getExecutorThreads() + poolSize * THREADS_PER_CONNECTION, new NamedThreadFactory("mqtt-" + configuration.getName()));
+        List<MqttAsyncClient> clients = new ArrayList<>(poolSize);
+        try {
+            for (int i = 0; i < poolSize; i++) {
+                clients.add(createClient(configuration, i, clientPersistence, executor, connectionLifecycle));
+            }
+        } catch (MqttException e) {
+            clients.forEach(MqttClientFactory::disconnect);
+            executor.shutdownNow();
+            throw e;
+        }
+        return new MqttClientPool<>(clients, MqttClientFactory::disconnect, true, executor::shutdown);
+    }
+
+    private static MqttConnectionLifecycle createLifecycle(AbstractMqttClientConfiguration configuration, MqttObservers observers, String name) {
+        MqttConnectionLifecycle connectionLifecycle = new MqttConnectionLifecycle(configuration.getEarlyPublishBufferSize(), configuration.getConnectOptions().isCleanStart(), Math.max(1, configuration.getPoolSize()));
+        if (!observers.isEmpty()) {
+            connectionLifecycle.addConnectionListener(observers.connectionListener(name));
+        }
+        return connectionLifecycle;
+    }
+
+    private static void disconnect(MqttAsyncClient client) {
+        try {
+            client.disconnect();
+        } catch (MqttException e) {
+            if (LOG.isWarnEnabled()) {
+                LOG.warn("Failed to disconnect client {}", client.getClientId(), e);
+            }
+        }
+    }
+
+    private static MqttAsyncClient createClient(AbstractMqttClientConfiguration configuration,
+                                                int connection,
+                                                BeanProvider<MqttClientPersistence> clientPersistence,
+                                                ScheduledExecutorService consumerExecutor,
+                                                MqttConnectionLifecycle connectionLifecycle) throws MqttException {
+        String clientId = connection == 0 ? configuration.getClientId() : configuration.getClientId() + "-" + connection;
+        MqttClientPersistence persistence = clientPersistence.isPresent() ? clientPersistence.get() : null;
+        MqttAsyncClient client = new MqttAsyncClient(configuration.getServerUri(), clientId, persistence, new TimerPingSender(consumerExecutor), consumerExecutor);
+        client.setBufferOpts(configuration.getDisconnectedBufferOptions());
+        client.setCallback(new MqttCallback() {
+            @Override
+            public void connectComplete(boolean reconnect, String serverURI) {
+                connectionLifecycle.connected(connection, reconnect);
+            }
+
+            @Override
+            public void disconnected(MqttDisconnectResponse disconnectResponse) {
+                connectionLifecycle.disconnected(connection);
+            }
+
+            @Override
+            public void mqttErrorOccurred(MqttException exception) {
+                if (LOG.isWarnEnabled()) {
+                    LOG.warn("The MQTT client encountered an error", exception);
+                }
+            }
+
+            @Override
+            public void messageArrived(String topic, MqttMessage message) {
+                // messages are delivered to the listeners of the subscriptions
+            }
+
+            @Override
+            public void deliveryComplete(IMqttToken token) {
+            }
+
+            @Override
+            public void authPacketArrived(int reasonCode, MqttProperties properties) {
+            }
+        });
+        if (configuration.isAsyncConnect()) {
+            connect(client, configuration, consumerExecutor, TimeUnit.SECONDS.toMillis(configuration.getConnectOptions().getAutomaticReconnectMinDelay()));
+        } else {
+            client.connect(configuration.getConnectOptions())
+                    .waitForCompletion(configuration.getConnectionTimeout().toMillis());
+            connectionLifecycle.connected(connection, false);
+        }
         return client;
     }
+
+    private static void connect(MqttAsyncClient client,
+                                AbstractMqttClientConfiguration configuration,
+                                ScheduledExecutorService executor,
+                                long retryDelay) {
+        try {
+            client.connect(configuration.getConnectOptions(), null, new MqttActionListener() {
+                @Override
+                public void onSuccess(IMqttToken asyncActionToken) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Connected to {}", configuration.getServerUri());
+                    }
+                }
+
+                @Override
+                public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+                    retry(client, configuration, executor, retryDelay, exception);
+                }
+            });
+        } catch (MqttException e) {
+            retry(client, configuration, executor, retryDelay, e);
+        }
+    }
+
+    private static void retry(MqttAsyncClient client,
+                              AbstractMqttClientConfiguration configuration,
+                              ScheduledExecutorService executor,
+                              long retryDelay,
+                              Throwable cause) {
+        if (executor.isShutdown()) {
+            return;
+        }
+        if (LOG.isWarnEnabled()) {
+            LOG.warn("Failed to connect to {}, retrying in {}ms", configuration.getServerUri(), retryDelay, cause);
+        }
+        long nextDelay = Math.min(Math.max(retryDelay, 1) * 2, TimeUnit.SECONDS.toMillis(configuration.getConnectOptions().getAutomaticReconnectMaxDelay()));
+        try {
+            executor.schedule(() -> connect(client, configuration, executor, nextDelay), retryDelay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // the application is shutting down
+        }
+    }
 }
@@ -17,17 +17,9 @@ package io.micronaut.mqtt.v5.config;
 
 import io.micronaut.context.annotation.ConfigurationBuilder;
 import io.micronaut.context.annotation.ConfigurationProperties;
-import io.micronaut.mqtt.config.MqttSSLConfiguration;
-import org.eclipse.paho.mqttv5.client.MqttConnectionOptions;
 import org.eclipse.paho.mqttv5.common.MqttMessage;
 import org.eclipse.paho.mqttv5.common.packet.MqttProperties;
 
-import javax.net.SocketFactory;
-import javax.net.ssl.HostnameVerifier;
-import jakarta.validation.constraints.NotNull;
-import java.time.Duration;
-import java.util.Properties;
-
 /**
  * Configuration for the MQTT client.
  *
@@ -35,112 +27,14 @@ import java.util.Properties;
  * @since 1.0.0
  */
 @ConfigurationProperties("mqtt.client")
-public class MqttClientConfigurationProperties implements MqttSSLConfiguration {
-
-    private String serverUri;
-    private String clientId;
-    private Duration connectionTimeout = Duration.ofSeconds(3);
-
-    @ConfigurationBuilder(excludes = {"socketFactory", "SSLProperties", "httpsHostnameVerificationEnabled", "SSLHostnameVerifier"})
-    private final MqttConnectionOptions connectOptions = new MqttConnectionOptions();
+public class MqttClientConfigurationProperties extends AbstractMqttClientConfiguration {
 
     public MqttClientConfigurationProperties(WillMessage willMessage) {
         if (willMessage.getTopic() != null) {
-            connectOptions.setWill(willMessage.getTopic(), new MqttMessage(willMessage.getPayload(), willMessage.getQos(), willMessage.isRetained(), willMessage.getProperties()));
+            getConnectOptions().setWill(willMessage.getTopic(), new MqttMessage(willMessage.getPayload(), willMessage.getQos(), willMessage.isRetained(), willMessage.getProperties()));
         }
     }
 
-    /**
-     * @return The connection options
-     */
-    public MqttConnectionOptions getConnectOptions() {
-        return connectOptions;
-    }
-
-    /**
-     * @return The server URI
-     */
-    @NotNull
-    public String getServerUri() {
-        return serverUri;
-    }
-
-    /**
-     * @param serverUri The server URI
-     */
-    public void setServerUri(String serverUri) {
-        this.serverUri = serverUri;
-    }
-
-    /**
-     * @return The client id
-     */
-    @NotNull
-    public String getClientId() {
-        return clientId;
-    }
-
-    /**
-     * @param clientId The client ID
-     */
-    public void setClientId(String clientId) {
-        this.clientId = clientId;
-    }
-
-    /**
-     * @return The connection timeout
-     */
-    public Duration getConnectionTimeout() {
-        return connectionTimeout;
-    }
-
-    /**
-     * @param connectionTimeout How long to wait for a connection
-     */
-    public void setConnectionTimeout(Duration connectionTimeout) {
-        this.connectionTimeout = connectionTimeout;
-    }
-
-    @Override
-    public SocketFactory getSocketFactory() {
-        return connectOptions.getSocketFactory();
-    }
-
-    @Override
-    public void setSocketFactory(SocketFactory socketFactory) {
-        connectOptions.setSocketFactory(socketFactory);
-    }
-
-    @Override
-    public Properties getSSLProperties() {
-        return connectOptions.getSSLProperties();
-    }
-
-    @Override
-    public void setSSLProperties(Properties props) {
-        connectOptions.setSSLProperties(props);
-    }
-
-    @Override
-    public boolean isHttpsHostnameVerificationEnabled() {
-        return connectOptions.isHttpsHostnameVerificationEnabled();
-    }
-
-    @Override
-    public void setHttpsHostnameVerificationEnabled(boolean httpsHostnameVerificationEnabled) {
-        connectOptions.setHttpsHostnameVerificationEnabled(httpsHostnameVerificationEnabled);
-    }
-
-    @Override
-    public HostnameVerifier getSSLHostnameVerifier() {
-        return connectOptions.getSSLHostnameVerifier();
-    }
-
-    @Override
-    public void setSSLHostnameVerifier(HostnameVerifier hostnameVerifier) {
-        connectOptions.setSSLHostnameVerifier(hostnameVerifier);
-    }
-
     @ConfigurationProperties("will-message")
     static class WillMessage {
 
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.v5.deduplication;
+
+import io.micronaut.context.annotation.Replaces;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.mqtt.bind.MqttBindingContext;
+import io.micronaut.mqtt.deduplication.MessageKeys;
+import io.micronaut.mqtt.deduplication.MqttDeduplicationConfigurationProperties;
+import io.micronaut.mqtt.deduplication.MqttMessageKeyResolver;
+import io.micronaut.mqtt.deduplication.PayloadMessageKeyResolver;
+import io.micronaut.mqtt.v5.bind.MqttV5BindingContext;
+import jakarta.inject.Singleton;
+import org.eclipse.paho.mqttv5.common.packet.MqttProperties;
+import org.eclipse.paho.mqttv5.common.packet.UserProperty;
+
+/**
+ * A {@link MqttMessageKeyResolver} that identifies messages by the value of the configured
+ * user property. Messages without the property are identified by their topic and payload.
+ *
+ * @since 3.0.0
+ */
+@Singleton
+@Replaces(PayloadMessageKeyResolver.class)
+@Requires(property = MqttDeduplicationConfigurationProperties.PREFIX + ".key-property")
+public class UserPropertyMessageKeyResolver implements MqttMessageKeyResolver {
+
+    private final String keyProperty;
+    private final PayloadMessageKeyResolver payloadKeyResolver = new PayloadMessageKeyResolver();
+
+    /**
+     * @param configuration The deduplication configuration
+     */
+    public UserPropertyMessageKeyResolver(MqttDeduplicationConfigurationProperties configuration) {
+        this.keyProperty = configuration.getKeyProperty();
+    }
+
+    @Override
+    public long resolveKey(MqttBindingContext<?> context) {
+        if (context instanceof MqttV5BindingContext v5Context) {
+            MqttProperties properties = v5Context.getProperties();
+            if (properties != null) {
+                for (UserProperty userProperty : properties.getUserProperties()) {
+                    if (userProperty.getKey().equals(keyProperty)) {
+                        return MessageKeys.combine(MessageKeys.hash(context.getTopic()), MessageKeys.hash(userProperty.getValue()));
+                    }
+                }
+            }
+        }
+        return payloadKeyResolver.resolveKey(context);
+    }
+}
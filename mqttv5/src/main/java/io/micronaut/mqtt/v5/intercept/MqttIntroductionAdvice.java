@@ -15,18 +15,31 @@
  */
 package io.micronaut.mqtt.v5.intercept;
 
+import io.micronaut.aop.InterceptorBean;
 import io.micronaut.aop.MethodInvocationContext;
+import io.micronaut.context.BeanContext;
+import io.micronaut.context.exceptions.NoSuchBeanException;
 import io.micronaut.core.annotation.AnnotationValue;
+import io.micronaut.core.annotation.Nullable;
 import io.micronaut.core.beans.BeanIntrospection;
 import io.micronaut.core.beans.BeanProperty;
+import io.micronaut.core.type.Argument;
 import io.micronaut.core.util.StringUtils;
+import io.micronaut.inject.qualifiers.Qualifiers;
 import io.micronaut.mqtt.bind.MqttBinderRegistry;
 import io.micronaut.mqtt.bind.MqttBindingContext;
+import io.micronaut.mqtt.buffer.BufferedMessage;
+import io.micronaut.mqtt.buffer.OfflinePublishBuffer;
+import io.micronaut.mqtt.client.MqttClientPool;
+import io.micronaut.mqtt.client.MqttConnectionLifecycle;
 import io.micronaut.mqtt.exception.MqttClientException;
 import io.micronaut.mqtt.intercept.AbstractMqttIntroductionAdvice;
+import io.micronaut.mqtt.intercept.MqttAdviceCollaborators;
+import io.micronaut.mqtt.latency.LatencyRegistry;
 import io.micronaut.mqtt.v5.annotation.MqttProperty;
 import io.micronaut.mqtt.v5.annotation.MqttPublisher;
 import io.micronaut.mqtt.v5.bind.MqttV5BindingContext;
+import io.micronaut.mqtt.v5.request.MqttRequestCorrelator;
 import jakarta.inject.Singleton;
 import org.eclipse.paho.mqttv5.client.IMqttToken;
 import org.eclipse.paho.mqttv5.client.MqttActionListener;
@@ -36,9 +49,14 @@ import org.eclipse.paho.mqttv5.common.MqttMessage;
 import org.eclipse.paho.mqttv5.common.packet.MqttProperties;
 import org.eclipse.paho.mqttv5.common.packet.UserProperty;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
 import java.lang.annotation.Annotation;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Consumer;
 
 /**
@@ -48,25 +66,132 @@ import java.util.function.Consumer;
  * @since 1.0.0
  */
 @Singleton
+@InterceptorBean(io.micronaut.mqtt.annotation.MqttPublisher.class)
 public class MqttIntroductionAdvice extends AbstractMqttIntroductionAdvice<MqttActionListener, MqttMessage> {
 
-    private final MqttAsyncClient mqttAsyncClient;
+    private final MqttClientPool<MqttAsyncClient> clientPool;
+    private final MqttConnectionLifecycle connectionLifecycle;
+    private final OfflinePublishBuffer offlineBuffer;
+    private final MqttRequestCorrelator requestCorrelator;
+    private final BeanContext beanContext;
+    private final ConcurrentMap<String, NamedClient> namedClients = new ConcurrentHashMap<>();
 
-    public MqttIntroductionAdvice(MqttAsyncClient mqttAsyncClient,
-                                  MqttBinderRegistry binderRegistry) {
-        super(binderRegistry);
-        this.mqttAsyncClient = mqttAsyncClient;
+    public MqttIntroductionAdvice(MqttClientPool<MqttAsyncClient> clientPool,
+                                  MqttBinderRegistry binderRegistry,
+                                  MqttConnectionLifecycle connectionLifecycle,
+                                  @Nullable OfflinePublishBuffer offlineBuffer,
+                                  MqttAdviceCollaborators collaborators,
+                                  MqttRequestCorrelator requestCorrelator,
+                                  BeanContext beanContext) {
+        super(binderRegistry, collaborators);
+        this.clientPool = clientPool;
+        this.requestCorrelator = requestCorrelator;
+        this.connectionLifecycle = connectionLifecycle;
+        this.offlineBuffer = offlineBuffer;
+        this.beanContext = beanContext;
+        if (offlineBuffer != null) {
+            connectionLifecycle.addConnectionListener((connection, reconnect) -> {
+                if (connectionLifecycle.isConnected()) {
+                    offlineBuffer.replay(this::publishReplayed);
+                }
+            });
+        }
     }
 
     @Override
     public Object publish(String topic, MqttMessage message, MqttActionListener listener) {
+        if (connectionLifecycle.defer(() -> publishBuffered(clientPool, topic, message, listener), e -> listener.onFailure(null, e))) {
+            return null;
+        }
+        if (offlineBuffer != null && offlineBuffer.isBuffering()) {
+            BufferedMessage buffered = new BufferedMessage(topic, message.getPayload(), message.getQos(), message.isRetained(), encodeProperties(message), error -> {
+                if (error == null) {
+                    listener.onSuccess(null);
+                } else {
+                    listener.onFailure(null, error);
+                }
+            });
+            switch (offlineBuffer.offer(buffered)) {
+                case BUFFERED:
+                    return null;
+                case DROPPED:
+                    listener.onFailure(null, new MqttClientException("The client is disconnected and the offline buffer is full"));
+                    return null;
+                default:
+                    break;
+            }
+        }
         try {
-            return mqttAsyncClient.publish(topic, message, null, listener);
+            return clientPool.getClient(topic).publish(topic, message, null, listener);
         } catch (MqttException e) {
             throw new MqttClientException("Failed to publish the message", e);
         }
     }
 
+    @Override
+    public Object publish(String client, String topic, MqttMessage message, MqttActionListener listener) {
+        if (client.isEmpty()) {
+            return publish(topic, message, listener);
+        }
+        NamedClient namedClient = namedClients.computeIfAbsent(client, this::findClient);
+        if (namedClient.lifecycle.defer(() -> publishBuffered(namedClient.pool, topic, message, listener), e -> listener.onFailure(null, e))) {
+            return null;
+        }
+        try {
+            return namedClient.pool.getClient(topic).publish(topic, message, null, listener);
+        } catch (MqttException e) {
+            throw new MqttClientException("Failed to publish the message", e);
+        }
+    }
+
+    private NamedClient findClient(String name) {
+        try {
+            return new NamedClient(
+                    beanContext.getBean(Argument.of(MqttClientPool.class, MqttAsyncClient.class), Qualifiers.byName(name)),
+                    beanContext.getBean(MqttConnectionLifecycle.class, Qualifiers.byName(name)));
+        } catch (NoSuchBeanException e) {
+            throw new MqttClientException("No MQTT client named [" + name + "] is configured under mqtt.clients", e);
+        }
+    }
+
+    private void publishBuffered(MqttClientPool<MqttAsyncClient> pool, String topic, MqttMessage message, MqttActionListener listener) {
+        try {
+            pool.getClient(topic).publish(topic, message, null, listener);
+        } catch (MqttException e) {
+            listener.onFailure(null, new MqttClientException("Failed to publish the message", e));
+        }
+    }
+
+    private void publishReplayed(BufferedMessage buffered) throws MqttException {
+        MqttMessage message = new MqttMessage(buffered.getPayload());
+        message.setQos(buffered.getQos());
+        message.setRetained(buffered.isRetained());
+        if (buffered.getProperties().length > 0) {
+            MqttProperties properties = new MqttProperties();
+            try {
+                properties.decodeProperties(new DataInputStream(new ByteArrayInputStream(buffered.getProperties())));
+            } catch (MqttException e) {
+                buffered.complete(new MqttClientException("Failed to decode the properties of a buffered message", e));
+                return;
+            }
+            message.setProperties(properties);
+        }
+        clientPool.getClient(buffered.getTopic()).publish(buffered.getTopic(), message, null,
+                createListener(() -> buffered.complete(null), buffered::complete));
+    }
+
+    private static byte[] encodeProperties(MqttMessage message) {
+        MqttProperties properties = message.getProperties();
+        if (properties == null) {
+            return null;
+        }
+        try {
+            return properties.encodeProperties();
+        } catch (MqttException e) {
+            throw new MqttClientException("Failed to encode the message properties", e);
+        }
+    }
+
     @Override
     public MqttBindingContext<MqttMessage> createBindingContext(MethodInvocationContext<Object, Object> context) {
         MqttMessage message = new MqttMessage();
@@ -86,7 +211,27 @@ public class MqttIntroductionAdvice extends AbstractMqttIntroductionAdvice<MqttA
             }
         });
         message.setProperties(properties);
-        return new MqttV5BindingContext(mqttAsyncClient, message);
+        return new MqttV5BindingContext(clientPool.getPrimary(), message);
+    }
+
+    @Override
+    protected void stampSendTime(MqttBindingContext<MqttMessage> context, long sentMicros) {
+        context.getNativeMessage().getProperties().getUserProperties().add(new UserProperty(LatencyRegistry.SENT_AT_PROPERTY, Long.toString(sentMicros)));
+    }
+
+    @Override
+    protected boolean supportsRequests() {
+        return true;
+    }
+
+    @Override
+    protected void request(String client, MqttBindingContext<MqttMessage> context, Argument<Object> responseType, CompletableFuture<Object> response, Runnable send) {
+        if (!client.isEmpty()) {
+            // the responses are received by the subscription of the default client
+            response.completeExceptionally(new MqttClientException(String.format("Requests are not supported with the named client [%s]", client)));
+            return;
+        }
+        requestCorrelator.request(context.getNativeMessage(), responseType, response, send);
     }
 
     @Override
@@ -109,4 +254,17 @@ public class MqttIntroductionAdvice extends AbstractMqttIntroductionAdvice<MqttA
         return MqttPublisher.class;
     }
 
+    /**
+     * The client pool and lifecycle of a named client.
+     */
+    private static final class NamedClient {
+
+        private final MqttClientPool<MqttAsyncClient> pool;
+        private final MqttConnectionLifecycle lifecycle;
+
+        NamedClient(MqttClientPool<MqttAsyncClient> pool, MqttConnectionLifecycle lifecycle) {
+            this.pool = pool;
+            this.lifecycle = lifecycle;
+        }
+    }
 }
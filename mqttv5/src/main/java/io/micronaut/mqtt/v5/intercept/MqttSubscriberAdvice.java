@@ -16,24 +16,44 @@
 package io.micronaut.mqtt.v5.intercept;
 
 import io.micronaut.context.BeanContext;
+import io.micronaut.context.annotation.Primary;
+import io.micronaut.context.exceptions.NoSuchBeanException;
+import io.micronaut.core.type.Argument;
+import io.micronaut.inject.qualifiers.Qualifiers;
 import io.micronaut.mqtt.bind.MqttBinderRegistry;
 import io.micronaut.mqtt.bind.MqttBindingContext;
+import io.micronaut.mqtt.client.MqttClientPool;
+import io.micronaut.mqtt.client.MqttConnectionLifecycle;
 import io.micronaut.mqtt.exception.MqttSubscriberException;
 import io.micronaut.mqtt.exception.MqttSubscriberExceptionHandler;
+import io.micronaut.mqtt.exception.MqttSubscriptionRejectedException;
 import io.micronaut.mqtt.intercept.AbstractMqttSubscriberAdvice;
+import io.micronaut.mqtt.intercept.MqttAdviceCollaborators;
+import io.micronaut.mqtt.intercept.TopicSubscription;
+import io.micronaut.mqtt.latency.LatencyRegistry;
+import io.micronaut.mqtt.serdes.MqttPayloadSerDes;
+import io.micronaut.mqtt.serdes.MqttPayloadSerDesRegistry;
 import io.micronaut.mqtt.v5.bind.MqttV5BindingContext;
+import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
+import org.eclipse.paho.mqttv5.client.IMqttMessageListener;
 import org.eclipse.paho.mqttv5.client.IMqttToken;
+import org.eclipse.paho.mqttv5.client.MqttActionListener;
 import org.eclipse.paho.mqttv5.client.MqttAsyncClient;
 import org.eclipse.paho.mqttv5.common.MqttException;
 import org.eclipse.paho.mqttv5.common.MqttMessage;
 import org.eclipse.paho.mqttv5.common.MqttSubscription;
 import org.eclipse.paho.mqttv5.common.packet.MqttProperties;
+import org.eclipse.paho.mqttv5.common.packet.MqttReturnCode;
+import org.eclipse.paho.mqttv5.common.packet.UserProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 /**
@@ -43,44 +63,189 @@ import java.util.function.Consumer;
  * @since 1.0.0
  */
 @Singleton
+@Primary
 public class MqttSubscriberAdvice extends AbstractMqttSubscriberAdvice<MqttMessage> {
 
     private static final Logger LOG = LoggerFactory.getLogger(MqttSubscriberAdvice.class);
-    private final MqttAsyncClient mqttAsyncClient;
+    private final BeanContext beanContext;
+    private final MqttClientPool<MqttAsyncClient> clientPool;
+    private final String clientName;
+    private volatile MqttPayloadSerDesRegistry serDesRegistry;
 
+    @Inject
     public MqttSubscriberAdvice(BeanContext beanContext,
                                 MqttBinderRegistry binderRegistry,
                                 MqttSubscriberExceptionHandler exceptionHandler,
-                                MqttAsyncClient mqttAsyncClient) {
-        super(beanContext, binderRegistry, exceptionHandler);
-        this.mqttAsyncClient = mqttAsyncClient;
+                                MqttClientPool<MqttAsyncClient> clientPool,
+                                MqttAdviceCollaborators collaborators,
+                                MqttConnectionLifecycle connectionLifecycle) {
+        this(beanContext, binderRegistry, exceptionHandler, clientPool, collaborators, connectionLifecycle, "");
+    }
+
+    /**
+     * @param beanContext The bean context
+     * @param binderRegistry The binder registry
+     * @param exceptionHandler The default exception handler
+     * @param clientPool The clients to subscribe with
+     * @param collaborators The subscriber configuration and the optional features applied to every message
+     * @param connectionLifecycle The connection of the clients
+     * @param clientName The name of the client under {@code mqtt.clients}, empty for the default client
+     * @since 3.0.0
+     */
+    public MqttSubscriberAdvice(BeanContext beanContext,
+                                MqttBinderRegistry binderRegistry,
+                                MqttSubscriberExceptionHandler exceptionHandler,
+                                MqttClientPool<MqttAsyncClient> clientPool,
+                                MqttAdviceCollaborators collaborators,
+                                MqttConnectionLifecycle connectionLifecycle,
+                                String clientName) {
+        super(beanContext, binderRegistry, exceptionHandler, collaborators, connectionLifecycle);
+        this.beanContext = beanContext;
+        this.clientPool = clientPool;
+        this.clientName = clientName;
     }
 
     @Override
-    public void subscribe(String[] topics, int[] qos, Consumer<MqttBindingContext<MqttMessage>> callback) {
-        try {
-            //workaround for https://github.com/eclipse/paho.mqtt.java/issues/826
-            final MqttProperties props = new MqttProperties();
-            props.setSubscriptionIdentifiers(Arrays.asList(new Integer[] { 0 }));
+    public CompletableFuture<Void> subscribe(int connection, List<TopicSubscription<MqttMessage>> subscriptions) {
+        MqttAsyncClient mqttAsyncClient = clientPool.getClient(connection);
+        //workaround for https://github.com/eclipse/paho.mqtt.java/issues/826
+        final MqttProperties props = new MqttProperties();
+        props.setSubscriptionIdentifiers(Arrays.asList(new Integer[] { 0 }));
 
-            MqttSubscription[] subscriptions = new MqttSubscription[topics.length];
-            for (int i = 0; i < topics.length; i++) {
-                subscriptions[i] = new MqttSubscription(topics[i], qos[i]);
-            }
-            mqttAsyncClient.subscribe(subscriptions, null, null, (actualTopic, message) -> {
+        String[] topics = new String[subscriptions.size()];
+        MqttSubscription[] mqttSubscriptions = new MqttSubscription[subscriptions.size()];
+        IMqttMessageListener[] listeners = new IMqttMessageListener[subscriptions.size()];
+        for (int i = 0; i < subscriptions.size(); i++) {
+            TopicSubscription<MqttMessage> subscription = subscriptions.get(i);
+            Consumer<MqttBindingContext<MqttMessage>> callback = subscription.getCallback();
+            topics[i] = subscription.getFilter();
+            mqttSubscriptions[i] = new MqttSubscription(subscription.getFilter(), subscription.getQos());
+            mqttSubscriptions[i].setNoLocal(subscription.isNoLocal());
+            mqttSubscriptions[i].setRetainAsPublished(subscription.isRetainAsPublished());
+            mqttSubscriptions[i].setRetainHandling(subscription.getRetainHandling());
+            listeners[i] = (actualTopic, message) -> {
                 MqttV5BindingContext context = new MqttV5BindingContext(mqttAsyncClient, message);
                 context.setTopic(actualTopic);
                 callback.accept(context);
-            }, props);
+            };
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            mqttAsyncClient.subscribe(mqttSubscriptions, null, new MqttActionListener() {
+                @Override
+                public void onSuccess(IMqttToken asyncActionToken) {
+                    int[] reasonCodes = asyncActionToken.getReasonCodes();
+                    List<String> rejected = new ArrayList<>(0);
+                    for (int i = 0; reasonCodes != null && i < reasonCodes.length && i < topics.length; i++) {
+                        if (reasonCodes[i] >= MqttReturnCode.RETURN_CODE_UNSPECIFIED_ERROR) {
+                            if (LOG.isDebugEnabled()) {
+                                LOG.debug("The broker rejected the subscription to the topic {} with reason code {}", topics[i], reasonCodes[i]);
+                            }
+                            rejected.add(topics[i]);
+                        }
+                    }
+                    if (rejected.isEmpty()) {
+                        future.complete(null);
+                    } else {
+                        future.completeExceptionally(new MqttSubscriptionRejectedException(rejected));
+                    }
+                }
+
+                @Override
+                public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+                    future.completeExceptionally(new MqttSubscriberException(String.format("Failed to subscribe to the topics: %s", Arrays.toString(topics)), exception));
+                }
+            }, listeners, props);
         } catch (MqttException e) {
-            throw new MqttSubscriberException(String.format("Failed to subscribe to the topics: %s", (Object) topics), e);
+            future.completeExceptionally(new MqttSubscriberException(String.format("Failed to subscribe to the topics: %s", Arrays.toString(topics)), e));
+        }
+        return future;
+    }
+
+    @Override
+    protected boolean supportsNoLocal() {
+        return true;
+    }
+
+    @Override
+    protected MqttBindingContext<MqttMessage> createLocalContext(String topic, byte[] payload, int qos) {
+        MqttMessage message = new MqttMessage(payload);
+        message.setQos(qos);
+        // delivered in process, there is nothing to acknowledge to the broker
+        MqttV5BindingContext context = new MqttV5BindingContext(null, message);
+        context.setTopic(topic);
+        return context;
+    }
+
+    @Override
+    protected boolean supportsReplies() {
+        return true;
+    }
+
+    @Override
+    protected void reply(MqttBindingContext<MqttMessage> context, Object value, Argument<Object> type) {
+        MqttProperties properties = ((MqttV5BindingContext) context).getProperties();
+        String responseTopic = properties == null ? null : properties.getResponseTopic();
+        if (responseTopic == null) {
+            return;
+        }
+        if (serDesRegistry == null) {
+            serDesRegistry = beanContext.getBean(MqttPayloadSerDesRegistry.class);
+        }
+        MqttPayloadSerDes<Object> serDes = serDesRegistry.findSerdes(type)
+                .orElseThrow(() -> new MqttSubscriberException(String.format("No ser-des found to encode the reply type %s", type.getTypeName())));
+        MqttMessage reply = new MqttMessage(serDes.serialize(value));
+        reply.setQos(context.getQos());
+        MqttProperties replyProperties = new MqttProperties();
+        replyProperties.setCorrelationData(properties.getCorrelationData());
+        reply.setProperties(replyProperties);
+        try {
+            clientPool.getClient(responseTopic).publish(responseTopic, reply);
+        } catch (MqttException e) {
+            throw new MqttSubscriberException(String.format("Failed to publish the reply to %s", responseTopic), e);
+        }
+    }
+
+    @Override
+    protected long readSendTime(MqttBindingContext<MqttMessage> context) {
+        MqttProperties properties = ((MqttV5BindingContext) context).getProperties();
+        if (properties != null) {
+            for (UserProperty property : properties.getUserProperties()) {
+                if (LatencyRegistry.SENT_AT_PROPERTY.equals(property.getKey())) {
+                    try {
+                        return Long.parseLong(property.getValue());
+                    } catch (NumberFormatException e) {
+                        return -1;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    protected String getClientName() {
+        return clientName;
+    }
+
+    @Override
+    protected AbstractMqttSubscriberAdvice<MqttMessage> getNamedAdvice(String client) {
+        try {
+            return beanContext.getBean(MqttSubscriberAdvice.class, Qualifiers.byName(client));
+        } catch (NoSuchBeanException e) {
+            throw new MqttSubscriberException(String.format("No MQTT client named [%s] is configured under mqtt.clients", client), e);
         }
     }
 
     @Override
     public void unsubscribe(Set<String> topics) {
+        unsubscribe(0, topics);
+    }
+
+    @Override
+    public void unsubscribe(int connection, Set<String> topics) {
         try {
-            IMqttToken token = mqttAsyncClient.unsubscribe(topics.toArray(new String[]{}));
+            IMqttToken token = clientPool.getClient(connection).unsubscribe(topics.toArray(new String[]{}));
             token.waitForCompletion();
         } catch (MqttException e) {
             if (LOG.isWarnEnabled()) {
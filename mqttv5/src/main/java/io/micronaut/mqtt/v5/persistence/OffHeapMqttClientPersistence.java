@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.v5.persistence;
+
+import io.micronaut.context.annotation.Prototype;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.mqtt.persistence.MqttPersistenceConfigurationProperties;
+import io.micronaut.mqtt.persistence.OffHeapStore;
+import org.eclipse.paho.mqttv5.client.MqttClientPersistence;
+import org.eclipse.paho.mqttv5.common.MqttPersistable;
+import org.eclipse.paho.mqttv5.common.MqttPersistenceException;
+
+import java.util.Collections;
+import java.util.Enumeration;
+
+/**
+ * A {@link MqttClientPersistence} that keeps in-flight messages in memory, outside of the heap,
+ * in an {@link OffHeapStore}. Messages do not survive a restart of the application, but large
+ * in-flight windows add little to garbage collection.
+ * Each client of a pool gets an instance of its own.
+ *
+ * @since 3.0.0
+ */
+@Prototype
+@Requires(property = MqttPersistenceConfigurationProperties.PREFIX + ".type", value = MqttPersistenceConfigurationProperties.TYPE_OFF_HEAP)
+public class OffHeapMqttClientPersistence implements MqttClientPersistence {
+
+    private final MqttPersistenceConfigurationProperties configuration;
+    private OffHeapStore store;
+
+    /**
+     * @param configuration The persistence configuration
+     */
+    public OffHeapMqttClientPersistence(MqttPersistenceConfigurationProperties configuration) {
+        this.configuration = configuration;
+    }
+
+    @Override
+    public void open(String clientId) throws MqttPersistenceException {
+        if (store == null) {
+            store = new OffHeapStore(configuration.getSlabSize(), configuration.getMaxOffHeapSize());
+        }
+    }
+
+    @Override
+    public void close() throws MqttPersistenceException {
+        if (store != null) {
+            store.clear();
+        }
+    }
+
+    @Override
+    public void put(String key, MqttPersistable persistable) throws MqttPersistenceException {
+        try {
+            getStore().put(key,
+                    persistable.getHeaderBytes(), persistable.getHeaderOffset(), persistable.getHeaderLength(),
+                    persistable.getPayloadBytes(), persistable.getPayloadOffset(), persistable.getPayloadLength());
+        } catch (IllegalStateException e) {
+            throw new MqttPersistenceException(e);
+        }
+    }
+
+    @Override
+    public MqttPersistable get(String key) throws MqttPersistenceException {
+        byte[] data = getStore().get(key);
+        return data == null ? null : new StoredPersistable(data);
+    }
+
+    @Override
+    public void remove(String key) throws MqttPersistenceException {
+        getStore().remove(key);
+    }
+
+    @Override
+    public Enumeration<String> keys() throws MqttPersistenceException {
+        return Collections.enumeration(getStore().keys());
+    }
+
+    @Override
+    public void clear() throws MqttPersistenceException {
+        getStore().clear();
+    }
+
+    @Override
+    public boolean containsKey(String key) throws MqttPersistenceException {
+        return getStore().containsKey(key);
+    }
+
+    private OffHeapStore getStore() throws MqttPersistenceException {
+        if (store == null) {
+            throw new MqttPersistenceException(new IllegalStateException("The persistence has not been opened"));
+        }
+        return store;
+    }
+}
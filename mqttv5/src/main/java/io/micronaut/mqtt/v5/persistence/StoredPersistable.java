@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.v5.persistence;
+
+import org.eclipse.paho.mqttv5.common.MqttPersistable;
+
+/**
+ * A persisted message read back from storage, held as a single array.
+ *
+ * @since 3.0.0
+ */
+final class StoredPersistable implements MqttPersistable {
+
+    private final byte[] data;
+
+    /**
+     * @param data The header followed by the payload
+     */
+    StoredPersistable(byte[] data) {
+        this.data = data;
+    }
+
+    @Override
+    public byte[] getHeaderBytes() {
+        return data;
+    }
+
+    @Override
+    public int getHeaderLength() {
+        return data.length;
+    }
+
+    @Override
+    public int getHeaderOffset() {
+        return 0;
+    }
+
+    @Override
+    public byte[] getPayloadBytes() {
+        return null;
+    }
+
+    @Override
+    public int getPayloadLength() {
+        return 0;
+    }
+
+    @Override
+    public int getPayloadOffset() {
+        return 0;
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.v5.request;
+
+import io.micronaut.core.annotation.Internal;
+import io.micronaut.core.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A concurrent map of pending requests keyed by their correlation id. Keys are kept as
+ * primitive longs in open addressing tables, so neither the key nor an entry is allocated
+ * per request. The map is split into stripes guarded by their own lock to spread contention
+ * between the threads sending requests and the thread receiving responses.
+ *
+ * @param <V> The value type
+ * @since 3.0.0
+ */
+@Internal
+final class CorrelationMap<V> {
+
+    private static final int STRIPES = 16;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Stripe<V>[] stripes;
+
+    @SuppressWarnings("unchecked")
+    CorrelationMap() {
+        stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe<>();
+        }
+    }
+
+    /**
+     * @param key The correlation id
+     * @param value The value, not null
+     */
+    void put(long key, V value) {
+        long hash = hash(key);
+        stripe(hash).put(key, value, hash);
+    }
+
+    /**
+     * @param key The correlation id
+     * @return The removed value, null if there was none
+     */
+    @Nullable
+    V remove(long key) {
+        long hash = hash(key);
+        return stripe(hash).remove(key, hash);
+    }
+
+    /**
+     * @return The number of values
+     */
+    int size() {
+        int size = 0;
+        for (Stripe<V> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    /**
+     * Removes every value.
+     *
+     * @return The removed values
+     */
+    List<V> clear() {
+        List<V> values = new ArrayList<>();
+        for (Stripe<V> stripe : stripes) {
+            stripe.clear(values);
+        }
+        return values;
+    }
+
+    private Stripe<V> stripe(long hash) {
+        // the high bits select the stripe, the low bits the slot
+        return stripes[(int) (hash >>> 60) & (STRIPES - 1)];
+    }
+
+    private static long hash(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 32);
+    }
+
+    /**
+     * An open addressing table with linear probing. A null value marks a free slot.
+     *
+     * @param <V> The value type
+     */
+    private static final class Stripe<V> {
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private Object[] values = new Object[INITIAL_CAPACITY];
+        private int size;
+
+        synchronized void put(long key, V value, long hash) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int i = (int) hash & mask;
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized V remove(long key, long hash) {
+            int mask = keys.length - 1;
+            int i = (int) hash & mask;
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    V value = (V) values[i];
+                    closeGap(i, mask);
+                    size--;
+                    return value;
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized void clear(List<V> removed) {
+            for (Object value : values) {
+                if (value != null) {
+                    removed.add((V) value);
+                }
+            }
+            keys = new long[INITIAL_CAPACITY];
+            values = new Object[INITIAL_CAPACITY];
+            size = 0;
+        }
+
+        /**
+         * Shifts the following entries of the probe sequence back into the freed slot, so
+         * that lookups never stop at a gap before reaching their key.
+         */
+        private void closeGap(int gap, int mask) {
+            int i = gap;
+            while (true) {
+                i = (i + 1) & mask;
+                if (values[i] == null) {
+                    break;
+                }
+                int home = (int) hash(keys[i]) & mask;
+                // the entry may move to the gap if the gap lies between its home slot and its slot
+                if (((i - home) & mask) >= ((i - gap) & mask)) {
+                    keys[gap] = keys[i];
+                    values[gap] = values[i];
+                    gap = i;
+                }
+            }
+            values[gap] = null;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Object[oldValues.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldValues[j] != null) {
+                    int i = (int) hash(oldKeys[j]) & mask;
+                    while (values[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.v5.request;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration for requests made by publisher methods that return the response.
+ *
+ * @since 3.0.0
+ */
+@ConfigurationProperties(MqttRequestConfigurationProperties.PREFIX)
+public class MqttRequestConfigurationProperties {
+
+    public static final String PREFIX = "mqtt.request";
+
+    private static final String DEFAULT_RESPONSE_TOPIC_PREFIX = "responses";
+    private static final int DEFAULT_QOS = 1;
+
+    private Duration timeout = Duration.ofSeconds(10);
+    private String responseTopicPrefix = DEFAULT_RESPONSE_TOPIC_PREFIX;
+    private int qos = DEFAULT_QOS;
+
+    /**
+     * @return How long to wait for the response to a request
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @param timeout How long to wait for the response to a request. Default value 10 seconds
+     */
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * @return The prefix of the response topic, followed by the client id
+     */
+    public String getResponseTopicPrefix() {
+        return responseTopicPrefix;
+    }
+
+    /**
+     * @param responseTopicPrefix The prefix of the response topic, followed by the client id. Default value {@value #DEFAULT_RESPONSE_TOPIC_PREFIX}
+     */
+    public void setResponseTopicPrefix(String responseTopicPrefix) {
+        this.responseTopicPrefix = responseTopicPrefix;
+    }
+
+    /**
+     * @return The qos of the subscription to the responses
+     */
+    public int getQos() {
+        return qos;
+    }
+
+    /**
+     * @param qos The qos of the subscription to the responses. Default value {@value #DEFAULT_QOS}
+     */
+    public void setQos(int qos) {
+        this.qos = qos;
+    }
+}
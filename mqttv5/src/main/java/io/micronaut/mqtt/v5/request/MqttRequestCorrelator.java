@@ -0,0 +1,205 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.v5.request;
+
+import io.micronaut.context.annotation.Bean;
+import io.micronaut.core.type.Argument;
+import io.micronaut.mqtt.bind.MqttBindingContext;
+import io.micronaut.mqtt.exception.MqttClientException;
+import io.micronaut.mqtt.executor.HashedWheelTimer;
+import io.micronaut.mqtt.serdes.MqttPayloadSerDes;
+import io.micronaut.mqtt.serdes.MqttPayloadSerDesRegistry;
+import io.micronaut.mqtt.v5.bind.MqttV5BindingContext;
+import io.micronaut.mqtt.v5.config.MqttClientConfigurationProperties;
+import io.micronaut.mqtt.v5.intercept.MqttSubscriberAdvice;
+import jakarta.inject.Singleton;
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+import org.eclipse.paho.mqttv5.common.packet.MqttProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Correlates the responses received on the response topic of the client with the requests
+ * awaiting them. Requests carry the response topic and a unique correlation id as their
+ * correlation data, and responders are expected to echo the correlation data. A single
+ * wildcard subscription to the response topic, made when the first request is sent, receives
+ * the responses of all requests, and timeouts are scheduled on a {@link HashedWheelTimer}.
+ *
+ * @since 3.0.0
+ */
+@Singleton
+@Bean(preDestroy = "close")
+public class MqttRequestCorrelator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MqttRequestCorrelator.class);
+    private static final int CORRELATION_DATA_LENGTH = Long.BYTES;
+
+    private final MqttRequestConfigurationProperties configuration;
+    private final MqttSubscriberAdvice subscriberAdvice;
+    private final HashedWheelTimer timer;
+    private final MqttPayloadSerDesRegistry serDesRegistry;
+    private final String responseTopic;
+    private final CorrelationMap<PendingRequest> pending = new CorrelationMap<>();
+    // a random start keeps the responses to requests sent before a restart from matching new requests
+    private final AtomicLong correlationIds = new AtomicLong(ThreadLocalRandom.current().nextLong());
+    private volatile CompletableFuture<Void> subscribed;
+    private volatile boolean closed;
+
+    public MqttRequestCorrelator(MqttRequestConfigurationProperties configuration,
+                                 MqttClientConfigurationProperties clientConfiguration,
+                                 MqttSubscriberAdvice subscriberAdvice,
+                                 HashedWheelTimer timer,
+                                 MqttPayloadSerDesRegistry serDesRegistry) {
+        this.configuration = configuration;
+        this.subscriberAdvice = subscriberAdvice;
+        this.timer = timer;
+        this.serDesRegistry = serDesRegistry;
+        this.responseTopic = configuration.getResponseTopicPrefix() + '/' + clientConfiguration.getClientId();
+    }
+
+    /**
+     * Sets the response topic and correlation data of the request and sends it once the
+     * subscription to the responses has been acknowledged.
+     *
+     * @param message The request
+     * @param responseType The type the response is decoded to
+     * @param response The future completed with the response, or exceptionally on timeout
+     * @param send Sends the request
+     */
+    public void request(MqttMessage message, Argument<Object> responseType, CompletableFuture<Object> response, Runnable send) {
+        if (closed) {
+            response.completeExceptionally(new MqttClientException("The client has been closed"));
+            return;
+        }
+        long correlationId = correlationIds.incrementAndGet();
+        MqttProperties properties = message.getProperties();
+        if (properties == null) {
+            properties = new MqttProperties();
+            message.setProperties(properties);
+        }
+        properties.setResponseTopic(responseTopic);
+        properties.setCorrelationData(encode(correlationId));
+
+        HashedWheelTimer.Timeout timeout = timer.schedule(() -> response.completeExceptionally(
+                new MqttClientException(String.format("No response received within %s", configuration.getTimeout()), new TimeoutException())), configuration.getTimeout());
+        pending.put(correlationId, new PendingRequest(responseType, response));
+        response.whenComplete((value, throwable) -> {
+            pending.remove(correlationId);
+            timeout.cancel();
+        });
+        subscribe().whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                response.completeExceptionally(new MqttClientException(String.format("Failed to subscribe to the response topic %s", responseTopic), throwable));
+            } else if (!response.isDone()) {
+                send.run();
+            }
+        });
+    }
+
+    /**
+     * @return The topic responses are published to
+     */
+    public String getResponseTopic() {
+        return responseTopic;
+    }
+
+    /**
+     * @return The number of requests awaiting their response
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Fails the requests awaiting their response.
+     */
+    public void close() {
+        closed = true;
+        for (PendingRequest request : pending.clear()) {
+            request.response().completeExceptionally(new MqttClientException("The client was closed before the response was received"));
+        }
+    }
+
+    private CompletableFuture<Void> subscribe() {
+        CompletableFuture<Void> future = subscribed;
+        if (future == null || future.isCompletedExceptionally()) {
+            synchronized (this) {
+                future = subscribed;
+                if (future == null || future.isCompletedExceptionally()) {
+                    future = subscriberAdvice.subscribe(responseTopic + "/#", configuration.getQos(), this::received);
+                    subscribed = future;
+                }
+            }
+        }
+        return future;
+    }
+
+    private void received(MqttBindingContext<MqttMessage> context) {
+        MqttProperties properties = ((MqttV5BindingContext) context).getProperties();
+        byte[] correlationData = properties == null ? null : properties.getCorrelationData();
+        if (correlationData == null || correlationData.length != CORRELATION_DATA_LENGTH) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Dropping a response without correlation data received from {}", context.getTopic());
+            }
+            return;
+        }
+        PendingRequest request = pending.remove(decode(correlationData));
+        if (request == null) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Dropping a response received from {} after its request completed", context.getTopic());
+            }
+            return;
+        }
+        try {
+            MqttPayloadSerDes<Object> serDes = serDesRegistry.findSerdes(request.responseType())
+                    .orElseThrow(() -> new MqttClientException(String.format("No ser-des found to decode the response type %s", request.responseType().getTypeName())));
+            request.response().complete(serDes.deserialize(context.getPayload(), request.responseType()));
+        } catch (RuntimeException e) {
+            request.response().completeExceptionally(e);
+        }
+    }
+
+    private static byte[] encode(long correlationId) {
+        byte[] data = new byte[CORRELATION_DATA_LENGTH];
+        for (int i = CORRELATION_DATA_LENGTH - 1; i >= 0; i--) {
+            data[i] = (byte) correlationId;
+            correlationId >>>= 8;
+        }
+        return data;
+    }
+
+    private static long decode(byte[] data) {
+        long correlationId = 0;
+        for (byte b : data) {
+            correlationId = (correlationId << 8) | (b & 0xFF);
+        }
+        return correlationId;
+    }
+
+    /**
+     * A request awaiting its response.
+     *
+     * @param responseType The type the response is decoded to
+     * @param response The future completed with the response
+     */
+    private record PendingRequest(Argument<Object> responseType, CompletableFuture<Object> response) {
+    }
+}
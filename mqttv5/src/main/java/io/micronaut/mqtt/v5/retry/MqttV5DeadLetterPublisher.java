@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.v5.retry;
+
+import io.micronaut.mqtt.bind.MqttBindingContext;
+import io.micronaut.mqtt.exception.MqttClientException;
+import io.micronaut.mqtt.exception.MqttSubscriberException;
+import io.micronaut.mqtt.retry.MqttDeadLetterPublisher;
+import io.micronaut.mqtt.v5.bind.MqttV5BindingContext;
+import jakarta.inject.Singleton;
+import org.eclipse.paho.mqttv5.client.MqttAsyncClient;
+import org.eclipse.paho.mqttv5.common.MqttException;
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+import org.eclipse.paho.mqttv5.common.packet.MqttProperties;
+import org.eclipse.paho.mqttv5.common.packet.UserProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The MQTT v5 implementation of {@link MqttDeadLetterPublisher}. The original payload
+ * is published unchanged and the metadata is added as user properties, in addition to
+ * the user properties, content type and correlation data of the original message. The
+ * message is published with the client the failed message was received with, so failures
+ * of subscribers of named clients stay on their broker.
+ *
+ * @since 3.0.0
+ */
+@Singleton
+public class MqttV5DeadLetterPublisher implements MqttDeadLetterPublisher {
+
+    private final MqttAsyncClient mqttAsyncClient;
+
+    /**
+     * @param mqttAsyncClient The default client, used for messages delivered in process
+     */
+    public MqttV5DeadLetterPublisher(MqttAsyncClient mqttAsyncClient) {
+        this.mqttAsyncClient = mqttAsyncClient;
+    }
+
+    @Override
+    public void publish(String topic, int qos, MqttBindingContext<?> context, MqttSubscriberException exception, int attempts) {
+        Throwable cause = MqttDeadLetterPublisher.rootCause(exception);
+        MqttProperties properties = new MqttProperties();
+        List<UserProperty> userProperties = new ArrayList<>();
+        MqttAsyncClient client = mqttAsyncClient;
+        if (context instanceof MqttV5BindingContext v5Context) {
+            if (v5Context.getClient() != null) {
+                client = v5Context.getClient();
+            }
+            MqttProperties original = v5Context.getProperties();
+            if (original != null) {
+                userProperties.addAll(original.getUserProperties());
+                properties.setContentType(original.getContentType());
+                properties.setCorrelationData(original.getCorrelationData());
+            }
+        }
+        userProperties.add(new UserProperty(ORIGINAL_TOPIC, context.getTopic()));
+        userProperties.add(new UserProperty(EXCEPTION, cause.getClass().getName()));
+        userProperties.add(new UserProperty(EXCEPTION_MESSAGE, String.valueOf(cause.getMessage())));
+        userProperties.add(new UserProperty(ATTEMPTS, String.valueOf(attempts)));
+        properties.setUserProperties(userProperties);
+
+        MqttMessage message = new MqttMessage(context.getPayload());
+        message.setQos(qos);
+        message.setProperties(properties);
+        try {
+            client.publish(topic, message);
+        } catch (MqttException e) {
+            throw new MqttClientException("Failed to publish the message to the dead letter topic", e);
+        }
+    }
+}
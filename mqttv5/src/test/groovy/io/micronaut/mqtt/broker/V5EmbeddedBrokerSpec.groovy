@@ -0,0 +1,18 @@
+package io.micronaut.mqtt.broker
+
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.test.broker.EmbeddedBrokerClient
+import io.micronaut.mqtt.test.broker.EmbeddedBrokerSpec
+import io.micronaut.mqtt.v5.annotation.MqttPublisher
+
+class V5EmbeddedBrokerSpec extends EmbeddedBrokerSpec {
+
+    @Override
+    Class<? extends EmbeddedBrokerClient> getClient() {
+        return MyClient.class
+    }
+
+    @Requires(property = "spec.name", value = "V5EmbeddedBrokerSpec")
+    @MqttPublisher
+    static interface MyClient extends EmbeddedBrokerClient {}
+}
@@ -0,0 +1,88 @@
+package io.micronaut.mqtt.buffer
+
+import io.micronaut.context.ApplicationContext
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.annotation.MqttSubscriber
+import io.micronaut.mqtt.annotation.Topic
+import io.micronaut.mqtt.client.MqttConnectionLifecycle
+import io.micronaut.mqtt.test.AbstractMQTTTest
+import io.micronaut.mqtt.test.chaos.ChaosProxy
+import io.micronaut.mqtt.v5.annotation.MqttProperty
+import io.micronaut.mqtt.v5.annotation.MqttPublisher
+import spock.lang.AutoCleanup
+import spock.lang.Shared
+import spock.lang.TempDir
+import spock.util.concurrent.PollingConditions
+
+import java.nio.file.Path
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.TimeUnit
+
+class V5OfflineBufferSpec extends AbstractMQTTTest {
+
+    @Shared
+    @AutoCleanup
+    ChaosProxy proxy = new ChaosProxy(URI.create(serverUri).host, URI.create(serverUri).port).start()
+
+    @TempDir
+    Path directory
+
+    void "message properties are replayed with buffered messages"() {
+        ApplicationContext ctx = startContext(
+                "mqtt.client.server-uri": proxy.serverUri,
+                "mqtt.client.automatic-reconnect": true,
+                "mqtt.client.keep-alive-interval": 1,
+                "mqtt.publisher.offline-buffer.enabled": true,
+                "mqtt.publisher.offline-buffer.memory-capacity": memoryCapacity,
+                "mqtt.publisher.offline-buffer.directory": directory.toString())
+        def client = ctx.getBean(MyClient)
+        def sub = ctx.getBean(MySubscriber)
+        def lifecycle = ctx.getBean(MqttConnectionLifecycle)
+
+        when:
+        proxy.refuseConnections(true)
+        proxy.resetConnections()
+        new PollingConditions(timeout: 5).eventually {
+            assert !lifecycle.connected
+        }
+        CompletableFuture<Void> sent = client.send("buffered", "custom")
+        proxy.refuseConnections(false)
+
+        then:
+        sent.get(10, TimeUnit.SECONDS) == null
+        new PollingConditions(timeout: 10).eventually {
+            assert sub.contentType == "text/plain"
+            assert sub.custom == "custom"
+        }
+
+        cleanup:
+        proxy.heal()
+        ctx.close()
+
+        where:
+        memoryCapacity << [10, 0]
+    }
+
+    @Requires(property = "spec.name", value = "V5OfflineBufferSpec")
+    @Topic("test/offline/properties")
+    @MqttPublisher
+    static interface MyClient {
+
+        @MqttProperty(name = "contentType", value = "text/plain")
+        CompletableFuture<Void> send(String data, @MqttProperty String customProperty)
+    }
+
+    @Requires(property = "spec.name", value = "V5OfflineBufferSpec")
+    @MqttSubscriber
+    static class MySubscriber {
+
+        volatile String contentType
+        volatile String custom
+
+        @Topic("test/offline/properties")
+        void receive(String data, @MqttProperty String contentType, @MqttProperty("customProperty") String custom) {
+            this.contentType = contentType
+            this.custom = custom
+        }
+    }
+}
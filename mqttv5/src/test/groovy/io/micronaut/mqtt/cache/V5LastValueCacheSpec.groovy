@@ -0,0 +1,18 @@
+package io.micronaut.mqtt.cache
+
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.test.cache.LastValueCacheClient
+import io.micronaut.mqtt.test.cache.LastValueCacheSpec
+import io.micronaut.mqtt.v5.annotation.MqttPublisher
+
+class V5LastValueCacheSpec extends LastValueCacheSpec {
+
+    @Override
+    Class<? extends LastValueCacheClient> getClient() {
+        return MyClient.class
+    }
+
+    @Requires(property = "spec.name", value = "V5LastValueCacheSpec")
+    @MqttPublisher
+    static interface MyClient extends LastValueCacheClient {}
+}
@@ -0,0 +1,23 @@
+package io.micronaut.mqtt.chaos
+
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.test.chaos.ChaosClient
+import io.micronaut.mqtt.test.chaos.ChaosSpec
+import io.micronaut.mqtt.v5.annotation.MqttPublisher
+
+class V5ChaosSpec extends ChaosSpec {
+
+    @Override
+    Class<? extends ChaosClient> getClient() {
+        return MyClient.class
+    }
+
+    @Override
+    Map<String, Object> getPersistentSessionConfig() {
+        return ["mqtt.client.clean-start": false, "mqtt.client.session-expiry-interval": 300]
+    }
+
+    @Requires(property = "spec.name", value = "V5ChaosSpec")
+    @MqttPublisher
+    static interface MyClient extends ChaosClient {}
+}
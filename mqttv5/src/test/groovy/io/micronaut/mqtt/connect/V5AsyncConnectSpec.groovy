@@ -0,0 +1,18 @@
+package io.micronaut.mqtt.connect
+
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.test.connect.AsyncConnectClient
+import io.micronaut.mqtt.test.connect.AsyncConnectSpec
+import io.micronaut.mqtt.v5.annotation.MqttPublisher
+
+class V5AsyncConnectSpec extends AsyncConnectSpec {
+
+    @Override
+    Class<? extends AsyncConnectClient> getClient() {
+        return MyClient.class
+    }
+
+    @Requires(property = "spec.name", value = "V5AsyncConnectSpec")
+    @MqttPublisher
+    static interface MyClient extends AsyncConnectClient {}
+}
@@ -0,0 +1,18 @@
+package io.micronaut.mqtt.connect
+
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.test.connect.NamedClientClient
+import io.micronaut.mqtt.test.connect.NamedClientSpec
+import io.micronaut.mqtt.v5.annotation.MqttPublisher
+
+class V5NamedClientSpec extends NamedClientSpec {
+
+    @Override
+    Class<? extends NamedClientClient> getClient() {
+        return MyClient.class
+    }
+
+    @Requires(property = "spec.name", value = "V5NamedClientSpec")
+    @MqttPublisher(client = "secondary")
+    static interface MyClient extends NamedClientClient {}
+}
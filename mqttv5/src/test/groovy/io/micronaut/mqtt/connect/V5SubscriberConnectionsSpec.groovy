@@ -0,0 +1,18 @@
+package io.micronaut.mqtt.connect
+
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.test.connect.ClientPoolClient
+import io.micronaut.mqtt.test.connect.SubscriberConnectionsSpec
+import io.micronaut.mqtt.v5.annotation.MqttPublisher
+
+class V5SubscriberConnectionsSpec extends SubscriberConnectionsSpec {
+
+    @Override
+    Class<? extends ClientPoolClient> getClient() {
+        return MyClient.class
+    }
+
+    @Requires(property = "spec.name", value = "V5SubscriberConnectionsSpec")
+    @MqttPublisher
+    static interface MyClient extends ClientPoolClient {}
+}
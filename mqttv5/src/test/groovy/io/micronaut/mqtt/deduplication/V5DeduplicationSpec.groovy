@@ -0,0 +1,114 @@
+package io.micronaut.mqtt.deduplication
+
+import io.micronaut.context.ApplicationContext
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.annotation.MqttSubscriber
+import io.micronaut.mqtt.annotation.Topic
+import io.micronaut.mqtt.test.AbstractMQTTTest
+import io.micronaut.mqtt.v5.annotation.MqttProperty
+import io.micronaut.mqtt.v5.annotation.MqttPublisher
+import io.micronaut.mqtt.v5.deduplication.UserPropertyMessageKeyResolver
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+class V5DeduplicationSpec extends AbstractMQTTTest {
+
+    void "test a message received again is dropped"() {
+        ApplicationContext ctx = startContext("mqtt.subscriber.deduplication.enabled": true)
+        def client = ctx.getBean(MyClient)
+        def subscriber = ctx.getBean(MySubscriber)
+
+        when:
+        client.send("a")
+        client.send("a")
+        client.send("b")
+
+        then:
+        new PollingConditions(timeout: 3).eventually {
+            assert subscriber.messages == ["a", "b"]
+            assert ctx.getBean(MqttMessageDeduplicator).duplicates == 1
+        }
+
+        cleanup:
+        ctx.close()
+    }
+
+    void "test a message whose handler failed is delivered again"() {
+        ApplicationContext ctx = startContext("mqtt.subscriber.deduplication.enabled": true)
+        def client = ctx.getBean(MyClient)
+        def subscriber = ctx.getBean(MySubscriber)
+
+        when:
+        client.send("fail")
+
+        then:
+        new PollingConditions(timeout: 3).eventually {
+            assert subscriber.attempts == ["fail"]
+        }
+
+        when:
+        client.send("fail")
+
+        then:
+        new PollingConditions(timeout: 3).eventually {
+            assert subscriber.messages == ["fail"]
+        }
+        ctx.getBean(MqttMessageDeduplicator).duplicates == 0
+
+        cleanup:
+        ctx.close()
+    }
+
+    void "test messages are identified by the configured user property"() {
+        ApplicationContext ctx = startContext("mqtt.subscriber.deduplication.enabled": true,
+                "mqtt.subscriber.deduplication.key-property": "messageId")
+        def client = ctx.getBean(MyClient)
+        def subscriber = ctx.getBean(MySubscriber)
+
+        expect:
+        ctx.getBean(MqttMessageKeyResolver) instanceof UserPropertyMessageKeyResolver
+
+        when:
+        client.sendWithId("first", "1")
+        client.sendWithId("second", "1")
+        client.sendWithId("third", "2")
+
+        then:
+        new PollingConditions(timeout: 3).eventually {
+            assert subscriber.messages == ["first", "third"]
+            assert ctx.getBean(MqttMessageDeduplicator).duplicates == 1
+        }
+
+        cleanup:
+        ctx.close()
+    }
+
+    @Requires(property = "spec.name", value = "V5DeduplicationSpec")
+    @MqttPublisher
+    static interface MyClient {
+
+        @Topic("test/deduplication")
+        void send(String data)
+
+        @Topic("test/deduplication")
+        void sendWithId(String data, @MqttProperty String messageId)
+    }
+
+    @Requires(property = "spec.name", value = "V5DeduplicationSpec")
+    @MqttSubscriber
+    static class MySubscriber {
+
+        List<String> attempts = new CopyOnWriteArrayList<>()
+        List<String> messages = new CopyOnWriteArrayList<>()
+
+        @Topic("test/deduplication")
+        void receive(String data) {
+            attempts << data
+            if (data == "fail" && attempts.count("fail") == 1) {
+                throw new IllegalStateException("The first attempt fails")
+            }
+            messages << data
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package io.micronaut.mqtt.latency
+
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.test.latency.LatencyClient
+import io.micronaut.mqtt.test.latency.LatencySpec
+import io.micronaut.mqtt.v5.annotation.MqttPublisher
+
+class V5LatencySpec extends LatencySpec {
+
+    @Override
+    Class<? extends LatencyClient> getClient() {
+        return MyClient.class
+    }
+
+    @Requires(property = "spec.name", value = "V5LatencySpec")
+    @MqttPublisher
+    static interface MyClient extends LatencyClient {}
+}
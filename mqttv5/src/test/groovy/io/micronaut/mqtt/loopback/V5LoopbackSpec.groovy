@@ -0,0 +1,18 @@
+package io.micronaut.mqtt.loopback
+
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.test.loopback.LoopbackClient
+import io.micronaut.mqtt.test.loopback.LoopbackSpec
+import io.micronaut.mqtt.v5.annotation.MqttPublisher
+
+class V5LoopbackSpec extends LoopbackSpec {
+
+    @Override
+    Class<? extends LoopbackClient> getClient() {
+        return MyClient.class
+    }
+
+    @Requires(property = "spec.name", value = "V5LoopbackSpec")
+    @MqttPublisher
+    static interface MyClient extends LoopbackClient {}
+}
@@ -0,0 +1,146 @@
+package io.micronaut.mqtt.request
+
+import io.micronaut.context.ApplicationContext
+import io.micronaut.context.annotation.Requires
+import io.micronaut.core.util.StringUtils
+import io.micronaut.mqtt.annotation.MqttSubscriber
+import io.micronaut.mqtt.annotation.Request
+import io.micronaut.mqtt.annotation.Topic
+import io.micronaut.mqtt.exception.MqttClientException
+import io.micronaut.mqtt.test.AbstractMQTTTest
+import io.micronaut.mqtt.v5.annotation.MqttPublisher
+import io.micronaut.mqtt.v5.request.MqttRequestCorrelator
+import reactor.core.publisher.Mono
+
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
+
+class V5RequestResponseSpec extends AbstractMQTTTest {
+
+    void "test the response of a request completes the future"() {
+        ApplicationContext responder = startContext("v5requestresponsespec": true)
+        ApplicationContext ctx = startContext()
+        def client = ctx.getBean(MyClient)
+
+        when:
+        def responses = (1..20).collect { client.upperCase("abc$it") }
+
+        then:
+        responses.collect { it.get(5, TimeUnit.SECONDS) } == (1..20).collect { "ABC$it".toString() }
+        ctx.getBean(MqttRequestCorrelator).pendingCount == 0
+
+        cleanup:
+        ctx.close()
+        responder.close()
+    }
+
+    void "test the response of a request is emitted by a mono"() {
+        ApplicationContext responder = startContext("v5requestresponsespec": true)
+        ApplicationContext ctx = startContext()
+        def client = ctx.getBean(MyClient)
+
+        expect:
+        client.length("abcd").block(Duration.ofSeconds(5)) == 4
+
+        cleanup:
+        ctx.close()
+        responder.close()
+    }
+
+    void "test a request without a response times out"() {
+        ApplicationContext ctx = startContext("mqtt.request.timeout": "200ms")
+        def client = ctx.getBean(MyClient)
+
+        when:
+        client.unanswered("abc").get(5, TimeUnit.SECONDS)
+
+        then:
+        def e = thrown(ExecutionException)
+        e.cause instanceof MqttClientException
+        e.cause.message.startsWith("No response received within")
+        ctx.getBean(MqttRequestCorrelator).pendingCount == 0
+
+        cleanup:
+        ctx.close()
+    }
+
+    void "test publishing without a response is unchanged"() {
+        ApplicationContext responder = startContext("v5requestresponsespec": true)
+        ApplicationContext ctx = startContext()
+
+        expect:
+        ctx.getBean(MyClient).send("abc").get(5, TimeUnit.SECONDS) == null
+        ctx.getBean(MyClient).publish("abc").get(5, TimeUnit.SECONDS) == null
+        ctx.getBean(MqttRequestCorrelator).pendingCount == 0
+
+        cleanup:
+        ctx.close()
+        responder.close()
+    }
+
+    void "test requests with a named client fail when the application starts"() {
+        when:
+        startContext("v5requestresponsespec.named": true,
+                "mqtt.clients.secondary.server-uri": serverUri,
+                "mqtt.clients.secondary.client-id": UUID.randomUUID().toString())
+
+        then:
+        def e = thrown(Exception)
+        def cause = e
+        while (cause != null && !(cause instanceof MqttClientException)) {
+            cause = cause.cause
+        }
+        cause != null
+        cause.message.contains("requests are only supported with the default client")
+    }
+
+    @Requires(property = "spec.name", value = "V5RequestResponseSpec")
+    @MqttPublisher
+    static interface MyClient {
+
+        @Request
+        @Topic("rpc/upper")
+        CompletableFuture<String> upperCase(String data)
+
+        @Request
+        @Topic("rpc/length")
+        Mono<Integer> length(String data)
+
+        @Request
+        @Topic("rpc/unanswered")
+        CompletableFuture<String> unanswered(String data)
+
+        @Topic("rpc/upper")
+        CompletableFuture<Void> send(String data)
+
+        // not a request, completes once the message is published
+        @Topic("rpc/upper")
+        CompletableFuture<String> publish(String data)
+    }
+
+    @Requires(property = "v5requestresponsespec.named", value = StringUtils.TRUE)
+    @MqttPublisher(client = "secondary")
+    static interface NamedClient {
+
+        @Request
+        @Topic("rpc/upper")
+        CompletableFuture<String> upperCase(String data)
+    }
+
+    @Requires(property = "v5requestresponsespec", value = StringUtils.TRUE)
+    @MqttSubscriber
+    static class Responder {
+
+        @Topic("rpc/upper")
+        String upperCase(String data) {
+            data.toUpperCase()
+        }
+
+        @Topic("rpc/length")
+        CompletableFuture<Integer> length(String data) {
+            CompletableFuture.completedFuture(data.length())
+        }
+    }
+}
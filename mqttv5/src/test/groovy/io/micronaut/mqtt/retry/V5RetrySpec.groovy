@@ -0,0 +1,23 @@
+package io.micronaut.mqtt.retry
+
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.test.retry.RetryClient
+import io.micronaut.mqtt.test.retry.RetrySpec
+import io.micronaut.mqtt.v5.annotation.MqttPublisher
+
+class V5RetrySpec extends RetrySpec {
+
+    @Override
+    Class<? extends RetryClient> getClient() {
+        return MyClient.class
+    }
+
+    @Override
+    void verifyDeadLetter(byte[] deadLetter) {
+        assert new String(deadLetter) == "xyz"
+    }
+
+    @Requires(property = "spec.name", value = "V5RetrySpec")
+    @MqttPublisher
+    static interface MyClient extends RetryClient {}
+}
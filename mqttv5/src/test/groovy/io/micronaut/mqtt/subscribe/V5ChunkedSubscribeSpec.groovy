@@ -0,0 +1,18 @@
+package io.micronaut.mqtt.subscribe
+
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.test.subscribe.ChunkedSubscribeClient
+import io.micronaut.mqtt.test.subscribe.ChunkedSubscribeSpec
+import io.micronaut.mqtt.v5.annotation.MqttPublisher
+
+class V5ChunkedSubscribeSpec extends ChunkedSubscribeSpec {
+
+    @Override
+    Class<? extends ChunkedSubscribeClient> getClient() {
+        return MyClient.class
+    }
+
+    @Requires(property = "spec.name", value = "V5ChunkedSubscribeSpec")
+    @MqttPublisher
+    static interface MyClient extends ChunkedSubscribeClient {}
+}
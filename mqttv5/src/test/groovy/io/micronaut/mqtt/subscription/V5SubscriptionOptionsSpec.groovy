@@ -0,0 +1,129 @@
+package io.micronaut.mqtt.subscription
+
+import io.micronaut.context.ApplicationContext
+import io.micronaut.context.annotation.Requires
+import io.micronaut.core.util.StringUtils
+import io.micronaut.mqtt.annotation.MqttSubscriber
+import io.micronaut.mqtt.annotation.Retained
+import io.micronaut.mqtt.annotation.Topic
+import io.micronaut.mqtt.test.AbstractMQTTTest
+import io.micronaut.mqtt.v5.annotation.MqttPublisher
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+class V5SubscriptionOptionsSpec extends AbstractMQTTTest {
+
+    void "test messages published by the same client are not delivered with noLocal"() {
+        ApplicationContext remote = startContext("v5subscriptionoptionsspec.nolocal": true)
+        ApplicationContext ctx = startContext("v5subscriptionoptionsspec.nolocal": true)
+        def client = ctx.getBean(MyClient)
+        def sub = ctx.getBean(NoLocalSubscriber)
+        def remoteSub = remote.getBean(NoLocalSubscriber)
+
+        when:
+        client.send("options/nolocal", false, "abc")
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert remoteSub.messages == ["abc"]
+        }
+        sub.messages.isEmpty()
+
+        cleanup:
+        ctx.close()
+        remote.close()
+    }
+
+    void "test retained messages are not sent with retain handling 2"() {
+        ApplicationContext publisher = startContext()
+        publisher.getBean(MyClient).send("options/retained/never", true, "retained")
+        publisher.close()
+
+        when:
+        ApplicationContext ctx = startContext("v5subscriptionoptionsspec.retainhandling": true)
+        def sub = ctx.getBean(RetainHandlingSubscriber)
+        ctx.getBean(MyClient).send("options/retained/never", false, "live")
+
+        then: "only the live message arrives"
+        new PollingConditions(timeout: 5).eventually {
+            assert sub.messages == ["live"]
+        }
+
+        cleanup:
+        ctx.getBean(MyClient).send("options/retained/never", true, "")
+        ctx.close()
+    }
+
+    void "test the retain flag is kept with retainAsPublished"() {
+        ApplicationContext ctx = startContext("v5subscriptionoptionsspec.retainaspublished": true)
+        def client = ctx.getBean(MyClient)
+        def sub = ctx.getBean(RetainAsPublishedSubscriber)
+
+        when:
+        client.send("options/retained/flag", true, "abc")
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert sub.asPublished == [true]
+            assert sub.cleared == [false]
+        }
+
+        cleanup:
+        client.send("options/retained/flag", true, "")
+        ctx.close()
+    }
+
+    @Requires(property = "spec.name", value = "V5SubscriptionOptionsSpec")
+    @MqttPublisher
+    static interface MyClient {
+
+        void send(@Topic String topic, @Retained boolean retained, String data)
+    }
+
+    @Requires(property = "v5subscriptionoptionsspec.nolocal", value = StringUtils.TRUE)
+    @MqttSubscriber
+    static class NoLocalSubscriber {
+
+        List<String> messages = new CopyOnWriteArrayList<>()
+
+        @Topic(value = "options/nolocal", noLocal = true)
+        void receive(String data) {
+            messages << data
+        }
+    }
+
+    @Requires(property = "v5subscriptionoptionsspec.retainhandling", value = StringUtils.TRUE)
+    @MqttSubscriber
+    static class RetainHandlingSubscriber {
+
+        List<String> messages = new CopyOnWriteArrayList<>()
+
+        @Topic(value = "options/retained/never", retainHandling = 2)
+        void receive(String data) {
+            messages << data
+        }
+    }
+
+    @Requires(property = "v5subscriptionoptionsspec.retainaspublished", value = StringUtils.TRUE)
+    @MqttSubscriber
+    static class RetainAsPublishedSubscriber {
+
+        List<Boolean> asPublished = new CopyOnWriteArrayList<>()
+        List<Boolean> cleared = new CopyOnWriteArrayList<>()
+
+        @Topic(value = "options/retained/flag", retainAsPublished = true)
+        void receiveAsPublished(@Retained boolean retained, String data) {
+            if (data) {
+                asPublished << retained
+            }
+        }
+
+        @Topic("options/+/flag")
+        void receive(@Retained boolean retained, String data) {
+            if (data) {
+                cleared << retained
+            }
+        }
+    }
+}
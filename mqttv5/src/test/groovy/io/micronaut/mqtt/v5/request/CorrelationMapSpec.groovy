@@ -0,0 +1,63 @@
+package io.micronaut.mqtt.v5.request
+
+import spock.lang.Specification
+
+class CorrelationMapSpec extends Specification {
+
+    void "values are found by their key"() {
+        given:
+        CorrelationMap<String> map = new CorrelationMap<>()
+
+        when:
+        map.put(1, "a")
+        map.put(-1, "b")
+        map.put(Long.MAX_VALUE, "c")
+
+        then:
+        map.size() == 3
+        map.remove(-1) == "b"
+        map.remove(-1) == null
+        map.remove(2) == null
+        map.remove(1) == "a"
+        map.remove(Long.MAX_VALUE) == "c"
+        map.size() == 0
+    }
+
+    void "entries are kept across resizes and removals"() {
+        given:
+        CorrelationMap<Long> map = new CorrelationMap<>()
+        Random random = new Random(42)
+        Map<Long, Long> expected = [:]
+
+        when:
+        10_000.times {
+            long key = random.nextInt(2_000)
+            if (random.nextBoolean()) {
+                map.put(key, key)
+                expected.put(key, key)
+            } else {
+                assert map.remove(key) == expected.remove(key)
+            }
+        }
+
+        then:
+        map.size() == expected.size()
+        expected.keySet().every { map.remove(it) == it }
+        map.size() == 0
+    }
+
+    void "clear returns the removed values"() {
+        given:
+        CorrelationMap<String> map = new CorrelationMap<>()
+        100.times { map.put(it, "v$it".toString()) }
+
+        when:
+        List<String> removed = map.clear()
+
+        then:
+        removed.size() == 100
+        removed.containsAll((0..<100).collect { "v$it".toString() })
+        map.size() == 0
+        map.remove(5) == null
+    }
+}
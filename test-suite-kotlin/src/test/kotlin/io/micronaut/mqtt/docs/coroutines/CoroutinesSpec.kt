@@ -0,0 +1,147 @@
+package io.micronaut.mqtt.docs.coroutines
+
+import io.kotest.assertions.timing.eventually
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.collections.shouldContainExactlyInAnyOrder
+import io.kotest.matchers.collections.shouldHaveSize
+import io.kotest.matchers.ints.shouldBeInRange
+import io.kotest.matchers.string.shouldNotStartWith
+import io.kotest.matchers.string.shouldStartWith
+import io.micronaut.mqtt.AbstractMqttKotest
+import kotlinx.coroutines.async
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.flow.asFlow
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
+import org.opentest4j.AssertionFailedError
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import kotlin.time.DurationUnit
+import kotlin.time.ExperimentalTime
+import kotlin.time.toDuration
+
+@ExperimentalTime
+class CoroutinesSpec : AbstractMqttKotest({
+
+    val specName = javaClass.simpleName
+
+    given("A suspending publisher and subscriber") {
+        val ctx = startContext(specName)
+        val productClient = ctx.getBean(ProductClient::class.java)
+        val listener = ctx.getBean(ProductListener::class.java)
+
+        `when`("A message is published") {
+            productClient.send("single".toByteArray())
+
+            then("The message is received by the suspending subscriber") {
+                eventually(10.toDuration(DurationUnit.SECONDS), AssertionFailedError::class) {
+                    listener.messages shouldContainExactlyInAnyOrder listOf("single")
+                }
+            }
+        }
+
+        `when`("A message is published from a single thread dispatcher") {
+            listener.messages.clear()
+            val executor = Executors.newSingleThreadExecutor()
+            var ranWhileAwaiting = false
+            runBlocking(executor.asCoroutineDispatcher()) {
+                val sent = async { productClient.send("nonblocking".toByteArray()) }
+                launch { ranWhileAwaiting = !sent.isCompleted }
+                sent.await()
+            }
+            executor.shutdown()
+
+            then("The thread runs other coroutines while the publisher awaits the acknowledgement") {
+                ranWhileAwaiting.shouldBeTrue()
+                eventually(10.toDuration(DurationUnit.SECONDS), AssertionFailedError::class) {
+                    listener.messages shouldContainExactlyInAnyOrder listOf("nonblocking")
+                }
+            }
+        }
+
+        `when`("A message is received by a suspending subscriber") {
+            val probe = ctx.getBean(ProbeListener::class.java)
+            ctx.getBean(ProbeClient::class.java).sendThread("thread".toByteArray())
+
+            then("The subscriber runs on the consumer executor") {
+                eventually(10.toDuration(DurationUnit.SECONDS), AssertionFailedError::class) {
+                    probe.threads shouldHaveSize 2
+                }
+                probe.threads.forEach { it shouldNotStartWith "DefaultDispatcher-worker" }
+            }
+        }
+
+        `when`("A flow is published") {
+            listener.messages.clear()
+            productClient.sendAll((1..50).asFlow().map { "product $it".toByteArray() })
+
+            then("Every element of the flow is received") {
+                eventually(10.toDuration(DurationUnit.SECONDS), AssertionFailedError::class) {
+                    listener.messages shouldContainExactlyInAnyOrder (1..50).map { "product $it" }
+                }
+            }
+        }
+
+        ctx.stop()
+    }
+
+    given("A suspending subscriber handling a message") {
+        val ctx = startContext(specName)
+        val probe = ctx.getBean(ProbeListener::class.java)
+        ctx.getBean(ProbeClient::class.java).sendSlow("slow".toByteArray())
+
+        `when`("The context stops") {
+            probe.started.await(10, TimeUnit.SECONDS).shouldBeTrue()
+            ctx.stop()
+
+            then("The subscriber is cancelled") {
+                probe.cancelled.await(10, TimeUnit.SECONDS).shouldBeTrue()
+            }
+        }
+    }
+
+    given("A context with the IO dispatcher") {
+        val config = getDefaultConfig(specName)
+        config["mqtt.coroutines.dispatcher"] = "IO"
+        val ctx = startContext(config)
+        val probe = ctx.getBean(ProbeListener::class.java)
+
+        `when`("A message is received by a suspending subscriber") {
+            ctx.getBean(ProbeClient::class.java).sendThread("thread".toByteArray())
+
+            then("The subscriber runs on the threads of the dispatcher") {
+                eventually(10.toDuration(DurationUnit.SECONDS), AssertionFailedError::class) {
+                    probe.threads shouldHaveSize 2
+                }
+                probe.threads.forEach { it shouldStartWith "DefaultDispatcher-worker" }
+            }
+        }
+
+        ctx.stop()
+    }
+
+    given("A context with a small flow window") {
+        val config = getDefaultConfig(specName)
+        config["mqtt.coroutines.flow-max-inflight"] = 2
+        val ctx = startContext(config)
+        val productClient = ctx.getBean(ProductClient::class.java)
+        val listener = ctx.getBean(ProductListener::class.java)
+
+        `when`("A flow larger than the window is published") {
+            productClient.sendAll((1..20).asFlow().map { "windowed $it".toByteArray() })
+
+            then("Every element of the flow is received") {
+                eventually(10.toDuration(DurationUnit.SECONDS), AssertionFailedError::class) {
+                    listener.messages shouldContainExactlyInAnyOrder (1..20).map { "windowed $it" }
+                }
+            }
+
+            then("No more messages than the window await their acknowledgement") {
+                ctx.getBean(InflightObserver::class.java).maxInflight.get() shouldBeInRange 1..2
+            }
+        }
+
+        ctx.stop()
+    }
+})
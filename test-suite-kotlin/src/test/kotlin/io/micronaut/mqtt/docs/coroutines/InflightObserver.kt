@@ -0,0 +1,24 @@
+package io.micronaut.mqtt.docs.coroutines
+
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.observer.MqttObserver
+import jakarta.inject.Singleton
+import java.util.concurrent.atomic.AtomicInteger
+
+@Requires(property = "spec.name", value = "CoroutinesSpec")
+@Singleton
+class InflightObserver : MqttObserver {
+
+    private val inflight = AtomicInteger()
+    val maxInflight = AtomicInteger()
+
+    override fun publishStarted(client: String, topic: String, topicTag: String, qos: Int, size: Int): Any? {
+        val current = inflight.incrementAndGet()
+        maxInflight.accumulateAndGet(current) { a, b -> maxOf(a, b) }
+        return null
+    }
+
+    override fun publishCompleted(context: Any?, client: String, topicTag: String, qos: Int, durationNanos: Long, error: Throwable?) {
+        inflight.decrementAndGet()
+    }
+}
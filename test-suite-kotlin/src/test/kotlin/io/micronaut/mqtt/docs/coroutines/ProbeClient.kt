@@ -0,0 +1,16 @@
+package io.micronaut.mqtt.docs.coroutines
+
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.annotation.Topic
+import io.micronaut.mqtt.v5.annotation.MqttPublisher
+
+@Requires(property = "spec.name", value = "CoroutinesSpec")
+@MqttPublisher
+interface ProbeClient {
+
+    @Topic("probe/slow")
+    suspend fun sendSlow(data: ByteArray)
+
+    @Topic("probe/thread")
+    suspend fun sendThread(data: ByteArray)
+}
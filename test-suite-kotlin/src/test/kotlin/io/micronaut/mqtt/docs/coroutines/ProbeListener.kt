@@ -0,0 +1,36 @@
+package io.micronaut.mqtt.docs.coroutines
+
+import io.micronaut.context.annotation.Requires
+import io.micronaut.mqtt.annotation.MqttSubscriber
+import io.micronaut.mqtt.annotation.Topic
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.delay
+import java.util.*
+import java.util.concurrent.CountDownLatch
+
+@Requires(property = "spec.name", value = "CoroutinesSpec")
+@MqttSubscriber
+class ProbeListener {
+
+    val threads: MutableList<String> = Collections.synchronizedList(ArrayList())
+    val started = CountDownLatch(1)
+    val cancelled = CountDownLatch(1)
+
+    @Topic("probe/slow")
+    suspend fun slow(data: ByteArray) {
+        started.countDown()
+        try {
+            delay(60_000)
+        } catch (e: CancellationException) {
+            cancelled.countDown()
+            throw e
+        }
+    }
+
+    @Topic("probe/thread")
+    suspend fun thread(data: ByteArray) {
+        threads.add(Thread.currentThread().name)
+        delay(10)
+        threads.add(Thread.currentThread().name)
+    }
+}
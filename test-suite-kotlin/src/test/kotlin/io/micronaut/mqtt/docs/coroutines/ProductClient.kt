@@ -0,0 +1,22 @@
+package io.micronaut.mqtt.docs.coroutines
+
+// tag::imports[]
+import io.micronaut.mqtt.annotation.Topic
+import io.micronaut.mqtt.v5.annotation.MqttPublisher
+import kotlinx.coroutines.flow.Flow
+// end::imports[]
+
+import io.micronaut.context.annotation.Requires
+
+@Requires(property = "spec.name", value = "CoroutinesSpec")
+// tag::clazz[]
+@MqttPublisher
+interface ProductClient {
+
+    @Topic("product")
+    suspend fun send(data: ByteArray) // <1>
+
+    @Topic("product")
+    suspend fun sendAll(data: Flow<ByteArray>) // <2>
+}
+// end::clazz[]
@@ -0,0 +1,25 @@
+package io.micronaut.mqtt.docs.coroutines
+
+// tag::imports[]
+import io.micronaut.mqtt.annotation.MqttSubscriber
+import io.micronaut.mqtt.annotation.Topic
+import kotlinx.coroutines.delay
+import java.util.*
+// end::imports[]
+
+import io.micronaut.context.annotation.Requires
+
+@Requires(property = "spec.name", value = "CoroutinesSpec")
+// tag::clazz[]
+@MqttSubscriber
+class ProductListener {
+
+    val messages: MutableList<String> = Collections.synchronizedList(ArrayList())
+
+    @Topic("product")
+    suspend fun receive(data: ByteArray) { // <1>
+        delay(10) // <2>
+        messages.add(String(data))
+    }
+}
+// end::clazz[]
@@ -16,6 +16,7 @@
 package io.micronaut.mqtt.test
 
 import io.micronaut.context.ApplicationContext
+import io.micronaut.mqtt.test.broker.EmbeddedMqttBroker
 import org.testcontainers.containers.BindMode
 import org.testcontainers.containers.GenericContainer
 import org.testcontainers.containers.wait.strategy.LogMessageWaitStrategy
@@ -24,22 +25,35 @@ import spock.lang.Specification
 
 abstract class AbstractMQTTTest extends Specification {
 
-    static GenericContainer mqttContainer =
-            new GenericContainer(DockerImageName.parse("eclipse-mosquitto:1.6.12"))
+    /**
+     * Set the system property {@code mqtt.test.broker} to {@code embedded} to run the tests
+     * against an {@link EmbeddedMqttBroker} instead of a Mosquitto container.
+     */
+    static final boolean EMBEDDED_BROKER = System.getProperty("mqtt.test.broker") == "embedded"
+
+    static GenericContainer mqttContainer
+    static EmbeddedMqttBroker embeddedBroker
+    static String serverUri
+
+    static {
+        if (EMBEDDED_BROKER) {
+            embeddedBroker = new EmbeddedMqttBroker().start()
+            serverUri = embeddedBroker.serverUri
+        } else {
+            mqttContainer = new GenericContainer(DockerImageName.parse("eclipse-mosquitto:1.6.12"))
                     .withExposedPorts(1883)
                     .waitingFor(new LogMessageWaitStrategy().withRegEx("(?s).*mosquitto version 1.6.12 running.*"))
                     .withClasspathResourceMapping("mosquitto.conf",
                             "/mosquitto/config/mosquitto.conf",
                             BindMode.READ_ONLY)
-
-
-    static {
-        mqttContainer.start()
+            mqttContainer.start()
+            serverUri = "tcp://localhost:${mqttContainer.getMappedPort(1883)}"
+        }
     }
 
     protected ApplicationContext startContext(Map additionalConfig = [:]) {
         ApplicationContext.run(
-                ["mqtt.client.server-uri": "tcp://localhost:${mqttContainer.getMappedPort(1883)}",
+                ["mqtt.client.server-uri": serverUri,
                  "mqtt.client.client-id": UUID.randomUUID().toString(),
                  "endpoints.health.mqtt.client.enabled": true,
                  "spec.name": getClass().simpleName] << additionalConfig, "test")
@@ -0,0 +1,10 @@
+package io.micronaut.mqtt.test.bind.variable
+
+import io.micronaut.mqtt.annotation.Topic
+import io.micronaut.mqtt.annotation.TopicVariable
+
+interface TopicVariableBindingClient {
+
+    @Topic("test/sites/{site}/devices/{device}/temp")
+    void publish(@TopicVariable String site, @TopicVariable("device") int deviceId, byte[] data)
+}
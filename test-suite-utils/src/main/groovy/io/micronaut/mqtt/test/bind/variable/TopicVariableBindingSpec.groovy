@@ -0,0 +1,51 @@
+package io.micronaut.mqtt.test.bind.variable
+
+import io.micronaut.context.ApplicationContext
+import io.micronaut.context.annotation.Requires
+import io.micronaut.core.util.StringUtils
+import io.micronaut.mqtt.annotation.MqttSubscriber
+import io.micronaut.mqtt.annotation.Topic
+import io.micronaut.mqtt.annotation.TopicVariable
+import io.micronaut.mqtt.test.AbstractMQTTTest
+import spock.util.concurrent.PollingConditions
+
+abstract class TopicVariableBindingSpec extends AbstractMQTTTest {
+
+    void "test topic variable binding"() {
+        ApplicationContext ctx = startContext("topicvariablebindingspec": true)
+        def client = ctx.getBean(getClient())
+        def sub = ctx.getBean(MySubscriber)
+        def polling = new PollingConditions(timeout: 3)
+
+        when:
+        client.publish("north", 42, "abc".bytes)
+
+        then:
+        polling.eventually {
+            assert sub.topic == "test/sites/north/devices/42/temp"
+            assert sub.site == "north"
+            assert sub.device == 42
+        }
+
+        cleanup:
+        ctx.close()
+    }
+
+    abstract Class<? extends TopicVariableBindingClient> getClient()
+
+    @Requires(property = "topicvariablebindingspec", value = StringUtils.TRUE)
+    @MqttSubscriber
+    static class MySubscriber {
+
+        String topic
+        String site
+        Integer device
+
+        @Topic("test/sites/{site}/devices/{device}/temp")
+        void get(@Topic String topic, @TopicVariable String site, @TopicVariable("device") Integer deviceId, byte[] data) {
+            this.topic = topic
+            this.site = site
+            this.device = deviceId
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package io.micronaut.mqtt.test.broker
+
+import io.micronaut.mqtt.annotation.Qos
+import io.micronaut.mqtt.annotation.Retained
+import io.micronaut.mqtt.annotation.Topic
+
+interface EmbeddedBrokerClient {
+
+    void send(@Topic String topic, @Qos int qos, @Retained boolean retained, String data)
+}
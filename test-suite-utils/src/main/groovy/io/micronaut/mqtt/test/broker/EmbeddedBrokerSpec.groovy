@@ -0,0 +1,128 @@
+package io.micronaut.mqtt.test.broker
+
+import io.micronaut.context.ApplicationContext
+import io.micronaut.context.annotation.Requires
+import io.micronaut.core.util.StringUtils
+import io.micronaut.mqtt.annotation.MqttSubscriber
+import io.micronaut.mqtt.annotation.Qos
+import io.micronaut.mqtt.annotation.Topic
+import spock.lang.AutoCleanup
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+abstract class EmbeddedBrokerSpec extends Specification {
+
+    @Shared
+    @AutoCleanup
+    EmbeddedMqttBroker broker = new EmbeddedMqttBroker().start()
+
+    void "messages are delivered with qos 0, 1 and 2 through wildcard subscriptions"() {
+        ApplicationContext ctx = startContext("embeddedbrokerspec.wildcard": true)
+        def client = ctx.getBean(getClient())
+        def sub = ctx.getBean(WildcardSubscriber)
+
+        when:
+        client.send("broker/a/qos", 0, false, "zero")
+        client.send("broker/b/qos", 1, false, "one")
+        client.send("broker/c/qos", 2, false, "two")
+        client.send("broker/a/other", 1, false, "ignored")
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert sub.messages.sort() == ["broker/a/qos 0 zero", "broker/b/qos 1 one", "broker/c/qos 2 two"]
+        }
+
+        cleanup:
+        ctx.close()
+    }
+
+    void "retained messages are delivered to new subscribers"() {
+        ApplicationContext publisher = startContext()
+        publisher.getBean(getClient()).send("broker/retained", 1, true, "retained")
+        publisher.close()
+
+        when:
+        ApplicationContext ctx = startContext("embeddedbrokerspec.retained": true)
+        def sub = ctx.getBean(RetainedSubscriber)
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert sub.messages == ["retained"]
+        }
+
+        cleanup:
+        ctx.close()
+    }
+
+    void "messages of a shared subscription are distributed among its members"() {
+        ApplicationContext first = startContext("embeddedbrokerspec.shared": true)
+        ApplicationContext second = startContext("embeddedbrokerspec.shared": true)
+        def client = first.getBean(getClient())
+
+        when:
+        10.times {
+            client.send("broker/shared", 1, false, "message $it")
+        }
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            def firstMessages = first.getBean(SharedSubscriber).messages
+            def secondMessages = second.getBean(SharedSubscriber).messages
+            assert firstMessages.size() + secondMessages.size() == 10
+            assert !firstMessages.isEmpty()
+            assert !secondMessages.isEmpty()
+        }
+
+        cleanup:
+        first.close()
+        second.close()
+    }
+
+    protected ApplicationContext startContext(Map additionalConfig = [:]) {
+        ApplicationContext.run(
+                ["mqtt.client.server-uri": broker.serverUri,
+                 "mqtt.client.client-id": UUID.randomUUID().toString(),
+                 "spec.name": getClass().simpleName] << additionalConfig, "test")
+    }
+
+    abstract Class<? extends EmbeddedBrokerClient> getClient()
+
+    @Requires(property = "embeddedbrokerspec.wildcard", value = StringUtils.TRUE)
+    @MqttSubscriber
+    static class WildcardSubscriber {
+
+        List<String> messages = new CopyOnWriteArrayList<>()
+
+        @Topic(value = "broker/+/qos", qos = 2)
+        void receive(@Topic String topic, @Qos int qos, String data) {
+            messages.add("$topic $qos $data".toString())
+        }
+    }
+
+    @Requires(property = "embeddedbrokerspec.retained", value = StringUtils.TRUE)
+    @MqttSubscriber
+    static class RetainedSubscriber {
+
+        List<String> messages = new CopyOnWriteArrayList<>()
+
+        @Topic("broker/retained")
+        void receive(String data) {
+            messages.add(data)
+        }
+    }
+
+    @Requires(property = "embeddedbrokerspec.shared", value = StringUtils.TRUE)
+    @MqttSubscriber
+    static class SharedSubscriber {
+
+        List<String> messages = new CopyOnWriteArrayList<>()
+
+        @Topic('$share/group/broker/shared')
+        void receive(String data) {
+            messages.add(data)
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package io.micronaut.mqtt.test.cache
+
+import io.micronaut.mqtt.annotation.Retained
+import io.micronaut.mqtt.annotation.Topic
+
+interface LastValueCacheClient {
+
+    @Retained(true)
+    void send(@Topic String topic, String data)
+}
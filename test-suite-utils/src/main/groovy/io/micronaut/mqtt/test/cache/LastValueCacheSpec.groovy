@@ -0,0 +1,77 @@
+package io.micronaut.mqtt.test.cache
+
+import io.micronaut.context.ApplicationContext
+import io.micronaut.mqtt.cache.MqttLastValueCache
+import io.micronaut.mqtt.test.AbstractMQTTTest
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+abstract class LastValueCacheSpec extends AbstractMQTTTest {
+
+    void "test the last value of each topic is cached"() {
+        ApplicationContext publisher = startContext()
+        def client = publisher.getBean(getClient())
+        client.send("cache/kitchen/temperature", "18")
+        client.send("cache/kitchen/temperature", "21")
+        client.send("cache/kitchen/humidity", "40")
+        client.send("cache/garden/temperature", "12")
+
+        ApplicationContext ctx = startContext("mqtt.last-value-cache.enabled": true, "mqtt.last-value-cache.filters": ["cache/#"])
+        def cache = ctx.getBean(MqttLastValueCache)
+        def changes = new CopyOnWriteArrayList<String>()
+        cache.addListener("cache/garden/+", (topic, value) -> changes << "$topic ${value == null ? null : new String(value)}".toString())
+
+        expect: "the retained values are cached"
+        new PollingConditions(timeout: 5).eventually {
+            assert cache.size() == 3
+            assert new String(cache.get("cache/kitchen/temperature")) == "21"
+            assert cache.get("cache/kitchen/temperature", String).get() == "21"
+            assert cache.scan("cache/kitchen/").keySet() == ["cache/kitchen/humidity", "cache/kitchen/temperature"] as Set
+        }
+        cache.get("cache/unknown") == null
+        !cache.get("cache/unknown", String).isPresent()
+
+        when: "a value is updated and another cleared"
+        client.send("cache/garden/temperature", "14")
+        client.send("cache/kitchen/humidity", "")
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert cache.get("cache/garden/temperature", String).get() == "14"
+            assert cache.get("cache/kitchen/humidity") == null
+            assert cache.size() == 2
+            assert changes.contains("cache/garden/temperature 14")
+        }
+
+        cleanup:
+        ["cache/kitchen/temperature", "cache/kitchen/humidity", "cache/garden/temperature"].each { client.send(it, "") }
+        ctx.close()
+        publisher.close()
+    }
+
+    void "test the topics updated the longest time ago are evicted"() {
+        ApplicationContext ctx = startContext("mqtt.last-value-cache.enabled": true, "mqtt.last-value-cache.filters": ["evict/+"], "mqtt.last-value-cache.max-entries": 2)
+        def client = ctx.getBean(getClient())
+        def cache = ctx.getBean(MqttLastValueCache)
+
+        when:
+        client.send("evict/a", "1")
+        client.send("evict/b", "2")
+        client.send("evict/c", "3")
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert cache.get("evict/c") != null
+            assert cache.size() == 2
+            assert cache.get("evict/a") == null
+            assert cache.evictions == 1
+        }
+
+        cleanup:
+        ["evict/a", "evict/b", "evict/c"].each { client.send(it, "") }
+        ctx.close()
+    }
+
+    abstract Class<? extends LastValueCacheClient> getClient()
+}
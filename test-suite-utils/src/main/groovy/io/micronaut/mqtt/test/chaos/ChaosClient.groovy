@@ -0,0 +1,11 @@
+package io.micronaut.mqtt.test.chaos
+
+import io.micronaut.mqtt.annotation.Topic
+
+import java.util.concurrent.CompletableFuture
+
+interface ChaosClient {
+
+    @Topic("test/chaos")
+    CompletableFuture<Void> send(String data)
+}
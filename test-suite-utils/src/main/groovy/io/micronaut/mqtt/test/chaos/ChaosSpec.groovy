@@ -0,0 +1,272 @@
+package io.micronaut.mqtt.test.chaos
+
+import io.micronaut.context.ApplicationContext
+import io.micronaut.context.annotation.Requires
+import io.micronaut.core.util.StringUtils
+import io.micronaut.mqtt.annotation.MqttSubscriber
+import io.micronaut.mqtt.annotation.Topic
+import io.micronaut.mqtt.client.MqttConnectionLifecycle
+import io.micronaut.mqtt.client.MqttConnectionListener
+import io.micronaut.mqtt.test.AbstractMQTTTest
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import spock.lang.AutoCleanup
+import spock.lang.Shared
+import spock.util.concurrent.PollingConditions
+
+import java.time.Duration
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.TimeUnit
+
+/**
+ * Reproduces slow and flapping brokers through a {@link ChaosProxy} and logs the measured
+ * recovery times, throughput and duplicate rates at INFO level.
+ */
+abstract class ChaosSpec extends AbstractMQTTTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChaosSpec)
+
+    private static final Map OFFLINE_BUFFER = [
+            "mqtt.publisher.offline-buffer.enabled": true,
+            "mqtt.publisher.offline-buffer.max-disk-size": 0,
+            "mqtt.publisher.offline-buffer.replay-rate": 100_000]
+
+    @Shared
+    @AutoCleanup
+    ChaosProxy proxy = new ChaosProxy(URI.create(serverUri).host, URI.create(serverUri).port).start()
+
+    void cleanup() {
+        proxy.heal()
+    }
+
+    void "measures the reconnect and resubscribe time after the connection is reset"() {
+        ApplicationContext ctx = startContext("chaosspec": true)
+        def client = ctx.getBean(getClient())
+        def sub = ctx.getBean(MySubscriber)
+        def events = connectionEvents(ctx)
+
+        when:
+        long reset = System.nanoTime()
+        proxy.resetConnections()
+
+        then:
+        new PollingConditions(timeout: 10).eventually {
+            assert events.reconnected != 0
+        }
+
+        when: "probes are published until the subscription is restored"
+        new PollingConditions(timeout: 10, delay: 0.05).eventually {
+            sendQuietly(client, "probe")
+            assert sub.receivedAt.containsKey("probe")
+        }
+
+        then:
+        report("reconnected after ${millis(events.reconnected - reset)} ms, resubscribed after ${millis(sub.receivedAt["probe"] - reset)} ms")
+
+        cleanup:
+        ctx.close()
+    }
+
+    void "measures the reconnect time after the broker stalled"() {
+        ApplicationContext ctx = startContext("chaosspec": true)
+        def client = ctx.getBean(getClient())
+        def sub = ctx.getBean(MySubscriber)
+        def events = connectionEvents(ctx)
+
+        when:
+        long stalled = System.nanoTime()
+        proxy.stall()
+
+        then: "the keep alive detects the stall"
+        new PollingConditions(timeout: 10).eventually {
+            assert events.disconnected != 0
+        }
+
+        when:
+        long resumed = System.nanoTime()
+        proxy.resume()
+
+        then:
+        new PollingConditions(timeout: 10).eventually {
+            assert events.reconnected != 0
+        }
+        client.send("after-stall").get(5, TimeUnit.SECONDS) == null
+        new PollingConditions(timeout: 5).eventually {
+            assert sub.receivedAt.containsKey("after-stall")
+        }
+        report("detected the stall after ${millis(events.disconnected - stalled)} ms, reconnected ${millis(events.reconnected - resumed)} ms after it ended")
+
+        cleanup:
+        ctx.close()
+    }
+
+    void "measures the replay throughput of messages buffered while the broker was down"() {
+        ApplicationContext ctx = startContext(["chaosspec": true] << OFFLINE_BUFFER)
+        def client = ctx.getBean(getClient())
+        def sub = ctx.getBean(MySubscriber)
+        def events = connectionEvents(ctx)
+        def lifecycle = ctx.getBean(MqttConnectionLifecycle)
+        int count = 1000
+
+        when:
+        proxy.refuseConnections(true)
+        proxy.resetConnections()
+        new PollingConditions(timeout: 5).eventually {
+            assert !lifecycle.connected
+        }
+        (1..count).each {
+            client.send("buffered-$it").get(5, TimeUnit.SECONDS)
+        }
+        proxy.refuseConnections(false)
+
+        then:
+        new PollingConditions(timeout: 30).eventually {
+            assert (1..count).every { sub.receivedAt.containsKey("buffered-$it".toString()) }
+        }
+        long replayed = (1..count).collect { sub.receivedAt["buffered-$it".toString()] }.max() - events.reconnected
+        report("replayed $count messages at ${Math.round(count / Math.max(replayed, 1) * 1e9)} msg/s")
+
+        cleanup:
+        ctx.close()
+    }
+
+    void "measures the duplicate rate of qos 1 messages while connections are reset"() {
+        ApplicationContext ctx = startContext(["chaosspec": true] << OFFLINE_BUFFER << getPersistentSessionConfig())
+        def client = ctx.getBean(getClient())
+        def sub = ctx.getBean(MySubscriber)
+        Set<String> acknowledged = ConcurrentHashMap.newKeySet()
+        int count = 2000
+
+        when:
+        (1..count).each { i ->
+            String data = "message-$i"
+            try {
+                client.send(data).whenComplete { result, error ->
+                    if (error == null) {
+                        acknowledged.add(data)
+                    }
+                }
+            } catch (Exception e) {
+                // published while the loss of the connection was not noticed yet
+            }
+            if (i % 500 == 0) {
+                proxy.resetConnections()
+            }
+        }
+
+        then: "every acknowledged message is delivered at least once"
+        new PollingConditions(timeout: 10).eventually {
+            assert !acknowledged.isEmpty()
+        }
+        new PollingConditions(timeout: 30).eventually {
+            assert sub.receivedAt.keySet().containsAll(acknowledged)
+        }
+        int duplicates = sub.messages.size() - sub.receivedAt.size()
+        report("delivered ${acknowledged.size()} of $count messages with ${duplicates} duplicates (${String.format('%.2f', duplicates * 100.0 / sub.receivedAt.size())}%)")
+
+        cleanup:
+        ctx.close()
+    }
+
+    void "measures the acknowledgement latency through a slow link"() {
+        ApplicationContext ctx = startContext("chaosspec": true)
+        def client = ctx.getBean(getClient())
+        def sub = ctx.getBean(MySubscriber)
+
+        when:
+        proxy.latency(Duration.ofMillis(50))
+        long sent = System.nanoTime()
+        client.send("slow").get(5, TimeUnit.SECONDS)
+        long acknowledged = System.nanoTime() - sent
+
+        then: "the publish and its acknowledgement each cross the link"
+        acknowledged >= TimeUnit.MILLISECONDS.toNanos(100)
+        new PollingConditions(timeout: 5).eventually {
+            assert sub.receivedAt.containsKey("slow")
+        }
+
+        when:
+        proxy.heal().bandwidth(50_000)
+        String payload = "x" * 50_000
+        sent = System.nanoTime()
+        client.send(payload).get(10, TimeUnit.SECONDS)
+        long capped = System.nanoTime() - sent
+
+        then:
+        capped >= TimeUnit.MILLISECONDS.toNanos(900)
+        report("acknowledged after ${millis(acknowledged)} ms with 50 ms latency, 50 kB after ${millis(capped)} ms at 50 kB/s")
+
+        cleanup:
+        ctx.close()
+    }
+
+    @Override
+    protected ApplicationContext startContext(Map additionalConfig = [:]) {
+        super.startContext([
+                "mqtt.client.server-uri": proxy.serverUri,
+                "mqtt.client.automatic-reconnect": true,
+                "mqtt.client.keep-alive-interval": 1] << additionalConfig)
+    }
+
+    abstract Class<? extends ChaosClient> getClient()
+
+    /**
+     * @return The configuration of a session that survives the connection
+     */
+    abstract Map<String, Object> getPersistentSessionConfig()
+
+    private static ConnectionEvents connectionEvents(ApplicationContext ctx) {
+        def events = new ConnectionEvents()
+        ctx.getBean(MqttConnectionLifecycle).addConnectionListener(events)
+        events
+    }
+
+    private static void sendQuietly(ChaosClient client, String data) {
+        try {
+            client.send(data).get(1, TimeUnit.SECONDS)
+        } catch (Exception e) {
+            // the connection is not restored yet
+        }
+    }
+
+    private static long millis(long nanos) {
+        TimeUnit.NANOSECONDS.toMillis(nanos)
+    }
+
+    private void report(String measurement) {
+        LOG.info("{}: {}", getClass().simpleName, measurement)
+    }
+
+    static class ConnectionEvents implements MqttConnectionListener {
+
+        volatile long reconnected
+        volatile long disconnected
+
+        @Override
+        void connected(int connection, boolean reconnect) {
+            if (reconnect) {
+                reconnected = System.nanoTime()
+            }
+        }
+
+        @Override
+        void disconnected(int connection) {
+            disconnected = System.nanoTime()
+        }
+    }
+
+    @Requires(property = "chaosspec", value = StringUtils.TRUE)
+    @MqttSubscriber
+    static class MySubscriber {
+
+        List<String> messages = new CopyOnWriteArrayList<>()
+        Map<String, Long> receivedAt = new ConcurrentHashMap<>()
+
+        @Topic(value = "test/chaos", qos = 1)
+        void receive(String data) {
+            receivedAt.putIfAbsent(data, System.nanoTime())
+            messages.add(data)
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package io.micronaut.mqtt.test.connect
+
+import io.micronaut.mqtt.annotation.Topic
+
+import java.util.concurrent.CompletableFuture
+
+interface AsyncConnectClient {
+
+    @Topic("test/connect/async")
+    CompletableFuture<Void> send(String data)
+}
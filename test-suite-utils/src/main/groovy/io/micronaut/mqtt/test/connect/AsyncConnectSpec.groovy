@@ -0,0 +1,50 @@
+package io.micronaut.mqtt.test.connect
+
+import io.micronaut.context.ApplicationContext
+import io.micronaut.context.annotation.Requires
+import io.micronaut.core.util.StringUtils
+import io.micronaut.mqtt.annotation.MqttSubscriber
+import io.micronaut.mqtt.annotation.Topic
+import io.micronaut.mqtt.test.AbstractMQTTTest
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.TimeUnit
+
+abstract class AsyncConnectSpec extends AbstractMQTTTest {
+
+    void "test messages published while connecting are delivered"() {
+        ApplicationContext ctx = startContext(
+                "asyncconnectspec": true,
+                "mqtt.client.async-connect": true)
+        def client = ctx.getBean(getClient())
+        def sub = ctx.getBean(MySubscriber)
+        def polling = new PollingConditions(timeout: 5)
+
+        when:
+        def futures = (1..5).collect { client.send("message-$it") }
+        futures.each { it.get(5, TimeUnit.SECONDS) }
+
+        then:
+        polling.eventually {
+            assert sub.messages == (1..5).collect { "message-$it" }
+        }
+
+        cleanup:
+        ctx.close()
+    }
+
+    abstract Class<? extends AsyncConnectClient> getClient()
+
+    @Requires(property = "asyncconnectspec", value = StringUtils.TRUE)
+    @MqttSubscriber
+    static class MySubscriber {
+
+        List<String> messages = new CopyOnWriteArrayList<>()
+
+        @Topic(value = "test/connect/async", qos = 1)
+        void receive(String data) {
+            messages.add(data)
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package io.micronaut.mqtt.test.connect
+
+import io.micronaut.mqtt.annotation.Topic
+
+import java.util.concurrent.CompletableFuture
+
+interface ClientPoolClient {
+
+    CompletableFuture<Void> send(@Topic String topic, String data)
+}
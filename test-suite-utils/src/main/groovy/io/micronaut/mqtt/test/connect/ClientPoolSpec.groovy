@@ -0,0 +1,60 @@
+package io.micronaut.mqtt.test.connect
+
+import io.micronaut.context.ApplicationContext
+import io.micronaut.context.annotation.Requires
+import io.micronaut.core.util.StringUtils
+import io.micronaut.mqtt.annotation.MqttSubscriber
+import io.micronaut.mqtt.annotation.Topic
+import io.micronaut.mqtt.client.MqttClientPool
+import io.micronaut.mqtt.test.AbstractMQTTTest
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.TimeUnit
+
+abstract class ClientPoolSpec extends AbstractMQTTTest {
+
+    void "test publishes are spread across the pool and keep their order per topic"() {
+        ApplicationContext ctx = startContext(
+                "clientpoolspec": true,
+                "mqtt.client.pool-size": 3)
+        def client = ctx.getBean(getClient())
+        def sub = ctx.getBean(MySubscriber)
+        def pool = ctx.getBean(MqttClientPool)
+        def polling = new PollingConditions(timeout: 10)
+        def topics = (1..6).collect { "test/pool/$it".toString() }
+
+        expect:
+        pool.size() == 3
+        topics.collect { MqttClientPool.shard(it, 3) }.unique().size() > 1
+
+        when:
+        def futures = (1..50).collectMany { i -> topics.collect { client.send(it, "$i") } }
+        futures.each { it.get(5, TimeUnit.SECONDS) }
+
+        then:
+        polling.eventually {
+            topics.each { topic ->
+                assert sub.messages[topic] == (1..50).collect { "$it".toString() }
+            }
+        }
+
+        cleanup:
+        ctx.close()
+    }
+
+    abstract Class<? extends ClientPoolClient> getClient()
+
+    @Requires(property = "clientpoolspec", value = StringUtils.TRUE)
+    @MqttSubscriber
+    static class MySubscriber {
+
+        Map<String, List<String>> messages = new ConcurrentHashMap<>()
+
+        @Topic(value = "test/pool/+", qos = 1)
+        void receive(String data, @Topic String topic) {
+            messages.computeIfAbsent(topic, { new CopyOnWriteArrayList<>() }).add(data)
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package io.micronaut.mqtt.test.connect
+
+import io.micronaut.mqtt.annotation.Topic
+
+interface NamedClientClient {
+
+    @Topic(value = "test/named", qos = 1)
+    void send(String data)
+}
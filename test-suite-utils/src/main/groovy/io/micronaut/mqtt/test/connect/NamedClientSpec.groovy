@@ -0,0 +1,77 @@
+package io.micronaut.mqtt.test.connect
+
+import io.micronaut.context.ApplicationContext
+import io.micronaut.context.annotation.Requires
+import io.micronaut.core.util.StringUtils
+import io.micronaut.inject.qualifiers.Qualifiers
+import io.micronaut.mqtt.annotation.MqttSubscriber
+import io.micronaut.mqtt.annotation.Topic
+import io.micronaut.mqtt.client.MqttClientPool
+import io.micronaut.mqtt.test.AbstractMQTTTest
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+abstract class NamedClientSpec extends AbstractMQTTTest {
+
+    void "test publishers and subscribers use the named client"() {
+        String clientId = UUID.randomUUID().toString()
+        ApplicationContext ctx = startContext(
+                "namedclientspec": true,
+                "mqtt.clients.secondary.server-uri": serverUri,
+                "mqtt.clients.secondary.client-id": clientId,
+                "mqtt.clients.secondary.executor-threads": 2)
+        def client = ctx.getBean(getClient())
+        def sub = ctx.getBean(MySubscriber)
+        def defaultSub = ctx.getBean(DefaultSubscriber)
+        def polling = new PollingConditions(timeout: 5)
+
+        expect:
+        ctx.getBean(MqttClientPool, Qualifiers.byName("secondary")).primary.clientId == clientId
+        ctx.getBean(MqttClientPool).primary.clientId != clientId
+
+        when:
+        client.send("abc")
+
+        then:
+        polling.eventually {
+            assert sub.messages == ["abc"]
+            assert defaultSub.messages == ["abc"]
+        }
+        sub.threads.every { it.startsWith("mqtt-secondary") }
+        defaultSub.threads.every { !it.startsWith("mqtt-secondary") }
+
+        cleanup:
+        ctx.close()
+    }
+
+    abstract Class<? extends NamedClientClient> getClient()
+
+    @Requires(property = "namedclientspec", value = StringUtils.TRUE)
+    @MqttSubscriber(client = "secondary")
+    static class MySubscriber {
+
+        List<String> messages = new CopyOnWriteArrayList<>()
+        List<String> threads = new CopyOnWriteArrayList<>()
+
+        @Topic("test/named")
+        void receive(String data) {
+            messages << data
+            threads << Thread.currentThread().name
+        }
+    }
+
+    @Requires(property = "namedclientspec", value = StringUtils.TRUE)
+    @MqttSubscriber
+    static class DefaultSubscriber {
+
+        List<String> messages = new CopyOnWriteArrayList<>()
+        List<String> threads = new CopyOnWriteArrayList<>()
+
+        @Topic("test/named")
+        void receive(String data) {
+            messages << data
+            threads << Thread.currentThread().name
+        }
+    }
+}
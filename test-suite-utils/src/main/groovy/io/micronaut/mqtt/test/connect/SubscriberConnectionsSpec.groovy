@@ -0,0 +1,70 @@
+package io.micronaut.mqtt.test.connect
+
+import io.micronaut.context.ApplicationContext
+import io.micronaut.context.annotation.Requires
+import io.micronaut.core.util.StringUtils
+import io.micronaut.mqtt.annotation.MqttSubscriber
+import io.micronaut.mqtt.annotation.Topic
+import io.micronaut.mqtt.test.AbstractMQTTTest
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.TimeUnit
+
+abstract class SubscriberConnectionsSpec extends AbstractMQTTTest {
+
+    void "test subscriptions are spread across the connections of the pool"() {
+        ApplicationContext ctx = startContext(
+                "subscriberconnectionsspec": true,
+                "mqtt.client.pool-size": 3,
+                "mqtt.subscriber.connections": 3)
+        def client = ctx.getBean(getClient())
+        def sub = ctx.getBean(MySubscriber)
+        def polling = new PollingConditions(timeout: 10)
+        def topics = (1..8).collect { "test/sharded/$it".toString() }
+
+        when:
+        topics.each { client.send(it, it).get(5, TimeUnit.SECONDS) }
+        (1..30).each { client.send("test/sharded/shared", "$it").get(5, TimeUnit.SECONDS) }
+
+        then:
+        polling.eventually {
+            assert sub.messages.sort() == topics.sort()
+            assert sub.shared.size() == 30
+        }
+        sub.threads.unique().size() > 1
+        sub.shared.sort() == (1..30).collect { "$it".toString() }.sort()
+
+        cleanup:
+        ctx.close()
+    }
+
+    abstract Class<? extends ClientPoolClient> getClient()
+
+    @Requires(property = "subscriberconnectionsspec", value = StringUtils.TRUE)
+    @MqttSubscriber
+    static class MySubscriber {
+
+        List<String> messages = new CopyOnWriteArrayList<>()
+        List<String> shared = new CopyOnWriteArrayList<>()
+        List<String> threads = new CopyOnWriteArrayList<>()
+
+        @Topic(value = "test/sharded/1", qos = 1)
+        @Topic(value = "test/sharded/2", qos = 1)
+        @Topic(value = "test/sharded/3", qos = 1)
+        @Topic(value = "test/sharded/4", qos = 1)
+        @Topic(value = "test/sharded/5", qos = 1)
+        @Topic(value = "test/sharded/6", qos = 1)
+        @Topic(value = "test/sharded/7", qos = 1)
+        @Topic(value = "test/sharded/8", qos = 1)
+        void receive(String data) {
+            threads.add(Thread.currentThread().name)
+            messages.add(data)
+        }
+
+        @Topic(value = "\$share/group/test/sharded/shared", qos = 1)
+        void receiveShared(String data) {
+            shared.add(data)
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package io.micronaut.mqtt.test.latency
+
+import io.micronaut.mqtt.annotation.Topic
+
+interface LatencyClient {
+
+    @Topic(value = "test/latency", qos = 1)
+    void send(String data)
+}
@@ -0,0 +1,74 @@
+package io.micronaut.mqtt.test.latency
+
+import io.micronaut.context.ApplicationContext
+import io.micronaut.context.annotation.Requires
+import io.micronaut.core.util.StringUtils
+import io.micronaut.mqtt.annotation.MqttSubscriber
+import io.micronaut.mqtt.annotation.Topic
+import io.micronaut.mqtt.latency.LatencyRegistry
+import io.micronaut.mqtt.test.AbstractMQTTTest
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+abstract class LatencySpec extends AbstractMQTTTest {
+
+    void "test the latency of stamped messages is recorded per subscriber method"() {
+        ApplicationContext ctx = startContext(
+                "latencyspec": true,
+                "mqtt.latency.enabled": true,
+                "mqtt.latency.window": "200ms")
+        def client = ctx.getBean(getClient())
+        def sub = ctx.getBean(MySubscriber)
+        def otherSub = ctx.getBean(OtherSubscriber)
+        def latency = ctx.getBean(LatencyRegistry)
+        def polling = new PollingConditions(timeout: 5)
+
+        when:
+        client.send("abc")
+        client.send("def")
+
+        then: "the stamp is not part of the payload"
+        polling.eventually {
+            assert sub.messages == ["abc", "def"]
+            assert otherSub.messages == ["abc", "def"]
+        }
+
+        and: "the latencies are reported once the window has completed"
+        polling.eventually {
+            assert latency.getLatency("MySubscriber#receive").count > 0
+            assert latency.getLatency("OtherSubscriber#receive").count > 0
+        }
+        latency.getLatency("MySubscriber#receive").getValueAtPercentile(99) < 5_000_000
+        latency.summary.keySet() == ["MySubscriber#receive", "OtherSubscriber#receive"] as Set
+
+        cleanup:
+        ctx.close()
+    }
+
+    abstract Class<? extends LatencyClient> getClient()
+
+    @Requires(property = "latencyspec", value = StringUtils.TRUE)
+    @MqttSubscriber
+    static class MySubscriber {
+
+        List<String> messages = new CopyOnWriteArrayList<>()
+
+        @Topic("test/latency")
+        void receive(String data) {
+            messages << data
+        }
+    }
+
+    @Requires(property = "latencyspec", value = StringUtils.TRUE)
+    @MqttSubscriber
+    static class OtherSubscriber {
+
+        List<String> messages = new CopyOnWriteArrayList<>()
+
+        @Topic("test/+")
+        void receive(String data) {
+            messages << data
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package io.micronaut.mqtt.test.loopback
+
+import io.micronaut.mqtt.annotation.Topic
+
+import java.util.concurrent.CompletableFuture
+
+interface LoopbackClient {
+
+    @Topic("test/loopback")
+    void send(String data)
+
+    @Topic("test/loopback/slow")
+    CompletableFuture<Void> sendAsync(String data)
+}
@@ -0,0 +1,141 @@
+package io.micronaut.mqtt.test.loopback
+
+import io.micronaut.context.ApplicationContext
+import io.micronaut.context.annotation.Requires
+import io.micronaut.core.util.StringUtils
+import io.micronaut.mqtt.annotation.MqttSubscriber
+import io.micronaut.mqtt.annotation.Topic
+import io.micronaut.mqtt.loopback.MqttLoopback
+import io.micronaut.mqtt.test.AbstractMQTTTest
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
+
+abstract class LoopbackSpec extends AbstractMQTTTest {
+
+    void "test messages are delivered to local subscribers once and still published to the broker"() {
+        ApplicationContext remote = startContext("loopbackspec": true)
+        ApplicationContext ctx = startContext("loopbackspec": true, "mqtt.loopback.enabled": true)
+        def client = ctx.getBean(getClient())
+        def sub = ctx.getBean(MySubscriber)
+        def remoteSub = remote.getBean(MySubscriber)
+
+        expect:
+        !ctx.getBean(MqttLoopback).isEmpty()
+
+        when:
+        client.send("abc")
+        client.send("def")
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert sub.messages == ["test/loopback abc", "test/loopback def"]
+            assert remoteSub.messages == ["test/loopback abc", "test/loopback def"]
+        }
+
+        when: "the broker had the time to deliver a second copy"
+        Thread.sleep(500)
+
+        then:
+        sub.messages.size() == 2
+
+        cleanup:
+        ctx.close()
+        remote.close()
+    }
+
+    void "test shared subscriptions are not delivered locally"() {
+        ApplicationContext ctx = startContext("loopbackspec.shared": true, "mqtt.loopback.enabled": true)
+        def client = ctx.getBean(getClient())
+        def sub = ctx.getBean(SharedSubscriber)
+
+        expect:
+        ctx.getBean(MqttLoopback).isEmpty()
+
+        when:
+        client.send("abc")
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert sub.messages == ["abc"]
+        }
+
+        cleanup:
+        ctx.close()
+    }
+
+    void "test a full loopback queue fails the publish after the message was handed to the client"() {
+        ApplicationContext remote = startContext("loopbackspec": true)
+        ApplicationContext ctx = startContext("loopbackspec.slow": true, "mqtt.loopback.enabled": true,
+                "mqtt.loopback.queue-size": 1, "mqtt.loopback.queue-timeout": "100ms")
+        def client = ctx.getBean(getClient())
+        def sub = ctx.getBean(SlowSubscriber)
+        def remoteSub = remote.getBean(MySubscriber)
+
+        when: "the first message blocks the local subscriber and the second fills the queue"
+        List<CompletableFuture<Void>> futures = (1..3).collect { client.sendAsync("m$it") }
+        futures[2].get(5, TimeUnit.SECONDS)
+
+        then:
+        ExecutionException e = thrown()
+        e.cause.message.contains("loopback queue")
+        futures[0].get(5, TimeUnit.SECONDS) == null
+
+        and: "the broker publish is not affected"
+        new PollingConditions(timeout: 5).eventually {
+            assert remoteSub.messages == (1..3).collect { "test/loopback/slow m$it".toString() }
+        }
+
+        cleanup:
+        sub.release.countDown()
+        ctx.close()
+        remote.close()
+    }
+
+    abstract Class<? extends LoopbackClient> getClient()
+
+    @Requires(property = "loopbackspec", value = StringUtils.TRUE)
+    @MqttSubscriber
+    static class MySubscriber {
+
+        List<String> messages = new CopyOnWriteArrayList<>()
+
+        @Topic("test/+")
+        void receive(@Topic String topic, String data) {
+            messages << "$topic $data".toString()
+        }
+
+        @Topic("test/loopback/slow")
+        void receiveSlow(@Topic String topic, String data) {
+            messages << "$topic $data".toString()
+        }
+    }
+
+    @Requires(property = "loopbackspec.slow", value = StringUtils.TRUE)
+    @MqttSubscriber
+    static class SlowSubscriber {
+
+        CountDownLatch release = new CountDownLatch(1)
+
+        @Topic("test/loopback/slow")
+        void receive(String data) {
+            release.await(10, TimeUnit.SECONDS)
+        }
+    }
+
+    @Requires(property = "loopbackspec.shared", value = StringUtils.TRUE)
+    @MqttSubscriber
+    static class SharedSubscriber {
+
+        List<String> messages = new CopyOnWriteArrayList<>()
+
+        @Topic('$share/loopback/test/loopback')
+        void receive(String data) {
+            messages << data
+        }
+    }
+}
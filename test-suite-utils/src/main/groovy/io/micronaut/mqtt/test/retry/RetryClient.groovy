@@ -0,0 +1,12 @@
+package io.micronaut.mqtt.test.retry
+
+import io.micronaut.mqtt.annotation.Topic
+
+interface RetryClient {
+
+    @Topic("test/retry/flaky")
+    void flaky(String data)
+
+    @Topic("test/retry/poison")
+    void poison(String data)
+}
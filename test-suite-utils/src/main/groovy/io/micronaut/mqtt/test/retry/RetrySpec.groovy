@@ -0,0 +1,84 @@
+package io.micronaut.mqtt.test.retry
+
+import io.micronaut.context.ApplicationContext
+import io.micronaut.context.annotation.Requires
+import io.micronaut.core.util.StringUtils
+import io.micronaut.mqtt.annotation.MqttSubscriber
+import io.micronaut.mqtt.annotation.Topic
+import io.micronaut.mqtt.test.AbstractMQTTTest
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.atomic.AtomicInteger
+
+abstract class RetrySpec extends AbstractMQTTTest {
+
+    void "test failed messages are retried and dead lettered"() {
+        ApplicationContext ctx = startContext(
+                "retryspec": true,
+                "mqtt.subscriber.retry.enabled": true,
+                "mqtt.subscriber.retry.max-attempts": 3,
+                "mqtt.subscriber.retry.initial-delay": "50ms",
+                "mqtt.subscriber.retry.dead-letter-topic": "test/retry/dlq")
+        def client = ctx.getBean(getClient())
+        def sub = ctx.getBean(MySubscriber)
+        def polling = new PollingConditions(timeout: 5)
+
+        when:
+        client.flaky("abc")
+
+        then:
+        polling.eventually {
+            assert sub.flakyAttempts.get() == 3
+            assert sub.flakyData == "abc"
+        }
+
+        when:
+        client.poison("xyz")
+
+        then:
+        polling.eventually {
+            assert sub.poisonAttempts.get() == 3
+            assert sub.deadLetter != null
+            assert sub.deadLetterTopic == "test/retry/dlq"
+        }
+        verifyDeadLetter(sub.deadLetter)
+
+        cleanup:
+        ctx.close()
+    }
+
+    abstract Class<? extends RetryClient> getClient()
+
+    abstract void verifyDeadLetter(byte[] deadLetter)
+
+    @Requires(property = "retryspec", value = StringUtils.TRUE)
+    @MqttSubscriber
+    static class MySubscriber {
+
+        AtomicInteger flakyAttempts = new AtomicInteger()
+        AtomicInteger poisonAttempts = new AtomicInteger()
+        String flakyData
+        byte[] deadLetter
+        String deadLetterTopic
+
+        @Topic("test/retry/flaky")
+        void flaky(String data) {
+            if (flakyAttempts.incrementAndGet() < 3) {
+                throw new IllegalStateException("flaky")
+            }
+            flakyData = data
+        }
+
+        @Topic("test/retry/poison")
+        void poison(String data) {
+            poisonAttempts.incrementAndGet()
+            throw new IllegalStateException("poison")
+        }
+
+        @Topic("test/retry/dlq")
+        void deadLetter(byte[] data, @Topic String topic) {
+            deadLetterTopic = topic
+            deadLetter = data
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package io.micronaut.mqtt.test.subscribe
+
+import io.micronaut.mqtt.annotation.Topic
+
+interface ChunkedSubscribeClient {
+
+    void send(@Topic String topic, String data)
+}
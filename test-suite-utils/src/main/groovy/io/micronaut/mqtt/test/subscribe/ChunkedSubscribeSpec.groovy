@@ -0,0 +1,241 @@
+package io.micronaut.mqtt.test.subscribe
+
+import io.micronaut.context.ApplicationContext
+import io.micronaut.context.annotation.Requires
+import io.micronaut.core.util.StringUtils
+import io.micronaut.mqtt.annotation.MqttSubscriber
+import io.micronaut.mqtt.annotation.Topic
+import io.micronaut.mqtt.exception.MqttSubscriberException
+import io.micronaut.mqtt.exception.MqttSubscriberExceptionHandler
+import io.micronaut.mqtt.exception.MqttSubscriptionRejectedException
+import io.micronaut.mqtt.intercept.AbstractMqttSubscriberAdvice
+import io.micronaut.mqtt.test.broker.EmbeddedMqttBroker
+import spock.lang.AutoCleanup
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.time.Duration
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.TimeUnit
+
+abstract class ChunkedSubscribeSpec extends Specification {
+
+    @Shared
+    @AutoCleanup
+    EmbeddedMqttBroker broker = new EmbeddedMqttBroker().start()
+
+    void setup() {
+        broker.rejectSubscriptions { false }
+        broker.subscribeAckDelay(Duration.ZERO)
+        broker.resetSubscribeStatistics()
+    }
+
+    void "startup subscriptions are split by the maximum number of topics"() {
+        when:
+        ApplicationContext ctx = startContext(
+                "chunkedsubscribespec.many": true,
+                "mqtt.subscriber.max-topics-per-subscribe": 5)
+        def client = ctx.getBean(getClient())
+        def sub = ctx.getBean(ManySubscriber)
+
+        then: "the 12 filters are sent in packets of 5, 5 and 2"
+        broker.subscribePacketCount == 3
+        ctx.getBean(AbstractMqttSubscriberAdvice).subscriptionCount == 12
+
+        when:
+        (1..12).each { client.send(ManySubscriber.topic(it), "$it") }
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert sub.messages.size() == 12
+        }
+
+        cleanup:
+        ctx.close()
+    }
+
+    void "startup subscriptions are split by the maximum packet size"() {
+        when: "two 43 byte filters fit into a packet, but not three"
+        ApplicationContext ctx = startContext(
+                "chunkedsubscribespec.many": true,
+                "mqtt.subscriber.max-subscribe-packet-size": 120)
+        def client = ctx.getBean(getClient())
+        def sub = ctx.getBean(ManySubscriber)
+
+        then:
+        broker.subscribePacketCount == 6
+        broker.largestSubscribePacket <= 120
+
+        when:
+        (1..12).each { client.send(ManySubscriber.topic(it), "$it") }
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert sub.messages.size() == 12
+        }
+
+        cleanup:
+        ctx.close()
+    }
+
+    void "a rejected filter is reported to the exception handler of the subscriber that declared it"() {
+        given:
+        broker.rejectSubscriptions { it.startsWith("chunked/denied") }
+
+        when: "both filters are sent in the same packet"
+        ApplicationContext ctx = startContext("chunkedsubscribespec.acl": true)
+        def client = ctx.getBean(getClient())
+        def denied = ctx.getBean(DeniedSubscriber)
+        def allowed = ctx.getBean(AllowedSubscriber)
+
+        then:
+        broker.subscribePacketCount == 1
+        new PollingConditions(timeout: 5).eventually {
+            assert denied.errors.size() == 1
+        }
+        denied.errors[0] instanceof MqttSubscriptionRejectedException
+        ((MqttSubscriptionRejectedException) denied.errors[0]).rejectedFilters == ["chunked/denied/topic"]
+        allowed.errors.isEmpty()
+
+        when: "the accepted filter of the packet was subscribed to"
+        client.send("chunked/allowed/topic", "allowed")
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert allowed.messages == ["allowed"]
+        }
+
+        cleanup:
+        ctx.close()
+    }
+
+    void "startup waits for the subscriptions to be acknowledged"() {
+        given:
+        broker.subscribeAckDelay(Duration.ofMillis(500))
+
+        when:
+        long start = System.nanoTime()
+        ApplicationContext ctx = startContext("chunkedsubscribespec.many": true)
+        long elapsed = System.nanoTime() - start
+        def client = ctx.getBean(getClient())
+        def sub = ctx.getBean(ManySubscriber)
+
+        then:
+        elapsed >= TimeUnit.MILLISECONDS.toNanos(500)
+        ctx.getBean(AbstractMqttSubscriberAdvice).startupSubscriptionDuration >= Duration.ofMillis(500)
+
+        when: "a message is published as soon as the context has started"
+        client.send(ManySubscriber.topic(1), "first")
+
+        then: "it is not missed"
+        new PollingConditions(timeout: 5).eventually {
+            assert sub.messages == ["first"]
+        }
+
+        cleanup:
+        ctx.close()
+    }
+
+    void "startup continues once the subscribe timeout has elapsed"() {
+        given:
+        broker.subscribeAckDelay(Duration.ofSeconds(3))
+
+        when:
+        long start = System.nanoTime()
+        ApplicationContext ctx = startContext(
+                "chunkedsubscribespec.many": true,
+                "mqtt.subscriber.subscribe-timeout": "500ms")
+        long elapsed = System.nanoTime() - start
+        def client = ctx.getBean(getClient())
+        def sub = ctx.getBean(ManySubscriber)
+
+        then:
+        elapsed >= TimeUnit.MILLISECONDS.toNanos(500)
+        elapsed < TimeUnit.MILLISECONDS.toNanos(2500)
+        ctx.getBean(AbstractMqttSubscriberAdvice).startupSubscriptionDuration >= Duration.ofMillis(500)
+
+        when: "the broker eventually acknowledges the subscriptions"
+        Thread.sleep(3000)
+        client.send(ManySubscriber.topic(1), "late")
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert sub.messages == ["late"]
+        }
+
+        cleanup:
+        ctx.close()
+    }
+
+    protected ApplicationContext startContext(Map additionalConfig = [:]) {
+        ApplicationContext.run(
+                ["mqtt.client.server-uri": broker.serverUri,
+                 "mqtt.client.client-id": UUID.randomUUID().toString(),
+                 "spec.name": getClass().simpleName] << additionalConfig, "test")
+    }
+
+    abstract Class<? extends ChunkedSubscribeClient> getClient()
+
+    @Requires(property = "chunkedsubscribespec.many", value = StringUtils.TRUE)
+    @MqttSubscriber
+    static class ManySubscriber {
+
+        List<String> messages = new CopyOnWriteArrayList<>()
+
+        // each filter is 40 characters long, 43 bytes when encoded
+        @Topic("chunked/many/01/xxxxxxxxxxxxxxxxxxxxxxxx")
+        @Topic("chunked/many/02/xxxxxxxxxxxxxxxxxxxxxxxx")
+        @Topic("chunked/many/03/xxxxxxxxxxxxxxxxxxxxxxxx")
+        @Topic("chunked/many/04/xxxxxxxxxxxxxxxxxxxxxxxx")
+        @Topic("chunked/many/05/xxxxxxxxxxxxxxxxxxxxxxxx")
+        @Topic("chunked/many/06/xxxxxxxxxxxxxxxxxxxxxxxx")
+        @Topic("chunked/many/07/xxxxxxxxxxxxxxxxxxxxxxxx")
+        @Topic("chunked/many/08/xxxxxxxxxxxxxxxxxxxxxxxx")
+        @Topic("chunked/many/09/xxxxxxxxxxxxxxxxxxxxxxxx")
+        @Topic("chunked/many/10/xxxxxxxxxxxxxxxxxxxxxxxx")
+        @Topic("chunked/many/11/xxxxxxxxxxxxxxxxxxxxxxxx")
+        @Topic("chunked/many/12/xxxxxxxxxxxxxxxxxxxxxxxx")
+        void receive(String data) {
+            messages.add(data)
+        }
+
+        static String topic(int i) {
+            "chunked/many/${String.format('%02d', i)}/xxxxxxxxxxxxxxxxxxxxxxxx"
+        }
+    }
+
+    @Requires(property = "chunkedsubscribespec.acl", value = StringUtils.TRUE)
+    @MqttSubscriber
+    static class DeniedSubscriber implements MqttSubscriberExceptionHandler {
+
+        List<MqttSubscriberException> errors = new CopyOnWriteArrayList<>()
+
+        @Topic("chunked/denied/topic")
+        void receive(String data) {
+        }
+
+        @Override
+        void handle(MqttSubscriberException exception) {
+            errors.add(exception)
+        }
+    }
+
+    @Requires(property = "chunkedsubscribespec.acl", value = StringUtils.TRUE)
+    @MqttSubscriber
+    static class AllowedSubscriber implements MqttSubscriberExceptionHandler {
+
+        List<String> messages = new CopyOnWriteArrayList<>()
+        List<MqttSubscriberException> errors = new CopyOnWriteArrayList<>()
+
+        @Topic("chunked/allowed/topic")
+        void receive(String data) {
+            messages.add(data)
+        }
+
+        @Override
+        void handle(MqttSubscriberException exception) {
+            errors.add(exception)
+        }
+    }
+}
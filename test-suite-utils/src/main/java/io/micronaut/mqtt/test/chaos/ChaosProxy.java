@@ -0,0 +1,250 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.test.chaos;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A TCP proxy between clients and a broker that injects faults on demand: latency, bandwidth
+ * caps, stalls and connection resets. Faults apply to both directions of every connection,
+ * including those already open, and are removed with {@link #heal()}.
+ *
+ * <p>Each connection is forwarded by a reader and a writer thread per direction, the readers
+ * stamp the received chunks with the time they are due and the writers hold them back until
+ * then, so latency delays the data without reducing the throughput.</p>
+ *
+ * @since 3.0.0
+ */
+public final class ChaosProxy implements AutoCloseable {
+
+    private final String targetHost;
+    private final int targetPort;
+    private final Set<ProxyConnection> connections = ConcurrentHashMap.newKeySet();
+    private final Object stallLock = new Object();
+    private ServerSocket server;
+    private Thread acceptor;
+    private volatile boolean running;
+    private volatile long latencyNanos;
+    private volatile long bytesPerSecond;
+    private volatile boolean stalled;
+    private volatile boolean refusing;
+
+    /**
+     * @param targetHost The host of the broker
+     * @param targetPort The port of the broker
+     */
+    public ChaosProxy(String targetHost, int targetPort) {
+        this.targetHost = targetHost;
+        this.targetPort = targetPort;
+    }
+
+    /**
+     * Starts accepting connections on a random loopback port.
+     *
+     * @return This proxy
+     * @throws IOException If the port cannot be bound
+     */
+    public synchronized ChaosProxy start() throws IOException {
+        if (running) {
+            return this;
+        }
+        server = new ServerSocket();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        running = true;
+        acceptor = new Thread(this::accept, "mqtt-chaos-proxy-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return this;
+    }
+
+    /**
+     * @return The port the proxy listens on
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * @return The URI clients connect to
+     */
+    public String getServerUri() {
+        return "tcp://localhost:" + getPort();
+    }
+
+    /**
+     * @return The number of open connections
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * Delays the data forwarded in each direction, so a round trip takes twice the latency.
+     *
+     * @param latency The latency, zero for none
+     * @return This proxy
+     */
+    public ChaosProxy latency(Duration latency) {
+        this.latencyNanos = latency.toNanos();
+        return this;
+    }
+
+    /**
+     * Caps the throughput of each direction of every connection.
+     *
+     * @param bytesPerSecond The number of bytes forwarded per second, zero for no cap
+     * @return This proxy
+     */
+    public ChaosProxy bandwidth(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        return this;
+    }
+
+    /**
+     * Stops forwarding data while keeping the connections open, like a broker that stopped
+     * responding. The data received in the meantime is forwarded once {@link #resume() resumed}.
+     *
+     * @return This proxy
+     */
+    public ChaosProxy stall() {
+        stalled = true;
+        return this;
+    }
+
+    /**
+     * Resumes forwarding data after a {@link #stall()}.
+     *
+     * @return This proxy
+     */
+    public ChaosProxy resume() {
+        synchronized (stallLock) {
+            stalled = false;
+            stallLock.notifyAll();
+        }
+        return this;
+    }
+
+    /**
+     * @param refusing True to reset new connections as soon as they are accepted, like a broker
+     *                 that is down
+     * @return This proxy
+     */
+    public ChaosProxy refuseConnections(boolean refusing) {
+        this.refusing = refusing;
+        return this;
+    }
+
+    /**
+     * Resets every open connection on both sides, like a broker that crashed.
+     */
+    public void resetConnections() {
+        for (ProxyConnection connection : connections) {
+            connection.reset();
+        }
+    }
+
+    /**
+     * Removes all faults. Open connections are not affected.
+     *
+     * @return This proxy
+     */
+    public ChaosProxy heal() {
+        latencyNanos = 0;
+        bytesPerSecond = 0;
+        refusing = false;
+        return resume();
+    }
+
+    /**
+     * Stops the proxy and closes all connections.
+     */
+    @Override
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        resume();
+        try {
+            server.close();
+            acceptor.join();
+        } catch (IOException e) {
+            // ignore
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        connections.forEach(ProxyConnection::close);
+    }
+
+    long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Blocks while the proxy is stalled.
+     *
+     * @throws InterruptedException If the thread is interrupted
+     */
+    void awaitFlowing() throws InterruptedException {
+        if (!stalled) {
+            return;
+        }
+        synchronized (stallLock) {
+            while (stalled) {
+                stallLock.wait();
+            }
+        }
+    }
+
+    void closed(ProxyConnection connection) {
+        connections.remove(connection);
+    }
+
+    private void accept() {
+        while (running) {
+            Socket client;
+            try {
+                client = server.accept();
+            } catch (IOException e) {
+                // the server socket was closed
+                return;
+            }
+            if (refusing) {
+                ProxyConnection.reset(client);
+                continue;
+            }
+            try {
+                Socket upstream = new Socket(targetHost, targetPort);
+                ProxyConnection connection = new ProxyConnection(this, client, upstream);
+                connections.add(connection);
+                connection.start();
+            } catch (IOException e) {
+                ProxyConnection.reset(client);
+            }
+        }
+    }
+}
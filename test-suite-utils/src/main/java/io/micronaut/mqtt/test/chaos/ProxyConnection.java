@@ -0,0 +1,186 @@
+/*
+ * Copyright 2017-2023 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.mqtt.test.chaos;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A connection forwarded by the {@link ChaosProxy}, between a client and the broker.
+ *
+ * @since 3.0.0
+ */
+final class ProxyConnection {
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+    // bandwidth caps are applied in slices, so a slow link does not send bursts
+    private static final int SLICES_PER_SECOND = 100;
+
+    private final ChaosProxy proxy;
+    private final Socket client;
+    private final Socket upstream;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    ProxyConnection(ChaosProxy proxy, Socket client, Socket upstream) {
+        this.proxy = proxy;
+        this.client = client;
+        this.upstream = upstream;
+    }
+
+    void start() throws IOException {
+        client.setTcpNoDelay(true);
+        upstream.setTcpNoDelay(true);
+        int port = client.getPort();
+        new Direction(client.getInputStream(), upstream.getOutputStream(), "up-" + port).start();
+        new Direction(upstream.getInputStream(), client.getOutputStream(), "down-" + port).start();
+    }
+
+    /**
+     * Closes both sides with a TCP reset rather than an orderly shutdown.
+     */
+    void reset() {
+        if (closed.compareAndSet(false, true)) {
+            reset(client);
+            reset(upstream);
+            proxy.closed(this);
+        }
+    }
+
+    void close() {
+        if (closed.compareAndSet(false, true)) {
+            closeQuietly(client);
+            closeQuietly(upstream);
+            proxy.closed(this);
+        }
+    }
+
+    static void reset(Socket socket) {
+        try {
+            socket.setSoLinger(true, 0);
+        } catch (IOException e) {
+            // the socket is already closed
+        }
+        closeQuietly(socket);
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    /**
+     * A chunk of data and the time it is due to be forwarded.
+     */
+    private record Chunk(byte[] data, long due) {
+    }
+
+    /**
+     * Forwards one direction of the connection, the reader thread queues the data and the
+     * writer thread forwards it when due.
+     */
+    private final class Direction {
+
+        private static final Chunk END = new Chunk(new byte[0], 0);
+
+        private final InputStream in;
+        private final OutputStream out;
+        private final String name;
+        private final BlockingQueue<Chunk> chunks = new LinkedBlockingQueue<>();
+        private long nextSlot;
+
+        Direction(InputStream in, OutputStream out, String name) {
+            this.in = in;
+            this.out = out;
+            this.name = name;
+        }
+
+        void start() {
+            Thread reader = new Thread(this::read, "mqtt-chaos-proxy-read-" + name);
+            Thread writer = new Thread(this::write, "mqtt-chaos-proxy-write-" + name);
+            reader.setDaemon(true);
+            writer.setDaemon(true);
+            reader.start();
+            writer.start();
+        }
+
+        private void read() {
+            byte[] buffer = new byte[CHUNK_SIZE];
+            try {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    chunks.add(new Chunk(Arrays.copyOf(buffer, read), System.nanoTime() + proxy.getLatencyNanos()));
+                }
+            } catch (IOException e) {
+                // the connection was closed or reset
+            }
+            chunks.add(END);
+        }
+
+        private void write() {
+            try {
+                Chunk chunk;
+                while ((chunk = chunks.take()) != END) {
+                    parkUntil(chunk.due());
+                    proxy.awaitFlowing();
+                    write(chunk.data());
+                }
+            } catch (IOException e) {
+                // the connection was closed or reset
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            close();
+        }
+
+        private void write(byte[] data) throws IOException {
+            long bytesPerSecond = proxy.getBytesPerSecond();
+            if (bytesPerSecond <= 0) {
+                out.write(data);
+                out.flush();
+                return;
+            }
+            int slice = (int) Math.max(1, Math.min(CHUNK_SIZE, bytesPerSecond / SLICES_PER_SECOND));
+            for (int offset = 0; offset < data.length; offset += slice) {
+                int length = Math.min(slice, data.length - offset);
+                long now = System.nanoTime();
+                if (nextSlot - now < 0) {
+                    nextSlot = now;
+                }
+                parkUntil(nextSlot);
+                out.write(data, offset, length);
+                out.flush();
+                nextSlot += length * 1_000_000_000L / bytesPerSecond;
+            }
+        }
+
+        private void parkUntil(long deadline) {
+            long wait;
+            while ((wait = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+    }
+}